@@ -53,6 +53,8 @@ public class SecurityConfig {
                 .requestMatchers(HttpMethod.POST, "/api/v1/urls/*/redirect").permitAll()
                 .requestMatchers(HttpMethod.POST, "/api/v1/qr/*/redirect").permitAll()
                 .requestMatchers(HttpMethod.POST, "/api/v1/files/*/redirect").permitAll()
+                // QR images are loaded by <img> tags in list views, which cannot send a bearer token
+                .requestMatchers(HttpMethod.GET, "/api/v1/qr/*/image").permitAll()
                 // Protected endpoints - require authentication
                 .requestMatchers("/api/v1/urls/**").authenticated()
                 .requestMatchers("/api/v1/qr/**").authenticated()
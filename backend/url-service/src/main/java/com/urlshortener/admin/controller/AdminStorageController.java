@@ -0,0 +1,41 @@
+package com.urlshortener.admin.controller;
+
+import com.urlshortener.service.FileBlobService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/v1/admin/storage")
+@CrossOrigin(origins = "*")
+@PreAuthorize("hasRole('ADMIN')")
+@ConditionalOnProperty(name = "app.admin.enabled", havingValue = "true", matchIfMissing = false)
+public class AdminStorageController {
+
+    @Autowired
+    private FileBlobService fileBlobService;
+
+    /**
+     * File storage savings from content deduplication and compression.
+     */
+    @GetMapping("/savings")
+    @PreAuthorize("hasAuthority('ADMIN_files:read')")
+    public ResponseEntity<?> getStorageSavings() {
+        try {
+            return ResponseEntity.ok(Map.of(
+                "success", true,
+                "data", fileBlobService.getSavingsReport()
+            ));
+
+        } catch (Exception e) {
+            return ResponseEntity.internalServerError().body(Map.of(
+                "success", false,
+                "message", "Failed to build storage report: " + e.getMessage()
+            ));
+        }
+    }
+}
@@ -3,7 +3,8 @@ package com.urlshortener.aspect;
 import com.urlshortener.annotation.RequiresPlan;
 import com.urlshortener.model.User;
 import com.urlshortener.service.PlanValidationService;
-import com.urlshortener.service.UserService;
+import com.urlshortener.service.QuotaResource;
+import com.urlshortener.service.UserContextService;
 import com.urlshortener.exception.PlanLimitException;
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
@@ -14,6 +15,7 @@ import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 /**
@@ -30,7 +32,7 @@ public class PlanValidationAspect {
     private PlanValidationService planValidationService;
 
     @Autowired
-    private UserService userService;
+    private UserContextService userContextService;
 
     @Around("@annotation(requiresPlan)")
     public Object validatePlanAccess(ProceedingJoinPoint joinPoint, RequiresPlan requiresPlan) throws Throwable {
@@ -47,7 +49,7 @@ public class PlanValidationAspect {
         }
 
         String userId = authentication.getName();
-        Optional<User> userOpt = userService.findById(userId);
+        Optional<User> userOpt = userContextService.getUser(userId);
 
         if (userOpt.isEmpty()) {
             logger.debug("User not found for ID {}, treating as anonymous", userId);
@@ -88,17 +90,17 @@ public class PlanValidationAspect {
         switch (feature.toLowerCase()) {
             case "urlcreation":
             case "urls":
-                planValidationService.validateUrlLimit(user, user.getMonthlyUrlsCreated());
+                planValidationService.validateUrlLimit(user, QuotaResource.URLS.monthlyUsage(user, LocalDateTime.now()));
                 break;
 
             case "qrcreation":
             case "qrcodes":
-                planValidationService.validateQRLimit(user, user.getMonthlyQrCodesCreated());
+                planValidationService.validateQRLimit(user, QuotaResource.QR_CODES.monthlyUsage(user, LocalDateTime.now()));
                 break;
 
             case "fileupload":
             case "files":
-                planValidationService.validateFileLimit(user, user.getMonthlyFilesUploaded());
+                planValidationService.validateFileLimit(user, QuotaResource.FILES.monthlyUsage(user, LocalDateTime.now()));
                 break;
 
             case "customdomains":
@@ -1,46 +1,166 @@
 package com.urlshortener.config;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.urlshortener.model.LinkResolution;
+import com.urlshortener.service.LinkResolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.CacheManager;
 import org.springframework.cache.annotation.EnableCaching;
-import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
 @Configuration
 @EnableCaching
 public class CacheConfig {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(CacheConfig.class);
-    
+
+    // TTLs mirror RedisConfig so behaviour is the same with or without Redis
+    @Value("${app.cache.url-ttl:3600}")
+    private long urlCacheTtl;
+
+    @Value("${app.cache.analytics-ttl:300}")
+    private long analyticsCacheTtl;
+
+    @Value("${app.cache.geo-ttl:86400}")
+    private long geoCacheTtl;
+
+    @Value("${app.cache.local.default-max-weight:10000}")
+    private long defaultMaxWeight;
+
+    @Value("${app.cache.local.url-max-weight:100000}")
+    private long urlMaxWeight;
+
+    @Value("${app.cache.local.list-max-weight:50000}")
+    private long listMaxWeight;
+
+    @Value("${app.cache.local.url-refresh-after-write:300}")
+    private long urlRefreshAfterWrite;
+
+    @Value("${app.cache.invalidation.stale-caches:userAnalytics,urlAnalytics,realtimeAnalytics,userUrls,userQRCodes,userFiles}")
+    private List<String> staleCacheNames;
+
+    @Value("${app.cache.invalidation.max-stale:60}")
+    private long maxStale;
+
+    @Value("${app.cache.invalidation.revalidate-timeout:10}")
+    private long revalidateTimeout;
+
+    // Time source for expiry; tests substitute a fake one
+    private Ticker ticker = Ticker.systemTicker();
+
     /**
-     * Fallback cache manager when Redis is not available
+     * Fallback cache manager when Redis is not available.
+     *
+     * Every cache is bounded by weight (roughly one unit per cached element) and expires
+     * entries after write; Caffeine's W-TinyLFU admission keeps hot keys under pressure.
+     * Stats are recorded so actuator publishes cache.gets / cache.evictions per cache.
+     * Caches in app.cache.invalidation.stale-caches serve stale-while-revalidate.
      */
     @Bean
     @Primary
     @ConditionalOnProperty(name = "spring.cache.type", havingValue = "simple", matchIfMissing = true)
-    public CacheManager simpleCacheManager() {
-        logger.info("Using simple in-memory cache manager (Redis not configured)");
-        ConcurrentMapCacheManager cacheManager = new ConcurrentMapCacheManager();
-        
-        // Pre-configure cache names
-        cacheManager.setCacheNames(java.util.Arrays.asList(
-            "userUrls",
-            "userQRCodes", 
-            "userFiles",
-            "urlAnalytics",
-            "userAnalytics",
-            "dashboardOverview",
-            "realtimeAnalytics",
-            "clickCounts",
-            "countryStats",
-            "short_urls"  // Added missing cache for URL lookups
-        ));
-        
+    public CacheManager simpleCacheManager(ObjectProvider<LinkResolver> linkResolver,
+                                           ObjectProvider<MeterRegistry> meterRegistry) {
+        logger.info("Using bounded in-memory cache manager (Redis not configured)");
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager();
         cacheManager.setAllowNullValues(false);
-        return cacheManager;
+
+        // Caches not listed below still get a bound and the default URL TTL
+        cacheManager.setCaffeine(bounded(urlCacheTtl, defaultMaxWeight));
+
+        // Redirect resolutions - refreshed in the background while hot
+        cacheManager.registerCustomCache(LinkResolver.CACHE_NAME, bounded(urlCacheTtl, urlMaxWeight)
+                .refreshAfterWrite(Duration.ofSeconds(urlRefreshAfterWrite))
+                .build(linkResolutionLoader(linkResolver)));
+
+        // Analytics - 5 minutes
+        registerCache(cacheManager, "analytics", analyticsCacheTtl, defaultMaxWeight);
+        registerCache(cacheManager, "userAnalytics", analyticsCacheTtl, listMaxWeight);
+        registerCache(cacheManager, "urlAnalytics", analyticsCacheTtl, listMaxWeight);
+        registerCache(cacheManager, "clickCounts", analyticsCacheTtl, defaultMaxWeight);
+
+        // Geographic data - 24 hours, country stats - 1 hour
+        registerCache(cacheManager, "geoData", geoCacheTtl, defaultMaxWeight);
+        registerCache(cacheManager, "countryStats", 3600, defaultMaxWeight);
+
+        // Per-user listings - 10 minutes
+        registerCache(cacheManager, "userUrls", 600, listMaxWeight);
+        registerCache(cacheManager, "userQRCodes", 600, listMaxWeight);
+        registerCache(cacheManager, "userFiles", 600, listMaxWeight);
+
+        // Dashboard - 5 minutes, realtime - 1 minute
+        registerCache(cacheManager, "dashboardOverview", 300, listMaxWeight);
+        registerCache(cacheManager, "realtimeAnalytics", 60, defaultMaxWeight);
+
+        return new StaleWhileRevalidateCacheManager(cacheManager, "simple", new LinkedHashSet<>(staleCacheNames),
+                Duration.ofSeconds(maxStale), Duration.ofSeconds(revalidateTimeout), meterRegistry.getIfAvailable());
+    }
+
+    private void registerCache(CaffeineCacheManager cacheManager, String name, long ttlSeconds, long maxWeight) {
+        cacheManager.registerCustomCache(name, bounded(ttlSeconds, maxWeight).build());
+    }
+
+    private Caffeine<Object, Object> bounded(long ttlSeconds, long maxWeight) {
+        return Caffeine.newBuilder()
+                .maximumWeight(maxWeight)
+                .weigher((Object key, Object value) -> weigh(value))
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .ticker(ticker)
+                .recordStats();
+    }
+
+    /**
+     * Approximate weight: collections and maps count their elements, anything else counts one.
+     */
+    private static int weigh(Object value) {
+        if (value instanceof Collection<?> collection) {
+            return 1 + collection.size();
+        }
+        if (value instanceof Map<?, ?> map) {
+            return 1 + map.size();
+        }
+        return 1;
+    }
+
+    /**
+     * Cold misses are left to LinkResolver (it decides what is cacheable); the loader only
+     * refreshes entries that are already cached so hot links never expire under traffic.
+     */
+    private CacheLoader<Object, Object> linkResolutionLoader(ObjectProvider<LinkResolver> linkResolver) {
+        return new CacheLoader<>() {
+            @Override
+            public Object load(Object key) {
+                return null;
+            }
+
+            @Override
+            public Object reload(Object key, Object oldValue) {
+                LinkResolver resolver = linkResolver.getIfAvailable();
+                if (resolver == null) {
+                    return oldValue;
+                }
+                LinkResolution resolution = resolver.load(key.toString());
+
+                // Links that gained a click cap must not stay cached (null removes the entry)
+                boolean cacheable = resolution.getLink() == null || resolution.getLink().getMaxClicks() == null;
+                return cacheable ? resolution : null;
+            }
+        };
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,166 @@
+package com.urlshortener.config;
+
+import com.urlshortener.model.LinkResolution;
+import com.urlshortener.model.ResolvedLink;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Versioned binary encoding of {@link LinkResolution} for the short_urls Redis cache.
+ *
+ * Layout (v1): magic 0xB1, version, flags, shortCode, then for found links domain, userId,
+ * originalUrl, title, password, [expiresAt epoch millis UTC], [maxClicks], totalClicks.
+ * Strings are a varint length (0 = null, n = n-1 bytes) followed by UTF-8 bytes.
+ * Payloads with an unknown magic or version (e.g. older JSON entries), and truncated or
+ * malformed ones, read as a cache miss so the link is loaded again and re-cached.
+ */
+public class LinkResolutionRedisSerializer implements RedisSerializer<Object> {
+
+    private static final int MAGIC = 0xB1;
+    private static final int VERSION = 1;
+
+    private static final int FLAG_FOUND = 1;
+    private static final int FLAG_ACTIVE = 1 << 1;
+    private static final int FLAG_PASSWORD_PROTECTED = 1 << 2;
+    private static final int FLAG_TRACK_CLICKS = 1 << 3;
+    private static final int FLAG_HAS_EXPIRY = 1 << 4;
+    private static final int FLAG_HAS_MAX_CLICKS = 1 << 5;
+
+    @Override
+    public byte[] serialize(Object value) throws SerializationException {
+        if (value == null) {
+            return null;
+        }
+        if (!(value instanceof LinkResolution resolution)) {
+            throw new SerializationException("Cannot serialize " + value.getClass().getName() + " as a link resolution");
+        }
+
+        ResolvedLink link = resolution.getLink();
+        int flags = 0;
+        if (link != null) {
+            flags |= FLAG_FOUND;
+            if (link.isActive()) flags |= FLAG_ACTIVE;
+            if (link.isPasswordProtected()) flags |= FLAG_PASSWORD_PROTECTED;
+            if (link.isTrackClicks()) flags |= FLAG_TRACK_CLICKS;
+            if (link.getExpiresAt() != null) flags |= FLAG_HAS_EXPIRY;
+            if (link.getMaxClicks() != null) flags |= FLAG_HAS_MAX_CLICKS;
+        }
+
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(MAGIC);
+            out.writeByte(VERSION);
+            out.writeByte(flags);
+            writeString(out, resolution.getShortCode());
+
+            if (link != null) {
+                writeString(out, link.getDomain());
+                writeString(out, link.getUserId());
+                writeString(out, link.getOriginalUrl());
+                writeString(out, link.getTitle());
+                writeString(out, link.getPassword());
+                if (link.getExpiresAt() != null) {
+                    out.writeLong(link.getExpiresAt().toInstant(ZoneOffset.UTC).toEpochMilli());
+                }
+                if (link.getMaxClicks() != null) {
+                    writeVarInt(out, link.getMaxClicks());
+                }
+                writeVarInt(out, link.getTotalClicks());
+            }
+
+            out.flush();
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new SerializationException("Failed to serialize link resolution", e);
+        }
+    }
+
+    @Override
+    public Object deserialize(byte[] bytes) throws SerializationException {
+        if (bytes == null || bytes.length < 3 || (bytes[0] & 0xFF) != MAGIC || bytes[1] != VERSION) {
+            return null;
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes, 2, bytes.length - 2));
+            int flags = in.readUnsignedByte();
+            String shortCode = readString(in);
+
+            if ((flags & FLAG_FOUND) == 0) {
+                return LinkResolution.notFound(shortCode);
+            }
+
+            String domain = readString(in);
+            String userId = readString(in);
+            String originalUrl = readString(in);
+            String title = readString(in);
+            String password = readString(in);
+            LocalDateTime expiresAt = (flags & FLAG_HAS_EXPIRY) != 0
+                ? LocalDateTime.ofInstant(Instant.ofEpochMilli(in.readLong()), ZoneOffset.UTC)
+                : null;
+            Integer maxClicks = (flags & FLAG_HAS_MAX_CLICKS) != 0 ? readVarInt(in) : null;
+            int totalClicks = readVarInt(in);
+
+            return LinkResolution.found(new ResolvedLink(shortCode, domain, userId, originalUrl, title,
+                (flags & FLAG_ACTIVE) != 0, (flags & FLAG_PASSWORD_PROTECTED) != 0, password,
+                (flags & FLAG_TRACK_CLICKS) != 0, expiresAt, maxClicks, totalClicks));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            writeVarInt(out, 0);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(out, utf8.length + 1);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = readVarInt(in);
+        if (length == 0) {
+            return null;
+        }
+        if (length < 0 || length - 1 > in.available()) {
+            throw new EOFException("String runs past the end of the payload");
+        }
+        byte[] utf8 = new byte[length - 1];
+        in.readFully(utf8);
+        return new String(utf8, StandardCharsets.UTF_8);
+    }
+
+    private static void writeVarInt(DataOutputStream out, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            out.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.writeByte(value);
+    }
+
+    private static int readVarInt(DataInputStream in) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            int b = in.readUnsignedByte();
+            value |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+}
@@ -182,8 +182,9 @@ public class MongoOptimizationConfig {
                 .append("scopeType", 1)
                 .append("scopeId", 1)
                 .append("isActive", 1)
-                .append("createdAt", -1))
-                .named("idx_urls_scope_active_created")
+                .append("createdAt", -1)
+                .append("_id", -1))
+                .named("idx_urls_scope_active_created_id")
                 .background()
                 .partial(PartialIndexFilter.of(Criteria.where("isActive").is(true)))
         );
@@ -193,8 +194,9 @@ public class MongoOptimizationConfig {
             new CompoundIndexDefinition(new Document()
                 .append("userId", 1)
                 .append("isActive", 1)
-                .append("createdAt", -1))
-                .named("idx_urls_user_active_created")
+                .append("createdAt", -1)
+                .append("_id", -1))
+                .named("idx_urls_user_active_created_id")
                 .background()
                 .partial(PartialIndexFilter.of(Criteria.where("isActive").is(true)))
         );
@@ -218,6 +220,10 @@ public class MongoOptimizationConfig {
                 .background()
         );
         
+        // Superseded by the same keys plus _id (cursor pagination tie-break)
+        dropIndexIfPresent(urlIndexOps, "idx_urls_scope_active_created");
+        dropIndexIfPresent(urlIndexOps, "idx_urls_user_active_created");
+        
         logger.info("✅ Shortened URL indexes created");
     }
     
@@ -230,8 +236,9 @@ public class MongoOptimizationConfig {
                 .append("scopeType", 1)
                 .append("scopeId", 1)
                 .append("isActive", 1)
-                .append("createdAt", -1))
-                .named("idx_qr_scope_active_created")
+                .append("createdAt", -1)
+                .append("_id", -1))
+                .named("idx_qr_scope_active_created_id")
                 .background()
                 .partial(PartialIndexFilter.of(Criteria.where("isActive").is(true)))
         );
@@ -240,8 +247,9 @@ public class MongoOptimizationConfig {
             new CompoundIndexDefinition(new Document()
                 .append("userId", 1)
                 .append("isActive", 1)
-                .append("createdAt", -1))
-                .named("idx_qr_user_active_created")
+                .append("createdAt", -1)
+                .append("_id", -1))
+                .named("idx_qr_user_active_created_id")
                 .background()
                 .partial(PartialIndexFilter.of(Criteria.where("isActive").is(true)))
         );
@@ -254,6 +262,10 @@ public class MongoOptimizationConfig {
                 .background()
         );
         
+        // Superseded by the same keys plus _id (cursor pagination tie-break)
+        dropIndexIfPresent(qrIndexOps, "idx_qr_scope_active_created");
+        dropIndexIfPresent(qrIndexOps, "idx_qr_user_active_created");
+        
         logger.info("✅ QR Code indexes created");
     }
     
@@ -266,8 +278,9 @@ public class MongoOptimizationConfig {
                 .append("scopeType", 1)
                 .append("scopeId", 1)
                 .append("isActive", 1)
-                .append("uploadedAt", -1))
-                .named("idx_files_scope_active_uploaded")
+                .append("uploadedAt", -1)
+                .append("_id", -1))
+                .named("idx_files_scope_active_uploaded_id")
                 .background()
                 .partial(PartialIndexFilter.of(Criteria.where("isActive").is(true)))
         );
@@ -276,8 +289,9 @@ public class MongoOptimizationConfig {
             new CompoundIndexDefinition(new Document()
                 .append("userId", 1)
                 .append("isActive", 1)
-                .append("uploadedAt", -1))
-                .named("idx_files_user_active_uploaded")
+                .append("uploadedAt", -1)
+                .append("_id", -1))
+                .named("idx_files_user_active_uploaded_id")
                 .background()
                 .partial(PartialIndexFilter.of(Criteria.where("isActive").is(true)))
         );
@@ -290,6 +304,18 @@ public class MongoOptimizationConfig {
                 .background()
         );
         
+        // Superseded by the same keys plus _id (cursor pagination tie-break)
+        dropIndexIfPresent(fileIndexOps, "idx_files_scope_active_uploaded");
+        dropIndexIfPresent(fileIndexOps, "idx_files_user_active_uploaded");
+        
         logger.info("✅ Uploaded File indexes created");
     }
-}
\ No newline at end of file
+    
+    private void dropIndexIfPresent(IndexOperations indexOps, String name) {
+        boolean present = indexOps.getIndexInfo().stream().anyMatch(index -> name.equals(index.getName()));
+        if (present) {
+            indexOps.dropIndex(name);
+            logger.info("Dropped superseded index {}", name);
+        }
+    }
+}
@@ -6,6 +6,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.CollectionType;
 import com.fasterxml.jackson.databind.type.MapType;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.urlshortener.service.LinkResolver;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.cache.CacheManager;
@@ -13,16 +16,23 @@ import org.springframework.cache.annotation.EnableCaching;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Primary;
+import org.springframework.data.redis.cache.BatchStrategies;
 import org.springframework.data.redis.cache.RedisCacheConfiguration;
 import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.cache.RedisCacheWriter;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Map;
 
 @Configuration
@@ -39,9 +49,34 @@ public class RedisConfig {
     @Value("${app.cache.geo-ttl:86400}")
     private long geoCacheTtl;
 
-    @Bean
-    @Primary
-    public CacheManager cacheManager(RedisConnectionFactory redisConnectionFactory) {
+    @Value("${app.cache.near.caches:short_urls}")
+    private List<String> nearCacheNames;
+
+    @Value("${app.cache.near.max-size:10000}")
+    private long nearCacheMaxSize;
+
+    @Value("${app.cache.near.ttl:60}")
+    private long nearCacheTtl;
+
+    @Value("${app.cache.redis.scan-batch-size:1000}")
+    private int scanBatchSize;
+
+    @Value("${app.cache.invalidation.stale-caches:userAnalytics,urlAnalytics,realtimeAnalytics,userUrls,userQRCodes,userFiles}")
+    private List<String> staleCacheNames;
+
+    @Value("${app.cache.invalidation.max-stale:60}")
+    private long maxStale;
+
+    @Value("${app.cache.invalidation.revalidate-timeout:10}")
+    private long revalidateTimeout;
+
+    /**
+     * Redis-backed cache manager; caches listed in app.cache.near.caches also get an in-process L1.
+     * Cache clears walk the keyspace with SCAN batches rather than one blocking KEYS, and
+     * per-cache statistics are enabled so actuator reports cache.gets / cache.puts for Redis too.
+     */
+    private TwoLevelCacheManager twoLevelCacheManager(RedisConnectionFactory redisConnectionFactory,
+                                                      MeterRegistry meterRegistry) {
         RedisCacheConfiguration defaultCacheConfig = RedisCacheConfiguration.defaultCacheConfig()
                 .entryTtl(Duration.ofSeconds(urlCacheTtl))
                 .disableCachingNullValues()
@@ -96,11 +131,51 @@ public class RedisConfig {
         // Realtime analytics cache - 1 minute
         cacheConfigurations.put("realtimeAnalytics", defaultCacheConfig
                 .entryTtl(Duration.ofSeconds(60)));
+        
+        // Redirect resolutions - compact binary values instead of polymorphic JSON
+        cacheConfigurations.put(LinkResolver.CACHE_NAME, defaultCacheConfig
+                .serializeValuesWith(org.springframework.data.redis.serializer.RedisSerializationContext.SerializationPair
+                        .fromSerializer(new LinkResolutionRedisSerializer())));
+
+        RedisCacheWriter cacheWriter = RedisCacheWriter.nonLockingRedisCacheWriter(redisConnectionFactory,
+                BatchStrategies.scan(scanBatchSize));
 
-        return RedisCacheManager.builder(redisConnectionFactory)
+        RedisCacheManager redisCacheManager = RedisCacheManager.builder(cacheWriter)
                 .cacheDefaults(defaultCacheConfig)
                 .withInitialCacheConfigurations(cacheConfigurations)
+                .enableStatistics()
                 .build();
+        redisCacheManager.afterPropertiesSet();
+
+        return new TwoLevelCacheManager(redisCacheManager, new StringRedisTemplate(redisConnectionFactory),
+                new LinkedHashSet<>(nearCacheNames), nearCacheMaxSize, Duration.ofSeconds(nearCacheTtl),
+                meterRegistry);
+    }
+
+    /**
+     * The two-level manager, with the caches in app.cache.invalidation.stale-caches serving
+     * stale-while-revalidate.
+     */
+    @Bean
+    @Primary
+    public StaleWhileRevalidateCacheManager cacheManager(RedisConnectionFactory redisConnectionFactory,
+                                                         ObjectProvider<MeterRegistry> meterRegistry) {
+        return new StaleWhileRevalidateCacheManager(
+                twoLevelCacheManager(redisConnectionFactory, meterRegistry.getIfAvailable()), "cacheManager",
+                new LinkedHashSet<>(staleCacheNames), Duration.ofSeconds(maxStale),
+                Duration.ofSeconds(revalidateTimeout), meterRegistry.getIfAvailable());
+    }
+
+    /**
+     * Subscribes to near-cache invalidations published by other nodes.
+     */
+    @Bean
+    public RedisMessageListenerContainer cacheInvalidationListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                            StaleWhileRevalidateCacheManager cacheManager) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener((TwoLevelCacheManager) cacheManager.getDelegate(), new ChannelTopic(TwoLevelCacheManager.INVALIDATION_CHANNEL));
+        return container;
     }
 
     @Bean
@@ -0,0 +1,219 @@
+package com.urlshortener.config;
+
+import org.springframework.cache.Cache;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache whose entries can be marked stale instead of evicted.
+ *
+ * The first read of a stale entry misses, so that caller recomputes the value and its put
+ * makes the entry fresh again; concurrent readers keep getting the stale value meanwhile.
+ * An entry stays servable for at most {@code maxStaleMillis} after it was marked, after
+ * which it is evicted for real (on read, or by {@link #evictExpired()}). Marks are kept
+ * per node; with Redis the hard eviction is what other nodes see.
+ */
+public class StaleWhileRevalidateCache implements Cache {
+
+    private final Cache delegate;
+    private final long maxStaleNanos;
+    private final long revalidateTimeoutNanos;
+
+    // key -> when it was marked stale, and key -> when a reader took the reload (System.nanoTime)
+    private final ConcurrentHashMap<Object, Mark> staleSince = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Object, Long> revalidating = new ConcurrentHashMap<>();
+
+    private final LongAdder staleReads = new LongAdder();
+    private final LongAdder revalidations = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+
+    public StaleWhileRevalidateCache(Cache delegate, long maxStaleMillis, long revalidateTimeoutMillis) {
+        this.delegate = delegate;
+        this.maxStaleNanos = TimeUnit.MILLISECONDS.toNanos(maxStaleMillis);
+        this.revalidateTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(revalidateTimeoutMillis);
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        Mark mark = staleSince.get(key);
+        if (mark == null) {
+            return delegate.get(key);
+        }
+
+        long now = System.nanoTime();
+        if (now - mark.firstAt > maxStaleNanos) {
+            expire(key);
+            return null;
+        }
+        if (claimRevalidation(key, now)) {
+            return null;
+        }
+
+        ValueWrapper wrapper = delegate.get(key);
+        if (wrapper != null) {
+            staleReads.increment();
+        }
+        return wrapper;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Class<T> type) {
+        ValueWrapper wrapper = get(key);
+        Object value = wrapper != null ? wrapper.get() : null;
+        if (value != null && type != null && !type.isInstance(value)) {
+            throw new IllegalStateException("Cached value is not of required type [" + type.getName() + "]: " + value);
+        }
+        return (T) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        ValueWrapper wrapper = get(key);
+        if (wrapper != null) {
+            return (T) wrapper.get();
+        }
+        if (!staleSince.containsKey(key)) {
+            return delegate.get(key, valueLoader);
+        }
+
+        // This caller holds the reload
+        T value;
+        try {
+            value = valueLoader.call();
+        } catch (Exception e) {
+            revalidating.remove(key);
+            throw new ValueRetrievalException(key, valueLoader, e);
+        }
+        put(key, value);
+        return value;
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+
+        // A reload that started before the latest mark may already be out of date
+        Long claimedAt = revalidating.remove(key);
+        staleSince.computeIfPresent(key, (k, mark) -> claimedAt != null && claimedAt <= mark.lastAt ? mark : null);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        clearMarks(key);
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = delegate.evictIfPresent(key);
+        clearMarks(key);
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        staleSince.clear();
+        revalidating.clear();
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean hadEntries = delegate.invalidate();
+        staleSince.clear();
+        revalidating.clear();
+        return hadEntries;
+    }
+
+    /**
+     * Mark an entry stale. The max-stale bound runs from the first mark; a reload that was
+     * already in flight when the entry is marked again leaves it stale for the next reader.
+     */
+    public void markStale(Object key) {
+        long now = System.nanoTime();
+        staleSince.merge(key, new Mark(now, now), (mark, latest) -> new Mark(mark.firstAt, latest.lastAt));
+    }
+
+    /**
+     * Evict entries that stayed stale past the max-stale bound without being read.
+     *
+     * @return number of entries evicted
+     */
+    public int evictExpired() {
+        long now = System.nanoTime();
+        int count = 0;
+        for (var entry : staleSince.entrySet()) {
+            if (now - entry.getValue().firstAt > maxStaleNanos) {
+                expire(entry.getKey());
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getStaleEntries() {
+        return staleSince.size();
+    }
+
+    public long getStaleReads() {
+        return staleReads.sum();
+    }
+
+    public long getRevalidations() {
+        return revalidations.sum();
+    }
+
+    public long getExpired() {
+        return expired.sum();
+    }
+
+    private boolean claimRevalidation(Object key, long now) {
+        boolean[] claimed = {false};
+        revalidating.compute(key, (k, claimedAt) -> {
+            // A reader that failed or went away without putting gives up the claim after the timeout
+            if (claimedAt == null || now - claimedAt > revalidateTimeoutNanos) {
+                claimed[0] = true;
+                return now;
+            }
+            return claimedAt;
+        });
+        if (claimed[0]) {
+            revalidations.increment();
+        }
+        return claimed[0];
+    }
+
+    private void expire(Object key) {
+        delegate.evict(key);
+        clearMarks(key);
+        expired.increment();
+    }
+
+    private void clearMarks(Object key) {
+        staleSince.remove(key);
+        revalidating.remove(key);
+    }
+
+    private record Mark(long firstAt, long lastAt) {
+    }
+}
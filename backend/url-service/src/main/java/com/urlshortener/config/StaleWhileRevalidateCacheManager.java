@@ -0,0 +1,109 @@
+package com.urlshortener.config;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.boot.actuate.metrics.cache.RedisCacheMetrics;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.cache.RedisCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps another cache manager and decorates selected caches with
+ * {@link StaleWhileRevalidateCache}, so CacheService can mark their entries stale
+ * rather than evicting them. Other caches are returned as they are.
+ *
+ * Actuator only binds cache metrics to cache types it recognises, so the Caffeine or Redis
+ * stats of decorated caches are bound here under the same names and tags.
+ */
+public class StaleWhileRevalidateCacheManager implements CacheManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(StaleWhileRevalidateCacheManager.class);
+
+    private final CacheManager delegate;
+    private final String managerName; // cache.manager tag on metrics
+    private final Set<String> staleCacheNames;
+    private final Duration maxStale;
+    private final Duration revalidateTimeout;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<String, StaleWhileRevalidateCache> staleCaches = new ConcurrentHashMap<>();
+
+    public StaleWhileRevalidateCacheManager(CacheManager delegate, String managerName, Set<String> staleCacheNames,
+                                            Duration maxStale, Duration revalidateTimeout,
+                                            MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.managerName = managerName;
+        this.staleCacheNames = staleCacheNames;
+        this.maxStale = maxStale;
+        this.revalidateTimeout = revalidateTimeout;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache cache = delegate.getCache(name);
+        if (cache == null || !staleCacheNames.contains(name)) {
+            return cache;
+        }
+        return staleCaches.computeIfAbsent(name, cacheName -> createStaleCache(cache));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return delegate.getCacheNames();
+    }
+
+    /**
+     * Decorated caches created so far.
+     */
+    public Collection<StaleWhileRevalidateCache> getStaleCaches() {
+        return staleCaches.values();
+    }
+
+    public CacheManager getDelegate() {
+        return delegate;
+    }
+
+    private StaleWhileRevalidateCache createStaleCache(Cache cache) {
+        StaleWhileRevalidateCache staleCache =
+                new StaleWhileRevalidateCache(cache, maxStale.toMillis(), revalidateTimeout.toMillis());
+
+        if (meterRegistry != null) {
+            String cacheName = cache.getName();
+            if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> nativeCache) {
+                CaffeineCacheMetrics.monitor(meterRegistry, nativeCache, cacheName, "cache.manager", managerName);
+            } else if (cache instanceof RedisCache redisCache) {
+                new RedisCacheMetrics(redisCache, Tags.of("cache.manager", managerName)).bindTo(meterRegistry);
+            }
+            Gauge.builder("cache.stale.entries", staleCache, StaleWhileRevalidateCache::getStaleEntries)
+                    .description("Entries currently marked stale")
+                    .tag("cache", cacheName)
+                    .register(meterRegistry);
+            FunctionCounter.builder("cache.stale.reads", staleCache, StaleWhileRevalidateCache::getStaleReads)
+                    .description("Reads answered with a stale value while another caller reloads it")
+                    .tag("cache", cacheName)
+                    .register(meterRegistry);
+            FunctionCounter.builder("cache.stale.revalidations", staleCache, StaleWhileRevalidateCache::getRevalidations)
+                    .description("Stale entries handed to a caller to reload")
+                    .tag("cache", cacheName)
+                    .register(meterRegistry);
+            FunctionCounter.builder("cache.stale.expired", staleCache, StaleWhileRevalidateCache::getExpired)
+                    .description("Stale entries evicted after the max-stale bound")
+                    .tag("cache", cacheName)
+                    .register(meterRegistry);
+        }
+
+        logger.info("Stale-while-revalidate enabled for {} (max stale: {})", cache.getName(), maxStale);
+        return staleCache;
+    }
+}
@@ -0,0 +1,116 @@
+package com.urlshortener.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Wraps the Redis cache manager and puts an in-process L1 in front of selected caches.
+ *
+ * Evictions on a near-cached cache are published on {@link #INVALIDATION_CHANNEL} as
+ * "nodeId|cacheName|key" (empty key = clear); every other node drops its L1 copy when it
+ * receives the message. Cache keys are matched by their string form.
+ */
+public class TwoLevelCacheManager implements CacheManager, MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(TwoLevelCacheManager.class);
+
+    public static final String INVALIDATION_CHANNEL = "pebly:cache:invalidations";
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final CacheManager remoteCacheManager;
+    private final StringRedisTemplate publisher;
+    private final Set<String> nearCacheNames;
+    private final long localMaxSize;
+    private final Duration localTtl;
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentHashMap<String, TwoLevelCache> nearCaches = new ConcurrentHashMap<>();
+
+    public TwoLevelCacheManager(CacheManager remoteCacheManager, StringRedisTemplate publisher,
+                                Set<String> nearCacheNames, long localMaxSize, Duration localTtl,
+                                MeterRegistry meterRegistry) {
+        this.remoteCacheManager = remoteCacheManager;
+        this.publisher = publisher;
+        this.nearCacheNames = nearCacheNames;
+        this.localMaxSize = localMaxSize;
+        this.localTtl = localTtl;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Cache getCache(String name) {
+        Cache remote = remoteCacheManager.getCache(name);
+        if (remote == null || !nearCacheNames.contains(name)) {
+            return remote;
+        }
+        return nearCaches.computeIfAbsent(name, cacheName -> createNearCache(cacheName, remote));
+    }
+
+    @Override
+    public Collection<String> getCacheNames() {
+        return remoteCacheManager.getCacheNames();
+    }
+
+    /**
+     * Invalidation announced by another node.
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 3);
+        if (parts.length < 3 || nodeId.equals(parts[0])) {
+            return;
+        }
+
+        TwoLevelCache cache = nearCaches.get(parts[1]);
+        if (cache == null) {
+            return;
+        }
+
+        if (parts[2].isEmpty()) {
+            cache.clearLocal();
+        } else {
+            cache.evictLocal(parts[2]);
+        }
+        logger.debug("Applied remote invalidation for {}:{}", parts[1], parts[2]);
+    }
+
+    private TwoLevelCache createNearCache(String name, Cache remote) {
+        com.github.benmanes.caffeine.cache.Cache<Object, Object> local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(localTtl)
+                .recordStats()
+                .build();
+
+        if (meterRegistry != null) {
+            CaffeineCacheMetrics.monitor(meterRegistry, local, name, "tier", "l1");
+        }
+
+        logger.info("Near cache enabled for {} (L1 max size: {}, TTL: {})", name, localMaxSize, localTtl);
+        return new TwoLevelCache(name, local, remote, this::publishInvalidation);
+    }
+
+    private void publishInvalidation(String cacheName, Object key) {
+        try {
+            publisher.convertAndSend(INVALIDATION_CHANNEL,
+                    nodeId + "|" + cacheName + "|" + (key != null ? key.toString() : ""));
+        } catch (Exception e) {
+            // Other nodes fall back to the L1 TTL
+            logger.warn("Failed to publish cache invalidation for {}:{}: {}", cacheName, key, e.getMessage());
+        }
+    }
+}
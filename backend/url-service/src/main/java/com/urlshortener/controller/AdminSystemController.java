@@ -1,6 +1,7 @@
 package com.urlshortener.controller;
 
 import com.urlshortener.dto.response.ApiResponse;
+import com.urlshortener.service.ClickRollupService;
 import com.urlshortener.service.SystemHealthService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
@@ -17,6 +18,9 @@ public class AdminSystemController {
     @Autowired
     private SystemHealthService systemHealthService;
 
+    @Autowired
+    private ClickRollupService clickRollupService;
+
     @GetMapping("/health")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getSystemHealth() {
         try {
@@ -46,4 +50,19 @@ public class AdminSystemController {
             return ResponseEntity.ok(ApiResponse.error("Failed to fetch services health: " + e.getMessage()));
         }
     }
+
+    @PostMapping("/rollups/backfill")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> backfillClickRollups() {
+        try {
+            Map<String, Object> result = clickRollupService.startBackfill();
+            return ResponseEntity.ok(ApiResponse.success(result));
+        } catch (Exception e) {
+            return ResponseEntity.ok(ApiResponse.error("Failed to start click rollup backfill: " + e.getMessage()));
+        }
+    }
+
+    @GetMapping("/rollups/backfill")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> getClickRollupBackfillStatus() {
+        return ResponseEntity.ok(ApiResponse.success(clickRollupService.getBackfillStatus()));
+    }
 }
\ No newline at end of file
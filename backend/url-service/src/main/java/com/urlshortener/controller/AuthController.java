@@ -1,6 +1,7 @@
 package com.urlshortener.controller;
 
 import com.urlshortener.model.User;
+import com.urlshortener.security.VerifiedTokenCache;
 import com.urlshortener.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
@@ -28,6 +29,9 @@ public class AuthController {
     @Autowired
     private UserService userService;
     
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+    
     @Value("${jwt.secret:mySecretKeyForJWTTokenGenerationAndValidationThatIsLongEnoughForHS512AlgorithmAndMeetsSecurityRequirements}")
     private String jwtSecret;
     
@@ -505,6 +509,25 @@ public class AuthController {
         }
     }
     
+    @PostMapping("/logout")
+    public ResponseEntity<Map<String, Object>> logout(@RequestHeader(value = "Authorization", required = false) String authHeader) {
+        Map<String, Object> response = new HashMap<>();
+        
+        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
+            response.put("success", false);
+            response.put("message", "Invalid authorization header");
+            return ResponseEntity.badRequest().body(response);
+        }
+        
+        // Deny-list the token until it expires so cached verifications stop accepting it
+        boolean revoked = verifiedTokenCache.revoke(authHeader.substring(7));
+        
+        response.put("success", true);
+        response.put("revoked", revoked);
+        response.put("message", "Logged out successfully");
+        return ResponseEntity.ok(response);
+    }
+    
     @PostMapping("/refresh")
     public ResponseEntity<Map<String, Object>> refreshToken(@RequestHeader("Authorization") String authHeader) {
         Map<String, Object> response = new HashMap<>();
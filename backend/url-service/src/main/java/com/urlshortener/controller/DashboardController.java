@@ -42,7 +42,7 @@ public class DashboardController {
             
             response.put("success", true);
             response.put("data", dashboard);
-            response.put("cached", true); // Indicates data is cached for performance
+            response.put("cached", true); // Served from the precomputed summary
             
             return ResponseEntity.ok(response);
             
@@ -54,6 +54,32 @@ public class DashboardController {
         }
     }
     
+    /**
+     * Get dashboard overview for a team
+     */
+    @GetMapping("/overview/team/{teamId}")
+    public ResponseEntity<Map<String, Object>> getTeamDashboardOverview(@PathVariable String teamId) {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            logger.info("Fetching dashboard overview for team: {}", teamId);
+            
+            Map<String, Object> dashboard = dashboardService.getTeamDashboardOverview(teamId);
+            
+            response.put("success", true);
+            response.put("data", dashboard);
+            response.put("cached", true);
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("Error fetching dashboard overview for team: {}", teamId, e);
+            response.put("success", false);
+            response.put("message", "Failed to load team dashboard: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+    
     /**
      * Get user's URLs with caching
      */
@@ -230,6 +256,7 @@ public class DashboardController {
             logger.info("Clearing cache for user: {}", userId);
             
             cacheService.invalidateUserAnalytics(userId);
+            dashboardService.rebuildDashboardSummary(userId);
             
             response.put("success", true);
             response.put("message", "Cache cleared successfully");
@@ -252,10 +279,12 @@ public class DashboardController {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            cacheService.logCacheStats();
+            Map<String, Object> stats = new HashMap<>();
+            stats.put("totalEntries", cacheService.getCacheEntryCount());
+            stats.put("caches", cacheService.getCacheStats());
             
             response.put("success", true);
-            response.put("message", "Cache stats logged - check server logs");
+            response.put("data", stats);
             
             return ResponseEntity.ok(response);
             
@@ -2,11 +2,20 @@ package com.urlshortener.controller;
 
 import com.urlshortener.annotation.RequiresPlan;
 import com.urlshortener.model.UploadedFile;
+import com.mongodb.client.gridfs.GridFSDownloadStream;
+import com.urlshortener.service.FileContentStore;
+import com.urlshortener.service.FileDownloadStatsService;
 import com.urlshortener.service.FileUploadService;
-import com.urlshortener.service.DashboardService;
+import com.urlshortener.service.ResourceListingService;
+import com.urlshortener.service.ResourceListingService.CursorPage;
+import com.urlshortener.service.ResourceListingService.ListingQuery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpRange;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -16,6 +25,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Optional;
+import java.util.zip.GZIPInputStream;
 
 @RestController
 @RequestMapping("/api/v1/files")
@@ -26,7 +36,13 @@ public class FileController {
     private FileUploadService fileUploadService;
     
     @Autowired
-    private DashboardService dashboardService;
+    private ResourceListingService resourceListingService;
+    
+    @Autowired
+    private FileContentStore fileContentStore;
+    
+    @Autowired
+    private FileDownloadStatsService fileDownloadStatsService;
     
     @PostMapping("/upload")
     @RequiresPlan(feature = "fileUpload", checkLimit = true)
@@ -73,9 +89,17 @@ public class FileController {
         }
     }
     
+    /**
+     * Download a file. Supports conditional GETs (If-None-Match against a strong ETag) and a
+     * single byte range (Range / If-Range), served by seeking to the GridFS chunks that hold
+     * it. Multi-range requests get the whole file; gzip-stored files are inflated on the fly
+     * and not range-addressable. A download is counted (asynchronously) when the response
+     * starts at the first byte.
+     */
     @GetMapping("/{fileCode}")
     public ResponseEntity<Resource> downloadFile(@PathVariable String fileCode,
-                                               @RequestParam(required = false) String password) {
+                                               @RequestParam(required = false) String password,
+                                               @RequestHeader HttpHeaders requestHeaders) {
         try {
             Optional<UploadedFile> fileOpt = fileUploadService.getFileByCode(fileCode);
             
@@ -92,19 +116,103 @@ public class FileController {
                 }
             }
             
-            Resource resource = fileUploadService.getFileContent(fileCode);
+            fileUploadService.checkDownloadable(file);
+            
+            String eTag = FileUploadService.getETag(file);
+            if (eTag != null && matchesAny(requestHeaders.getIfNoneMatch(), eTag)) {
+                return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+            }
+            
+            GridFSDownloadStream stored = fileUploadService.openStoredContent(file);
+            long storedLength = stored.getGridFSFile().getLength();
             
+            HttpHeaders headers = new HttpHeaders();
+            headers.setContentType(MediaType.parseMediaType(file.getFileType()));
+            headers.set(HttpHeaders.CONTENT_DISPOSITION, 
+                       "attachment; filename=\"" + file.getOriginalFileName() + "\"");
+            headers.setCacheControl(CacheControl.noCache().cachePrivate());
+            if (eTag != null) {
+                headers.setETag(eTag);
+            }
+            
+            if (FileContentStore.GZIP.equals(file.getContentEncoding())) {
+                headers.set(HttpHeaders.ACCEPT_RANGES, "none");
+                fileDownloadStatsService.recordDownload(file.getId());
+                return ResponseEntity.ok()
+                    .headers(headers)
+                    .body(new InputStreamResource(new GZIPInputStream(stored)));
+            }
+            
+            headers.set(HttpHeaders.ACCEPT_RANGES, "bytes");
+            HttpRange range = singleRange(requestHeaders, eTag);
+            if (range != null) {
+                long start;
+                long end;
+                try {
+                    start = range.getRangeStart(storedLength);
+                    end = range.getRangeEnd(storedLength);
+                } catch (IllegalArgumentException e) {
+                    stored.close();
+                    return ResponseEntity.status(HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE)
+                        .header(HttpHeaders.CONTENT_RANGE, "bytes */" + storedLength)
+                        .build();
+                }
+                
+                if (start == 0) {
+                    fileDownloadStatsService.recordDownload(file.getId());
+                }
+                long length = end - start + 1;
+                headers.set(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + end + "/" + storedLength);
+                headers.setContentLength(length);
+                return ResponseEntity.status(HttpStatus.PARTIAL_CONTENT)
+                    .headers(headers)
+                    .body(new InputStreamResource(fileContentStore.slice(stored, start, length)));
+            }
+            
+            fileDownloadStatsService.recordDownload(file.getId());
+            headers.setContentLength(storedLength);
+            // InputStreamResource so Spring does not apply a Range we chose to ignore
             return ResponseEntity.ok()
-                .contentType(MediaType.parseMediaType(file.getFileType()))
-                .header(HttpHeaders.CONTENT_DISPOSITION, 
-                       "attachment; filename=\"" + file.getOriginalFileName() + "\"")
-                .body(resource);
+                .headers(headers)
+                .body(new InputStreamResource(stored));
                 
         } catch (Exception e) {
             return ResponseEntity.badRequest().build();
         }
     }
     
+    /**
+     * The requested byte range, or null to send the whole file: no or malformed Range header,
+     * more than one range, or an If-Range validator that no longer matches.
+     */
+    private HttpRange singleRange(HttpHeaders requestHeaders, String eTag) {
+        if (requestHeaders.getFirst(HttpHeaders.RANGE) == null) {
+            return null;
+        }
+        String ifRange = requestHeaders.getFirst(HttpHeaders.IF_RANGE);
+        // If-Range needs a strong match; dates never match since no Last-Modified is sent
+        if (ifRange != null && (eTag == null || !ifRange.trim().equals(eTag))) {
+            return null;
+        }
+        try {
+            List<HttpRange> ranges = requestHeaders.getRange();
+            return ranges.size() == 1 ? ranges.get(0) : null;
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+    
+    // Weak comparison, as If-None-Match requires
+    private static boolean matchesAny(List<String> candidates, String eTag) {
+        for (String candidate : candidates) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(eTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
     @GetMapping("/{fileCode}/info")
     public ResponseEntity<Map<String, Object>> getFileInfo(@PathVariable String fileCode) {
         Map<String, Object> response = new HashMap<>();
@@ -159,15 +267,24 @@ public class FileController {
         }
     }
     
+    /**
+     * The user's files, most recently uploaded first by default. Without cursor or limit the
+     * whole list is returned; with either, one page, and nextCursor continues it.
+     */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<Map<String, Object>> getUserFiles(@PathVariable String userId) {
+    public ResponseEntity<Map<String, Object>> getUserFiles(@PathVariable String userId,
+                                                           @RequestParam(required = false) String cursor,
+                                                           @RequestParam(required = false) Integer limit,
+                                                           @RequestParam(required = false) String order,
+                                                           @RequestParam(required = false) String tag,
+                                                           @RequestParam(required = false) String category) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            // Use cached dashboard service for better performance
-            List<UploadedFile> files = dashboardService.getUserFiles(userId);
+            CursorPage<UploadedFile> page = resourceListingService.listFiles(ResourceListingService.ownedBy(userId),
+                new ListingQuery(cursor, limit, order, tag, category, null));
             
-            List<Map<String, Object>> filesData = files.stream().map(file -> {
+            List<Map<String, Object>> filesData = page.getItems().stream().map(file -> {
                 Map<String, Object> fileData = new HashMap<>();
                 fileData.put("id", file.getId());
                 fileData.put("fileCode", file.getFileCode());
@@ -177,6 +294,8 @@ public class FileController {
                 fileData.put("fileSize", file.getFileSize());
                 fileData.put("title", file.getTitle());
                 fileData.put("description", file.getDescription());
+                fileData.put("tags", file.getTags());
+                fileData.put("category", file.getCategory());
                 fileData.put("totalDownloads", file.getTotalDownloads());
                 fileData.put("uploadedAt", file.getUploadedAt());
                 fileData.put("lastAccessedAt", file.getLastAccessedAt());
@@ -187,8 +306,10 @@ public class FileController {
             }).toList();
             
             response.put("success", true);
-            response.put("count", files.size());
+            response.put("count", filesData.size());
             response.put("data", filesData);
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.hasMore());
             
             return ResponseEntity.ok(response);
             
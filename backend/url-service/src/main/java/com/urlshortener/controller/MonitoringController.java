@@ -1,7 +1,12 @@
 package com.urlshortener.controller;
 
+import com.urlshortener.security.VerifiedTokenCache;
 import com.urlshortener.service.PerformanceMonitoringService;
 import com.urlshortener.service.CacheService;
+import com.urlshortener.service.ClickIngestionService;
+import com.urlshortener.service.LinkSearchService;
+import com.urlshortener.service.QrCodeRenderer;
+import com.urlshortener.service.UserContextService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
@@ -24,6 +29,21 @@ public class MonitoringController {
     @Autowired
     private CacheService cacheService;
     
+    @Autowired
+    private ClickIngestionService clickIngestionService;
+    
+    @Autowired
+    private UserContextService userContextService;
+    
+    @Autowired
+    private VerifiedTokenCache verifiedTokenCache;
+    
+    @Autowired
+    private QrCodeRenderer qrCodeRenderer;
+    
+    @Autowired
+    private LinkSearchService linkSearchService;
+    
     /**
      * Get comprehensive performance report
      */
@@ -99,6 +119,111 @@ public class MonitoringController {
         }
     }
     
+    /**
+     * Get click ingestion queue statistics
+     */
+    @GetMapping("/clicks")
+    public ResponseEntity<Map<String, Object>> getClickIngestionStats() {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            response.put("success", true);
+            response.put("data", clickIngestionService.getQueueStats());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("Error fetching click ingestion statistics", e);
+            response.put("success", false);
+            response.put("message", "Failed to fetch click ingestion statistics: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+    
+    /**
+     * Get user snapshot cache statistics and MongoDB user reads per request
+     */
+    @GetMapping("/users")
+    public ResponseEntity<Map<String, Object>> getUserContextStats() {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            response.put("success", true);
+            response.put("data", userContextService.getStats());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("Error fetching user context statistics", e);
+            response.put("success", false);
+            response.put("message", "Failed to fetch user context statistics: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+    
+    /**
+     * Get verified bearer token cache statistics
+     */
+    @GetMapping("/tokens")
+    public ResponseEntity<Map<String, Object>> getTokenCacheStats() {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            response.put("success", true);
+            response.put("data", verifiedTokenCache.getStats());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("Error fetching token cache statistics", e);
+            response.put("success", false);
+            response.put("message", "Failed to fetch token cache statistics: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+    
+    /**
+     * Get QR render cache and latency statistics
+     */
+    @GetMapping("/qr-renders")
+    public ResponseEntity<Map<String, Object>> getQrRenderStats() {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            response.put("success", true);
+            response.put("data", qrCodeRenderer.getStats());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("Error fetching QR render statistics", e);
+            response.put("success", false);
+            response.put("message", "Failed to fetch QR render statistics: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+    
+    /**
+     * Get link search index and latency statistics
+     */
+    @GetMapping("/search")
+    public ResponseEntity<Map<String, Object>> getLinkSearchStats() {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            response.put("success", true);
+            response.put("data", linkSearchService.getStats());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            logger.error("Error fetching link search statistics", e);
+            response.put("success", false);
+            response.put("message", "Failed to fetch link search statistics: " + e.getMessage());
+            return ResponseEntity.status(500).body(response);
+        }
+    }
+    
     /**
      * Get API performance statistics
      */
@@ -252,12 +377,9 @@ public class MonitoringController {
         try {
             logger.debug("Fetching cache statistics for type: {}", cacheType);
             
-            // Log cache statistics for the specific type
-            cacheService.logCacheStats();
-            
             Map<String, Object> stats = new HashMap<>();
             stats.put("cacheType", cacheType);
-            stats.put("message", "Cache statistics logged - check server logs for details");
+            stats.put("stats", cacheService.getCacheStats().get(cacheType));
             
             response.put("success", true);
             response.put("data", stats);
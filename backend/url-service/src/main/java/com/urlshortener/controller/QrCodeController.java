@@ -1,18 +1,37 @@
 package com.urlshortener.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.urlshortener.annotation.RequiresPlan;
+import com.urlshortener.exception.PlanLimitException;
 import com.urlshortener.model.QrCode;
+import com.urlshortener.service.QrBatchService;
+import com.urlshortener.service.QrCodeRenderer;
 import com.urlshortener.service.QrCodeService;
-import com.urlshortener.service.DashboardService;
+import com.urlshortener.service.ResourceListingService;
+import com.urlshortener.service.ResourceListingService.CursorPage;
+import com.urlshortener.service.ResourceListingService.ListingQuery;
 import com.urlshortener.service.SubscriptionService;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
 import java.util.ArrayList;
 import java.util.Optional;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
 
 @RestController
 @RequestMapping("/api/v1/qr")
@@ -26,7 +45,16 @@ public class QrCodeController {
     private SubscriptionService subscriptionService;
     
     @Autowired
-    private DashboardService dashboardService;
+    private ResourceListingService resourceListingService;
+    
+    @Autowired
+    private QrBatchService qrBatchService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${app.qr.batch.max-items:5000}")
+    private int batchMaxItems;
     
     @PostMapping
     @RequiresPlan(feature = "qrCreation", checkLimit = true)
@@ -53,15 +81,6 @@ public class QrCodeController {
                 return ResponseEntity.badRequest().body(response);
             }
             
-            // Check subscription limits
-            if (userId != null && !subscriptionService.canCreateQrCode(userId)) {
-                int remaining = subscriptionService.getRemainingDailyQrCodes(userId);
-                response.put("success", false);
-                response.put("message", "Daily QR code limit reached. You have " + remaining + " QR codes remaining today. Upgrade to Premium for unlimited access.");
-                response.put("upgradeRequired", true);
-                return ResponseEntity.status(429).body(response);
-            }
-            
             // Check premium features
             boolean hasCustomization = (foregroundColor != null && !foregroundColor.equals("#000000")) ||
                                      (backgroundColor != null && !backgroundColor.equals("#FFFFFF")) ||
@@ -95,17 +114,18 @@ public class QrCodeController {
             qrData.put("format", qrCode.getFormat());
             qrData.put("createdAt", qrCode.getCreatedAt());
             
-            // Track usage for subscription management
-            if (userId != null) {
-                subscriptionService.incrementQrCodeUsage(userId);
-            }
-            
             response.put("success", true);
             response.put("message", "QR Code created successfully");
             response.put("data", qrData);
             
             return ResponseEntity.ok(response);
             
+        } catch (PlanLimitException e) {
+            // Quota is checked and reserved atomically by QrCodeService
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            response.put("upgradeRequired", true);
+            return ResponseEntity.status(429).body(response);
         } catch (Exception e) {
             response.put("success", false);
             response.put("message", e.getMessage());
@@ -174,40 +194,174 @@ public class QrCodeController {
         }
     }
     
+    /**
+     * Create many QR codes in one request. Accepts a JSON array or NDJSON of QR code objects
+     * (same fields as single creation). Streams back either an NDJSON line per item followed by a
+     * summary ({@code output=ndjson}), or a ZIP of the images plus manifest.ndjson
+     * ({@code output=zip}). The job id is returned in X-Job-Id for polling progress.
+     */
+    @PostMapping(value = "/batch", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @RequiresPlan(feature = "qrCreation", checkLimit = true)
+    public ResponseEntity<?> createQrCodesBatch(@RequestParam String userId,
+                                                @RequestParam(defaultValue = "ndjson") String output,
+                                                HttpServletRequest request) {
+        boolean zip = "zip".equalsIgnoreCase(output);
+        if (!zip && !"ndjson".equalsIgnoreCase(output)) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Output must be ndjson or zip"));
+        }
+        
+        List<Map<String, Object>> items = new ArrayList<>();
+        try (MappingIterator<Map<String, Object>> iterator = objectMapper.readerForMapOf(Object.class)
+                .readValues(request.getInputStream())) {
+            while (iterator.hasNext()) {
+                if (items.size() >= batchMaxItems) {
+                    return ResponseEntity.badRequest().body(Map.of("success", false,
+                        "message", "Too many QR codes in one request (max " + batchMaxItems + ")"));
+                }
+                items.add(iterator.next());
+            }
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Invalid request body: " + e.getMessage()));
+        }
+        
+        if (items.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "No QR codes provided"));
+        }
+        
+        QrBatchService.Job job = qrBatchService.createJob(userId, items.size());
+        
+        if (zip) {
+            StreamingResponseBody body = outputStream -> {
+                ZipOutputStream zipStream = new ZipOutputStream(outputStream);
+                zipStream.setLevel(Deflater.BEST_SPEED); // images are already compressed
+                ByteArrayOutputStream manifest = new ByteArrayOutputStream();
+                Map<String, Object> summary;
+                try {
+                    summary = qrBatchService.run(job, items, (result, image) -> {
+                        writeLine(manifest, result);
+                        if (image != null) {
+                            String format = (String) result.get("format");
+                            zipStream.putNextEntry(new ZipEntry(result.get("index") + "_" + result.get("qrCode") + "."
+                                + (format != null ? format.toLowerCase() : "png")));
+                            zipStream.write(image);
+                            zipStream.closeEntry();
+                        }
+                    });
+                    summary.put("success", true);
+                } catch (Exception e) {
+                    summary = job.toMap();
+                    summary.put("success", false);
+                }
+                summary.put("summary", true);
+                writeLine(manifest, summary);
+                zipStream.putNextEntry(new ZipEntry("manifest.ndjson"));
+                manifest.writeTo(zipStream);
+                zipStream.closeEntry();
+                zipStream.finish();
+            };
+            
+            return ResponseEntity.ok()
+                .header("X-Job-Id", job.getId())
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"qr-codes-" + job.getId() + ".zip\"")
+                .contentType(MediaType.parseMediaType("application/zip"))
+                .body(body);
+        }
+        
+        StreamingResponseBody body = outputStream -> {
+            Map<String, Object> summary;
+            try {
+                summary = qrBatchService.run(job, items, (result, image) -> {
+                    writeLine(outputStream, result);
+                    outputStream.flush();
+                });
+                summary.put("success", true);
+            } catch (Exception e) {
+                summary = job.toMap();
+                summary.put("success", false);
+            }
+            summary.put("summary", true);
+            writeLine(outputStream, summary);
+        };
+        
+        return ResponseEntity.ok()
+            .header("X-Job-Id", job.getId())
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body);
+    }
+    
+    /**
+     * Progress of a batch job started by the same user.
+     */
+    @GetMapping("/batch/{jobId}")
+    public ResponseEntity<Map<String, Object>> getBatchJob(@PathVariable String jobId, @RequestParam String userId) {
+        Map<String, Object> response = new HashMap<>();
+        
+        Optional<QrBatchService.Job> job = qrBatchService.getJob(jobId, userId);
+        if (job.isEmpty()) {
+            response.put("success", false);
+            response.put("message", "Batch job not found");
+            return ResponseEntity.status(404).body(response);
+        }
+        
+        response.put("success", true);
+        response.put("data", job.get().toMap());
+        return ResponseEntity.ok(response);
+    }
+    
+    private void writeLine(OutputStream outputStream, Map<String, Object> line) throws IOException {
+        outputStream.write(objectMapper.writeValueAsBytes(line));
+        outputStream.write('\n');
+    }
+    
+    /**
+     * The QR image itself, rendered from the render cache when it was produced before. Public,
+     * like the printed code it shows, so list views can load it straight into an img tag.
+     */
+    @GetMapping("/{qrCodeId}/image")
+    public ResponseEntity<byte[]> getQrCodeImage(@PathVariable String qrCodeId) {
+        try {
+            Optional<QrCode> qrCodeOpt = qrCodeService.getByQrCode(qrCodeId);
+            if (qrCodeOpt.isEmpty()) {
+                qrCodeOpt = qrCodeService.getById(qrCodeId);
+            }
+            
+            if (qrCodeOpt.isEmpty() || !qrCodeOpt.get().isActive()) {
+                return ResponseEntity.notFound().build();
+            }
+            
+            QrCode qrCode = qrCodeOpt.get();
+            return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(QrCodeRenderer.mediaType(qrCode.getFormat())))
+                .body(qrCodeService.renderImage(qrCode));
+                
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+    
+    /**
+     * The user's QR codes, newest first by default. Without cursor or limit the whole list is
+     * returned; with either, one page, and nextCursor continues it. Images are not included;
+     * each item's qrImagePath is the URL of its image instead.
+     */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<Map<String, Object>> getUserQrCodes(@PathVariable String userId) {
+    public ResponseEntity<Map<String, Object>> getUserQrCodes(@PathVariable String userId,
+                                                             @RequestParam(required = false) String cursor,
+                                                             @RequestParam(required = false) Integer limit,
+                                                             @RequestParam(required = false) String order,
+                                                             @RequestParam(required = false) String tag,
+                                                             @RequestParam(required = false) String category) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            // Use cached dashboard service for better performance
-            List<QrCode> qrCodes = dashboardService.getUserQRCodes(userId);
-            
-            List<Map<String, Object>> qrCodesData = qrCodes.stream().map(qr -> {
-                Map<String, Object> qrData = new HashMap<>();
-                qrData.put("id", qr.getId());
-                qrData.put("qrCode", qr.getQrCode());
-                qrData.put("qrImageUrl", qr.getQrImageUrl());
-                qrData.put("qrImagePath", qr.getQrImagePath());
-                qrData.put("content", qr.getContent());
-                qrData.put("contentType", qr.getContentType());
-                qrData.put("title", qr.getTitle());
-                qrData.put("description", qr.getDescription());
-                qrData.put("style", qr.getStyle());
-                qrData.put("foregroundColor", qr.getForegroundColor());
-                qrData.put("backgroundColor", qr.getBackgroundColor());
-                qrData.put("size", qr.getSize());
-                qrData.put("format", qr.getFormat());
-                qrData.put("totalScans", qr.getTotalScans());
-                qrData.put("uniqueScans", qr.getUniqueScans());
-                qrData.put("createdAt", qr.getCreatedAt());
-                qrData.put("updatedAt", qr.getUpdatedAt());
-                qrData.put("lastScannedAt", qr.getLastScannedAt());
-                return qrData;
-            }).toList();
+            CursorPage<QrCode> page = resourceListingService.listQrCodes(ResourceListingService.ownedBy(userId),
+                new ListingQuery(cursor, limit, order, tag, category, null));
             
             response.put("success", true);
-            response.put("count", qrCodes.size());
-            response.put("data", qrCodesData);
+            response.put("count", page.getItems().size());
+            response.put("data", page.getItems().stream().map(this::toListItem).toList());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.hasMore());
             
             return ResponseEntity.ok(response);
             
@@ -410,7 +564,7 @@ public class QrCodeController {
                 String city = (String) request.get("city");
                 String deviceType = (String) request.get("deviceType");
                 
-                qrCodeService.recordScan(qrCodeId, ipAddress, userAgent, country, city, deviceType);
+                qrCodeService.recordScan(qrCode, ipAddress, userAgent, country, city, deviceType);
             }
             
             // Return the QR code content
@@ -435,15 +589,23 @@ public class QrCodeController {
     @GetMapping("/scope/{scopeType}/{scopeId}")
     public ResponseEntity<Map<String, Object>> getQrCodesByScope(
             @PathVariable String scopeType, 
-            @PathVariable String scopeId) {
+            @PathVariable String scopeId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String order,
+            @RequestParam(required = false) String tag,
+            @RequestParam(required = false) String category) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            List<QrCode> qrCodes = qrCodeService.getQrCodesByScope(scopeType, scopeId);
+            CursorPage<QrCode> page = resourceListingService.listQrCodes(ResourceListingService.inScope(scopeType, scopeId),
+                new ListingQuery(cursor, limit, order, tag, category, null));
             
             response.put("success", true);
-            response.put("qrCodes", qrCodes);
-            response.put("count", qrCodes.size());
+            response.put("qrCodes", page.getItems().stream().map(this::toListItem).toList());
+            response.put("count", page.getItems().size());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.hasMore());
             
             return ResponseEntity.ok(response);
             
@@ -453,4 +615,33 @@ public class QrCodeController {
             return ResponseEntity.badRequest().body(response);
         }
     }
-}
\ No newline at end of file
+    
+    private Map<String, Object> toListItem(QrCode qr) {
+        Map<String, Object> qrData = new HashMap<>();
+        qrData.put("id", qr.getId());
+        qrData.put("qrCode", qr.getQrCode());
+        qrData.put("qrImageUrl", qr.getQrImageUrl());
+        // URL of the rendered image rather than the inline data URI, which list queries don't load
+        qrData.put("qrImagePath", ServletUriComponentsBuilder.fromCurrentContextPath()
+            .path("/api/v1/qr/{qrCode}/image").buildAndExpand(qr.getQrCode()).toUriString());
+        qrData.put("content", qr.getContent());
+        qrData.put("contentType", qr.getContentType());
+        qrData.put("title", qr.getTitle());
+        qrData.put("description", qr.getDescription());
+        qrData.put("tags", qr.getTags());
+        qrData.put("category", qr.getCategory());
+        qrData.put("style", qr.getStyle());
+        qrData.put("foregroundColor", qr.getForegroundColor());
+        qrData.put("backgroundColor", qr.getBackgroundColor());
+        qrData.put("size", qr.getSize());
+        qrData.put("format", qr.getFormat());
+        qrData.put("totalScans", qr.getTotalScans());
+        qrData.put("uniqueScans", qr.getUniqueScans());
+        qrData.put("createdAt", qr.getCreatedAt());
+        qrData.put("updatedAt", qr.getUpdatedAt());
+        qrData.put("lastScannedAt", qr.getLastScannedAt());
+        qrData.put("scopeType", qr.getScopeType());
+        qrData.put("scopeId", qr.getScopeId());
+        return qrData;
+    }
+}
@@ -1,8 +1,11 @@
 package com.urlshortener.controller;
 
-import com.urlshortener.model.ShortenedUrl;
+import com.urlshortener.model.ClickEvent;
+import com.urlshortener.model.LinkResolution;
+import com.urlshortener.model.ResolvedLink;
+import com.urlshortener.service.LinkResolver;
 import com.urlshortener.service.UrlShorteningService;
-import com.urlshortener.service.AnalyticsService;
+import com.urlshortener.service.ClickIngestionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -19,8 +22,11 @@ public class RedirectController {
     @Autowired
     private UrlShorteningService urlShorteningService;
     
-    @Autowired(required = false)
-    private AnalyticsService analyticsService;
+    @Autowired
+    private LinkResolver linkResolver;
+    
+    @Autowired
+    private ClickIngestionService clickIngestionService;
     
     @GetMapping("/debug/{shortCode}")
     public ResponseEntity<String> debugUrl(@PathVariable String shortCode, HttpServletRequest request) {
@@ -33,22 +39,17 @@ public class RedirectController {
             debug.append("HostDomain: ").append(hostDomain).append("\n");
             debug.append("ServerName: ").append(request.getServerName()).append("\n");
             
-            // Try all lookup methods
-            Optional<ShortenedUrl> urlOpt1 = urlShorteningService.getByShortCodeAndDomain(shortCode, hostDomain);
-            debug.append("Lookup 1 (shortCode + domain): ").append(urlOpt1.isPresent() ? "FOUND" : "NOT FOUND").append("\n");
-            
-            Optional<ShortenedUrl> urlOpt2 = urlShorteningService.getByShortCode(shortCode);
-            debug.append("Lookup 2 (shortCode only): ").append(urlOpt2.isPresent() ? "FOUND" : "NOT FOUND").append("\n");
-            
-            Optional<ShortenedUrl> urlOpt3 = urlShorteningService.findByShortCodeIgnoreDomain(shortCode);
-            debug.append("Lookup 3 (ignore domain): ").append(urlOpt3.isPresent() ? "FOUND" : "NOT FOUND").append("\n");
+            // Single resolution covering exact, legacy and fallback matches
+            LinkResolution resolution = linkResolver.lookup(shortCode);
+            LinkResolution.MatchType match = resolution.matchFor(
+                linkResolver.normalizeHost(hostDomain), linkResolver.getDefaultDomain());
+            debug.append("Resolution: ").append(match).append("\n");
             
-            if (urlOpt3.isPresent()) {
-                ShortenedUrl url = urlOpt3.get();
+            if (resolution.getLink() != null) {
+                ResolvedLink url = resolution.getLink();
                 debug.append("Found URL:\n");
                 debug.append("  Original: ").append(url.getOriginalUrl()).append("\n");
                 debug.append("  Domain: ").append(url.getDomain()).append("\n");
-                debug.append("  ShortUrl: ").append(url.getShortUrl()).append("\n");
             }
             
             return ResponseEntity.ok(debug.toString());
@@ -66,55 +67,8 @@ public class RedirectController {
             
             System.out.println("🔍 Redirect Request - ShortCode: " + shortCode + ", HostDomain: " + hostDomain);
             
-            // Enhanced URL lookup with multiple fallback strategies
-            Optional<ShortenedUrl> urlOpt = Optional.empty();
-            
-            try {
-                // Strategy 1: Find by shortCode and exact domain match
-                urlOpt = urlShorteningService.getByShortCodeAndDomain(shortCode, hostDomain);
-                if (urlOpt.isPresent()) {
-                    System.out.println("✅ Found URL with exact domain match: " + hostDomain);
-                }
-            } catch (Exception e) {
-                System.err.println("⚠️ Domain lookup failed, trying fallbacks: " + e.getMessage());
-            }
-            
-            // Strategy 2: For default domain, try with null domain (legacy URLs)
-            if (urlOpt.isEmpty() && "pebly.vercel.app".equals(hostDomain)) {
-                try {
-                    urlOpt = urlShorteningService.getByShortCodeAndDomain(shortCode, null);
-                    if (urlOpt.isPresent()) {
-                        System.out.println("✅ Found URL with null domain (legacy default domain URL)");
-                    }
-                } catch (Exception e) {
-                    System.err.println("⚠️ Null domain lookup failed: " + e.getMessage());
-                }
-            }
-            
-            // Strategy 3: Try shortCode only (most permissive fallback)
-            if (urlOpt.isEmpty()) {
-                try {
-                    urlOpt = urlShorteningService.getByShortCode(shortCode);
-                    if (urlOpt.isPresent()) {
-                        System.out.println("✅ Found URL with shortCode-only lookup");
-                    }
-                } catch (Exception e) {
-                    System.err.println("⚠️ ShortCode-only lookup failed: " + e.getMessage());
-                }
-            }
-            
-            // Strategy 4: Final fallback using ignore domain method
-            if (urlOpt.isEmpty()) {
-                try {
-                    System.out.println("🔍 Trying final fallback search for shortCode: " + shortCode);
-                    urlOpt = urlShorteningService.findByShortCodeIgnoreDomain(shortCode);
-                    if (urlOpt.isPresent()) {
-                        System.out.println("✅ Found URL with fallback search: " + urlOpt.get().getOriginalUrl());
-                    }
-                } catch (Exception e) {
-                    System.err.println("⚠️ Final fallback failed: " + e.getMessage());
-                }
-            }
+            // One resolver lookup decides exact hit, legacy null-domain hit or definite miss
+            Optional<ResolvedLink> urlOpt = linkResolver.resolve(hostDomain, shortCode);
             
             if (urlOpt.isEmpty()) {
                 System.out.println("❌ URL not found for shortCode: " + shortCode);
@@ -125,7 +79,7 @@ public class RedirectController {
                 return redirectView;
             }
             
-            ShortenedUrl url = urlOpt.get();
+            ResolvedLink url = urlOpt.get();
             
             // ✅ CHECK PASSWORD PROTECTION
             if (url.isPasswordProtected()) {
@@ -164,24 +118,19 @@ public class RedirectController {
                 return redirectView;
             }
             
-            // Record analytics if service is available
-            if (analyticsService != null) {
-                try {
-                    String userAgent = request.getHeader("User-Agent");
-                    String referer = request.getHeader("Referer");
-                    String clientIp = getClientIpAddress(request);
-                    
-                    analyticsService.recordClick(shortCode, clientIp, userAgent, referer, 
-                                                null, null, null, null, null);
-                } catch (Exception e) {
-                    // Log error but don't fail the redirect
-                    System.err.println("Failed to record analytics: " + e.getMessage());
-                }
+            // Queue the click; analytics and counters are persisted by the ingestion consumer
+            try {
+                String userAgent = request.getHeader("User-Agent");
+                String referer = request.getHeader("Referer");
+                String clientIp = getClientIpAddress(request);
+                
+                clickIngestionService.enqueue(new ClickEvent(shortCode, url.getUserId(), clientIp, userAgent, referer,
+                                                             null, null, null, null, null));
+            } catch (Exception e) {
+                // Log error but don't fail the redirect
+                System.err.println("Failed to queue click analytics: " + e.getMessage());
             }
             
-            // Increment click count
-            urlShorteningService.incrementClicks(shortCode);
-            
             // Perform the redirect
             System.out.println("✅ Redirecting to: " + url.getOriginalUrl());
             RedirectView redirectView = new RedirectView();
@@ -399,9 +399,9 @@ public class TeamController {
     // Helper method to get current user ID from request attribute
     private String getCurrentUserId(HttpServletRequest request) {
         // First try to get from request attribute (set by JWT filter)
-        com.urlshortener.model.User currentUser = (com.urlshortener.model.User) request.getAttribute("currentUser");
-        if (currentUser != null) {
-            return currentUser.getId();
+        Object currentUserId = request.getAttribute("currentUserId");
+        if (currentUserId != null) {
+            return currentUserId.toString();
         }
         
         // Fallback: try to get from security context
@@ -1,13 +1,26 @@
 package com.urlshortener.controller;
 
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.urlshortener.annotation.RequiresPlan;
+import com.urlshortener.model.ResolvedLink;
 import com.urlshortener.model.ShortenedUrl;
+import com.urlshortener.service.LinkResolver;
+import com.urlshortener.service.LinkSearchService;
+import com.urlshortener.service.LinkSearchService.SearchPage;
 import com.urlshortener.service.UrlShorteningService;
 import com.urlshortener.service.AnalyticsService;
-import com.urlshortener.service.DashboardService;
+import com.urlshortener.service.ResourceListingService;
+import com.urlshortener.service.ResourceListingService.CursorPage;
+import com.urlshortener.service.ResourceListingService.ListingQuery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import jakarta.servlet.http.HttpServletRequest;
+import java.io.OutputStream;
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
@@ -23,11 +36,23 @@ public class UrlController {
     @Autowired
     private UrlShorteningService urlShorteningService;
     
+    @Autowired
+    private LinkResolver linkResolver;
+    
     @Autowired
     private AnalyticsService analyticsService;
     
     @Autowired
-    private DashboardService dashboardService;
+    private ResourceListingService resourceListingService;
+    
+    @Autowired
+    private LinkSearchService linkSearchService;
+    
+    @Autowired
+    private ObjectMapper objectMapper;
+    
+    @Value("${app.bulk.max-items:10000}")
+    private int bulkMaxItems;
     
     @PostMapping("/fix-urls")
     public ResponseEntity<Map<String, Object>> fixExistingUrls() {
@@ -57,7 +82,7 @@ public class UrlController {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            Optional<ShortenedUrl> urlOpt = urlShorteningService.getByShortCode(shortCode);
+            Optional<ResolvedLink> urlOpt = linkResolver.resolve(null, shortCode);
             
             if (urlOpt.isEmpty()) {
                 response.put("success", false);
@@ -65,7 +90,7 @@ public class UrlController {
                 return ResponseEntity.status(404).body(response);
             }
             
-            ShortenedUrl url = urlOpt.get();
+            ResolvedLink url = urlOpt.get();
             
             // Check if URL is active
             if (!url.isActive()) {
@@ -222,6 +247,62 @@ public class UrlController {
         }
     }
     
+    /**
+     * Create many links in one request. Accepts a JSON array or NDJSON (one link object per line)
+     * with the same fields as single creation, and streams one NDJSON result per item followed
+     * by a summary line.
+     */
+    @PostMapping(value = "/bulk", consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @RequiresPlan(feature = "urlCreation", checkLimit = true)
+    public ResponseEntity<?> createShortUrlsBulk(@RequestParam String userId, HttpServletRequest request) {
+        List<Map<String, Object>> items = new ArrayList<>();
+        
+        try (MappingIterator<Map<String, Object>> iterator = objectMapper.readerForMapOf(Object.class)
+                .readValues(request.getInputStream())) {
+            while (iterator.hasNext()) {
+                if (items.size() >= bulkMaxItems) {
+                    return ResponseEntity.badRequest().body(Map.of("success", false,
+                        "message", "Too many links in one request (max " + bulkMaxItems + ")"));
+                }
+                items.add(iterator.next());
+            }
+        } catch (Exception e) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "Invalid request body: " + e.getMessage()));
+        }
+        
+        if (items.isEmpty()) {
+            return ResponseEntity.badRequest().body(Map.of("success", false, "message", "No links provided"));
+        }
+        
+        StreamingResponseBody body = outputStream -> {
+            Map<String, Object> summary;
+            try {
+                summary = urlShorteningService.createShortUrlsBulk(userId, items, result -> writeLine(outputStream, result));
+                summary.put("success", true);
+            } catch (Exception e) {
+                summary = new HashMap<>();
+                summary.put("success", false);
+                summary.put("message", e.getMessage());
+            }
+            summary.put("summary", true);
+            writeLine(outputStream, summary);
+        };
+        
+        return ResponseEntity.ok()
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .body(body);
+    }
+    
+    private void writeLine(OutputStream outputStream, Map<String, Object> line) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(line));
+            outputStream.write('\n');
+            outputStream.flush();
+        } catch (java.io.IOException e) {
+            throw new java.io.UncheckedIOException(e);
+        }
+    }
+    
     @GetMapping("/info/{shortCode}")
     public ResponseEntity<Map<String, Object>> getUrl(@PathVariable String shortCode) {
         Map<String, Object> response = new HashMap<>();
@@ -260,34 +341,59 @@ public class UrlController {
         }
     }
     
+    /**
+     * The user's links, newest first by default. Without cursor or limit the whole list is
+     * returned; with either, one page, and passing nextCursor back as cursor continues it.
+     */
     @GetMapping("/user/{userId}")
-    public ResponseEntity<Map<String, Object>> getUserUrls(@PathVariable String userId) {
+    public ResponseEntity<Map<String, Object>> getUserUrls(@PathVariable String userId,
+                                                          @RequestParam(required = false) String cursor,
+                                                          @RequestParam(required = false) Integer limit,
+                                                          @RequestParam(required = false) String order,
+                                                          @RequestParam(required = false) String tag,
+                                                          @RequestParam(required = false) String category,
+                                                          @RequestParam(required = false) String domain) {
+        Map<String, Object> response = new HashMap<>();
+        
+        try {
+            CursorPage<ShortenedUrl> page = resourceListingService.listUrls(ResourceListingService.ownedBy(userId),
+                new ListingQuery(cursor, limit, order, tag, category, domain));
+            
+            response.put("success", true);
+            response.put("count", page.getItems().size());
+            response.put("data", page.getItems().stream().map(this::toListItem).toList());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.hasMore());
+            
+            return ResponseEntity.ok(response);
+            
+        } catch (Exception e) {
+            response.put("success", false);
+            response.put("message", e.getMessage());
+            return ResponseEntity.badRequest().body(response);
+        }
+    }
+    
+    /**
+     * Search the user's links by title, original URL, short code, tags, category and notes.
+     * All tokens must match; the last one (and any ending in '*') matches as a prefix.
+     */
+    @GetMapping("/user/{userId}/search")
+    public ResponseEntity<Map<String, Object>> searchUserUrls(@PathVariable String userId,
+                                                             @RequestParam("q") String query,
+                                                             @RequestParam(defaultValue = "0") int offset,
+                                                             @RequestParam(required = false) Integer limit) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            // Use cached dashboard service for better performance
-            List<ShortenedUrl> urls = dashboardService.getUserUrls(userId);
-            
-            List<Map<String, Object>> urlsData = urls.stream().map(url -> {
-                Map<String, Object> urlData = new HashMap<>();
-                urlData.put("id", url.getId());
-                urlData.put("shortCode", url.getShortCode());
-                urlData.put("shortUrl", url.getShortUrl());
-                urlData.put("originalUrl", url.getOriginalUrl());
-                urlData.put("title", url.getTitle());
-                urlData.put("description", url.getDescription());
-                urlData.put("totalClicks", url.getTotalClicks());
-                urlData.put("uniqueClicks", url.getUniqueClicks());
-                urlData.put("createdAt", url.getCreatedAt());
-                urlData.put("lastClickedAt", url.getLastClickedAt());
-                urlData.put("isPasswordProtected", url.isPasswordProtected());
-                urlData.put("hasQrCode", url.isHasQrCode());
-                return urlData;
-            }).toList();
+            SearchPage page = linkSearchService.search(userId, query, offset, limit);
             
             response.put("success", true);
-            response.put("count", urls.size());
-            response.put("data", urlsData);
+            response.put("data", page.getLinks().stream().map(this::toListItem).toList());
+            response.put("count", page.getLinks().size());
+            response.put("total", page.getTotal());
+            response.put("offset", page.getOffset());
+            response.put("hasMore", page.hasMore());
             
             return ResponseEntity.ok(response);
             
@@ -443,15 +549,24 @@ public class UrlController {
     @GetMapping("/scope/{scopeType}/{scopeId}")
     public ResponseEntity<Map<String, Object>> getUrlsByScope(
             @PathVariable String scopeType, 
-            @PathVariable String scopeId) {
+            @PathVariable String scopeId,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer limit,
+            @RequestParam(required = false) String order,
+            @RequestParam(required = false) String tag,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String domain) {
         Map<String, Object> response = new HashMap<>();
         
         try {
-            List<ShortenedUrl> urls = urlShorteningService.getUrlsByScope(scopeType, scopeId);
+            CursorPage<ShortenedUrl> page = resourceListingService.listUrls(ResourceListingService.inScope(scopeType, scopeId),
+                new ListingQuery(cursor, limit, order, tag, category, domain));
             
             response.put("success", true);
-            response.put("urls", urls);
-            response.put("count", urls.size());
+            response.put("urls", page.getItems().stream().map(this::toListItem).toList());
+            response.put("count", page.getItems().size());
+            response.put("nextCursor", page.getNextCursor());
+            response.put("hasMore", page.hasMore());
             
             return ResponseEntity.ok(response);
             
@@ -461,4 +576,26 @@ public class UrlController {
             return ResponseEntity.badRequest().body(response);
         }
     }
-}
\ No newline at end of file
+    
+    private Map<String, Object> toListItem(ShortenedUrl url) {
+        Map<String, Object> urlData = new HashMap<>();
+        urlData.put("id", url.getId());
+        urlData.put("shortCode", url.getShortCode());
+        urlData.put("shortUrl", url.getShortUrl());
+        urlData.put("originalUrl", url.getOriginalUrl());
+        urlData.put("title", url.getTitle());
+        urlData.put("description", url.getDescription());
+        urlData.put("domain", url.getDomain());
+        urlData.put("tags", url.getTags());
+        urlData.put("category", url.getCategory());
+        urlData.put("totalClicks", url.getTotalClicks());
+        urlData.put("uniqueClicks", url.getUniqueClicks());
+        urlData.put("createdAt", url.getCreatedAt());
+        urlData.put("lastClickedAt", url.getLastClickedAt());
+        urlData.put("isPasswordProtected", url.isPasswordProtected());
+        urlData.put("hasQrCode", url.isHasQrCode());
+        urlData.put("scopeType", url.getScopeType());
+        urlData.put("scopeId", url.getScopeId());
+        return urlData;
+    }
+}
@@ -1,6 +1,7 @@
 package com.urlshortener.interceptor;
 
 import com.urlshortener.service.PerformanceMonitoringService;
+import com.urlshortener.service.UserContextService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.HandlerInterceptor;
@@ -20,6 +21,9 @@ public class PerformanceInterceptor implements HandlerInterceptor {
     @Autowired
     private PerformanceMonitoringService performanceMonitoringService;
     
+    @Autowired
+    private UserContextService userContextService;
+    
     private static final String START_TIME_ATTRIBUTE = "startTime";
     
     @Override
@@ -47,6 +51,7 @@ public class PerformanceInterceptor implements HandlerInterceptor {
                 
                 // Record API performance metrics
                 performanceMonitoringService.recordApiRequest(endpoint, duration);
+                userContextService.recordRequestCompleted(request);
                 
                 // Log slow requests (> 1 second)
                 if (duration.toMillis() > 1000) {
@@ -69,8 +74,9 @@ public class PerformanceInterceptor implements HandlerInterceptor {
                                                             "HTTP " + statusCode + " for " + endpoint);
                 }
                 
-                logger.debug("API request completed: {} {} - {}ms (status: {})", 
-                           request.getMethod(), endpoint, duration.toMillis(), statusCode);
+                logger.debug("API request completed: {} {} - {}ms (status: {}, user reads: {})", 
+                           request.getMethod(), endpoint, duration.toMillis(), statusCode,
+                           userContextService.getDbReads(request));
             }
             
         } catch (Exception e) {
@@ -3,7 +3,8 @@ package com.urlshortener.interceptor;
 import com.urlshortener.annotation.RequiresPlan;
 import com.urlshortener.model.User;
 import com.urlshortener.service.PlanValidationService;
-import com.urlshortener.service.UserService;
+import com.urlshortener.service.QuotaResource;
+import com.urlshortener.service.UserContextService;
 import com.urlshortener.exception.PlanLimitException;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
@@ -17,6 +18,7 @@ import org.slf4j.LoggerFactory;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import java.lang.reflect.Method;
+import java.time.LocalDateTime;
 import java.util.Optional;
 
 /**
@@ -32,7 +34,7 @@ public class PlanValidationInterceptor implements HandlerInterceptor {
     private PlanValidationService planValidationService;
     
     @Autowired
-    private UserService userService;
+    private UserContextService userContextService;
     
     @Override
     public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
@@ -59,7 +61,7 @@ public class PlanValidationInterceptor implements HandlerInterceptor {
         }
         
         String userId = authentication.getName();
-        Optional<User> userOpt = userService.findById(userId);
+        Optional<User> userOpt = userContextService.getUser(userId);
         
         if (userOpt.isEmpty()) {
             response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
@@ -105,17 +107,17 @@ public class PlanValidationInterceptor implements HandlerInterceptor {
         switch (feature.toLowerCase()) {
             case "urlcreation":
             case "urls":
-                planValidationService.validateUrlLimit(user, user.getMonthlyUrlsCreated());
+                planValidationService.validateUrlLimit(user, QuotaResource.URLS.monthlyUsage(user, LocalDateTime.now()));
                 break;
                 
             case "qrcreation":
             case "qrcodes":
-                planValidationService.validateQRLimit(user, user.getMonthlyQrCodesCreated());
+                planValidationService.validateQRLimit(user, QuotaResource.QR_CODES.monthlyUsage(user, LocalDateTime.now()));
                 break;
                 
             case "fileupload":
             case "files":
-                planValidationService.validateFileLimit(user, user.getMonthlyFilesUploaded());
+                planValidationService.validateFileLimit(user, QuotaResource.FILES.monthlyUsage(user, LocalDateTime.now()));
                 break;
                 
             case "customdomains":
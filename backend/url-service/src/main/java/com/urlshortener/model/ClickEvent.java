@@ -0,0 +1,62 @@
+package com.urlshortener.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compact click record captured on the redirect path and queued for asynchronous ingestion.
+ * Turned into a ClickAnalytics document (and counter deltas) by the ingestion consumer.
+ */
+public class ClickEvent {
+
+    private String shortCode;
+    private String userId;
+    private String ipAddress;
+    private String userAgent;
+    private String referrer;
+    private String country;
+    private String city;
+    private String deviceType;
+    private String browser;
+    private String os;
+    private LocalDateTime clickedAt;
+
+    // Required for spill-file deserialization
+    private ClickEvent() {}
+
+    public ClickEvent(String shortCode, String userId, String ipAddress, String userAgent, String referrer,
+                      String country, String city, String deviceType, String browser, String os) {
+        this.shortCode = shortCode;
+        this.userId = userId;
+        this.ipAddress = ipAddress;
+        this.userAgent = userAgent;
+        this.referrer = referrer;
+        this.country = country;
+        this.city = city;
+        this.deviceType = deviceType;
+        this.browser = browser;
+        this.os = os;
+        this.clickedAt = LocalDateTime.now();
+    }
+
+    public String getShortCode() { return shortCode; }
+
+    public String getUserId() { return userId; }
+
+    public String getIpAddress() { return ipAddress; }
+
+    public String getUserAgent() { return userAgent; }
+
+    public String getReferrer() { return referrer; }
+
+    public String getCountry() { return country; }
+
+    public String getCity() { return city; }
+
+    public String getDeviceType() { return deviceType; }
+
+    public String getBrowser() { return browser; }
+
+    public String getOs() { return os; }
+
+    public LocalDateTime getClickedAt() { return clickedAt; }
+}
@@ -0,0 +1,108 @@
+package com.urlshortener.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Pre-aggregated click counts for one link or user over one minute, hour or day.
+ * Maintained incrementally by the click pipeline; analytics reads these instead of raw clicks.
+ */
+@Document(collection = "click_rollups")
+@CompoundIndex(def = "{'scope': 1, 'scopeId': 1, 'granularity': 1, 'bucketStart': 1}", name = "idx_rollup_scope_bucket")
+public class ClickRollup {
+
+    public static final String SCOPE_LINK = "LINK";
+    public static final String SCOPE_USER = "USER";
+
+    public enum Granularity {
+        MINUTE(ChronoUnit.MINUTES, Duration.ofDays(2)),
+        HOUR(ChronoUnit.HOURS, Duration.ofDays(90)),
+        DAY(ChronoUnit.DAYS, null); // Kept indefinitely
+
+        private final ChronoUnit unit;
+        private final Duration retention;
+
+        Granularity(ChronoUnit unit, Duration retention) {
+            this.unit = unit;
+            this.retention = retention;
+        }
+
+        public LocalDateTime truncate(LocalDateTime time) {
+            return time.truncatedTo(unit);
+        }
+
+        public Duration getRetention() { return retention; }
+    }
+
+    @Id
+    private String id; // scope:scopeId:granularity:bucketStart
+
+    private String scope; // LINK or USER
+    private String scopeId; // shortCode for LINK, userId for USER
+    private String granularity;
+    private LocalDateTime bucketStart;
+
+    private int clicks = 0;
+    private int uniqueClicks = 0;
+
+    // Dimension breakdowns
+    private Map<String, Integer> byCountry = new HashMap<>();
+    private Map<String, Integer> byDevice = new HashMap<>();
+    private Map<String, Integer> byBrowser = new HashMap<>();
+    private Map<String, Integer> byReferrerType = new HashMap<>();
+
+    private LocalDateTime expireAt; // TTL for minute/hour buckets
+    private LocalDateTime updatedAt;
+
+    public ClickRollup() {}
+
+    public static String buildId(String scope, String scopeId, Granularity granularity, LocalDateTime bucketStart) {
+        return scope + ":" + scopeId + ":" + granularity.name() + ":" + bucketStart;
+    }
+
+    // Getters and Setters
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getScope() { return scope; }
+    public void setScope(String scope) { this.scope = scope; }
+
+    public String getScopeId() { return scopeId; }
+    public void setScopeId(String scopeId) { this.scopeId = scopeId; }
+
+    public String getGranularity() { return granularity; }
+    public void setGranularity(String granularity) { this.granularity = granularity; }
+
+    public LocalDateTime getBucketStart() { return bucketStart; }
+    public void setBucketStart(LocalDateTime bucketStart) { this.bucketStart = bucketStart; }
+
+    public int getClicks() { return clicks; }
+    public void setClicks(int clicks) { this.clicks = clicks; }
+
+    public int getUniqueClicks() { return uniqueClicks; }
+    public void setUniqueClicks(int uniqueClicks) { this.uniqueClicks = uniqueClicks; }
+
+    public Map<String, Integer> getByCountry() { return byCountry; }
+    public void setByCountry(Map<String, Integer> byCountry) { this.byCountry = byCountry; }
+
+    public Map<String, Integer> getByDevice() { return byDevice; }
+    public void setByDevice(Map<String, Integer> byDevice) { this.byDevice = byDevice; }
+
+    public Map<String, Integer> getByBrowser() { return byBrowser; }
+    public void setByBrowser(Map<String, Integer> byBrowser) { this.byBrowser = byBrowser; }
+
+    public Map<String, Integer> getByReferrerType() { return byReferrerType; }
+    public void setByReferrerType(Map<String, Integer> byReferrerType) { this.byReferrerType = byReferrerType; }
+
+    public LocalDateTime getExpireAt() { return expireAt; }
+    public void setExpireAt(LocalDateTime expireAt) { this.expireAt = expireAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
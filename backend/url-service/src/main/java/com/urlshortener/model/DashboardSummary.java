@@ -0,0 +1,241 @@
+package com.urlshortener.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pre-computed dashboard numbers for one user or team, kept current by create, delete,
+ * click, scan and download events (see DashboardSummaryService) so the overview is one read.
+ */
+@Document(collection = "dashboard_summaries")
+public class DashboardSummary {
+
+    public static final String SCOPE_USER = "USER";
+    public static final String SCOPE_TEAM = "TEAM";
+
+    @Id
+    private String id; // scopeType:scopeId
+
+    private String scopeType; // USER or TEAM
+    private String scopeId; // userId or teamId
+
+    // Active resources
+    private long totalLinks;
+    private long totalQrCodes;
+    private long totalFiles;
+
+    // Engagement
+    private long totalClicks;
+    private long totalQrScans;
+    private long totalFileDownloads;
+
+    // Per-day series, keyed by ISO date
+    private Map<String, Integer> clicksByDay = new HashMap<>();
+    private Map<String, Integer> linksByDay = new HashMap<>();
+
+    private List<TopLink> topLinks = new ArrayList<>(); // most clicked first
+    private long topLinksVersion; // bumped on every topLinks change; guards read-merge-write updates
+    private boolean topLinksStale; // a top link was deleted; refilled on next read
+
+    private List<Activity> recentActivity = new ArrayList<>(); // newest first
+
+    private long revision; // bumped by every incremental update; a rebuild only replaces the revision it read
+    private LocalDateTime rebuiltAt;
+
+    public DashboardSummary() {}
+
+    public DashboardSummary(String scopeType, String scopeId) {
+        this.id = key(scopeType, scopeId);
+        this.scopeType = scopeType;
+        this.scopeId = scopeId;
+    }
+
+    public static String key(String scopeType, String scopeId) {
+        return scopeType + ":" + scopeId;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getScopeType() { return scopeType; }
+    public void setScopeType(String scopeType) { this.scopeType = scopeType; }
+
+    public String getScopeId() { return scopeId; }
+    public void setScopeId(String scopeId) { this.scopeId = scopeId; }
+
+    public long getTotalLinks() { return totalLinks; }
+    public void setTotalLinks(long totalLinks) { this.totalLinks = totalLinks; }
+
+    public long getTotalQrCodes() { return totalQrCodes; }
+    public void setTotalQrCodes(long totalQrCodes) { this.totalQrCodes = totalQrCodes; }
+
+    public long getTotalFiles() { return totalFiles; }
+    public void setTotalFiles(long totalFiles) { this.totalFiles = totalFiles; }
+
+    public long getTotalClicks() { return totalClicks; }
+    public void setTotalClicks(long totalClicks) { this.totalClicks = totalClicks; }
+
+    public long getTotalQrScans() { return totalQrScans; }
+    public void setTotalQrScans(long totalQrScans) { this.totalQrScans = totalQrScans; }
+
+    public long getTotalFileDownloads() { return totalFileDownloads; }
+    public void setTotalFileDownloads(long totalFileDownloads) { this.totalFileDownloads = totalFileDownloads; }
+
+    public Map<String, Integer> getClicksByDay() { return clicksByDay; }
+    public void setClicksByDay(Map<String, Integer> clicksByDay) { this.clicksByDay = clicksByDay; }
+
+    public Map<String, Integer> getLinksByDay() { return linksByDay; }
+    public void setLinksByDay(Map<String, Integer> linksByDay) { this.linksByDay = linksByDay; }
+
+    public List<TopLink> getTopLinks() { return topLinks; }
+    public void setTopLinks(List<TopLink> topLinks) { this.topLinks = topLinks; }
+
+    public long getTopLinksVersion() { return topLinksVersion; }
+    public void setTopLinksVersion(long topLinksVersion) { this.topLinksVersion = topLinksVersion; }
+
+    public boolean isTopLinksStale() { return topLinksStale; }
+    public void setTopLinksStale(boolean topLinksStale) { this.topLinksStale = topLinksStale; }
+
+    public List<Activity> getRecentActivity() { return recentActivity; }
+    public void setRecentActivity(List<Activity> recentActivity) { this.recentActivity = recentActivity; }
+
+    public long getRevision() { return revision; }
+    public void setRevision(long revision) { this.revision = revision; }
+
+    public LocalDateTime getRebuiltAt() { return rebuiltAt; }
+    public void setRebuiltAt(LocalDateTime rebuiltAt) { this.rebuiltAt = rebuiltAt; }
+
+    /**
+     * One entry of the most-clicked links list.
+     */
+    public static class TopLink {
+        private String shortCode;
+        private String shortUrl;
+        private String originalUrl;
+        private String title;
+        private long clicks;
+
+        public TopLink() {}
+
+        public TopLink(ShortenedUrl url) {
+            this.shortCode = url.getShortCode();
+            this.shortUrl = url.getShortUrl();
+            this.originalUrl = url.getOriginalUrl();
+            this.title = url.getTitle();
+            this.clicks = url.getTotalClicks();
+        }
+
+        public String getShortCode() { return shortCode; }
+        public void setShortCode(String shortCode) { this.shortCode = shortCode; }
+
+        public String getShortUrl() { return shortUrl; }
+        public void setShortUrl(String shortUrl) { this.shortUrl = shortUrl; }
+
+        public String getOriginalUrl() { return originalUrl; }
+        public void setOriginalUrl(String originalUrl) { this.originalUrl = originalUrl; }
+
+        public String getTitle() { return title; }
+        public void setTitle(String title) { this.title = title; }
+
+        public long getClicks() { return clicks; }
+        public void setClicks(long clicks) { this.clicks = clicks; }
+    }
+
+    /**
+     * One entry of the recent activity feed. {@code key} is the shortCode, qrCode or file id,
+     * and only the counter matching {@code type} is set.
+     */
+    public static class Activity {
+        private String type; // link, qr or file
+        private String action; // created, generated or uploaded
+        private String key;
+        private String title;
+        private String shortUrl;
+        private String fileName;
+        private String fileUrl;
+        private Long fileSize;
+        private Long clicks;
+        private Long scans;
+        private Long totalDownloads;
+        private LocalDateTime timestamp;
+
+        public Activity() {}
+
+        public static Activity of(ShortenedUrl url) {
+            Activity activity = new Activity();
+            activity.type = "link";
+            activity.action = "created";
+            activity.key = url.getShortCode();
+            activity.title = url.getTitle();
+            activity.shortUrl = url.getShortUrl();
+            activity.clicks = (long) url.getTotalClicks();
+            activity.timestamp = url.getCreatedAt();
+            return activity;
+        }
+
+        public static Activity of(QrCode qrCode) {
+            Activity activity = new Activity();
+            activity.type = "qr";
+            activity.action = "generated";
+            activity.key = qrCode.getQrCode();
+            activity.title = qrCode.getTitle();
+            activity.scans = (long) qrCode.getTotalScans();
+            activity.timestamp = qrCode.getCreatedAt();
+            return activity;
+        }
+
+        public static Activity of(UploadedFile file) {
+            Activity activity = new Activity();
+            activity.type = "file";
+            activity.action = "uploaded";
+            activity.key = file.getId();
+            activity.fileName = file.getOriginalFileName();
+            activity.fileUrl = file.getFileUrl();
+            activity.fileSize = file.getFileSize();
+            activity.totalDownloads = (long) file.getTotalDownloads();
+            activity.timestamp = file.getUploadedAt();
+            return activity;
+        }
+
+        public String getType() { return type; }
+        public void setType(String type) { this.type = type; }
+
+        public String getAction() { return action; }
+        public void setAction(String action) { this.action = action; }
+
+        public String getKey() { return key; }
+        public void setKey(String key) { this.key = key; }
+
+        public String getTitle() { return title; }
+        public void setTitle(String title) { this.title = title; }
+
+        public String getShortUrl() { return shortUrl; }
+        public void setShortUrl(String shortUrl) { this.shortUrl = shortUrl; }
+
+        public String getFileName() { return fileName; }
+        public void setFileName(String fileName) { this.fileName = fileName; }
+
+        public String getFileUrl() { return fileUrl; }
+        public void setFileUrl(String fileUrl) { this.fileUrl = fileUrl; }
+
+        public Long getFileSize() { return fileSize; }
+        public void setFileSize(Long fileSize) { this.fileSize = fileSize; }
+
+        public Long getClicks() { return clicks; }
+        public void setClicks(Long clicks) { this.clicks = clicks; }
+
+        public Long getScans() { return scans; }
+        public void setScans(Long scans) { this.scans = scans; }
+
+        public Long getTotalDownloads() { return totalDownloads; }
+        public void setTotalDownloads(Long totalDownloads) { this.totalDownloads = totalDownloads; }
+
+        public LocalDateTime getTimestamp() { return timestamp; }
+        public void setTimestamp(LocalDateTime timestamp) { this.timestamp = timestamp; }
+    }
+}
@@ -0,0 +1,46 @@
+package com.urlshortener.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import java.time.LocalDateTime;
+
+/**
+ * One stored copy of file content, shared by every UploadedFile with the same SHA-256.
+ * Reference-counted by FileBlobService; the GridFS file goes away with the last reference.
+ */
+@Document(collection = "file_blobs")
+public class FileBlob {
+
+    @Id
+    private String id; // SHA-256 (hex) of the original content
+
+    private String gridFsFileId;
+    private String contentEncoding; // "gzip" when stored compressed, null otherwise
+    private long originalSize;
+    private long storedSize; // bytes in GridFS
+    private int refCount;
+    private LocalDateTime createdAt;
+
+    public FileBlob() {}
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getGridFsFileId() { return gridFsFileId; }
+    public void setGridFsFileId(String gridFsFileId) { this.gridFsFileId = gridFsFileId; }
+
+    public String getContentEncoding() { return contentEncoding; }
+    public void setContentEncoding(String contentEncoding) { this.contentEncoding = contentEncoding; }
+
+    public long getOriginalSize() { return originalSize; }
+    public void setOriginalSize(long originalSize) { this.originalSize = originalSize; }
+
+    public long getStoredSize() { return storedSize; }
+    public void setStoredSize(long storedSize) { this.storedSize = storedSize; }
+
+    public int getRefCount() { return refCount; }
+    public void setRefCount(int refCount) { this.refCount = refCount; }
+
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -0,0 +1,63 @@
+package com.urlshortener.model;
+
+/**
+ * Outcome of resolving a short code for the redirect path.
+ * Cached as-is (including misses) so one lookup decides hit, legacy hit or definite miss.
+ * In Redis it is stored with LinkResolutionRedisSerializer rather than JSON.
+ */
+public class LinkResolution {
+
+    public enum MatchType {
+        EXACT_DOMAIN,   // Link domain matches the request host
+        LEGACY_DOMAIN,  // Link stored with null domain, requested on the default domain
+        ANY_DOMAIN,     // Link found under another domain (permissive fallback)
+        NOT_FOUND       // No link with this short code
+    }
+
+    private String shortCode;
+    private String domain;
+    private ResolvedLink link;
+
+    // Required for cache deserialization
+    private LinkResolution() {}
+
+    private LinkResolution(String shortCode, String domain, ResolvedLink link) {
+        this.shortCode = shortCode;
+        this.domain = domain;
+        this.link = link;
+    }
+
+    public static LinkResolution found(ShortenedUrl url) {
+        return found(ResolvedLink.from(url));
+    }
+
+    public static LinkResolution found(ResolvedLink link) {
+        return new LinkResolution(link.getShortCode(), link.getDomain(), link);
+    }
+
+    public static LinkResolution notFound(String shortCode) {
+        return new LinkResolution(shortCode, null, null);
+    }
+
+    /**
+     * Decide how this resolution matches the given (normalized) request host.
+     */
+    public MatchType matchFor(String host, String defaultDomain) {
+        if (link == null) {
+            return MatchType.NOT_FOUND;
+        }
+        if (host == null || (domain != null && domain.equalsIgnoreCase(host))) {
+            return MatchType.EXACT_DOMAIN;
+        }
+        if (domain == null && host.equalsIgnoreCase(defaultDomain)) {
+            return MatchType.LEGACY_DOMAIN;
+        }
+        return MatchType.ANY_DOMAIN;
+    }
+
+    public String getShortCode() { return shortCode; }
+
+    public String getDomain() { return domain; }
+
+    public ResolvedLink getLink() { return link; }
+}
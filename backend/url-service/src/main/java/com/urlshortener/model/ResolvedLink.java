@@ -0,0 +1,70 @@
+package com.urlshortener.model;
+
+import java.time.LocalDateTime;
+
+/**
+ * Immutable, slim view of a link holding only what the redirect path needs.
+ * This (not the full ShortenedUrl with its analytics maps) is what short_urls caches.
+ */
+public final class ResolvedLink {
+
+    private final String shortCode;
+    private final String domain;
+    private final String userId;
+    private final String originalUrl;
+    private final String title;
+    private final boolean active;
+    private final boolean passwordProtected;
+    private final String password;
+    private final boolean trackClicks;
+    private final LocalDateTime expiresAt;
+    private final Integer maxClicks;
+    private final int totalClicks;
+
+    public ResolvedLink(String shortCode, String domain, String userId, String originalUrl, String title,
+                        boolean active, boolean passwordProtected, String password, boolean trackClicks,
+                        LocalDateTime expiresAt, Integer maxClicks, int totalClicks) {
+        this.shortCode = shortCode;
+        this.domain = domain;
+        this.userId = userId;
+        this.originalUrl = originalUrl;
+        this.title = title;
+        this.active = active;
+        this.passwordProtected = passwordProtected;
+        this.password = password;
+        this.trackClicks = trackClicks;
+        this.expiresAt = expiresAt;
+        this.maxClicks = maxClicks;
+        this.totalClicks = totalClicks;
+    }
+
+    public static ResolvedLink from(ShortenedUrl url) {
+        return new ResolvedLink(url.getShortCode(), url.getDomain(), url.getUserId(), url.getOriginalUrl(),
+            url.getTitle(), url.isActive(), url.isPasswordProtected(), url.getPassword(), url.isTrackClicks(),
+            url.getExpiresAt(), url.getMaxClicks(), url.getTotalClicks());
+    }
+
+    public String getShortCode() { return shortCode; }
+
+    public String getDomain() { return domain; }
+
+    public String getUserId() { return userId; }
+
+    public String getOriginalUrl() { return originalUrl; }
+
+    public String getTitle() { return title; }
+
+    public boolean isActive() { return active; }
+
+    public boolean isPasswordProtected() { return passwordProtected; }
+
+    public String getPassword() { return password; }
+
+    public boolean isTrackClicks() { return trackClicks; }
+
+    public LocalDateTime getExpiresAt() { return expiresAt; }
+
+    public Integer getMaxClicks() { return maxClicks; }
+
+    public int getTotalClicks() { return totalClicks; }
+}
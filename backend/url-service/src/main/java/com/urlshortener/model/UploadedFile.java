@@ -25,6 +25,9 @@ public class UploadedFile {
     
     // GridFS information
     private String gridFsFileId; // Reference to GridFS file
+    private long storedSize; // bytes in GridFS (after compression)
+    private String contentEncoding; // "gzip" when stored compressed, null otherwise
+    private String contentHash; // SHA-256 (hex) of the original content
     
     // Owner information
     private String userId; // Reference to User
@@ -144,6 +147,15 @@ public class UploadedFile {
     public String getGridFsFileId() { return gridFsFileId; }
     public void setGridFsFileId(String gridFsFileId) { this.gridFsFileId = gridFsFileId; }
     
+    public long getStoredSize() { return storedSize; }
+    public void setStoredSize(long storedSize) { this.storedSize = storedSize; }
+    
+    public String getContentEncoding() { return contentEncoding; }
+    public void setContentEncoding(String contentEncoding) { this.contentEncoding = contentEncoding; }
+    
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    
     public String getUserId() { return userId; }
     public void setUserId(String userId) { this.userId = userId; }
     
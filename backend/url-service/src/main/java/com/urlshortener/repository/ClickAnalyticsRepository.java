@@ -17,6 +17,9 @@ public interface ClickAnalyticsRepository extends MongoRepository<ClickAnalytics
     // Find analytics by user
     List<ClickAnalytics> findByUserId(String userId);
     
+    // Latest clicks for a user
+    List<ClickAnalytics> findTop10ByUserIdOrderByClickedAtDesc(String userId);
+    
     // Find analytics by short code and date range
     List<ClickAnalytics> findByShortCodeAndClickedAtBetween(String shortCode, LocalDateTime startDate, LocalDateTime endDate);
     
@@ -50,6 +53,9 @@ public interface ClickAnalyticsRepository extends MongoRepository<ClickAnalytics
     // Count clicks by user
     long countByUserId(String userId);
     
+    // Count clicks by user and date range
+    long countByUserIdAndClickedAtBetween(String userId, LocalDateTime startDate, LocalDateTime endDate);
+    
     // Count clicks today for short code
     @Query(value = "{'shortCode': ?0, 'clickedAt': {$gte: ?1}}", count = true)
     long countTodayClicksByShortCode(String shortCode, LocalDateTime startOfDay);
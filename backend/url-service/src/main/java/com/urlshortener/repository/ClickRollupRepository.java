@@ -0,0 +1,15 @@
+package com.urlshortener.repository;
+
+import com.urlshortener.model.ClickRollup;
+import org.springframework.data.mongodb.repository.MongoRepository;
+import org.springframework.stereotype.Repository;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface ClickRollupRepository extends MongoRepository<ClickRollup, String> {
+    
+    // Buckets for a link or user from a given start (inclusive), oldest first
+    List<ClickRollup> findByScopeAndScopeIdAndGranularityAndBucketStartGreaterThanEqualOrderByBucketStartAsc(
+        String scope, String scopeId, String granularity, LocalDateTime from);
+}
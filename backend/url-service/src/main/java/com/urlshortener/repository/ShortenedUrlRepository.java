@@ -5,6 +5,7 @@ import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.data.mongodb.repository.Query;
 import org.springframework.stereotype.Repository;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -14,6 +15,16 @@ public interface ShortenedUrlRepository extends MongoRepository<ShortenedUrl, St
     // Find by short code
     Optional<ShortenedUrl> findByShortCode(String shortCode);
     
+    // Redirect fields only (see ResolvedLink) - skips analytics maps, tags, notes and QR fields
+    @Query(value = "{'shortCode': ?0}", fields = "{'shortCode': 1, 'domain': 1, 'userId': 1, 'originalUrl': 1, 'title': 1, "
+            + "'isActive': 1, 'isPasswordProtected': 1, 'password': 1, 'trackClicks': 1, 'expiresAt': 1, "
+            + "'maxClicks': 1, 'totalClicks': 1}")
+    Optional<ShortenedUrl> findRedirectFieldsByShortCode(String shortCode);
+    
+    // Which of the given short codes are taken (shortCode only)
+    @Query(value = "{'shortCode': {$in: ?0}}", fields = "{'shortCode': 1}")
+    List<ShortenedUrl> findShortCodesIn(Collection<String> shortCodes);
+    
     // Find by custom alias
     Optional<ShortenedUrl> findByCustomAlias(String customAlias);
     
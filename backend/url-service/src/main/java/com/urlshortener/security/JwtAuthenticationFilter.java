@@ -1,6 +1,6 @@
 package com.urlshortener.security;
 
-import com.urlshortener.service.UserService;
+import com.urlshortener.security.VerifiedTokenCache.VerifiedToken;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -21,12 +21,9 @@ import java.util.ArrayList;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
-    @Autowired
-    private JwtUtil jwtUtil;
-
     @Autowired
     @Lazy
-    private UserService userService;
+    private VerifiedTokenCache verifiedTokenCache;
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
@@ -34,47 +31,34 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
         final String requestTokenHeader = request.getHeader("Authorization");
 
-        String userId = null;
-        String jwtToken = null;
-
         // JWT Token is in the form "Bearer token". Remove Bearer word and get only the Token
-        if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")) {
-            jwtToken = requestTokenHeader.substring(7);
-            try {
-                userId = jwtUtil.extractUserId(jwtToken);
-            } catch (Exception e) {
-                logger.warn("Unable to get JWT Token or JWT Token has expired");
-            }
-        }
-
-        // Once we get the token validate it.
-        if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
+        if (requestTokenHeader != null && requestTokenHeader.startsWith("Bearer ")
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            String jwtToken = requestTokenHeader.substring(7);
 
             try {
-                // Check if user exists
-                var userOpt = userService.findById(userId);
-            if (userOpt.isPresent() && jwtUtil.validateToken(jwtToken, userId)) {
-                
-                com.urlshortener.model.User user = userOpt.get();
-                
-                // Create UserDetails for Spring Security - use user ID as username for easier access
-                UserDetails userDetails = User.builder()
-                        .username(user.getId()) // Use user ID instead of email for easier access in controllers
-                        .password("") // We don't need password for JWT auth
-                        .authorities(new ArrayList<>())
-                        .build();
+                // Signature, expiry and user existence are checked once per token, then cached
+                VerifiedToken token = verifiedTokenCache.verify(jwtToken);
+                if (token != null) {
+                    // Create UserDetails for Spring Security - use user ID as username for easier access
+                    UserDetails userDetails = User.builder()
+                            .username(token.getUserId()) // Use user ID instead of email for easier access in controllers
+                            .password("") // We don't need password for JWT auth
+                            .authorities(new ArrayList<>())
+                            .build();
 
-                UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = 
-                    new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
-                usernamePasswordAuthenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                
-                // Set the user in the request for easy access
-                request.setAttribute("currentUser", user);
-                request.setAttribute("currentUserId", user.getId());
-                request.setAttribute("currentUserEmail", user.getEmail());
-                
-                SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
-            }
+                    UsernamePasswordAuthenticationToken usernamePasswordAuthenticationToken = 
+                        new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
+                    usernamePasswordAuthenticationToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                    
+                    // Set the user in the request for easy access (load it via UserContextService when needed)
+                    request.setAttribute("currentUserId", token.getUserId());
+                    request.setAttribute("currentUserEmail", token.getEmail());
+                    
+                    SecurityContextHolder.getContext().setAuthentication(usernamePasswordAuthenticationToken);
+                } else {
+                    logger.debug("Unable to authenticate JWT Token (invalid, expired or revoked)");
+                }
             } catch (Exception e) {
                 logger.warn("Error validating user: " + e.getMessage());
             }
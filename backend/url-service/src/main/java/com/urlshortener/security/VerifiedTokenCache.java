@@ -0,0 +1,307 @@
+package com.urlshortener.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.urlshortener.service.UserContextService;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Verified-token cache for bearer authentication.
+ *
+ * A token's signature and expiry are checked once, together with the existence of its user;
+ * the result is cached under the SHA-256 of the token until the token itself expires, so
+ * repeat requests with the same token need neither signature verification nor a user lookup.
+ *
+ * Revocation goes through a small deny-list of token hashes, each kept only until the token
+ * would have expired anyway. With Redis configured, revocations are also stored in Redis (read
+ * on first sight of a token) and broadcast so every node drops its cached verification. User
+ * evictions (account deleted) are broadcast on the same channel as "user|userId".
+ */
+@Component
+public class VerifiedTokenCache implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(VerifiedTokenCache.class);
+
+    public static final String REVOCATION_CHANNEL = "pebly:jwt:revocations";
+    private static final String REVOKED_KEY_PREFIX = "pebly:jwt:revoked:";
+    private static final String USER_EVICTION_MARKER = "user";
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @Autowired
+    private UserContextService userContextService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectProvider<RedisMessageListenerContainer> listenerContainer;
+
+    @Autowired
+    private ObjectProvider<StringRedisTemplate> redisTemplate;
+
+    @Value("${app.jwt-cache.max-size:50000}")
+    private long maxSize;
+
+    @Value("${app.jwt-cache.deny-list-max-size:10000}")
+    private long denyListMaxSize;
+
+    private Cache<String, VerifiedToken> verified;
+    private Cache<String, Long> denyList;
+    private StringRedisTemplate redis;
+
+    private Counter hits;
+    private Counter verifications;
+    private Counter rejections;
+
+    @PostConstruct
+    public void initialize() {
+        verified = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfter(new UntilTokenExpiry<VerifiedToken>(token -> token.expiresAtMillis))
+                .recordStats()
+                .build();
+        denyList = Caffeine.newBuilder()
+                .maximumSize(denyListMaxSize)
+                .expireAfter(new UntilTokenExpiry<Long>(expiresAtMillis -> expiresAtMillis))
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verified, "verified_tokens");
+
+        hits = Counter.builder("auth.tokens")
+                .description("Bearer tokens by how they were authenticated")
+                .tag("result", "cached")
+                .register(meterRegistry);
+
+        verifications = Counter.builder("auth.tokens")
+                .description("Bearer tokens by how they were authenticated")
+                .tag("result", "verified")
+                .register(meterRegistry);
+
+        rejections = Counter.builder("auth.tokens")
+                .description("Bearer tokens by how they were authenticated")
+                .tag("result", "rejected")
+                .register(meterRegistry);
+
+        // Only share revocations when Redis is the cache backend (RedisConfig defines the container)
+        RedisMessageListenerContainer container = listenerContainer.getIfAvailable();
+        if (container != null) {
+            redis = redisTemplate.getIfAvailable();
+            container.addMessageListener(this, new ChannelTopic(REVOCATION_CHANNEL));
+        }
+
+        logger.info("Verified token cache initialized (max size: {}, shared revocations: {})", maxSize, redis != null);
+    }
+
+    /**
+     * Authenticate a bearer token. Returns null if it is invalid, expired, revoked or its user
+     * no longer exists.
+     */
+    public VerifiedToken verify(String token) {
+        String hash = hash(token);
+        VerifiedToken cached = verified.getIfPresent(hash);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        if (denyList.getIfPresent(hash) != null || isRevokedRemotely(hash)) {
+            rejections.increment();
+            return null;
+        }
+
+        Claims claims;
+        try {
+            claims = jwtUtil.extractAllClaims(token);
+        } catch (Exception e) {
+            rejections.increment();
+            logger.debug("Rejected bearer token: {}", e.getMessage());
+            return null;
+        }
+
+        String userId = claims.getSubject();
+        if (userId == null || claims.getExpiration() == null || userContextService.getUser(userId).isEmpty()) {
+            rejections.increment();
+            return null;
+        }
+
+        VerifiedToken result = new VerifiedToken(userId, claims.get("email", String.class),
+                claims.getExpiration().getTime());
+        verified.put(hash, result);
+        verifications.increment();
+        return result;
+    }
+
+    /**
+     * Revoke a token (e.g. on logout) until it expires. Returns false if the token is not valid.
+     */
+    public boolean revoke(String token) {
+        Claims claims;
+        try {
+            claims = jwtUtil.extractAllClaims(token);
+        } catch (Exception e) {
+            return false;
+        }
+
+        String hash = hash(token);
+        long expiresAtMillis = claims.getExpiration().getTime();
+        denyList.put(hash, expiresAtMillis);
+        verified.invalidate(hash);
+
+        if (redis != null) {
+            try {
+                long ttlMillis = Math.max(expiresAtMillis - System.currentTimeMillis(), 1);
+                redis.opsForValue().set(REVOKED_KEY_PREFIX + hash, Long.toString(expiresAtMillis), Duration.ofMillis(ttlMillis));
+                redis.convertAndSend(REVOCATION_CHANNEL, hash + "|" + expiresAtMillis);
+            } catch (Exception e) {
+                logger.warn("Failed to share token revocation: {}", e.getMessage());
+            }
+        }
+        logger.info("Revoked bearer token for user: {}", claims.getSubject());
+        return true;
+    }
+
+    /**
+     * Drop every cached verification for a user (e.g. account deleted) on every node, forcing
+     * the next request to re-check that the user still exists.
+     */
+    public void evictUser(String userId) {
+        evictLocally(userId);
+
+        if (redis != null) {
+            try {
+                redis.convertAndSend(REVOCATION_CHANNEL, USER_EVICTION_MARKER + "|" + userId);
+            } catch (Exception e) {
+                logger.warn("Failed to share token eviction for user {}: {}", userId, e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+        if (parts.length != 2) {
+            return;
+        }
+        if (USER_EVICTION_MARKER.equals(parts[0])) {
+            // The user snapshot would otherwise let the next verification pass until its TTL
+            userContextService.invalidate(parts[1]);
+            evictLocally(parts[1]);
+            return;
+        }
+        try {
+            denyList.put(parts[0], Long.parseLong(parts[1]));
+            verified.invalidate(parts[0]);
+        } catch (NumberFormatException e) {
+            logger.debug("Ignoring malformed token revocation message");
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cachedTokens", verified.estimatedSize());
+        stats.put("revokedTokens", denyList.estimatedSize());
+        stats.put("cacheHits", (long) hits.count());
+        stats.put("verifications", (long) verifications.count());
+        stats.put("rejections", (long) rejections.count());
+        return stats;
+    }
+
+    private void evictLocally(String userId) {
+        verified.asMap().values().removeIf(token -> token.userId.equals(userId));
+    }
+
+    private boolean isRevokedRemotely(String hash) {
+        if (redis == null) {
+            return false;
+        }
+        try {
+            return Boolean.TRUE.equals(redis.hasKey(REVOKED_KEY_PREFIX + hash));
+        } catch (Exception e) {
+            logger.debug("Redis revocation check failed, using local deny-list: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static String hash(String token) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Identity established by a verified token.
+     */
+    public static final class VerifiedToken {
+        private final String userId;
+        private final String email;
+        private final long expiresAtMillis;
+
+        VerifiedToken(String userId, String email, long expiresAtMillis) {
+            this.userId = userId;
+            this.email = email;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        public String getUserId() { return userId; }
+
+        public String getEmail() { return email; }
+
+        public long getExpiresAtMillis() { return expiresAtMillis; }
+    }
+
+    /**
+     * Expires each entry at the token expiry it carries.
+     */
+    private static final class UntilTokenExpiry<V> implements Expiry<String, V> {
+        private final ToLongFunction<V> expiresAtMillis;
+
+        UntilTokenExpiry(ToLongFunction<V> expiresAtMillis) {
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        @Override
+        public long expireAfterCreate(String key, V value, long currentTime) {
+            long remainingMillis = expiresAtMillis.applyAsLong(value) - System.currentTimeMillis();
+            return Duration.ofMillis(Math.max(remainingMillis, 0)).toNanos();
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, V value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, V value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
@@ -1,13 +1,17 @@
 package com.urlshortener.service;
 
 import com.urlshortener.model.ClickAnalytics;
+import com.urlshortener.model.ClickEvent;
+import com.urlshortener.model.ClickRollup;
 import com.urlshortener.model.ShortenedUrl;
 import com.urlshortener.repository.ClickAnalyticsRepository;
 import com.urlshortener.repository.ShortenedUrlRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,8 +34,18 @@ public class AnalyticsService {
     @Autowired(required = false)
     private CacheService cacheService;
     
-    @CacheEvict(value = {"urlAnalytics", "userAnalytics", "clickCounts", "realtimeAnalytics"}, 
-                key = "#shortCode", beforeInvocation = false)
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+    
+    @Autowired
+    private ClickCounterService clickCounterService;
+    
+    @Autowired
+    private UniqueVisitorService uniqueVisitorService;
+    
+    @Autowired
+    private ClickRollupService clickRollupService;
+    
     public ClickAnalytics recordClick(String shortCode, String ipAddress, String userAgent,
                                     String referrer, String country, String city, 
                                     String deviceType, String browser, String os) {
@@ -51,55 +65,65 @@ public class AnalyticsService {
         ShortenedUrl shortenedUrl = urlOpt.get();
         
         // Create analytics record
-        ClickAnalytics analytics = new ClickAnalytics(shortCode, shortenedUrl.getUserId(), ipAddress, userAgent);
-        
-        // Set geographic data
-        analytics.setCountry(country);
-        analytics.setCity(city);
-        
-        // Set device data
-        analytics.setDeviceType(deviceType);
-        analytics.setBrowser(browser);
-        analytics.setOperatingSystem(os);
-        analytics.setMobile("MOBILE".equals(deviceType));
-        
-        // Set referrer data
-        analytics.setReferrer(referrer);
-        if (referrer != null && !referrer.isEmpty()) {
-            try {
-                java.net.URL url = new java.net.URL(referrer);
-                analytics.setReferrerDomain(url.getHost());
-                analytics.setReferrerType(determineReferrerType(url.getHost()));
-            } catch (Exception e) {
-                analytics.setReferrerType("DIRECT");
-            }
-        } else {
-            analytics.setReferrerType("DIRECT");
-        }
-        
-        // Check if this is a unique click (same IP in last 24 hours)
-        LocalDateTime yesterday = LocalDateTime.now().minus(1, ChronoUnit.DAYS);
-        List<ClickAnalytics> recentClicks = clickAnalyticsRepository
-            .findByShortCodeAndClickedAtBetween(shortCode, yesterday, LocalDateTime.now());
+        ClickAnalytics analytics = buildClickAnalytics(shortCode, shortenedUrl.getUserId(), ipAddress, userAgent,
+                                                       referrer, country, city, deviceType, browser, os);
         
-        boolean isUnique = recentClicks.stream()
-            .noneMatch(click -> ipAddress.equals(click.getIpAddress()));
-        analytics.setUniqueClick(isUnique);
+        // Check if this is a unique click (same visitor in last 24 hours)
+        analytics.setUniqueClick(uniqueVisitorService.recordVisit(shortCode, shortenedUrl.getUserId(), ipAddress, userAgent));
         
         // Save analytics
         ClickAnalytics saved = clickAnalyticsRepository.save(analytics);
         
-        // Update URL statistics
-        updateUrlStatistics(shortenedUrl, analytics);
+        // Update URL statistics (coalesced atomic $inc, flushed by ClickCounterService)
+        clickCounterService.addClick(saved);
+        clickRollupService.addClick(saved);
         
-        // Invalidate relevant caches
-        cacheService.invalidateUrlAnalytics(shortCode, shortenedUrl.getUserId());
+        // Mark relevant caches stale (coalesced with other clicks on the same link)
+        cacheService.markUrlAnalyticsStale(shortCode, shortenedUrl.getUserId());
         
         logger.debug("Recorded click for URL: {} from IP: {}", shortCode, ipAddress);
         
         return saved;
     }
     
+    /**
+     * Persist a batch of queued clicks: one insertMany for the click documents, with
+     * counter deltas folded into the coalescing ClickCounterService buffer.
+     */
+    public void recordClickBatch(List<ClickEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+        
+        if (clickAnalyticsRepository == null || mongoTemplate == null) {
+            logger.warn("Analytics repositories not available - dropping {} click events", events.size());
+            return;
+        }
+        
+        List<ClickAnalytics> batch = new ArrayList<>(events.size());
+        
+        for (ClickEvent event : events) {
+            ClickAnalytics analytics = buildClickAnalytics(event.getShortCode(), event.getUserId(),
+                event.getIpAddress(), event.getUserAgent(), event.getReferrer(), event.getCountry(),
+                event.getCity(), event.getDeviceType(), event.getBrowser(), event.getOs());
+            analytics.setClickedAt(event.getClickedAt());
+            
+            // Same visitor in last 24 hours (including earlier clicks in this batch) is not unique
+            analytics.setUniqueClick(uniqueVisitorService.recordVisit(event.getShortCode(), event.getUserId(),
+                event.getIpAddress(), event.getUserAgent()));
+            
+            batch.add(analytics);
+        }
+        
+        clickAnalyticsRepository.insert(batch);
+        
+        // Counter deltas are coalesced per link and flushed (with cache invalidation) by ClickCounterService
+        batch.forEach(clickCounterService::addClick);
+        batch.forEach(clickRollupService::addClick);
+        
+        logger.debug("Recorded batch of {} clicks", batch.size());
+    }
+    
     @Cacheable(value = "urlAnalytics", key = "#shortCode + ':' + #userId")
     public Map<String, Object> getUrlAnalytics(String shortCode, String userId) {
         // Verify ownership
@@ -138,18 +162,9 @@ public class AnalyticsService {
         analytics.put("clicksByHour", url.getClicksByHour());
         analytics.put("clicksByDay", url.getClicksByDay());
         
-        // Recent activity
+        // Recent activity (daily rollups)
         LocalDateTime last7Days = LocalDateTime.now().minus(7, ChronoUnit.DAYS);
-        List<ClickAnalytics> recentClicks = clickAnalyticsRepository
-            .findByShortCodeAndClickedAtBetween(shortCode, last7Days, LocalDateTime.now());
-        
-        Map<String, Long> dailyClicks = recentClicks.stream()
-            .collect(Collectors.groupingBy(
-                click -> click.getClickedAt().toLocalDate().toString(),
-                Collectors.counting()
-            ));
-        
-        analytics.put("last7DaysClicks", dailyClicks);
+        analytics.put("last7DaysClicks", clickRollupService.getDailyClicks(ClickRollup.SCOPE_LINK, shortCode, last7Days));
         
         logger.debug("Retrieved analytics for URL: {} (user: {})", shortCode, userId);
         
@@ -207,18 +222,9 @@ public class AnalyticsService {
         analytics.put("clicksByDevice", allDevices);
         analytics.put("clicksByBrowser", allBrowsers);
         
-        // Recent activity (last 30 days)
+        // Recent activity (last 30 days, daily rollups)
         LocalDateTime last30Days = LocalDateTime.now().minus(30, ChronoUnit.DAYS);
-        List<ClickAnalytics> recentClicks = clickAnalyticsRepository
-            .findByUserIdAndClickedAtBetween(userId, last30Days, LocalDateTime.now());
-        
-        Map<String, Long> dailyActivity = recentClicks.stream()
-            .collect(Collectors.groupingBy(
-                click -> click.getClickedAt().toLocalDate().toString(),
-                Collectors.counting()
-            ));
-        
-        analytics.put("last30DaysActivity", dailyActivity);
+        analytics.put("last30DaysActivity", clickRollupService.getDailyClicks(ClickRollup.SCOPE_USER, userId, last30Days));
         
         logger.debug("Retrieved user analytics for user: {}", userId);
         
@@ -228,31 +234,14 @@ public class AnalyticsService {
     @Cacheable(value = "realtimeAnalytics", key = "#userId")
     public Map<String, Object> getRealtimeAnalytics(String userId) {
         LocalDateTime now = LocalDateTime.now();
-        LocalDateTime todayStart = now.toLocalDate().atStartOfDay();
-        LocalDateTime hourStart = now.truncatedTo(ChronoUnit.HOURS);
-        
-        // Get today's clicks for user
-        List<ClickAnalytics> todayClicks = clickAnalyticsRepository
-            .findByUserIdAndClickedAtBetween(userId, todayStart, now);
-        
-        // Get this hour's clicks
-        List<ClickAnalytics> thisHourClicks = clickAnalyticsRepository
-            .findByUserIdAndClickedAtBetween(userId, hourStart, now);
         
         Map<String, Object> realtime = new HashMap<>();
-        realtime.put("clicksToday", todayClicks.size());
-        realtime.put("clicksThisHour", thisHourClicks.size());
-        realtime.put("uniqueClicksToday", todayClicks.stream()
-            .collect(Collectors.groupingBy(ClickAnalytics::getIpAddress))
-            .size());
+        realtime.put("clicksToday", clickRollupService.getClicksInBucket(ClickRollup.SCOPE_USER, userId, ClickRollup.Granularity.DAY, now));
+        realtime.put("clicksThisHour", clickRollupService.getClicksInBucket(ClickRollup.SCOPE_USER, userId, ClickRollup.Granularity.HOUR, now));
+        realtime.put("uniqueClicksToday", uniqueVisitorService.getUniqueVisitorsToday(userId));
         
         // Recent clicks (last 10)
-        List<ClickAnalytics> recentClicks = clickAnalyticsRepository
-            .findByUserId(userId)
-            .stream()
-            .sorted((a, b) -> b.getClickedAt().compareTo(a.getClickedAt()))
-            .limit(10)
-            .collect(Collectors.toList());
+        List<ClickAnalytics> recentClicks = clickAnalyticsRepository.findTop10ByUserIdOrderByClickedAtDesc(userId);
         
         List<Map<String, Object>> recentActivity = recentClicks.stream()
             .map(click -> {
@@ -274,64 +263,36 @@ public class AnalyticsService {
         return realtime;
     }
     
-    private void updateUrlStatistics(ShortenedUrl url, ClickAnalytics analytics) {
-        // Update basic counters
-        url.setTotalClicks(url.getTotalClicks() + 1);
-        if (analytics.isUniqueClick()) {
-            url.setUniqueClicks(url.getUniqueClicks() + 1);
-        }
-        
-        // Update time-based counters
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime todayStart = now.toLocalDate().atStartOfDay();
-        LocalDateTime weekStart = now.minus(7, ChronoUnit.DAYS);
-        LocalDateTime monthStart = now.minus(30, ChronoUnit.DAYS);
+    private ClickAnalytics buildClickAnalytics(String shortCode, String userId, String ipAddress, String userAgent,
+                                               String referrer, String country, String city,
+                                               String deviceType, String browser, String os) {
+        ClickAnalytics analytics = new ClickAnalytics(shortCode, userId, ipAddress, userAgent);
         
-        if (analytics.getClickedAt().isAfter(todayStart)) {
-            url.setTodayClicks(url.getTodayClicks() + 1);
-        }
-        if (analytics.getClickedAt().isAfter(weekStart)) {
-            url.setThisWeekClicks(url.getThisWeekClicks() + 1);
-        }
-        if (analytics.getClickedAt().isAfter(monthStart)) {
-            url.setThisMonthClicks(url.getThisMonthClicks() + 1);
-        }
-        
-        // Update geographic data
-        if (analytics.getCountry() != null) {
-            url.getClicksByCountry().merge(analytics.getCountry(), 1, Integer::sum);
-        }
-        if (analytics.getCity() != null) {
-            url.getClicksByCity().merge(analytics.getCity(), 1, Integer::sum);
-        }
+        // Set geographic data
+        analytics.setCountry(country);
+        analytics.setCity(city);
         
-        // Update device data
-        if (analytics.getDeviceType() != null) {
-            url.getClicksByDevice().merge(analytics.getDeviceType(), 1, Integer::sum);
-        }
-        if (analytics.getBrowser() != null) {
-            url.getClicksByBrowser().merge(analytics.getBrowser(), 1, Integer::sum);
-        }
-        if (analytics.getOperatingSystem() != null) {
-            url.getClicksByOS().merge(analytics.getOperatingSystem(), 1, Integer::sum);
-        }
+        // Set device data
+        analytics.setDeviceType(deviceType);
+        analytics.setBrowser(browser);
+        analytics.setOperatingSystem(os);
+        analytics.setMobile("MOBILE".equals(deviceType));
         
-        // Update referrer data
-        if (analytics.getReferrerDomain() != null) {
-            url.getClicksByReferrer().merge(analytics.getReferrerDomain(), 1, Integer::sum);
+        // Set referrer data
+        analytics.setReferrer(referrer);
+        if (referrer != null && !referrer.isEmpty()) {
+            try {
+                java.net.URL url = new java.net.URL(referrer);
+                analytics.setReferrerDomain(url.getHost());
+                analytics.setReferrerType(determineReferrerType(url.getHost()));
+            } catch (Exception e) {
+                analytics.setReferrerType("DIRECT");
+            }
+        } else {
+            analytics.setReferrerType("DIRECT");
         }
         
-        // Update time-based data
-        String hourKey = String.valueOf(now.getHour());
-        String dayKey = now.getDayOfWeek().toString();
-        
-        url.getClicksByHour().merge(hourKey, 1, Integer::sum);
-        url.getClicksByDay().merge(dayKey, 1, Integer::sum);
-        
-        url.setLastClickedAt(now);
-        url.setUpdatedAt(now);
-        
-        shortenedUrlRepository.save(url);
+        return analytics;
     }
     
     private String determineReferrerType(String domain) {
@@ -1,13 +1,31 @@
 package com.urlshortener.service;
 
+import com.urlshortener.config.StaleWhileRevalidateCache;
+import com.urlshortener.config.StaleWhileRevalidateCacheManager;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.CacheManager;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.Cursor;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Set;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 @Service
@@ -15,24 +33,55 @@ public class CacheService {
     
     private static final Logger logger = LoggerFactory.getLogger(CacheService.class);
     
+    private static final String KEY_PREFIX = "pebly:";
+    
+    // Per-user caches that aggregate link, QR code and file data
+    private static final List<String> USER_ANALYTICS_CACHES = List.of(
+        "userAnalytics", "dashboardOverview", "realtimeAnalytics", "userUrls", "userQRCodes", "userFiles");
+    
+    private static final List<String> QR_SCAN_CACHES = List.of(
+        "userAnalytics", "dashboardOverview", "realtimeAnalytics", "userQRCodes");
+    
     @Autowired
     private CacheManager cacheManager;
     
     @Autowired(required = false)
     private RedisTemplate<String, Object> redisTemplate;
     
+    @Autowired
+    private MeterRegistry meterRegistry;
+    
+    @Value("${app.cache.redis.scan-batch-size:1000}")
+    private int scanBatchSize;
+    
+    // Entries marked stale since the last invalidation pass; repeated marks of one entry collapse here
+    private final ConcurrentHashMap<PendingInvalidation, Boolean> pendingInvalidations = new ConcurrentHashMap<>();
+    
+    private final Map<String, Counter> requestedCounters = new ConcurrentHashMap<>();
+    private final Map<String, Counter> appliedCounters = new ConcurrentHashMap<>();
+    private Counter coalescedCounter;
+    
+    private record PendingInvalidation(String cacheName, Object key) {
+    }
+    
+    @PostConstruct
+    public void initialize() {
+        Gauge.builder("cache.invalidations.pending", pendingInvalidations, Map::size)
+                .description("Cache entries waiting for the next invalidation pass")
+                .register(meterRegistry);
+        
+        coalescedCounter = Counter.builder("cache.invalidations.coalesced")
+                .description("Invalidation requests folded into one already pending for the same entry")
+                .register(meterRegistry);
+    }
+    
     /**
      * Invalidate all analytics caches for a specific user
      */
     public void invalidateUserAnalytics(String userId) {
         try {
             // Clear user-specific analytics caches
-            clearCache("userAnalytics", userId);
-            clearCache("dashboardOverview", userId);
-            clearCache("realtimeAnalytics", userId);
-            clearCache("userUrls", userId);
-            clearCache("userQRCodes", userId);
-            clearCache("userFiles", userId);
+            USER_ANALYTICS_CACHES.forEach(cacheName -> clearCache(cacheName, userId));
             
             logger.info("Invalidated analytics caches for user: {}", userId);
         } catch (Exception e) {
@@ -46,7 +95,7 @@ public class CacheService {
     public void invalidateUrlAnalytics(String shortCode, String userId) {
         try {
             // Clear URL-specific analytics
-            clearCache("urlAnalytics", shortCode);
+            clearCache("urlAnalytics", shortCode + ":" + userId);
             clearCache("clickCounts", shortCode);
             
             // Clear user analytics as they aggregate URL data
@@ -58,13 +107,84 @@ public class CacheService {
         }
     }
     
+    /**
+     * Mark a user's analytics caches stale after counters changed (clicks, downloads).
+     *
+     * Nothing is evicted right away: the next invalidation pass (app.cache.invalidation.window)
+     * marks each entry once however often it was requested, and stale-while-revalidate caches
+     * keep serving the old value until one reader has reloaded it. Use invalidateUserAnalytics
+     * for changes the user must see on the next read.
+     */
+    public void markUserAnalyticsStale(String userId) {
+        USER_ANALYTICS_CACHES.forEach(cacheName -> requestInvalidation(cacheName, userId));
+    }
+    
+    /**
+     * Mark the caches that show QR scan counts for a user (not links or files) stale.
+     */
+    public void markQrScanAnalyticsStale(String userId) {
+        QR_SCAN_CACHES.forEach(cacheName -> requestInvalidation(cacheName, userId));
+    }
+    
+    /**
+     * Mark a link's analytics and its owner's aggregates stale after new clicks.
+     */
+    public void markUrlAnalyticsStale(String shortCode, String userId) {
+        requestInvalidation("urlAnalytics", shortCode + ":" + userId);
+        requestInvalidation("clickCounts", shortCode);
+        markUserAnalyticsStale(userId);
+    }
+    
+    /**
+     * Apply pending invalidations: stale-while-revalidate caches mark the entry stale, other
+     * caches evict it. Also evicts stale entries nobody reloaded within the max-stale bound.
+     */
+    @Scheduled(fixedDelayString = "${app.cache.invalidation.window:5000}")
+    public void applyPendingInvalidations() {
+        int applied = 0;
+        for (PendingInvalidation invalidation : pendingInvalidations.keySet()) {
+            if (pendingInvalidations.remove(invalidation) == null) {
+                continue;
+            }
+            try {
+                var cache = cacheManager.getCache(invalidation.cacheName());
+                if (cache instanceof StaleWhileRevalidateCache staleCache) {
+                    staleCache.markStale(invalidation.key());
+                    appliedCounter(invalidation.cacheName(), "stale").increment();
+                } else if (cache != null) {
+                    cache.evict(invalidation.key());
+                    appliedCounter(invalidation.cacheName(), "evict").increment();
+                }
+                applied++;
+            } catch (Exception e) {
+                logger.error("Error invalidating cache {}:{}", invalidation.cacheName(), invalidation.key(), e);
+            }
+        }
+        
+        int expired = 0;
+        if (cacheManager instanceof StaleWhileRevalidateCacheManager staleCacheManager) {
+            for (StaleWhileRevalidateCache staleCache : staleCacheManager.getStaleCaches()) {
+                expired += staleCache.evictExpired();
+            }
+        }
+        
+        if (applied > 0 || expired > 0) {
+            logger.debug("Applied {} cache invalidations, evicted {} expired stale entries", applied, expired);
+        }
+    }
+    
+    @PreDestroy
+    public void shutdown() {
+        applyPendingInvalidations();
+    }
+    
     /**
      * Invalidate country/geographic statistics
      */
     public void invalidateGeoStats() {
         try {
-            clearCachePattern("countryStats*");
-            clearCachePattern("geoData*");
+            clearEntireCache("countryStats");
+            clearEntireCache("geoData");
             
             logger.info("Invalidated geographic statistics caches");
         } catch (Exception e) {
@@ -79,7 +199,9 @@ public class CacheService {
         try {
             var cache = cacheManager.getCache(cacheName);
             if (cache != null) {
+                requestedCounter(cacheName).increment();
                 cache.evict(key);
+                appliedCounter(cacheName, "evict").increment();
                 logger.debug("Cleared cache entry: {}:{}", cacheName, key);
             }
         } catch (Exception e) {
@@ -103,7 +225,10 @@ public class CacheService {
     }
     
     /**
-     * Clear cache entries matching pattern
+     * Clear "pebly:" entries matching pattern.
+     *
+     * Walks the keyspace with SCAN and removes matches in batches with UNLINK, so Redis is
+     * never blocked by one KEYS or one large DEL.
      */
     public void clearCachePattern(String pattern) {
         if (redisTemplate == null) {
@@ -112,11 +237,9 @@ public class CacheService {
         }
         
         try {
-            Set<String> keys = redisTemplate.keys("pebly:" + pattern);
-            if (keys != null && !keys.isEmpty()) {
-                redisTemplate.delete(keys);
-                logger.info("Cleared {} cache entries matching pattern: {}", keys.size(), pattern);
-            }
+            long cleared = unlinkInBatches(redisTemplate.scan(ScanOptions.scanOptions()
+                    .match(KEY_PREFIX + pattern).count(scanBatchSize).build()));
+            logger.info("Cleared {} cache entries matching pattern: {}", cleared, pattern);
         } catch (Exception e) {
             logger.error("Error clearing cache pattern: {}", pattern, e);
         }
@@ -132,7 +255,7 @@ public class CacheService {
         }
         
         try {
-            redisTemplate.opsForValue().set("pebly:" + key, value, ttlSeconds, TimeUnit.SECONDS);
+            redisTemplate.opsForValue().set(KEY_PREFIX + key, value, ttlSeconds, TimeUnit.SECONDS);
             logger.debug("Set cache entry with TTL: {} ({}s)", key, ttlSeconds);
         } catch (Exception e) {
             logger.error("Error setting cache with TTL: {}", key, e);
@@ -149,7 +272,7 @@ public class CacheService {
         }
         
         try {
-            return redisTemplate.opsForValue().get("pebly:" + key);
+            return redisTemplate.opsForValue().get(KEY_PREFIX + key);
         } catch (Exception e) {
             logger.error("Error getting cache entry: {}", key, e);
             return null;
@@ -165,7 +288,7 @@ public class CacheService {
         }
         
         try {
-            return Boolean.TRUE.equals(redisTemplate.hasKey("pebly:" + key));
+            return Boolean.TRUE.equals(redisTemplate.hasKey(KEY_PREFIX + key));
         } catch (Exception e) {
             logger.error("Error checking cache existence: {}", key, e);
             return false;
@@ -181,38 +304,129 @@ public class CacheService {
         }
         
         try {
-            return redisTemplate.opsForValue().increment("pebly:counter:" + key);
+            return redisTemplate.opsForValue().increment(KEY_PREFIX + "counter:" + key);
         } catch (Exception e) {
             logger.error("Error incrementing counter: {}", key, e);
             return null;
         }
     }
     
+    private void requestInvalidation(String cacheName, Object key) {
+        requestedCounter(cacheName).increment();
+        if (pendingInvalidations.putIfAbsent(new PendingInvalidation(cacheName, key), Boolean.TRUE) != null) {
+            coalescedCounter.increment();
+        }
+    }
+    
     /**
-     * Get cache statistics
+     * Invalidations asked for, one per cache entry per call - what would have been evicted
+     * without coalescing.
      */
-    public void logCacheStats() {
-        if (redisTemplate == null) {
-            logger.info("Redis not available - using simple cache");
-            return;
+    private Counter requestedCounter(String cacheName) {
+        return requestedCounters.computeIfAbsent(cacheName, name -> Counter.builder("cache.invalidations.requested")
+                .description("Cache invalidations requested")
+                .tag("cache", name)
+                .register(meterRegistry));
+    }
+    
+    /**
+     * Invalidations carried out, by action: evict, or stale for stale-while-revalidate caches.
+     */
+    private Counter appliedCounter(String cacheName, String action) {
+        return appliedCounters.computeIfAbsent(cacheName + ":" + action, name -> Counter.builder("cache.invalidations.applied")
+                .description("Cache invalidations applied")
+                .tag("cache", cacheName)
+                .tag("action", action)
+                .register(meterRegistry));
+    }
+    
+    /**
+     * Per-cache statistics from the cache meters (gets, puts, evictions, size where the cache
+     * reports one) and the invalidation counters; nothing enumerates keys.
+     */
+    public Map<String, Object> getCacheStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        for (String cacheName : new TreeSet<>(cacheManager.getCacheNames())) {
+            Map<String, Object> cacheStats = new LinkedHashMap<>();
+            double hits = meterTotal("cache.gets", cacheName, "result", "hit");
+            double misses = meterTotal("cache.gets", cacheName, "result", "miss");
+            cacheStats.put("hits", (long) hits);
+            cacheStats.put("misses", (long) misses);
+            cacheStats.put("hitRatio", hits + misses > 0 ? Math.round(hits * 10000.0 / (hits + misses)) / 100.0 : 0.0);
+            cacheStats.put("puts", (long) meterTotal("cache.puts", cacheName));
+            cacheStats.put("evictions", (long) meterTotal("cache.evictions", cacheName)
+                    + (long) meterTotal("cache.removals", cacheName));
+            cacheStats.put("invalidationsRequested", (long) meterTotal("cache.invalidations.requested", cacheName));
+            cacheStats.put("invalidationsApplied", (long) meterTotal("cache.invalidations.applied", cacheName));
+            if (meterRegistry.find("cache.size").tag("cache", cacheName).meter() != null) {
+                cacheStats.put("size", (long) meterTotal("cache.size", cacheName));
+            }
+            stats.put(cacheName, cacheStats);
         }
-        
+        return stats;
+    }
+    
+    /**
+     * Number of cached entries, summed over the caches that report a size (the local caches,
+     * or the per-node tier in front of Redis). Redis itself is not asked: DBSIZE would also
+     * count every non-cache key in the database.
+     */
+    public long getCacheEntryCount() {
+        return (long) meterRegistry.find("cache.size").meters().stream()
+                .mapToDouble(CacheService::meterValue)
+                .sum();
+    }
+    
+    /**
+     * Log cache statistics
+     */
+    public void logCacheStats() {
         try {
-            Set<String> keys = redisTemplate.keys("pebly:*");
-            logger.info("Total cache entries: {}", keys != null ? keys.size() : 0);
-            
-            // Log cache sizes by type
-            if (keys != null) {
-                long analyticsCount = keys.stream().filter(k -> k.contains("analytics")).count();
-                long urlCount = keys.stream().filter(k -> k.contains("userUrls")).count();
-                long qrCount = keys.stream().filter(k -> k.contains("userQRCodes")).count();
-                long fileCount = keys.stream().filter(k -> k.contains("userFiles")).count();
-                
-                logger.info("Cache breakdown - Analytics: {}, URLs: {}, QR: {}, Files: {}", 
-                           analyticsCount, urlCount, qrCount, fileCount);
+            if (redisTemplate == null) {
+                logger.info("Redis not available - using simple cache");
             }
+            logger.info("Total cache entries: {}", getCacheEntryCount());
+            getCacheStats().forEach((cacheName, cacheStats) -> logger.info("Cache {}: {}", cacheName, cacheStats));
         } catch (Exception e) {
             logger.error("Error getting cache statistics", e);
         }
     }
-}
\ No newline at end of file
+    
+    private long unlinkInBatches(Cursor<String> keys) {
+        long cleared = 0;
+        try (keys) {
+            List<String> batch = new ArrayList<>(scanBatchSize);
+            while (keys.hasNext()) {
+                batch.add(keys.next());
+                if (batch.size() >= scanBatchSize) {
+                    cleared += unlink(batch);
+                }
+            }
+            cleared += unlink(batch);
+        }
+        return cleared;
+    }
+    
+    private long unlink(List<String> batch) {
+        if (batch.isEmpty()) {
+            return 0;
+        }
+        Long removed = redisTemplate.unlink(batch);
+        batch.clear();
+        return removed != null ? removed : 0;
+    }
+    
+    private double meterTotal(String name, String cacheName, String... tags) {
+        return meterRegistry.find(name).tag("cache", cacheName).tags(tags).meters().stream()
+                .mapToDouble(CacheService::meterValue)
+                .sum();
+    }
+    
+    private static double meterValue(Meter meter) {
+        for (Measurement measurement : meter.measure()) {
+            double value = measurement.getValue();
+            return Double.isNaN(value) ? 0 : value;
+        }
+        return 0;
+    }
+}
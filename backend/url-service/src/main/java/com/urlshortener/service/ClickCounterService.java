@@ -0,0 +1,173 @@
+package com.urlshortener.service;
+
+import com.urlshortener.model.ClickAnalytics;
+import com.urlshortener.model.ShortenedUrl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+/**
+ * Click counters for shortened_urls maintained with partial atomic updates.
+ *
+ * Clicks are coalesced per link in memory and flushed periodically as one $inc/$max
+ * per link, so N clicks on a hot link within a flush window cost a single update
+ * and no increment is lost to a read-modify-write race.
+ */
+@Service
+public class ClickCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickCounterService.class);
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired(required = false)
+    private CacheService cacheService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DashboardSummaryService dashboardSummaryService;
+
+    @Value("${app.counters.max-failed-flushes:300}")
+    private int maxFailedFlushes;
+
+    // Pending deltas per shortCode, tagged with the link's owner
+    private CounterDeltaBuffer<String> pending;
+
+    private Counter coalescedClicksCounter;
+    private Counter flushedUpdatesCounter;
+
+    @PostConstruct
+    public void initializeMetrics() {
+        pending = new CounterDeltaBuffer<>("link-clicks", maxFailedFlushes, meterRegistry);
+
+        Gauge.builder("clicks.counters.pending.links", pending, CounterDeltaBuffer::size)
+                .description("Links with click counter deltas waiting to be flushed")
+                .register(meterRegistry);
+
+        coalescedClicksCounter = Counter.builder("clicks.counters.coalesced")
+                .description("Clicks folded into pending counter deltas")
+                .register(meterRegistry);
+
+        flushedUpdatesCounter = Counter.builder("clicks.counters.updates")
+                .description("Per-link counter updates written to MongoDB")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Fold one recorded click into the pending deltas for its link.
+     */
+    public void addClick(ClickAnalytics click) {
+        pending.add(click.getShortCode(), click::getUserId, target -> {
+            target.inc("totalClicks");
+            target.inc("todayClicks");
+            target.inc("thisWeekClicks");
+            target.inc("thisMonthClicks");
+            if (click.isUniqueClick()) {
+                target.inc("uniqueClicks");
+            }
+
+            target.incMapKey("clicksByCountry", click.getCountry());
+            target.incMapKey("clicksByCity", click.getCity());
+            target.incMapKey("clicksByDevice", click.getDeviceType());
+            target.incMapKey("clicksByBrowser", click.getBrowser());
+            target.incMapKey("clicksByOS", click.getOperatingSystem());
+            target.incMapKey("clicksByReferrer", click.getReferrerDomain());
+            target.incMapKey("clicksByHour", String.valueOf(click.getClickedAt().getHour()));
+            target.incMapKey("clicksByDay", click.getClickedAt().getDayOfWeek().toString());
+
+            target.touch(click.getClickedAt());
+        });
+
+        coalescedClicksCounter.increment();
+    }
+
+    /**
+     * Atomically increment totalClicks for a link without loading it.
+     * Returns the owner's userId (for cache invalidation), or null if the link does not exist.
+     */
+    public String incrementTotalClicks(String shortCode) {
+        if (mongoTemplate == null) {
+            return null;
+        }
+
+        Query query = new Query(Criteria.where("shortCode").is(shortCode));
+        query.fields().include("userId");
+
+        LocalDateTime now = LocalDateTime.now();
+        Update update = new Update()
+            .inc("totalClicks", 1)
+            .set("lastClickedAt", now)
+            .set("updatedAt", now);
+
+        ShortenedUrl updated = mongoTemplate.findAndModify(query, update,
+            FindAndModifyOptions.options().returnNew(false), ShortenedUrl.class);
+
+        return updated != null ? updated.getUserId() : null;
+    }
+
+    /**
+     * Write all pending deltas as one unordered bulk of per-link $inc updates.
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.counter-flush-interval:1000}")
+    public void flush() {
+        if (pending.isEmpty() || mongoTemplate == null) {
+            return;
+        }
+
+        Map<String, CounterDeltaBuffer.Pending<String>> snapshot = pending.drain();
+        if (snapshot.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ShortenedUrl.class);
+        LocalDateTime now = LocalDateTime.now();
+
+        snapshot.forEach((shortCode, counters) -> {
+            Update update = counters.toUpdate("lastClickedAt").set("updatedAt", now);
+            bulkOps.updateOne(new Query(Criteria.where("shortCode").is(shortCode)), update);
+        });
+
+        try {
+            bulkOps.execute();
+            flushedUpdatesCounter.increment(snapshot.size());
+        } catch (Exception e) {
+            logger.error("Failed to flush click counters for {} links, re-queueing: {}", snapshot.size(), e.getMessage());
+            pending.requeue(snapshot);
+            return;
+        }
+
+        // Mark caches stale once per link per flush rather than once per click
+        if (cacheService != null) {
+            snapshot.forEach((shortCode, counters) -> cacheService.markUrlAnalyticsStale(shortCode, counters.getAttachment()));
+        }
+        snapshot.forEach((shortCode, counters) ->
+            dashboardSummaryService.addClicks(shortCode, counters.get("totalClicks")));
+
+        logger.debug("Flushed click counters for {} links", snapshot.size());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+}
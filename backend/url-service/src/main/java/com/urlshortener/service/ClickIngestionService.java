@@ -0,0 +1,341 @@
+package com.urlshortener.service;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.urlshortener.model.ClickEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.HashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bounded in-process click queue with a batching consumer.
+ *
+ * The redirect path only enqueues a ClickEvent; the scheduled consumer drains the queue
+ * in batches and hands them to AnalyticsService for bulk persistence. When the queue is
+ * full the configured overflow policy decides what happens to new events.
+ */
+@Service
+public class ClickIngestionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickIngestionService.class);
+
+    public enum OverflowPolicy {
+        DROP_OLDEST, // Evict the oldest queued event to make room
+        SAMPLE,      // Keep one in every N overflowing events, evicting the oldest for it
+        SPILL        // Append overflowing events to a local file, replayed once the queue drains
+    }
+
+    private static final String REPLAY_SUFFIX = ".replay";
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.analytics.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.analytics.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.analytics.overflow-policy:DROP_OLDEST}")
+    private OverflowPolicy overflowPolicy;
+
+    @Value("${app.analytics.sample-rate:10}")
+    private int sampleRate;
+
+    @Value("${app.analytics.spill-file:./logs/click-spill.ndjson}")
+    private String spillFile;
+
+    private LinkedBlockingDeque<ClickEvent> queue;
+
+    private final ObjectMapper spillMapper = createSpillMapper();
+    private final Object spillLock = new Object();
+    private final AtomicLong spilledPending = new AtomicLong(0);
+    private final AtomicBoolean replayBacklog = new AtomicBoolean(false); // spill or replay files left to process
+
+    private Counter enqueuedCounter;
+    private Counter processedCounter;
+    private Counter droppedCounter;
+    private Counter spilledCounter;
+    private Counter failedCounter;
+    private Timer drainTimer;
+
+    @PostConstruct
+    public void initialize() {
+        queue = new LinkedBlockingDeque<>(Math.max(queueCapacity, 1));
+
+        Gauge.builder("clicks.ingestion.queue.depth", queue, LinkedBlockingDeque::size)
+                .description("Click events waiting to be ingested")
+                .register(meterRegistry);
+
+        Gauge.builder("clicks.ingestion.spill.pending", spilledPending, AtomicLong::get)
+                .description("Click events spilled to disk awaiting replay")
+                .register(meterRegistry);
+
+        enqueuedCounter = Counter.builder("clicks.ingestion.enqueued")
+                .description("Click events accepted by the ingestion queue")
+                .register(meterRegistry);
+
+        processedCounter = Counter.builder("clicks.ingestion.processed")
+                .description("Click events persisted by the ingestion consumer")
+                .register(meterRegistry);
+
+        droppedCounter = Counter.builder("clicks.ingestion.dropped")
+                .description("Click events discarded on queue overflow")
+                .tag("policy", overflowPolicy.name())
+                .register(meterRegistry);
+
+        spilledCounter = Counter.builder("clicks.ingestion.spilled")
+                .description("Click events written to the spill file")
+                .register(meterRegistry);
+
+        failedCounter = Counter.builder("clicks.ingestion.failed")
+                .description("Click events lost because a batch failed to persist")
+                .register(meterRegistry);
+
+        drainTimer = Timer.builder("clicks.ingestion.drain.latency")
+                .description("Time taken to persist one batch of click events")
+                .register(meterRegistry);
+
+        logger.info("Click ingestion queue initialized (capacity: {}, batch: {}, overflow: {})",
+                queueCapacity, batchSize, overflowPolicy);
+
+        // Events spilled before a crash or restart are still on disk
+        if (Files.exists(Paths.get(spillFile)) || !replayFiles().isEmpty()) {
+            replayBacklog.set(true);
+            logger.info("Found spilled click events from a previous run, replaying on next drain");
+        }
+    }
+
+    /**
+     * Queue a click for asynchronous ingestion. Never blocks the caller.
+     */
+    public void enqueue(ClickEvent event) {
+        if (queue.offerLast(event)) {
+            enqueuedCounter.increment();
+            return;
+        }
+
+        switch (overflowPolicy) {
+            case DROP_OLDEST -> replaceOldest(event);
+            case SAMPLE -> {
+                if (ThreadLocalRandom.current().nextInt(Math.max(sampleRate, 1)) == 0) {
+                    replaceOldest(event);
+                } else {
+                    droppedCounter.increment();
+                }
+            }
+            case SPILL -> spill(List.of(event));
+        }
+    }
+
+    /**
+     * Drain the queue in batches. Spilled events are replayed once the queue has room.
+     */
+    @Scheduled(fixedDelayString = "${app.analytics.flush-interval:5000}")
+    public void drain() {
+        List<ClickEvent> batch = new ArrayList<>(batchSize);
+
+        while (queue.drainTo(batch, batchSize) > 0) {
+            persist(batch);
+            batch.clear();
+        }
+
+        if (spilledPending.get() > 0 || replayBacklog.get()) {
+            replaySpill();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        logger.info("Flushing {} queued click events before shutdown", queue.size());
+        List<ClickEvent> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            persist(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Snapshot of queue state for monitoring endpoints
+     */
+    public Map<String, Object> getQueueStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("queueDepth", queue.size());
+        stats.put("queueCapacity", queueCapacity);
+        stats.put("batchSize", batchSize);
+        stats.put("overflowPolicy", overflowPolicy.name());
+        stats.put("enqueued", (long) enqueuedCounter.count());
+        stats.put("processed", (long) processedCounter.count());
+        stats.put("dropped", (long) droppedCounter.count());
+        stats.put("spilledPending", spilledPending.get());
+        stats.put("failed", (long) failedCounter.count());
+        return stats;
+    }
+
+    private void replaceOldest(ClickEvent event) {
+        // Retry until the event fits; concurrent producers may refill the freed slot
+        while (!queue.offerLast(event)) {
+            if (queue.pollFirst() != null) {
+                droppedCounter.increment();
+            }
+        }
+        enqueuedCounter.increment();
+    }
+
+    private void persist(List<ClickEvent> batch) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            analyticsService.recordClickBatch(batch);
+            processedCounter.increment(batch.size());
+        } catch (Exception e) {
+            logger.error("Failed to persist batch of {} click events: {}", batch.size(), e.getMessage(), e);
+            if (overflowPolicy == OverflowPolicy.SPILL) {
+                spill(batch);
+            } else {
+                failedCounter.increment(batch.size());
+            }
+        } finally {
+            sample.stop(drainTimer);
+        }
+    }
+
+    private void spill(List<ClickEvent> events) {
+        synchronized (spillLock) {
+            try {
+                Path path = Paths.get(spillFile);
+                if (path.getParent() != null) {
+                    Files.createDirectories(path.getParent());
+                }
+                try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+                    for (ClickEvent event : events) {
+                        writer.write(spillMapper.writeValueAsString(event));
+                        writer.newLine();
+                    }
+                }
+                spilledPending.addAndGet(events.size());
+                spilledCounter.increment(events.size());
+            } catch (IOException e) {
+                logger.error("Failed to spill {} click events to {}: {}", events.size(), spillFile, e.getMessage());
+                droppedCounter.increment(events.size());
+            }
+        }
+    }
+
+    /**
+     * Rotate the spill file to a uniquely named replay file, then replay every replay file,
+     * including ones left by an earlier replay that failed. A file is deleted only once fully
+     * replayed; batches that fail again are re-spilled by persist.
+     */
+    private void replaySpill() {
+        Path path = Paths.get(spillFile);
+
+        synchronized (spillLock) {
+            try {
+                if (Files.exists(path)) {
+                    Files.move(path, Paths.get(spillFile + REPLAY_SUFFIX + "." + System.currentTimeMillis()
+                            + "-" + ThreadLocalRandom.current().nextInt(1_000_000)));
+                }
+                spilledPending.set(0);
+                replayBacklog.set(false);
+            } catch (IOException e) {
+                logger.error("Failed to rotate spill file {}: {}", spillFile, e.getMessage());
+                return;
+            }
+        }
+
+        for (Path replayPath : replayFiles()) {
+            if (!replayFile(replayPath)) {
+                replayBacklog.set(true);
+            }
+        }
+    }
+
+    private boolean replayFile(Path replayPath) {
+        List<ClickEvent> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = Files.newBufferedReader(replayPath, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                batch.add(spillMapper.readValue(line, ClickEvent.class));
+                if (batch.size() >= batchSize) {
+                    persist(batch);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                persist(batch);
+            }
+            Files.deleteIfExists(replayPath);
+            logger.info("Replayed spilled click events from {}", replayPath);
+            return true;
+        } catch (IOException e) {
+            logger.error("Failed to replay spilled click events from {}: {}", replayPath, e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Replay files next to the spill file, oldest first (the legacy fixed ".replay" name included).
+     */
+    private List<Path> replayFiles() {
+        Path path = Paths.get(spillFile).toAbsolutePath();
+        Path directory = path.getParent();
+        if (directory == null || !Files.isDirectory(directory)) {
+            return List.of();
+        }
+        String prefix = path.getFileName() + REPLAY_SUFFIX;
+        try (var files = Files.list(directory)) {
+            return files.filter(file -> file.getFileName().toString().startsWith(prefix))
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            logger.error("Failed to list spill replay files in {}: {}", directory, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private static ObjectMapper createSpillMapper() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.NONE);
+        objectMapper.setVisibility(PropertyAccessor.FIELD, JsonAutoDetect.Visibility.ANY);
+        objectMapper.setVisibility(PropertyAccessor.CREATOR, JsonAutoDetect.Visibility.ANY);
+        objectMapper.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+        objectMapper.registerModule(new JavaTimeModule());
+        return objectMapper;
+    }
+}
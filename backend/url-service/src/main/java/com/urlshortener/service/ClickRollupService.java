@@ -0,0 +1,411 @@
+package com.urlshortener.service;
+
+import com.urlshortener.model.ClickAnalytics;
+import com.urlshortener.model.ClickRollup;
+import com.urlshortener.repository.ClickRollupRepository;
+import com.mongodb.client.result.UpdateResult;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.FindAndReplaceOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Maintains minute/hour/day click rollups per link and per user.
+ *
+ * Clicks are coalesced per rollup bucket and flushed as upserted $inc updates, the same
+ * way ClickCounterService handles link counters. Analytics reads rollups instead of
+ * grouping raw click_analytics documents.
+ *
+ * The backfill runs in the background, one at a time across nodes (a lease document in
+ * job_locks). It builds the historical rollups in a side collection and then swaps them in:
+ * each rebuilt bucket replaces the live one in place and only buckets the rebuild did not
+ * produce are removed afterwards, so readers never see the history missing.
+ */
+@Service
+public class ClickRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ClickRollupService.class);
+
+    private static final int BACKFILL_FLUSH_SIZE = 5000;
+    private static final String LOCK_COLLECTION = "job_locks";
+    private static final String BACKFILL_LOCK_ID = "click-rollup-backfill";
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired(required = false)
+    private ClickRollupRepository clickRollupRepository;
+
+    @Autowired
+    @Qualifier("maintenanceTaskExecutor")
+    private Executor maintenanceExecutor;
+
+    @Value("${app.analytics.rollup-backfill-lease-minutes:30}")
+    private long backfillLeaseMinutes;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private final AtomicBoolean backfillRunning = new AtomicBoolean();
+    private volatile Map<String, Object> lastBackfill;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.counters.max-failed-flushes:300}")
+    private int maxFailedFlushes;
+
+    // Pending deltas per rollup id, tagged with the bucket they belong to
+    private CounterDeltaBuffer<Bucket> pending;
+
+    private record Bucket(String scope, String scopeId, ClickRollup.Granularity granularity, LocalDateTime bucketStart) {}
+
+    @PostConstruct
+    public void ensureIndexes() {
+        pending = new CounterDeltaBuffer<>("click-rollups", maxFailedFlushes, meterRegistry);
+        if (mongoTemplate == null) {
+            return;
+        }
+        try {
+            IndexOperations indexOps = mongoTemplate.indexOps(ClickRollup.class);
+            indexOps.ensureIndex(new Index()
+                .on("scope", Sort.Direction.ASC)
+                .on("scopeId", Sort.Direction.ASC)
+                .on("granularity", Sort.Direction.ASC)
+                .on("bucketStart", Sort.Direction.ASC)
+                .named("idx_rollup_scope_bucket"));
+            indexOps.ensureIndex(new Index()
+                .on("expireAt", Sort.Direction.ASC)
+                .expire(0, TimeUnit.SECONDS)
+                .named("idx_rollup_ttl"));
+        } catch (Exception e) {
+            logger.warn("Failed to ensure click_rollups indexes: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Fold a click into every rollup bucket it belongs to (link and owner, minute/hour/day).
+     */
+    public void addClick(ClickAnalytics click) {
+        for (ClickRollup.Granularity granularity : ClickRollup.Granularity.values()) {
+            addToBucket(pending, ClickRollup.SCOPE_LINK, click.getShortCode(), granularity, click);
+            if (click.getUserId() != null) {
+                addToBucket(pending, ClickRollup.SCOPE_USER, click.getUserId(), granularity, click);
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.counter-flush-interval:1000}")
+    public void flush() {
+        if (pending.isEmpty() || mongoTemplate == null) {
+            return;
+        }
+
+        Map<String, CounterDeltaBuffer.Pending<Bucket>> snapshot = pending.drain();
+        try {
+            upsert(snapshot);
+        } catch (Exception e) {
+            logger.error("Failed to flush {} click rollups, re-queueing: {}", snapshot.size(), e.getMessage());
+            pending.requeue(snapshot);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Click totals per day (yyyy-MM-dd) for a link or user since the given day.
+     */
+    public Map<String, Long> getDailyClicks(String scope, String scopeId, LocalDateTime from) {
+        Map<String, Long> daily = new LinkedHashMap<>();
+        if (clickRollupRepository == null) {
+            return daily;
+        }
+
+        findBuckets(scope, scopeId, ClickRollup.Granularity.DAY, from)
+            .forEach(rollup -> daily.put(rollup.getBucketStart().toLocalDate().toString(), (long) rollup.getClicks()));
+        return daily;
+    }
+
+    /**
+     * Total clicks for a link or user in the bucket containing the given time.
+     */
+    public long getClicksInBucket(String scope, String scopeId, ClickRollup.Granularity granularity, LocalDateTime time) {
+        if (clickRollupRepository == null) {
+            return 0;
+        }
+        String id = ClickRollup.buildId(scope, scopeId, granularity, granularity.truncate(time));
+        return clickRollupRepository.findById(id).map(ClickRollup::getClicks).orElse(0);
+    }
+
+    public List<ClickRollup> findBuckets(String scope, String scopeId, ClickRollup.Granularity granularity, LocalDateTime from) {
+        return clickRollupRepository.findByScopeAndScopeIdAndGranularityAndBucketStartGreaterThanEqualOrderByBucketStartAsc(
+            scope, scopeId, granularity.name(), granularity.truncate(from));
+    }
+
+    /**
+     * Start rebuilding rollups from stored click_analytics documents in the background.
+     *
+     * Only clicks before the start of today are replayed and only rollups before that point
+     * are replaced; today's buckets are left to the live pipeline so nothing is counted twice.
+     * Returns at once; {@link #getBackfillStatus()} reports progress and the outcome.
+     */
+    public Map<String, Object> startBackfill() {
+        Map<String, Object> result = new HashMap<>();
+        if (mongoTemplate == null || clickRollupRepository == null) {
+            result.put("started", false);
+            result.put("message", "MongoDB not available");
+            return result;
+        }
+        if (!backfillRunning.compareAndSet(false, true)) {
+            result.put("started", false);
+            result.put("message", "A rollup backfill is already running on this node");
+            return result;
+        }
+        if (!acquireBackfillLock()) {
+            backfillRunning.set(false);
+            result.put("started", false);
+            result.put("message", "A rollup backfill is already running on another node");
+            return result;
+        }
+
+        LocalDateTime cutoff = LocalDateTime.now().truncatedTo(java.time.temporal.ChronoUnit.DAYS);
+        // Written by the backfill thread, read by status requests
+        Map<String, Object> status = new ConcurrentHashMap<>();
+        status.put("status", "RUNNING");
+        status.put("cutoff", cutoff);
+        status.put("startedAt", LocalDateTime.now());
+        lastBackfill = status;
+
+        try {
+            maintenanceExecutor.execute(() -> runBackfill(cutoff, status));
+        } catch (RuntimeException e) {
+            releaseBackfillLock();
+            backfillRunning.set(false);
+            throw e;
+        }
+
+        result.put("started", true);
+        result.putAll(status);
+        return result;
+    }
+
+    /**
+     * State of the last backfill started on this node.
+     */
+    public Map<String, Object> getBackfillStatus() {
+        Map<String, Object> status = lastBackfill;
+        return status != null ? new HashMap<>(status) : Map.of("status", "NEVER_RUN");
+    }
+
+    private void runBackfill(LocalDateTime cutoff, Map<String, Object> status) {
+        try {
+            status.putAll(backfill(cutoff));
+            status.put("status", "COMPLETED");
+        } catch (Exception e) {
+            logger.error("Rollup backfill failed; live rollups were left as they were", e);
+            status.put("status", "FAILED");
+            status.put("message", String.valueOf(e.getMessage()));
+        } finally {
+            releaseBackfillLock();
+            backfillRunning.set(false);
+        }
+    }
+
+    private Map<String, Object> backfill(LocalDateTime cutoff) {
+        long startTime = System.currentTimeMillis();
+        String liveCollection = mongoTemplate.getCollectionName(ClickRollup.class);
+        String buildCollection = liveCollection + "_backfill";
+        // Left over from a run that died; the lock guarantees nobody else is writing it
+        mongoTemplate.dropCollection(buildCollection);
+        logger.info("Rollup backfill started (cutoff: {})", cutoff);
+
+        Query query = new Query(Criteria.where("clickedAt").lt(cutoff));
+        query.fields().include("shortCode").include("userId").include("clickedAt").include("isUniqueClick")
+            .include("country").include("deviceType").include("browser").include("referrerType");
+
+        // Local buffer, drained into the side collection every BACKFILL_FLUSH_SIZE buckets
+        CounterDeltaBuffer<Bucket> batch = new CounterDeltaBuffer<>("click-rollup-backfill", 1, null);
+        long clicks = 0;
+        long written = 0;
+
+        try (var stream = mongoTemplate.stream(query, ClickAnalytics.class)) {
+            var iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                ClickAnalytics click = iterator.next();
+                LocalDateTime now = LocalDateTime.now();
+                for (ClickRollup.Granularity granularity : ClickRollup.Granularity.values()) {
+                    // Skip buckets that would already be past their TTL
+                    if (granularity.getRetention() != null
+                            && click.getClickedAt().plus(granularity.getRetention()).isBefore(now)) {
+                        continue;
+                    }
+                    addToBucket(batch, ClickRollup.SCOPE_LINK, click.getShortCode(), granularity, click);
+                    if (click.getUserId() != null) {
+                        addToBucket(batch, ClickRollup.SCOPE_USER, click.getUserId(), granularity, click);
+                    }
+                }
+                clicks++;
+
+                if (batch.size() >= BACKFILL_FLUSH_SIZE) {
+                    written += upsert(batch.drain(), buildCollection);
+                    renewBackfillLock();
+                }
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            written += upsert(batch.drain(), buildCollection);
+        }
+
+        long removed = swapIn(buildCollection, liveCollection, cutoff);
+        mongoTemplate.dropCollection(buildCollection);
+
+        long duration = System.currentTimeMillis() - startTime;
+        logger.info("Rollup backfill completed: {} clicks into {} rollups, {} outdated rollups removed in {}ms",
+            clicks, written, removed, duration);
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("removedRollups", removed);
+        result.put("clicksProcessed", clicks);
+        result.put("rollupUpdates", written);
+        result.put("durationMs", duration);
+        return result;
+    }
+
+    /**
+     * Replace live rollups before the cutoff with the rebuilt ones, then remove the live ones
+     * the rebuild did not produce. Copies are stamped with the swap time, so a live bucket
+     * that was neither rebuilt nor written by the pipeline since is the only thing deleted.
+     */
+    private long swapIn(String buildCollection, String liveCollection, LocalDateTime cutoff) {
+        LocalDateTime swapStart = LocalDateTime.now();
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, liveCollection);
+        int pendingReplaces = 0;
+
+        try (var stream = mongoTemplate.stream(new Query(), Document.class, buildCollection)) {
+            var iterator = stream.iterator();
+            while (iterator.hasNext()) {
+                Document rollup = iterator.next();
+                rollup.put("updatedAt", swapStart);
+                bulkOps.replaceOne(new Query(Criteria.where("_id").is(rollup.get("_id"))), rollup,
+                    FindAndReplaceOptions.options().upsert());
+                if (++pendingReplaces >= BACKFILL_FLUSH_SIZE) {
+                    bulkOps.execute();
+                    bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, liveCollection);
+                    pendingReplaces = 0;
+                    renewBackfillLock();
+                }
+            }
+        }
+        if (pendingReplaces > 0) {
+            bulkOps.execute();
+        }
+
+        Query outdated = new Query(new Criteria().andOperator(
+            Criteria.where("bucketStart").lt(cutoff),
+            new Criteria().orOperator(Criteria.where("updatedAt").lt(swapStart), Criteria.where("updatedAt").exists(false))));
+        return mongoTemplate.remove(outdated, liveCollection).getDeletedCount();
+    }
+
+    private boolean acquireBackfillLock() {
+        LocalDateTime now = LocalDateTime.now();
+        Query free = new Query(Criteria.where("_id").is(BACKFILL_LOCK_ID).and("lockedUntil").lt(now));
+        Update take = new Update().set("owner", nodeId).set("lockedUntil", now.plusMinutes(backfillLeaseMinutes));
+        try {
+            UpdateResult result = mongoTemplate.upsert(free, take, LOCK_COLLECTION);
+            return result.getMatchedCount() == 1 || result.getUpsertedId() != null;
+        } catch (DuplicateKeyException e) {
+            // Held by a lease that has not run out
+            return false;
+        }
+    }
+
+    private void renewBackfillLock() {
+        mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(BACKFILL_LOCK_ID).and("owner").is(nodeId)),
+            new Update().set("lockedUntil", LocalDateTime.now().plusMinutes(backfillLeaseMinutes)), LOCK_COLLECTION);
+    }
+
+    private void releaseBackfillLock() {
+        try {
+            mongoTemplate.remove(new Query(Criteria.where("_id").is(BACKFILL_LOCK_ID).and("owner").is(nodeId)),
+                LOCK_COLLECTION);
+        } catch (Exception e) {
+            logger.warn("Failed to release rollup backfill lock, it lapses in {}m: {}", backfillLeaseMinutes, e.getMessage());
+        }
+    }
+
+    private void addToBucket(CounterDeltaBuffer<Bucket> target, String scope, String scopeId,
+                             ClickRollup.Granularity granularity, ClickAnalytics click) {
+        LocalDateTime bucketStart = granularity.truncate(click.getClickedAt());
+        String id = ClickRollup.buildId(scope, scopeId, granularity, bucketStart);
+        target.add(id, () -> new Bucket(scope, scopeId, granularity, bucketStart), bucket -> {
+            bucket.inc("clicks");
+            if (click.isUniqueClick()) {
+                bucket.inc("uniqueClicks");
+            }
+            bucket.incMapKey("byCountry", click.getCountry());
+            bucket.incMapKey("byDevice", click.getDeviceType());
+            bucket.incMapKey("byBrowser", click.getBrowser());
+            bucket.incMapKey("byReferrerType", click.getReferrerType());
+        });
+    }
+
+    private int upsert(Map<String, CounterDeltaBuffer.Pending<Bucket>> rollups) {
+        return upsert(rollups, mongoTemplate.getCollectionName(ClickRollup.class));
+    }
+
+    private int upsert(Map<String, CounterDeltaBuffer.Pending<Bucket>> rollups, String collectionName) {
+        if (rollups.isEmpty()) {
+            return 0;
+        }
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ClickRollup.class, collectionName);
+        LocalDateTime now = LocalDateTime.now();
+
+        rollups.forEach((id, rollup) -> {
+            Bucket bucket = rollup.getAttachment();
+            Update update = rollup.toUpdate(null);
+            update.setOnInsert("scope", bucket.scope())
+                  .setOnInsert("scopeId", bucket.scopeId())
+                  .setOnInsert("granularity", bucket.granularity().name())
+                  .setOnInsert("bucketStart", bucket.bucketStart())
+                  .set("updatedAt", now);
+            if (bucket.granularity().getRetention() != null) {
+                update.setOnInsert("expireAt", bucket.bucketStart().plus(bucket.granularity().getRetention()));
+            }
+            bulkOps.upsert(new Query(Criteria.where("_id").is(id)), update);
+        });
+
+        bulkOps.execute();
+        return rollups.size();
+    }
+}
@@ -0,0 +1,171 @@
+package com.urlshortener.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.data.mongodb.core.query.Update;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Counter deltas coalesced per document, for services that write many small $inc updates.
+ *
+ * Writers fold their increments into the entry for a key; a periodic flush drains the buffer,
+ * writes one update per key and requeues the entries it could not write. An entry whose
+ * deltas failed {@code maxFailedFlushes} flushes in a row is dead-lettered: logged with its
+ * deltas, counted in counters.dead.lettered and dropped, so a persistent failure (a poison
+ * document, a long outage) cannot keep the buffer growing and retrying forever.
+ *
+ * @param <A> what each entry carries besides its deltas (owner, bucket coordinates, ...)
+ */
+class CounterDeltaBuffer<A> {
+
+    private static final Logger logger = LoggerFactory.getLogger(CounterDeltaBuffer.class);
+
+    // All mutation of an entry happens inside compute(), so a drain never races a writer
+    private final ConcurrentHashMap<String, Pending<A>> pending = new ConcurrentHashMap<>();
+
+    private final String name;
+    private final int maxFailedFlushes;
+    private final Counter deadLettered;
+
+    /**
+     * @param registry where to count dead-lettered entries; null for a short-lived local buffer
+     */
+    CounterDeltaBuffer(String name, int maxFailedFlushes, MeterRegistry registry) {
+        this.name = name;
+        this.maxFailedFlushes = maxFailedFlushes;
+        this.deadLettered = registry == null ? null : Counter.builder("counters.dead.lettered")
+                .description("Pending counter deltas dropped after failing to flush repeatedly")
+                .tag("buffer", name)
+                .register(registry);
+    }
+
+    /**
+     * Fold increments into the entry for {@code key}, creating it with {@code attachment} if absent.
+     */
+    void add(String key, Supplier<A> attachment, Consumer<Pending<A>> increments) {
+        pending.compute(key, (k, existing) -> {
+            Pending<A> target = existing != null ? existing : new Pending<>(attachment.get());
+            increments.accept(target);
+            return target;
+        });
+    }
+
+    /**
+     * Remove and return everything pending.
+     */
+    Map<String, Pending<A>> drain() {
+        Map<String, Pending<A>> snapshot = new HashMap<>();
+        for (String key : new ArrayList<>(pending.keySet())) {
+            Pending<A> entry = pending.remove(key);
+            if (entry != null) {
+                snapshot.put(key, entry);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Put back entries whose flush failed, merged with anything added since.
+     */
+    void requeue(Map<String, Pending<A>> failed) {
+        int dropped = 0;
+        for (Map.Entry<String, Pending<A>> entry : failed.entrySet()) {
+            Pending<A> retry = entry.getValue();
+            if (++retry.failedFlushes >= maxFailedFlushes) {
+                logger.error("Dead-lettering {} counter deltas for {} after {} failed flushes: {}",
+                    name, entry.getKey(), retry.failedFlushes, retry.deltas);
+                dropped++;
+                continue;
+            }
+            pending.merge(entry.getKey(), retry, (existing, requeued) -> {
+                existing.merge(requeued);
+                return existing;
+            });
+        }
+        if (dropped > 0 && deadLettered != null) {
+            deadLettered.increment(dropped);
+        }
+    }
+
+    int size() {
+        return pending.size();
+    }
+
+    boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * Deltas for one document, with the latest event time seen (for a $max) and the number of
+     * flushes the oldest of them has failed.
+     */
+    static final class Pending<A> {
+        private final A attachment;
+        private final Map<String, Integer> deltas = new HashMap<>();
+        private LocalDateTime latest;
+        private int failedFlushes;
+
+        Pending(A attachment) {
+            this.attachment = attachment;
+        }
+
+        void inc(String path) {
+            deltas.merge(path, 1, Integer::sum);
+        }
+
+        /**
+         * Increment one key of a map field; dots and dollar signs are not allowed in Mongo field names.
+         */
+        void incMapKey(String mapField, String key) {
+            if (key == null || key.isEmpty()) {
+                return;
+            }
+            inc(mapField + "." + key.replace('.', '_').replace('$', '_'));
+        }
+
+        void touch(LocalDateTime at) {
+            if (at != null && (latest == null || at.isAfter(latest))) {
+                latest = at;
+            }
+        }
+
+        A getAttachment() {
+            return attachment;
+        }
+
+        int get(String path) {
+            return deltas.getOrDefault(path, 0);
+        }
+
+        LocalDateTime getLatest() {
+            return latest;
+        }
+
+        /**
+         * One $inc per delta, plus a $max of the latest event time into {@code latestField} if given.
+         */
+        Update toUpdate(String latestField) {
+            Update update = new Update();
+            deltas.forEach(update::inc);
+            if (latestField != null && latest != null) {
+                update.max(latestField, latest);
+            }
+            return update;
+        }
+
+        private void merge(Pending<A> other) {
+            other.deltas.forEach((path, delta) -> deltas.merge(path, delta, Integer::sum));
+            touch(other.latest);
+            failedFlushes = Math.max(failedFlushes, other.failedFlushes);
+        }
+    }
+}
@@ -0,0 +1,713 @@
+package com.urlshortener.service;
+
+import com.urlshortener.model.DashboardSummary;
+import com.urlshortener.model.DashboardSummary.Activity;
+import com.urlshortener.model.DashboardSummary.TopLink;
+import com.urlshortener.model.QrCode;
+import com.urlshortener.model.ShortenedUrl;
+import com.urlshortener.model.UploadedFile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Dashboard summaries maintained incrementally, one document per user and per team.
+ *
+ * Creates and deletes adjust the counts, recent activity and top links with a single update
+ * each. Clicks, scans and downloads are coalesced in memory and flushed periodically: one
+ * projected $in query finds the owners of the touched items, then each affected summary gets
+ * one $inc, and the top links list is re-merged through a bounded min-heap and written back
+ * only if no other writer changed it in between. Reading the overview is a lookup by id; a
+ * missing summary is rebuilt from the collections once, which is also the recovery path for
+ * any drift. Every incremental update bumps the summary's revision, and a rebuild replaces the
+ * stored summary only if its revision is still the one read before the recount, so increments
+ * and concurrent rebuilds are never overwritten by an older recount.
+ */
+@Service
+public class DashboardSummaryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(DashboardSummaryService.class);
+
+    private static final int RECENT_ACTIVITY_SIZE = 10;
+    private static final int DAYS_KEPT = 30;
+    private static final int OVERVIEW_DAYS = 7;
+    private static final int MAX_REBUILD_ATTEMPTS = 3;
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.dashboard.top-links:5}")
+    private int topLinksSize;
+
+    // Pending deltas keyed by shortCode, qrCode and file id
+    private final ConcurrentHashMap<String, Integer> pendingClicks = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> pendingScans = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Integer> pendingDownloads = new ConcurrentHashMap<>();
+
+    private Counter rebuildsCounter;
+    private Counter updatesCounter;
+
+    /**
+     * Owner and scope of one touched item, with its delta for this flush.
+     */
+    private record Touched(String key, String userId, String scopeType, String scopeId, int delta) {}
+
+    @PostConstruct
+    public void initializeMetrics() {
+        Gauge.builder("dashboard.summary.pending", this, service ->
+                    service.pendingClicks.size() + service.pendingScans.size() + service.pendingDownloads.size())
+                .description("Links, QR codes and files with counter deltas waiting to reach dashboard summaries")
+                .register(meterRegistry);
+
+        rebuildsCounter = Counter.builder("dashboard.summary.rebuilds")
+                .description("Dashboard summaries rebuilt from the collections")
+                .register(meterRegistry);
+
+        updatesCounter = Counter.builder("dashboard.summary.updates")
+                .description("Incremental updates written to dashboard summaries")
+                .register(meterRegistry);
+    }
+
+    public void linksCreated(List<ShortenedUrl> links) {
+        applyCreated(links, link -> scopeKeys(link.getUserId(), link.getScopeType(), link.getScopeId()),
+            (scoped, update) -> {
+                update.inc("totalLinks", scoped.size());
+                scoped.stream()
+                    .collect(Collectors.groupingBy(link -> day(link.getCreatedAt()), Collectors.counting()))
+                    .forEach((day, count) -> update.inc("linksByDay." + day, count));
+                // New links have no clicks; they only enter a top list that still has room
+                update.push("topLinks").sort(Sort.by(Sort.Direction.DESC, "clicks")).slice(topLinksSize)
+                    .each(scoped.stream().limit(topLinksSize).map(TopLink::new).toArray());
+                update.inc("topLinksVersion", 1);
+                pushActivity(update, scoped.stream().map(Activity::of).toList());
+            });
+    }
+
+    public void linkDeleted(ShortenedUrl link) {
+        applyDeleted(scopeKeys(link.getUserId(), link.getScopeType(), link.getScopeId()), "link", link.getShortCode(),
+            new Update().inc("totalLinks", -1).inc("totalClicks", -link.getTotalClicks()));
+    }
+
+    public void qrCodesCreated(List<QrCode> qrCodes) {
+        applyCreated(qrCodes, qr -> scopeKeys(qr.getUserId(), qr.getScopeType(), qr.getScopeId()),
+            (scoped, update) -> {
+                update.inc("totalQrCodes", scoped.size());
+                pushActivity(update, scoped.stream().map(Activity::of).toList());
+            });
+    }
+
+    public void qrCodeDeleted(QrCode qrCode) {
+        applyDeleted(scopeKeys(qrCode.getUserId(), qrCode.getScopeType(), qrCode.getScopeId()), "qr", qrCode.getQrCode(),
+            new Update().inc("totalQrCodes", -1).inc("totalQrScans", -qrCode.getTotalScans()));
+    }
+
+    public void fileUploaded(UploadedFile file) {
+        applyCreated(List.of(file), f -> scopeKeys(f.getUserId(), f.getScopeType(), f.getScopeId()),
+            (scoped, update) -> {
+                update.inc("totalFiles", scoped.size());
+                pushActivity(update, scoped.stream().map(Activity::of).toList());
+            });
+    }
+
+    public void fileDeleted(UploadedFile file) {
+        applyDeleted(scopeKeys(file.getUserId(), file.getScopeType(), file.getScopeId()), "file", file.getId(),
+            new Update().inc("totalFiles", -1).inc("totalFileDownloads", -file.getTotalDownloads()));
+    }
+
+    /**
+     * Clicks already counted on the link document; reach the summaries on the next flush.
+     */
+    public void addClicks(String shortCode, int clicks) {
+        pendingClicks.merge(shortCode, clicks, Integer::sum);
+    }
+
+    public void addScans(String qrCode, int scans) {
+        pendingScans.merge(qrCode, scans, Integer::sum);
+    }
+
+    public void addDownloads(String fileId, int downloads) {
+        pendingDownloads.merge(fileId, downloads, Integer::sum);
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard.summary-flush-interval:2000}")
+    public void flush() {
+        if (mongoTemplate == null) {
+            return;
+        }
+        flushClicks();
+        flushScans();
+        flushDownloads();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void flushClicks() {
+        Map<String, Integer> deltas = drain(pendingClicks);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Query query = new Query(Criteria.where("shortCode").in(deltas.keySet()));
+        query.fields().include("shortCode", "shortUrl", "originalUrl", "title", "totalClicks",
+            "userId", "scopeType", "scopeId");
+        List<ShortenedUrl> links;
+        try {
+            links = mongoTemplate.find(query, ShortenedUrl.class);
+        } catch (Exception e) {
+            logger.error("Failed to load {} clicked links for dashboard summaries, re-queueing: {}", deltas.size(), e.getMessage());
+            requeue(pendingClicks, deltas);
+            return;
+        }
+
+        List<Touched> touched = links.stream()
+            .map(link -> new Touched(link.getShortCode(), link.getUserId(), link.getScopeType(), link.getScopeId(),
+                deltas.get(link.getShortCode())))
+            .toList();
+        Map<String, ShortenedUrl> linksByCode = links.stream()
+            .collect(Collectors.toMap(ShortenedUrl::getShortCode, Function.identity()));
+
+        applyCounters(touched, "link", "totalClicks", "clicks", true, (summary, scoped, bulkOps) -> {
+            List<TopLink> merged = mergeTopLinks(summary.getTopLinks(),
+                scoped.stream().map(t -> linksByCode.get(t.key())).toList());
+            if (!sameTopLinks(summary.getTopLinks(), merged)) {
+                Query unchanged = new Query(Criteria.where("_id").is(summary.getId())
+                    .and("topLinksVersion").is(summary.getTopLinksVersion()));
+                bulkOps.updateOne(unchanged, new Update().set("topLinks", merged).inc("topLinksVersion", 1));
+            }
+        }, () -> requeue(pendingClicks, deltas));
+    }
+
+    private void flushScans() {
+        Map<String, Integer> deltas = drain(pendingScans);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Query query = new Query(Criteria.where("qrCode").in(deltas.keySet()));
+        query.fields().include("qrCode", "userId", "scopeType", "scopeId");
+        List<Touched> touched;
+        try {
+            touched = mongoTemplate.find(query, QrCode.class).stream()
+                .map(qr -> new Touched(qr.getQrCode(), qr.getUserId(), qr.getScopeType(), qr.getScopeId(),
+                    deltas.get(qr.getQrCode())))
+                .toList();
+        } catch (Exception e) {
+            logger.error("Failed to load {} scanned QR codes for dashboard summaries, re-queueing: {}", deltas.size(), e.getMessage());
+            requeue(pendingScans, deltas);
+            return;
+        }
+
+        applyCounters(touched, "qr", "totalQrScans", "scans", false, null, () -> requeue(pendingScans, deltas));
+    }
+
+    private void flushDownloads() {
+        Map<String, Integer> deltas = drain(pendingDownloads);
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        Query query = new Query(Criteria.where("_id").in(deltas.keySet()));
+        query.fields().include("userId", "scopeType", "scopeId");
+        List<Touched> touched;
+        try {
+            touched = mongoTemplate.find(query, UploadedFile.class).stream()
+                .filter(file -> deltas.containsKey(file.getId()))
+                .map(file -> new Touched(file.getId(), file.getUserId(), file.getScopeType(), file.getScopeId(),
+                    deltas.get(file.getId())))
+                .toList();
+        } catch (Exception e) {
+            logger.error("Failed to load {} downloaded files for dashboard summaries, re-queueing: {}", deltas.size(), e.getMessage());
+            requeue(pendingDownloads, deltas);
+            return;
+        }
+
+        applyCounters(touched, "file", "totalFileDownloads", "totalDownloads", false, null,
+            () -> requeue(pendingDownloads, deltas));
+    }
+
+    @FunctionalInterface
+    private interface SummaryHook {
+        void apply(DashboardSummary summary, List<Touched> scoped, BulkOperations bulkOps);
+    }
+
+    /**
+     * One $inc per affected summary: the total, today's bucket for clicks, and the counters of
+     * touched items that are still in the recent activity feed (matched with array filters).
+     */
+    private void applyCounters(List<Touched> touched, String type, String totalField, String activityField,
+                               boolean daily, SummaryHook hook, Runnable onFailure) {
+        if (touched.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<Touched>> byScope = new HashMap<>();
+        touched.forEach(t -> scopeKeys(t.userId(), t.scopeType(), t.scopeId())
+            .forEach(key -> byScope.computeIfAbsent(key, k -> new ArrayList<>()).add(t)));
+
+        Query summaries = new Query(Criteria.where("_id").in(byScope.keySet()));
+        summaries.fields().include("recentActivity", "topLinks", "topLinksVersion");
+
+        String today = day(LocalDateTime.now());
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DashboardSummary.class);
+        int updates = 0;
+
+        try {
+            // Summaries that do not exist yet are skipped; they are built on first read
+            for (DashboardSummary summary : mongoTemplate.find(summaries, DashboardSummary.class)) {
+                List<Touched> scoped = byScope.get(summary.getId());
+                int total = scoped.stream().mapToInt(Touched::delta).sum();
+
+                Update update = new Update().inc(totalField, total).inc("revision", 1);
+                if (daily) {
+                    update.inc("clicksByDay." + today, total);
+                }
+
+                Map<String, Integer> inFeed = new HashMap<>();
+                summary.getRecentActivity().stream()
+                    .filter(activity -> type.equals(activity.getType()))
+                    .forEach(activity -> inFeed.put(activity.getKey(), 0));
+                for (Touched t : scoped) {
+                    inFeed.computeIfPresent(t.key(), (key, delta) -> delta + t.delta());
+                }
+                int filter = 0;
+                for (Map.Entry<String, Integer> entry : inFeed.entrySet()) {
+                    if (entry.getValue() == 0) {
+                        continue;
+                    }
+                    String identifier = "a" + filter++;
+                    update.inc("recentActivity.$[" + identifier + "]." + activityField, entry.getValue());
+                    update.filterArray(Criteria.where(identifier + ".type").is(type)
+                        .and(identifier + ".key").is(entry.getKey()));
+                }
+
+                bulkOps.updateOne(new Query(Criteria.where("_id").is(summary.getId())), update);
+                updates++;
+                if (hook != null) {
+                    hook.apply(summary, scoped, bulkOps);
+                }
+            }
+
+            if (updates > 0) {
+                bulkOps.execute();
+                updatesCounter.increment(updates);
+            }
+        } catch (Exception e) {
+            logger.error("Failed to update dashboard summaries with {} {} counters, re-queueing: {}",
+                touched.size(), type, e.getMessage());
+            onFailure.run();
+        }
+    }
+
+    /**
+     * Overview for a user or team, in the shape the dashboard has always returned.
+     */
+    public Map<String, Object> getOverview(String scopeType, String scopeId) {
+        if (mongoTemplate == null) {
+            throw new IllegalStateException("MongoDB not available");
+        }
+
+        DashboardSummary summary = mongoTemplate.findById(DashboardSummary.key(scopeType, scopeId), DashboardSummary.class);
+        if (summary == null) {
+            summary = rebuild(scopeType, scopeId);
+        } else {
+            if (summary.isTopLinksStale()) {
+                refreshTopLinks(summary);
+            }
+            if (summary.getClicksByDay().size() > DAYS_KEPT || summary.getLinksByDay().size() > DAYS_KEPT) {
+                pruneDays(summary);
+            }
+        }
+        return toOverview(summary);
+    }
+
+    /**
+     * Recompute a summary from the collections and replace the stored one, unless it changed
+     * while recounting; then the recount is retried, and after the last attempt the stored
+     * summary (kept current by the increments) is returned as it is.
+     */
+    public DashboardSummary rebuild(String scopeType, String scopeId) {
+        String id = DashboardSummary.key(scopeType, scopeId);
+        for (int attempt = 1; ; attempt++) {
+            Query revisionQuery = new Query(Criteria.where("_id").is(id));
+            revisionQuery.fields().include("revision", "topLinksVersion");
+            DashboardSummary current = mongoTemplate.findOne(revisionQuery, DashboardSummary.class);
+
+            DashboardSummary summary = recount(scopeType, scopeId);
+            if (current == null) {
+                try {
+                    mongoTemplate.insert(summary);
+                    return rebuilt(summary);
+                } catch (DuplicateKeyException e) {
+                    // Built concurrently (another request or node); that recount is as fresh as ours
+                    DashboardSummary stored = mongoTemplate.findById(id, DashboardSummary.class);
+                    if (stored != null) {
+                        return stored;
+                    }
+                }
+            } else {
+                summary.setRevision(current.getRevision() + 1);
+                summary.setTopLinksVersion(current.getTopLinksVersion() + 1);
+                // Summaries stored before revisions existed have no field at all
+                Criteria unchanged = Criteria.where("_id").is(id);
+                if (current.getRevision() == 0) {
+                    unchanged.and("revision").in(0L, null);
+                } else {
+                    unchanged.and("revision").is(current.getRevision());
+                }
+                if (mongoTemplate.findAndReplace(new Query(unchanged), summary) != null) {
+                    return rebuilt(summary);
+                }
+            }
+
+            if (attempt >= MAX_REBUILD_ATTEMPTS) {
+                DashboardSummary stored = mongoTemplate.findById(id, DashboardSummary.class);
+                logger.debug("Dashboard summary {} kept changing during rebuild; keeping the stored one", id);
+                return stored != null ? stored : summary;
+            }
+        }
+    }
+
+    private DashboardSummary rebuilt(DashboardSummary summary) {
+        rebuildsCounter.increment();
+        logger.debug("Rebuilt dashboard summary {} ({} links, {} QR codes, {} files)",
+            summary.getId(), summary.getTotalLinks(), summary.getTotalQrCodes(), summary.getTotalFiles());
+        return summary;
+    }
+
+    private DashboardSummary recount(String scopeType, String scopeId) {
+        Criteria active = scopeCriteria(scopeType, scopeId);
+        DashboardSummary summary = new DashboardSummary(scopeType, scopeId);
+
+        Document links = countAndSum(active, "totalClicks", ShortenedUrl.class);
+        Document qrCodes = countAndSum(active, "totalScans", QrCode.class);
+        Document files = countAndSum(active, "totalDownloads", UploadedFile.class);
+        summary.setTotalLinks(((Number) links.get("count")).longValue());
+        summary.setTotalClicks(((Number) links.get("sum")).longValue());
+        summary.setTotalQrCodes(((Number) qrCodes.get("count")).longValue());
+        summary.setTotalQrScans(((Number) qrCodes.get("sum")).longValue());
+        summary.setTotalFiles(((Number) files.get("count")).longValue());
+        summary.setTotalFileDownloads(((Number) files.get("sum")).longValue());
+
+        summary.setTopLinks(findTopLinks(scopeType, scopeId));
+
+        // Per-day click history is only known from here on; seed today from the links' own counters
+        LocalDateTime todayStart = LocalDate.now().atStartOfDay();
+        Query clickedToday = new Query(new Criteria().andOperator(scopeCriteria(scopeType, scopeId),
+            Criteria.where("lastClickedAt").gte(todayStart)));
+        clickedToday.fields().include("todayClicks");
+        int clicksToday = mongoTemplate.find(clickedToday, ShortenedUrl.class).stream()
+            .mapToInt(ShortenedUrl::getTodayClicks).sum();
+        if (clicksToday > 0) {
+            summary.getClicksByDay().put(day(todayStart), clicksToday);
+        }
+
+        Query createdRecently = new Query(new Criteria().andOperator(scopeCriteria(scopeType, scopeId),
+            Criteria.where("createdAt").gte(todayStart.minusDays(DAYS_KEPT - 1))));
+        createdRecently.fields().include("createdAt");
+        mongoTemplate.find(createdRecently, ShortenedUrl.class)
+            .forEach(link -> summary.getLinksByDay().merge(day(link.getCreatedAt()), 1, Integer::sum));
+
+        List<Activity> recent = new ArrayList<>();
+        Query recentLinks = new Query(scopeCriteria(scopeType, scopeId))
+            .with(Sort.by(Sort.Direction.DESC, "createdAt")).limit(RECENT_ACTIVITY_SIZE);
+        recentLinks.fields().include("shortCode", "shortUrl", "title", "totalClicks", "createdAt");
+        mongoTemplate.find(recentLinks, ShortenedUrl.class).forEach(link -> recent.add(Activity.of(link)));
+
+        Query recentQrCodes = new Query(scopeCriteria(scopeType, scopeId))
+            .with(Sort.by(Sort.Direction.DESC, "createdAt")).limit(RECENT_ACTIVITY_SIZE);
+        recentQrCodes.fields().include("qrCode", "title", "totalScans", "createdAt");
+        mongoTemplate.find(recentQrCodes, QrCode.class).forEach(qr -> recent.add(Activity.of(qr)));
+
+        Query recentFiles = new Query(scopeCriteria(scopeType, scopeId))
+            .with(Sort.by(Sort.Direction.DESC, "uploadedAt")).limit(RECENT_ACTIVITY_SIZE);
+        recentFiles.fields().include("originalFileName", "fileUrl", "fileSize", "totalDownloads", "uploadedAt");
+        mongoTemplate.find(recentFiles, UploadedFile.class).forEach(file -> recent.add(Activity.of(file)));
+
+        recent.sort(Comparator.comparing(Activity::getTimestamp, Comparator.nullsLast(Comparator.reverseOrder())));
+        summary.setRecentActivity(new ArrayList<>(recent.subList(0, Math.min(RECENT_ACTIVITY_SIZE, recent.size()))));
+        summary.setRebuiltAt(LocalDateTime.now());
+        return summary;
+    }
+
+    private Map<String, Object> toOverview(DashboardSummary summary) {
+        Map<String, Object> dashboard = new HashMap<>();
+
+        dashboard.put("totalLinks", summary.getTotalLinks());
+        dashboard.put("totalQRCodes", summary.getTotalQrCodes());
+        dashboard.put("totalFiles", summary.getTotalFiles());
+        dashboard.put("shortLinks", summary.getTotalLinks());
+        dashboard.put("qrCodeCount", summary.getTotalQrCodes());
+        dashboard.put("fileLinksCount", summary.getTotalFiles());
+        dashboard.put("totalClicks", summary.getTotalClicks() + summary.getTotalQrScans() + summary.getTotalFileDownloads());
+
+        LocalDate today = LocalDate.now();
+        List<Map<String, Object>> clicksOverTime = new ArrayList<>();
+        int clicksThisWeek = 0;
+        for (int i = OVERVIEW_DAYS - 1; i >= 0; i--) {
+            String date = today.minusDays(i).toString();
+            int clicks = summary.getClicksByDay().getOrDefault(date, 0);
+            clicksThisWeek += clicks;
+
+            Map<String, Object> dayData = new HashMap<>();
+            dayData.put("date", date);
+            dayData.put("clicks", clicks);
+            dayData.put("links", summary.getLinksByDay().getOrDefault(date, 0));
+            clicksOverTime.add(dayData);
+        }
+        dashboard.put("clicksToday", summary.getClicksByDay().getOrDefault(today.toString(), 0));
+        dashboard.put("clicksThisWeek", clicksThisWeek);
+
+        if (!summary.getTopLinks().isEmpty()) {
+            TopLink link = summary.getTopLinks().get(0);
+            Map<String, Object> topLinkData = new HashMap<>();
+            topLinkData.put("shortUrl", link.getShortUrl());
+            topLinkData.put("originalUrl", link.getOriginalUrl());
+            topLinkData.put("clicks", link.getClicks());
+            topLinkData.put("title", link.getTitle());
+            dashboard.put("topPerformingLink", topLinkData);
+        }
+
+        dashboard.put("recentActivity", summary.getRecentActivity().stream().map(this::toMap).toList());
+        dashboard.put("clicksOverTime", clicksOverTime);
+        return dashboard;
+    }
+
+    private Map<String, Object> toMap(Activity activity) {
+        Map<String, Object> map = new HashMap<>();
+        map.put("type", activity.getType());
+        map.put("action", activity.getAction());
+        map.put("timestamp", activity.getTimestamp());
+        switch (activity.getType()) {
+            case "link" -> {
+                map.put("shortUrl", activity.getShortUrl());
+                map.put("title", activity.getTitle());
+                map.put("clicks", activity.getClicks());
+            }
+            case "qr" -> {
+                map.put("title", activity.getTitle());
+                map.put("scans", activity.getScans());
+            }
+            default -> {
+                map.put("fileName", activity.getFileName());
+                map.put("fileUrl", activity.getFileUrl());
+                map.put("totalDownloads", activity.getTotalDownloads());
+                map.put("fileSize", activity.getFileSize());
+            }
+        }
+        return map;
+    }
+
+    @FunctionalInterface
+    private interface CreatedUpdate<T> {
+        void apply(List<T> scoped, Update update);
+    }
+
+    private <T> void applyCreated(List<T> items, Function<T, List<String>> keys, CreatedUpdate<T> updateBuilder) {
+        if (mongoTemplate == null || items.isEmpty()) {
+            return;
+        }
+
+        Map<String, List<T>> byScope = new LinkedHashMap<>();
+        items.forEach(item -> keys.apply(item)
+            .forEach(key -> byScope.computeIfAbsent(key, k -> new ArrayList<>()).add(item)));
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DashboardSummary.class);
+        byScope.forEach((key, scoped) -> {
+            Update update = new Update().inc("revision", 1);
+            updateBuilder.apply(scoped, update);
+            bulkOps.updateOne(new Query(Criteria.where("_id").is(key)), update);
+        });
+        execute(bulkOps, byScope.size());
+    }
+
+    private void applyDeleted(List<String> keys, String type, String itemKey, Update counts) {
+        if (mongoTemplate == null || keys.isEmpty()) {
+            return;
+        }
+
+        Update update = counts.pull("recentActivity", new Document("type", type).append("key", itemKey))
+            .inc("revision", 1);
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, DashboardSummary.class);
+        for (String key : keys) {
+            bulkOps.updateOne(new Query(Criteria.where("_id").is(key)), update);
+
+            // Losing a top link leaves a gap only a query can fill; flag it for the next read
+            if ("link".equals(type)) {
+                bulkOps.updateOne(new Query(Criteria.where("_id").is(key).and("topLinks.shortCode").is(itemKey)),
+                    new Update().pull("topLinks", new Document("shortCode", itemKey))
+                        .set("topLinksStale", true)
+                        .inc("topLinksVersion", 1));
+            }
+        }
+        execute(bulkOps, keys.size());
+    }
+
+    private void execute(BulkOperations bulkOps, int updates) {
+        try {
+            bulkOps.execute();
+            updatesCounter.increment(updates);
+        } catch (Exception e) {
+            // The summary drifts until its next rebuild; the resource change itself has succeeded
+            logger.warn("Failed to update {} dashboard summaries: {}", updates, e.getMessage());
+        }
+    }
+
+    private void pushActivity(Update update, List<Activity> activities) {
+        List<Activity> newest = activities.stream()
+            .sorted(Comparator.comparing(Activity::getTimestamp, Comparator.nullsLast(Comparator.reverseOrder())))
+            .limit(RECENT_ACTIVITY_SIZE)
+            .toList();
+        update.push("recentActivity").sort(Sort.by(Sort.Direction.DESC, "timestamp")).slice(RECENT_ACTIVITY_SIZE)
+            .each(newest.toArray());
+    }
+
+    /**
+     * Keep the {@code topLinksSize} most clicked of the current list and the touched links,
+     * using a min-heap bounded to that size; touched links carry their fresh counts.
+     */
+    private List<TopLink> mergeTopLinks(List<TopLink> current, Collection<ShortenedUrl> touched) {
+        Map<String, TopLink> candidates = new HashMap<>();
+        current.forEach(link -> candidates.put(link.getShortCode(), link));
+        touched.forEach(link -> candidates.put(link.getShortCode(), new TopLink(link)));
+
+        PriorityQueue<TopLink> heap = new PriorityQueue<>(topLinksSize + 1, Comparator.comparingLong(TopLink::getClicks));
+        for (TopLink candidate : candidates.values()) {
+            heap.offer(candidate);
+            if (heap.size() > topLinksSize) {
+                heap.poll();
+            }
+        }
+
+        List<TopLink> top = new ArrayList<>(heap);
+        top.sort(Comparator.comparingLong(TopLink::getClicks).reversed());
+        return top;
+    }
+
+    private static boolean sameTopLinks(List<TopLink> a, List<TopLink> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (!a.get(i).getShortCode().equals(b.get(i).getShortCode()) || a.get(i).getClicks() != b.get(i).getClicks()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private List<TopLink> findTopLinks(String scopeType, String scopeId) {
+        Query query = new Query(scopeCriteria(scopeType, scopeId))
+            .with(Sort.by(Sort.Direction.DESC, "totalClicks")).limit(topLinksSize);
+        query.fields().include("shortCode", "shortUrl", "originalUrl", "title", "totalClicks");
+        return mongoTemplate.find(query, ShortenedUrl.class).stream().map(TopLink::new)
+            .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private void refreshTopLinks(DashboardSummary summary) {
+        List<TopLink> top = findTopLinks(summary.getScopeType(), summary.getScopeId());
+        Query unchanged = new Query(Criteria.where("_id").is(summary.getId())
+            .and("topLinksVersion").is(summary.getTopLinksVersion()));
+        mongoTemplate.updateFirst(unchanged,
+            new Update().set("topLinks", top).set("topLinksStale", false).inc("topLinksVersion", 1),
+            DashboardSummary.class);
+        summary.setTopLinks(top);
+    }
+
+    private void pruneDays(DashboardSummary summary) {
+        String oldest = LocalDate.now().minusDays(DAYS_KEPT - 1).toString();
+        Update update = new Update();
+        // ISO dates compare correctly as strings
+        summary.getClicksByDay().keySet().stream().filter(day -> day.compareTo(oldest) < 0)
+            .forEach(day -> update.unset("clicksByDay." + day));
+        summary.getLinksByDay().keySet().stream().filter(day -> day.compareTo(oldest) < 0)
+            .forEach(day -> update.unset("linksByDay." + day));
+        if (!update.getUpdateObject().isEmpty()) {
+            mongoTemplate.updateFirst(new Query(Criteria.where("_id").is(summary.getId())), update, DashboardSummary.class);
+        }
+    }
+
+    private Document countAndSum(Criteria criteria, String field, Class<?> type) {
+        Aggregation aggregation = Aggregation.newAggregation(
+            Aggregation.match(criteria),
+            Aggregation.group().count().as("count").sum(field).as("sum"));
+        Document result = mongoTemplate.aggregate(aggregation, type, Document.class).getUniqueMappedResult();
+        return result != null ? result : new Document("count", 0).append("sum", 0);
+    }
+
+    private static Criteria scopeCriteria(String scopeType, String scopeId) {
+        Criteria criteria = DashboardSummary.SCOPE_TEAM.equals(scopeType)
+            ? Criteria.where("scopeType").is(DashboardSummary.SCOPE_TEAM).and("scopeId").is(scopeId)
+            : Criteria.where("userId").is(scopeId);
+        return criteria.and("isActive").is(true);
+    }
+
+    /**
+     * Summaries an item counts towards: always its owner's, plus its team's when team-scoped.
+     */
+    private static List<String> scopeKeys(String userId, String scopeType, String scopeId) {
+        List<String> keys = new ArrayList<>(2);
+        if (userId != null) {
+            keys.add(DashboardSummary.key(DashboardSummary.SCOPE_USER, userId));
+        }
+        if (DashboardSummary.SCOPE_TEAM.equals(scopeType) && scopeId != null) {
+            keys.add(DashboardSummary.key(DashboardSummary.SCOPE_TEAM, scopeId));
+        }
+        return keys;
+    }
+
+    private static String day(LocalDateTime dateTime) {
+        return (dateTime != null ? dateTime.toLocalDate() : LocalDate.now()).toString();
+    }
+
+    private static Map<String, Integer> drain(ConcurrentHashMap<String, Integer> pending) {
+        Map<String, Integer> snapshot = new HashMap<>();
+        for (String key : new ArrayList<>(pending.keySet())) {
+            Integer delta = pending.remove(key);
+            if (delta != null) {
+                snapshot.put(key, delta);
+            }
+        }
+        return snapshot;
+    }
+
+    private static void requeue(ConcurrentHashMap<String, Integer> pending, Map<String, Integer> deltas) {
+        deltas.forEach((key, delta) -> pending.merge(key, delta, Integer::sum));
+    }
+}
@@ -0,0 +1,198 @@
+package com.urlshortener.service;
+
+import com.urlshortener.model.FileBlob;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.Aggregation;
+import org.springframework.data.mongodb.core.aggregation.ArithmeticOperators;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Content-addressed storage for uploaded files.
+ *
+ * Every upload is streamed to GridFS and hashed first; {@link #acquire} then registers it under
+ * its SHA-256 in one atomic upsert. If the same bytes were already stored, the reference count
+ * of the existing blob goes up and the fresh copy is deleted, so identical uploads share one
+ * GridFS file. {@link #release} drops a reference and deletes the GridFS file with the last one.
+ */
+@Service
+public class FileBlobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileBlobService.class);
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private FileContentStore fileContentStore;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private Counter deduplicated;
+    private Counter deduplicatedBytes;
+
+    @PostConstruct
+    public void initialize() {
+        deduplicated = Counter.builder("files.dedup.hits")
+                .description("Uploads whose content was already stored and got shared")
+                .register(meterRegistry);
+
+        deduplicatedBytes = Counter.builder("files.dedup.bytes")
+                .description("GridFS bytes not written again thanks to deduplication")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Add a reference for content that was just stored. Returns the blob now holding it, which
+     * points at an older GridFS file (and the new copy has been deleted) if the content was a
+     * duplicate.
+     */
+    public FileBlob acquire(FileContentStore.StoredContent stored) {
+        if (mongoTemplate == null) {
+            throw new IllegalStateException("File storage not available");
+        }
+
+        Query query = new Query(Criteria.where("_id").is(stored.getSha256()));
+        Update update = new Update()
+                .inc("refCount", 1)
+                .setOnInsert("gridFsFileId", stored.getGridFsFileId())
+                .setOnInsert("contentEncoding", stored.getContentEncoding())
+                .setOnInsert("originalSize", stored.getOriginalSize())
+                .setOnInsert("storedSize", stored.getStoredSize())
+                .setOnInsert("createdAt", LocalDateTime.now());
+
+        FileBlob blob = null;
+        for (int attempt = 0; blob == null; attempt++) {
+            try {
+                blob = mongoTemplate.findAndModify(query, update,
+                        FindAndModifyOptions.options().upsert(true).returnNew(true), FileBlob.class);
+            } catch (DuplicateKeyException e) {
+                // A concurrent upload of the same content inserted first; the retry increments it
+                if (attempt + 1 >= MAX_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+
+        if (!blob.getGridFsFileId().equals(stored.getGridFsFileId())) {
+            fileContentStore.delete(stored.getGridFsFileId());
+            deduplicated.increment();
+            deduplicatedBytes.increment(stored.getStoredSize());
+            logger.debug("Deduplicated upload onto blob {} ({} references)", blob.getId(), blob.getRefCount());
+        }
+        return blob;
+    }
+
+    /**
+     * Drop one reference to the content stored as {@code gridFsFileId} and delete it when no
+     * references remain. Content stored before deduplication has no blob and is deleted directly.
+     */
+    public void release(String contentHash, String gridFsFileId) {
+        if (mongoTemplate == null || gridFsFileId == null) {
+            return;
+        }
+
+        FileBlob blob = contentHash == null ? null : mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(contentHash).and("gridFsFileId").is(gridFsFileId)),
+                new Update().inc("refCount", -1),
+                FindAndModifyOptions.options().returnNew(true), FileBlob.class);
+
+        if (blob == null) {
+            fileContentStore.delete(gridFsFileId);
+            return;
+        }
+        if (blob.getRefCount() > 0) {
+            return;
+        }
+
+        // Only remove the blob if no upload re-acquired it in the meantime
+        long removed = mongoTemplate.remove(
+                new Query(Criteria.where("_id").is(contentHash).and("refCount").lte(0)), FileBlob.class).getDeletedCount();
+        if (removed == 1) {
+            fileContentStore.delete(gridFsFileId);
+            logger.debug("Deleted unreferenced blob {}", contentHash);
+        }
+    }
+
+    /**
+     * Storage used versus what would be used without deduplication and compression.
+     */
+    public Map<String, Object> getSavingsReport() {
+        Map<String, Object> report = new HashMap<>();
+        if (mongoTemplate == null) {
+            report.put("available", false);
+            return report;
+        }
+
+        Aggregation aggregation = Aggregation.newAggregation(
+                Aggregation.match(Criteria.where("refCount").gt(0)),
+                Aggregation.group()
+                        .count().as("blobs")
+                        .sum("refCount").as("references")
+                        .sum("storedSize").as("storedBytes")
+                        .sum(ArithmeticOperators.Multiply.valueOf("originalSize").multiplyBy("refCount")).as("logicalBytes")
+                        .sum(ArithmeticOperators.Multiply.valueOf("storedSize")
+                                .multiplyBy(ArithmeticOperators.Subtract.valueOf("refCount").subtract(1))).as("dedupSavedBytes"));
+        Document totals = mongoTemplate.aggregate(aggregation, FileBlob.class, Document.class).getUniqueMappedResult();
+
+        long blobs = totals != null ? number(totals, "blobs") : 0;
+        long references = totals != null ? number(totals, "references") : 0;
+        long storedBytes = totals != null ? number(totals, "storedBytes") : 0;
+        long logicalBytes = totals != null ? number(totals, "logicalBytes") : 0;
+        long dedupSavedBytes = totals != null ? number(totals, "dedupSavedBytes") : 0;
+        long savedBytes = logicalBytes - storedBytes;
+
+        report.put("available", true);
+        report.put("blobs", blobs);
+        report.put("files", references);
+        report.put("duplicateFiles", references - blobs);
+        report.put("logicalBytes", logicalBytes);
+        report.put("storedBytes", storedBytes);
+        report.put("savedBytes", savedBytes);
+        report.put("savedByDeduplication", dedupSavedBytes);
+        report.put("savedByCompression", savedBytes - dedupSavedBytes);
+        report.put("savingsRatio", logicalBytes > 0 ? (double) savedBytes / logicalBytes : 0.0);
+
+        Query mostShared = new Query(Criteria.where("refCount").gt(1))
+                .with(Sort.by(Sort.Direction.DESC, "refCount"))
+                .limit(10);
+        List<Map<String, Object>> topBlobs = mongoTemplate.find(mostShared, FileBlob.class).stream()
+                .map(blob -> {
+                    Map<String, Object> entry = new HashMap<>();
+                    entry.put("contentHash", blob.getId());
+                    entry.put("references", blob.getRefCount());
+                    entry.put("storedSize", blob.getStoredSize());
+                    entry.put("savedBytes", blob.getStoredSize() * (blob.getRefCount() - 1));
+                    return entry;
+                })
+                .toList();
+        report.put("mostShared", topBlobs);
+        return report;
+    }
+
+    private static long number(Document document, String field) {
+        Object value = document.get(field);
+        return value instanceof Number number ? number.longValue() : 0;
+    }
+}
@@ -0,0 +1,252 @@
+package com.urlshortener.service;
+
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.GridFSDownloadStream;
+import com.mongodb.client.gridfs.GridFSUploadStream;
+import com.mongodb.MongoGridFSException;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Streams file content into GridFS without holding it on the heap.
+ *
+ * The source is read through a fixed buffer, hashed (SHA-256) and counted on the fly, optionally
+ * gzip-compressed, and written straight to a GridFS upload stream, so memory per upload is the
+ * copy buffer plus one GridFS chunk regardless of file size. A failed or oversized upload is
+ * aborted and its partial chunks removed.
+ *
+ * Reads go through {@link #open} and {@link #slice}: skipping on a GridFS download stream moves
+ * straight to the chunk holding the target offset, so a byte range only fetches its own chunks.
+ */
+@Service
+public class FileContentStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileContentStore.class);
+
+    public static final String CONTENT_TYPE_KEY = "_contentType"; // same key GridFsTemplate uses
+    public static final String CONTENT_ENCODING_KEY = "contentEncoding";
+    public static final String GZIP = "gzip";
+
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.files.gridfs-chunk-size:261120}")
+    private int chunkSize;
+
+    /**
+     * Stream {@code source} into GridFS under {@code filename}. Fails (and stores nothing) if
+     * the source turns out to be longer than {@code maxBytes}. The caller closes the source.
+     */
+    public StoredContent store(InputStream source, String filename, String contentType,
+                               boolean compress, long maxBytes) throws IOException {
+        if (mongoTemplate == null) {
+            throw new IllegalStateException("File storage not available");
+        }
+
+        Document metadata = new Document(CONTENT_TYPE_KEY, contentType);
+        if (compress) {
+            metadata.append(CONTENT_ENCODING_KEY, GZIP);
+        }
+        GridFSUploadOptions options = new GridFSUploadOptions().chunkSizeBytes(chunkSize).metadata(metadata);
+
+        GridFSBucket bucket = GridFSBuckets.create(mongoTemplate.getDb());
+        GridFSUploadStream upload = bucket.openUploadStream(filename, options);
+        CountingOutputStream stored = new CountingOutputStream(upload);
+        MessageDigest digest = sha256();
+        long originalSize = 0;
+
+        try {
+            OutputStream sink = compress ? new GZIPOutputStream(stored, COPY_BUFFER_SIZE) : stored;
+            byte[] buffer = new byte[COPY_BUFFER_SIZE];
+            int read;
+            while ((read = source.read(buffer)) != -1) {
+                originalSize += read;
+                if (originalSize > maxBytes) {
+                    throw new IOException("File exceeds the maximum size of " + maxBytes + " bytes");
+                }
+                digest.update(buffer, 0, read);
+                sink.write(buffer, 0, read);
+            }
+            // Closing the gzip stream finishes it and closes the upload, which writes the files document
+            sink.close();
+        } catch (IOException | RuntimeException e) {
+            try {
+                upload.abort();
+            } catch (RuntimeException abortError) {
+                logger.warn("Failed to abort GridFS upload {}: {}", filename, abortError.getMessage());
+            }
+            throw e;
+        }
+
+        StoredContent content = new StoredContent(upload.getObjectId().toHexString(), originalSize, stored.count,
+                HexFormat.of().formatHex(digest.digest()), compress ? GZIP : null);
+        logger.debug("Stored {} ({} bytes, {} in GridFS, sha256 {})", filename, originalSize, stored.count, content.getSha256());
+        return content;
+    }
+
+    /**
+     * Open stored content for reading, or return null if there is no such GridFS file.
+     * Only the files document is fetched here; chunks are read on demand.
+     */
+    public GridFSDownloadStream open(String gridFsFileId) {
+        if (mongoTemplate == null || gridFsFileId == null || !ObjectId.isValid(gridFsFileId)) {
+            return null;
+        }
+        try {
+            return GridFSBuckets.create(mongoTemplate.getDb()).openDownloadStream(new ObjectId(gridFsFileId));
+        } catch (MongoGridFSException e) {
+            logger.warn("GridFS file {} not found: {}", gridFsFileId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Limit an opened stream to {@code length} bytes starting at {@code offset}. Closing the
+     * slice closes the underlying stream.
+     */
+    public InputStream slice(GridFSDownloadStream stream, long offset, long length) throws IOException {
+        long skipped = stream.skip(offset);
+        if (skipped < offset) {
+            stream.close();
+            throw new IOException("Offset " + offset + " is beyond the end of the stored content");
+        }
+        return new BoundedInputStream(stream, length);
+    }
+
+    /**
+     * Delete stored content and its chunks. Missing files are ignored.
+     */
+    public void delete(String gridFsFileId) {
+        if (mongoTemplate == null || gridFsFileId == null || !ObjectId.isValid(gridFsFileId)) {
+            return;
+        }
+        try {
+            GridFSBuckets.create(mongoTemplate.getDb()).delete(new ObjectId(gridFsFileId));
+        } catch (MongoGridFSException e) {
+            logger.debug("GridFS file {} already deleted: {}", gridFsFileId, e.getMessage());
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * Result of a streamed upload: GridFS id, sizes before and after compression, and the
+     * SHA-256 of the original content.
+     */
+    public static final class StoredContent {
+        private final String gridFsFileId;
+        private final long originalSize;
+        private final long storedSize;
+        private final String sha256;
+        private final String contentEncoding;
+
+        StoredContent(String gridFsFileId, long originalSize, long storedSize, String sha256, String contentEncoding) {
+            this.gridFsFileId = gridFsFileId;
+            this.originalSize = originalSize;
+            this.storedSize = storedSize;
+            this.sha256 = sha256;
+            this.contentEncoding = contentEncoding;
+        }
+
+        public String getGridFsFileId() { return gridFsFileId; }
+
+        public long getOriginalSize() { return originalSize; }
+
+        public long getStoredSize() { return storedSize; }
+
+        public String getSha256() { return sha256; }
+
+        public String getContentEncoding() { return contentEncoding; }
+    }
+
+    private static final class BoundedInputStream extends FilterInputStream {
+        private long remaining;
+
+        BoundedInputStream(InputStream in, long length) {
+            super(in);
+            this.remaining = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int b = in.read();
+            if (b != -1) {
+                remaining--;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (remaining <= 0) {
+                return -1;
+            }
+            int read = in.read(b, off, (int) Math.min(len, remaining));
+            if (read > 0) {
+                remaining -= read;
+            }
+            return read;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = in.skip(Math.min(n, remaining));
+            remaining -= skipped;
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            return (int) Math.min(in.available(), remaining);
+        }
+    }
+
+    private static final class CountingOutputStream extends FilterOutputStream {
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.urlshortener.service;
+
+import com.urlshortener.model.UploadedFile;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+
+/**
+ * Records file downloads off the request thread.
+ *
+ * Each download is a single $inc/$set on the file document instead of loading and re-saving
+ * it, so concurrent downloads neither block the response nor overwrite each other's counts.
+ */
+@Service
+public class FileDownloadStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileDownloadStatsService.class);
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private DashboardSummaryService dashboardSummaryService;
+
+    @Async("statsTaskExecutor")
+    public void recordDownload(String fileId) {
+        if (mongoTemplate == null || fileId == null) {
+            return;
+        }
+        try {
+            mongoTemplate.updateFirst(
+                    new Query(Criteria.where("_id").is(fileId)),
+                    new Update().inc("totalDownloads", 1).set("lastAccessedAt", LocalDateTime.now()),
+                    UploadedFile.class);
+            dashboardSummaryService.addDownloads(fileId, 1);
+        } catch (Exception e) {
+            logger.warn("Failed to record download for file {}: {}", fileId, e.getMessage());
+        }
+    }
+}
@@ -1,9 +1,9 @@
 package com.urlshortener.service;
 
+import com.urlshortener.exception.PlanLimitException;
+import com.urlshortener.model.FileBlob;
 import com.urlshortener.model.UploadedFile;
-import com.urlshortener.model.User;
 import com.urlshortener.repository.UploadedFileRepository;
-import com.urlshortener.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
@@ -15,20 +15,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import com.mongodb.client.gridfs.GridFSDownloadStream;
 import com.mongodb.client.gridfs.model.GridFSFile;
-import org.springframework.data.mongodb.gridfs.GridFsResource;
 import java.io.IOException;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.List;
-import java.util.zip.GZIPOutputStream;
-import java.util.zip.GZIPInputStream;
-import java.awt.Graphics2D;
-import java.awt.RenderingHints;
-import java.awt.image.BufferedImage;
-import javax.imageio.ImageIO;
+import java.util.Set;
 
 @Service
 public class FileUploadService {
@@ -36,28 +30,40 @@ public class FileUploadService {
     private static final Logger logger = LoggerFactory.getLogger(FileUploadService.class);
     
     private final UploadedFileRepository uploadedFileRepository;
-    private final UserRepository userRepository;
     private final GridFsTemplate gridFsTemplate;
     private final CacheService cacheService;
-    private final SubscriptionService subscriptionService;
+    private final QuotaService quotaService;
+    private final FileContentStore fileContentStore;
+    private final FileBlobService fileBlobService;
+    private final DashboardSummaryService dashboardSummaryService;
     
     @Value("${app.shorturl.domain:https://pebly.vercel.app}")
     private String shortUrlDomain;
     
+    @Value("${app.files.compress-threshold:5242880}")
+    private long compressThreshold;
+    
     @Autowired
     public FileUploadService(UploadedFileRepository uploadedFileRepository,
-                            UserRepository userRepository,
                             GridFsTemplate gridFsTemplate,
                             CacheService cacheService,
-                            SubscriptionService subscriptionService) {
+                            QuotaService quotaService,
+                            FileContentStore fileContentStore,
+                            FileBlobService fileBlobService,
+                            DashboardSummaryService dashboardSummaryService) {
         this.uploadedFileRepository = uploadedFileRepository;
-        this.userRepository = userRepository;
         this.gridFsTemplate = gridFsTemplate;
         this.cacheService = cacheService;
-        this.subscriptionService = subscriptionService;
+        this.quotaService = quotaService;
+        this.fileContentStore = fileContentStore;
+        this.fileBlobService = fileBlobService;
+        this.dashboardSummaryService = dashboardSummaryService;
     }
     
     private static final long MAX_FILE_SIZE = 50 * 1024 * 1024; // 50MB
+    private static final Set<String> COMPRESSIBLE_TYPES = Set.of(
+        "text/plain", "application/msword", "application/vnd.ms-excel"
+    );
     private static final String[] ALLOWED_TYPES = {
         "image/jpeg", "image/png", "image/gif", "image/webp",
         "application/pdf", "text/plain", "application/msword",
@@ -108,39 +114,46 @@ public class FileUploadService {
             uploadedFile.setFileExtension(extension.toLowerCase());
         }
         
-        try {
-            // Compress file if it's large (> 5MB) to optimize database storage
-            byte[] fileData;
-            boolean isCompressed = false;
-            
-            if (file.getSize() > 5 * 1024 * 1024) { // 5MB threshold
-                try {
-                    byte[] compressedData = compressFile(file);
-                    if (compressedData.length < file.getSize()) {
-                        fileData = compressedData;
-                        isCompressed = true;
-                        uploadedFile.setFileSize(compressedData.length); // Update with compressed size
-                    } else {
-                        fileData = file.getBytes();
-                    }
-                } catch (Exception e) {
-                    // If compression fails, use original file
-                    fileData = file.getBytes();
-                }
-            } else {
-                fileData = file.getBytes();
+        // Check and reserve subscription quota atomically; given back if storing fails
+        if (userId != null) {
+            QuotaService.Reservation reservation = quotaService.tryReserve(userId, QuotaResource.FILES);
+            if (reservation == QuotaService.Reservation.UNKNOWN_USER) {
+                throw new RuntimeException("User not found");
             }
-            
-            // Store file in GridFS
+            if (reservation == QuotaService.Reservation.LIMIT_REACHED) {
+                throw new PlanLimitException("Monthly file upload limit reached for your plan. Upgrade for more uploads.");
+            }
+        }
+        
+        FileBlob acquiredBlob = null;
+        try {
+            // Stream multipart content -> (gzip) -> GridFS chunks; nothing is buffered whole on the heap
             if (gridFsTemplate != null) {
-                org.bson.types.ObjectId fileId = gridFsTemplate.store(
-                    new ByteArrayInputStream(fileData),
-                    uploadedFile.getFileCode(),
-                    file.getContentType()
-                );
+                boolean compress = shouldCompress(file);
+                FileContentStore.StoredContent stored;
+                try (InputStream content = file.getInputStream()) {
+                    stored = fileContentStore.store(content, uploadedFile.getFileCode(), file.getContentType(),
+                        compress, MAX_FILE_SIZE);
+                }
+                
+                // Share the GridFS file of identical earlier uploads (the new copy is dropped)
+                FileBlob blob = fileBlobService.acquire(stored);
+                acquiredBlob = blob;
                 
-                uploadedFile.setGridFsFileId(fileId.toString());
+                uploadedFile.setGridFsFileId(blob.getGridFsFileId());
                 uploadedFile.setStoredFileName(uploadedFile.getFileCode());
+                uploadedFile.setFileSize(stored.getOriginalSize());
+                uploadedFile.setStoredSize(blob.getStoredSize());
+                uploadedFile.setContentHash(blob.getId());
+                uploadedFile.setContentEncoding(blob.getContentEncoding());
+                
+                // Add compression metadata
+                if (FileContentStore.GZIP.equals(blob.getContentEncoding())) {
+                    uploadedFile.setDescription(
+                        (uploadedFile.getDescription() != null ? uploadedFile.getDescription() + " " : "") + 
+                        "[Compressed for storage optimization]"
+                    );
+                }
             } else {
                 // Fallback: store file metadata only (no actual file storage)
                 uploadedFile.setGridFsFileId("no-gridfs-" + uploadedFile.getFileCode());
@@ -148,21 +161,12 @@ public class FileUploadService {
                 logger.warn("GridFS not available, storing file metadata only");
             }
             
-            // Add compression metadata
-            if (isCompressed) {
-                uploadedFile.setDescription(
-                    (uploadedFile.getDescription() != null ? uploadedFile.getDescription() + " " : "") + 
-                    "[Compressed for storage optimization]"
-                );
-            }
-            
             // Save metadata to database
             UploadedFile saved = uploadedFileRepository.save(uploadedFile);
+            dashboardSummaryService.fileUploaded(saved);
             
-            // Update user statistics
+            // Usage and totals were counted by the reservation
             if (userId != null) {
-                updateUserStats(userId);
-                subscriptionService.incrementFileUsage(userId);
                 // Invalidate user files cache
                 cacheService.clearCache("userFiles", userId);
             }
@@ -172,7 +176,14 @@ public class FileUploadService {
             return saved;
             
         } catch (IOException e) {
+            quotaService.release(userId, QuotaResource.FILES, 1);
             throw new RuntimeException("Failed to store file: " + e.getMessage());
+        } catch (RuntimeException e) {
+            quotaService.release(userId, QuotaResource.FILES, 1);
+            if (acquiredBlob != null) {
+                fileBlobService.release(acquiredBlob.getId(), acquiredBlob.getGridFsFileId());
+            }
+            throw e;
         }
     }
     
@@ -180,37 +191,53 @@ public class FileUploadService {
         return uploadedFileRepository.findByFileCode(fileCode);
     }
     
-    public GridFsResource getFileContent(String fileCode) {
-        Optional<UploadedFile> fileOpt = uploadedFileRepository.findByFileCode(fileCode);
-        
-        if (fileOpt.isEmpty()) {
-            throw new RuntimeException("File not found");
+    /**
+     * Reject downloads of files that were deactivated or have expired. Runs before any
+     * conditional-request handling, so a cached ETag cannot outlive the file.
+     */
+    public void checkDownloadable(UploadedFile file) {
+        if (!file.isActive()) {
+            throw new RuntimeException("File is not available");
         }
-        
-        UploadedFile file = fileOpt.get();
-        
-        // Check if file is expired
         if (file.getExpiresAt() != null && file.getExpiresAt().isBefore(LocalDateTime.now())) {
             throw new RuntimeException("File has expired");
         }
-        
-        // Get file from GridFS
-        if (gridFsTemplate == null) {
-            throw new RuntimeException("File storage not available");
+    }
+    
+    /**
+     * Open the stored bytes of a file for download (still gzip-encoded if it was stored
+     * compressed). Download statistics are recorded separately by FileDownloadStatsService.
+     */
+    public GridFSDownloadStream openStoredContent(UploadedFile file) {
+        checkDownloadable(file);
+        
+        String gridFsFileId = file.getGridFsFileId();
+        if (gridFsFileId == null && gridFsTemplate != null) {
+            // Older uploads may only be findable by filename
+            GridFSFile gridFSFile = gridFsTemplate.findOne(
+                new Query(Criteria.where("filename").is(file.getFileCode()))
+            );
+            if (gridFSFile != null) {
+                gridFsFileId = gridFSFile.getObjectId().toHexString();
+            }
         }
         
-        GridFSFile gridFSFile = gridFsTemplate.findOne(
-            new Query(Criteria.where("filename").is(fileCode))
-        );
-        
-        if (gridFSFile == null) {
+        GridFSDownloadStream content = fileContentStore.open(gridFsFileId);
+        if (content == null) {
             throw new RuntimeException("File content not found");
         }
-        
-        // Update access statistics
-        updateFileStats(file);
-        
-        return gridFsTemplate.getResource(gridFSFile);
+        return content;
+    }
+    
+    /**
+     * Strong ETag for a file's content: its SHA-256 when known, otherwise the id of the
+     * (immutable) GridFS file. Null if the file has no stored content.
+     */
+    public static String getETag(UploadedFile file) {
+        if (file.getContentHash() != null) {
+            return "\"" + file.getContentHash() + "\"";
+        }
+        return file.getGridFsFileId() != null ? "\"" + file.getGridFsFileId() + "\"" : null;
     }
     
     @Cacheable(value = "userFiles", key = "#userId")
@@ -270,17 +297,22 @@ public class FileUploadService {
             throw new RuntimeException("Unauthorized to delete this file");
         }
         
-        // Delete from GridFS (actual file content)
+        // Hard delete from database - actually remove the record
+        uploadedFileRepository.delete(existing);
+        dashboardSummaryService.fileDeleted(existing);
+        
+        // Drop this file's reference to its content; GridFS data goes with the last reference
         if (gridFsTemplate != null) {
-            gridFsTemplate.delete(new Query(Criteria.where("filename").is(fileCode)));
-            logger.info("Deleted file content from GridFS: {}", fileCode);
+            if (existing.getContentHash() != null) {
+                fileBlobService.release(existing.getContentHash(), existing.getGridFsFileId());
+            } else {
+                gridFsTemplate.delete(new Query(Criteria.where("filename").is(fileCode)));
+            }
+            logger.info("Released file content from GridFS: {}", fileCode);
         } else {
             logger.warn("GridFS not available, skipping file content deletion");
         }
         
-        // Hard delete from database - actually remove the record
-        uploadedFileRepository.delete(existing);
-        
         // Invalidate relevant caches
         cacheService.clearCache("userFiles", userId);
         
@@ -314,22 +346,6 @@ public class FileUploadService {
         }
     }
     
-    private void updateUserStats(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            user.setTotalFiles(user.getTotalFiles() + 1);
-            user.setUpdatedAt(LocalDateTime.now());
-            userRepository.save(user);
-        }
-    }
-    
-    private void updateFileStats(UploadedFile file) {
-        file.setTotalDownloads(file.getTotalDownloads() + 1);
-        file.setLastAccessedAt(LocalDateTime.now());
-        uploadedFileRepository.save(file);
-    }
-    
     public void recordDownload(String fileCode, String ipAddress, String userAgent, 
                               String country, String city, String deviceType) {
         Optional<UploadedFile> fileOpt = uploadedFileRepository.findByFileCode(fileCode);
@@ -363,100 +379,20 @@ public class FileUploadService {
             file.getDownloadsByDay().merge(dayKey, 1, Integer::sum);
             
             uploadedFileRepository.save(file);
+            dashboardSummaryService.addDownloads(file.getId(), 1);
             
-            // Invalidate user analytics cache
-            cacheService.invalidateUserAnalytics(file.getUserId());
+            // Mark user analytics stale (coalesced with other downloads)
+            cacheService.markUserAnalyticsStale(file.getUserId());
             
             logger.debug("Recorded download for file: {}", fileCode);
         }
     }
     
-    private byte[] compressFile(MultipartFile file) throws IOException {
-        String contentType = file.getContentType();
-        
-        // Compress images
-        if (contentType != null && contentType.startsWith("image/")) {
-            return compressImage(file);
-        }
-        
-        // Compress other files using GZIP
-        return compressWithGzip(file.getBytes());
-    }
-    
-    private byte[] compressImage(MultipartFile file) throws IOException {
-        BufferedImage originalImage = ImageIO.read(file.getInputStream());
-        
-        if (originalImage == null) {
-            // If we can't read as image, fall back to GZIP compression
-            return compressWithGzip(file.getBytes());
-        }
-        
-        // Calculate new dimensions (max 1920x1080 for large images)
-        int originalWidth = originalImage.getWidth();
-        int originalHeight = originalImage.getHeight();
-        int maxWidth = 1920;
-        int maxHeight = 1080;
-        
-        int newWidth = originalWidth;
-        int newHeight = originalHeight;
-        
-        // Only compress if image is larger than max dimensions
-        if (originalWidth > maxWidth || originalHeight > maxHeight) {
-            double widthRatio = (double) maxWidth / originalWidth;
-            double heightRatio = (double) maxHeight / originalHeight;
-            double ratio = Math.min(widthRatio, heightRatio);
-            
-            newWidth = (int) (originalWidth * ratio);
-            newHeight = (int) (originalHeight * ratio);
-        }
-        
-        // Create compressed image
-        BufferedImage compressedImage = new BufferedImage(newWidth, newHeight, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = compressedImage.createGraphics();
-        
-        // Set high quality rendering hints
-        g2d.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
-        g2d.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
-        g2d.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
-        
-        g2d.drawImage(originalImage, 0, 0, newWidth, newHeight, null);
-        g2d.dispose();
-        
-        // Convert to byte array
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        String formatName = getImageFormat(file.getContentType());
-        ImageIO.write(compressedImage, formatName, baos);
-        
-        byte[] compressedBytes = baos.toByteArray();
-        
-        // Only return compressed version if it's actually smaller
-        return compressedBytes.length < file.getSize() ? compressedBytes : file.getBytes();
-    }
-    
-    private byte[] compressWithGzip(byte[] data) throws IOException {
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        try (GZIPOutputStream gzipOut = new GZIPOutputStream(baos)) {
-            gzipOut.write(data);
-        }
-        
-        byte[] compressedData = baos.toByteArray();
-        
-        // Only return compressed version if it's actually smaller (some files don't compress well)
-        return compressedData.length < data.length ? compressedData : data;
-    }
-    
-    private String getImageFormat(String contentType) {
-        if (contentType == null) return "jpg";
-        
-        switch (contentType.toLowerCase()) {
-            case "image/png":
-                return "png";
-            case "image/gif":
-                return "gif";
-            case "image/webp":
-                return "webp";
-            default:
-                return "jpg";
-        }
+    /**
+     * Gzip large uploads of types that compress well; images, PDFs and zip-based formats are
+     * already compressed and are stored as-is.
+     */
+    private boolean shouldCompress(MultipartFile file) {
+        return file.getSize() > compressThreshold && COMPRESSIBLE_TYPES.contains(file.getContentType());
     }
 }
\ No newline at end of file
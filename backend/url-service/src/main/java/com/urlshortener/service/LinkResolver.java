@@ -0,0 +1,152 @@
+package com.urlshortener.service;
+
+import com.urlshortener.model.LinkResolution;
+import com.urlshortener.model.ResolvedLink;
+import com.urlshortener.repository.ShortenedUrlRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Single entry point for resolving short codes on the redirect path.
+ *
+ * shortCode is unique across shortened_urls (idx_short_code_unique), so one indexed
+ * lookup by shortCode is enough to decide exact-domain hit, legacy null-domain hit,
+ * permissive fallback or definite miss. Resolutions - including misses - are kept in
+ * the "short_urls" cache keyed by shortCode, and the host decision is made per request.
+ */
+@Service
+public class LinkResolver {
+
+    private static final Logger logger = LoggerFactory.getLogger(LinkResolver.class);
+
+    public static final String CACHE_NAME = "short_urls";
+
+    // Hosts that are served as the default short domain
+    private static final String[] DEFAULT_HOST_ALIASES = {"pebly.vercel.app", "onrender.com"};
+
+    private final ShortenedUrlRepository shortenedUrlRepository;
+    private final CacheManager cacheManager;
+
+    @Value("${app.shorturl.domain:https://pebly.vercel.app}")
+    private String shortUrlDomain;
+
+    @Autowired
+    public LinkResolver(ShortenedUrlRepository shortenedUrlRepository, CacheManager cacheManager) {
+        this.shortenedUrlRepository = shortenedUrlRepository;
+        this.cacheManager = cacheManager;
+    }
+
+    /**
+     * Resolve a short code requested on the given host.
+     * A null host resolves regardless of domain (API callers without a host context).
+     */
+    public Optional<ResolvedLink> resolve(String host, String shortCode) {
+        LinkResolution resolution = lookup(shortCode);
+        LinkResolution.MatchType match = resolution.matchFor(normalizeHost(host), getDefaultDomain());
+
+        if (match == LinkResolution.MatchType.NOT_FOUND) {
+            logger.debug("Short code not found: {} (host: {})", shortCode, host);
+            return Optional.empty();
+        }
+
+        logger.debug("Resolved short code {} on host {} via {}", shortCode, host, match);
+        return Optional.of(resolution.getLink());
+    }
+
+    /**
+     * Fetch the cached resolution for a short code, loading it with a single query on a miss.
+     */
+    public LinkResolution lookup(String shortCode) {
+        Cache cache = cacheManager.getCache(CACHE_NAME);
+
+        if (cache != null) {
+            try {
+                LinkResolution cached = cache.get(shortCode, LinkResolution.class);
+                if (cached != null) {
+                    return cached;
+                }
+            } catch (Exception e) {
+                logger.warn("Resolution cache read failed for {}: {}", shortCode, e.getMessage());
+            }
+        }
+
+        LinkResolution resolution = load(shortCode);
+
+        // Links with a click cap need a fresh totalClicks on every request
+        boolean cacheable = resolution.getLink() == null || resolution.getLink().getMaxClicks() == null;
+
+        if (cache != null && cacheable) {
+            try {
+                cache.put(shortCode, resolution);
+            } catch (Exception e) {
+                logger.warn("Resolution cache write failed for {}: {}", shortCode, e.getMessage());
+            }
+        }
+
+        return resolution;
+    }
+
+    /**
+     * Load a resolution from MongoDB, projecting only the fields ResolvedLink carries.
+     */
+    public LinkResolution load(String shortCode) {
+        return shortenedUrlRepository.findRedirectFieldsByShortCode(shortCode)
+            .map(LinkResolution::found)
+            .orElseGet(() -> LinkResolution.notFound(shortCode));
+    }
+
+    /**
+     * Drop the cached resolution after a link is created, updated or deleted.
+     */
+    public void invalidate(String shortCode) {
+        try {
+            Cache cache = cacheManager.getCache(CACHE_NAME);
+            if (cache != null) {
+                cache.evict(shortCode);
+            }
+        } catch (Exception e) {
+            logger.error("Error invalidating resolution for {}", shortCode, e);
+        }
+    }
+
+    /**
+     * Lower-case the host, strip any port and trailing dot, and fold default-domain aliases.
+     */
+    public String normalizeHost(String host) {
+        if (host == null || host.isBlank()) {
+            return null;
+        }
+
+        String normalized = host.trim().toLowerCase(Locale.ROOT);
+        int portIndex = normalized.indexOf(':');
+        if (portIndex >= 0) {
+            normalized = normalized.substring(0, portIndex);
+        }
+        if (normalized.endsWith(".")) {
+            normalized = normalized.substring(0, normalized.length() - 1);
+        }
+
+        for (String alias : DEFAULT_HOST_ALIASES) {
+            if (normalized.endsWith(alias)) {
+                return getDefaultDomain();
+            }
+        }
+        return normalized;
+    }
+
+    public String getDefaultDomain() {
+        try {
+            return new java.net.URL(shortUrlDomain).getHost().toLowerCase(Locale.ROOT);
+        } catch (Exception e) {
+            return shortUrlDomain;
+        }
+    }
+}
@@ -0,0 +1,492 @@
+package com.urlshortener.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urlshortener.model.ShortenedUrl;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Search over a user's links by title, original URL, short code, tags, category and notes.
+ *
+ * Each user gets an in-memory inverted index: a sorted term dictionary mapping each token to
+ * the ids of the links containing it. Token queries read one postings list, prefix queries
+ * union the postings of the dictionary range, and the per-token matches are intersected as
+ * bitsets, so a query costs time in the matching postings rather than in the number of links.
+ * An index is built on first search from one projected stream over the user's links, then
+ * kept current by link create, update and delete events; idle indexes are evicted.
+ *
+ * Indexes are per node. With Redis configured, every local change also drops the owner's index
+ * on the other nodes ("nodeId|userId" on {@value #INVALIDATION_CHANNEL}), so their next search
+ * rebuilds it; independently, no index is served longer than {@code app.search.max-staleness-minutes}
+ * after its build, which bounds changes made outside these events or while Redis was unreachable.
+ */
+@Service
+public class LinkSearchService implements MessageListener {
+
+    private static final Logger logger = LoggerFactory.getLogger(LinkSearchService.class);
+
+    private static final Pattern TOKEN_SEPARATOR = Pattern.compile("[^\\p{L}\\p{N}]+");
+    private static final int MAX_TOKEN_LENGTH = 64;
+
+    public static final String INVALIDATION_CHANNEL = "pebly:search:invalidations";
+
+    private static final String[] INDEXED_FIELDS = {"shortCode", "title", "originalUrl", "tags", "category", "notes", "createdAt"};
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private ResourceListingService resourceListingService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ObjectProvider<RedisMessageListenerContainer> listenerContainer;
+
+    @Autowired
+    private ObjectProvider<StringRedisTemplate> redisTemplate;
+
+    @Value("${app.search.max-indexed-links:2000000}")
+    private long maxIndexedLinks;
+
+    @Value("${app.search.idle-eviction-minutes:30}")
+    private long idleEvictionMinutes;
+
+    @Value("${app.search.max-staleness-minutes:10}")
+    private long maxStalenessMinutes;
+
+    @Value("${app.listing.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.listing.max-page-size:200}")
+    private int maxPageSize;
+
+    // userId -> index; weighed by the link count at build time
+    private Cache<String, TenantIndex> indexes;
+
+    private final String nodeId = UUID.randomUUID().toString();
+    private StringRedisTemplate redis;
+
+    private Timer searchTimer;
+    private Counter buildsCounter;
+    private Counter remoteInvalidations;
+
+    @PostConstruct
+    public void initialize() {
+        indexes = Caffeine.newBuilder()
+                .maximumWeight(maxIndexedLinks)
+                .weigher((String userId, TenantIndex index) -> Math.max(1, index.size()))
+                .expireAfterAccess(Duration.ofMinutes(idleEvictionMinutes))
+                .expireAfterWrite(Duration.ofMinutes(maxStalenessMinutes))
+                .build();
+
+        Gauge.builder("links.search.indexes", indexes, cache -> cache.estimatedSize())
+                .description("Per-user link search indexes held in memory")
+                .register(meterRegistry);
+
+        searchTimer = Timer.builder("links.search.latency")
+                .description("Link search time, index lookup and page fetch included")
+                .register(meterRegistry);
+
+        buildsCounter = Counter.builder("links.search.builds")
+                .description("Per-user link search indexes built from MongoDB")
+                .register(meterRegistry);
+
+        remoteInvalidations = Counter.builder("links.search.remote.invalidations")
+                .description("Per-user link search indexes dropped because another node changed the user's links")
+                .register(meterRegistry);
+
+        // Only share invalidations when Redis is the cache backend (RedisConfig defines the container)
+        RedisMessageListenerContainer container = listenerContainer.getIfAvailable();
+        if (container != null) {
+            redis = redisTemplate.getIfAvailable();
+            container.addMessageListener(this, new ChannelTopic(INVALIDATION_CHANNEL));
+        }
+
+        logger.info("Link search initialized (max staleness: {}m, shared invalidations: {})",
+            maxStalenessMinutes, redis != null);
+    }
+
+    /**
+     * Links of {@code userId} matching every token of {@code query}, most recently created
+     * first; editing a link does not move it. A token
+     * ending in '*' and the last token of the query match as prefixes (search as you type).
+     */
+    public SearchPage search(String userId, String query, int offset, Integer limit) {
+        if (mongoTemplate == null) {
+            throw new IllegalStateException("MongoDB not available");
+        }
+        List<QueryTerm> terms = parseQuery(query);
+        if (terms.isEmpty()) {
+            throw new IllegalArgumentException("Search query must contain letters or digits");
+        }
+        int pageSize = limit != null ? Math.max(1, Math.min(limit, maxPageSize)) : defaultPageSize;
+        int from = Math.max(0, offset);
+
+        long start = System.nanoTime();
+        TenantIndex index = indexes.get(userId, this::build);
+        Hits hits = index.search(terms, from, pageSize);
+        if (index.needsCompaction()) {
+            // Removed links leave stale postings behind; the next search rebuilds
+            indexes.invalidate(userId);
+        }
+        List<ShortenedUrl> links = resourceListingService.findUrls(hits.shortCodes);
+        searchTimer.record(Duration.ofNanos(System.nanoTime() - start));
+
+        return new SearchPage(links, hits.total, from);
+    }
+
+    /**
+     * Reflect created or updated links in their owners' indexes, if loaded.
+     */
+    public void linksSaved(Collection<ShortenedUrl> links) {
+        Map<String, List<ShortenedUrl>> byUser = links.stream()
+            .filter(link -> link.getUserId() != null)
+            .collect(Collectors.groupingBy(ShortenedUrl::getUserId));
+
+        // computeIfPresent waits for a build in progress, so no event falls between build and index
+        byUser.forEach((userId, userLinks) -> indexes.asMap().computeIfPresent(userId, (id, index) -> {
+            for (ShortenedUrl link : userLinks) {
+                if (link.isActive()) {
+                    index.upsert(link.getShortCode(), createdAtMillis(link), documentTokens(link));
+                } else {
+                    index.remove(link.getShortCode());
+                }
+            }
+            return index;
+        }));
+        byUser.keySet().forEach(this::publishInvalidation);
+    }
+
+    public void linkRemoved(ShortenedUrl link) {
+        if (link.getUserId() == null) {
+            return;
+        }
+        indexes.asMap().computeIfPresent(link.getUserId(), (id, index) -> {
+            index.remove(link.getShortCode());
+            return index;
+        });
+        publishInvalidation(link.getUserId());
+    }
+
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String[] parts = new String(message.getBody(), StandardCharsets.UTF_8).split("\\|", 2);
+        if (parts.length != 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        if (indexes.asMap().remove(parts[1]) != null) {
+            remoteInvalidations.increment();
+        }
+    }
+
+    private void publishInvalidation(String userId) {
+        if (redis == null) {
+            return;
+        }
+        try {
+            redis.convertAndSend(INVALIDATION_CHANNEL, nodeId + "|" + userId);
+        } catch (Exception e) {
+            logger.warn("Failed to share link search invalidation for user {}: {}", userId, e.getMessage());
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("indexedUsers", indexes.estimatedSize());
+        stats.put("indexedLinks", indexes.asMap().values().stream().mapToLong(TenantIndex::size).sum());
+        stats.put("builds", (long) buildsCounter.count());
+        stats.put("remoteInvalidations", (long) remoteInvalidations.count());
+        stats.put("searches", searchTimer.count());
+        stats.put("meanLatencyMs", searchTimer.mean(TimeUnit.MILLISECONDS));
+        stats.put("maxLatencyMs", searchTimer.max(TimeUnit.MILLISECONDS));
+        return stats;
+    }
+
+    private TenantIndex build(String userId) {
+        long start = System.currentTimeMillis();
+        Query query = new Query(Criteria.where("userId").is(userId).and("isActive").is(true))
+            .with(Sort.by(Sort.Direction.ASC, "createdAt").and(Sort.by(Sort.Direction.ASC, "_id")));
+        query.fields().include(INDEXED_FIELDS);
+
+        // Oldest first, so higher ids are newer links and results can be walked newest first
+        TenantIndex index = new TenantIndex();
+        try (Stream<ShortenedUrl> links = mongoTemplate.stream(query, ShortenedUrl.class)) {
+            links.forEach(link -> index.upsert(link.getShortCode(), createdAtMillis(link), documentTokens(link)));
+        }
+
+        buildsCounter.increment();
+        logger.debug("Built link search index for user {}: {} links, {} terms in {}ms",
+            userId, index.size(), index.termCount(), System.currentTimeMillis() - start);
+        return index;
+    }
+
+    private static long createdAtMillis(ShortenedUrl link) {
+        LocalDateTime createdAt = link.getCreatedAt();
+        return createdAt != null ? createdAt.toInstant(ZoneOffset.UTC).toEpochMilli() : 0L;
+    }
+
+    private static Set<String> documentTokens(ShortenedUrl link) {
+        Set<String> tokens = new LinkedHashSet<>();
+        addTokens(tokens, link.getShortCode());
+        addTokens(tokens, link.getTitle());
+        addTokens(tokens, link.getOriginalUrl());
+        addTokens(tokens, link.getCategory());
+        addTokens(tokens, link.getNotes());
+        if (link.getTags() != null) {
+            Arrays.stream(link.getTags()).forEach(tag -> addTokens(tokens, tag));
+        }
+        return tokens;
+    }
+
+    private static void addTokens(Collection<String> tokens, String text) {
+        if (text == null || text.isEmpty()) {
+            return;
+        }
+        for (String token : TOKEN_SEPARATOR.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token.length() > MAX_TOKEN_LENGTH ? token.substring(0, MAX_TOKEN_LENGTH) : token);
+            }
+        }
+    }
+
+    static List<QueryTerm> parseQuery(String query) {
+        List<QueryTerm> terms = new ArrayList<>();
+        if (query == null) {
+            return terms;
+        }
+        String[] words = query.trim().split("\\s+");
+        for (int w = 0; w < words.length; w++) {
+            boolean prefix = words[w].endsWith("*") || w == words.length - 1;
+            List<String> tokens = new ArrayList<>();
+            addTokens(tokens, words[w]);
+            // "example.co" is the exact token "example" followed by the prefix "co"
+            for (int t = 0; t < tokens.size(); t++) {
+                terms.add(new QueryTerm(tokens.get(t), prefix && t == tokens.size() - 1));
+            }
+        }
+        return terms;
+    }
+
+    record QueryTerm(String token, boolean prefix) {}
+
+    record Hits(List<String> shortCodes, int total) {}
+
+    /**
+     * One page of search results with the total number of matching links.
+     */
+    public static final class SearchPage {
+        private final List<ShortenedUrl> links;
+        private final int total;
+        private final int offset;
+
+        SearchPage(List<ShortenedUrl> links, int total, int offset) {
+            this.links = links;
+            this.total = total;
+            this.offset = offset;
+        }
+
+        public List<ShortenedUrl> getLinks() { return links; }
+
+        public int getTotal() { return total; }
+
+        public int getOffset() { return offset; }
+
+        public boolean hasMore() { return offset + links.size() < total; }
+    }
+
+    /**
+     * Inverted index over one user's links. Link ids are assigned in insertion order; an update
+     * retires the old id and indexes the link under a new one, leaving stale postings that
+     * searches skip until the index is rebuilt. Such re-inserted ids are out of creation order,
+     * so searches merge them back in by creation time.
+     */
+    static final class TenantIndex {
+        private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+        private final TreeMap<String, Postings> terms = new TreeMap<>();
+        private final Map<String, Integer> idsByShortCode = new HashMap<>();
+        private final List<String> shortCodes = new ArrayList<>(); // id -> shortCode, null once retired
+        private long[] createdAt = new long[16]; // id -> creation time (epoch millis)
+        private final BitSet reinserted = new BitSet(); // ids of updated links, out of creation order
+        private int retired;
+
+        void upsert(String shortCode, long createdAtMillis, Collection<String> tokens) {
+            lock.writeLock().lock();
+            try {
+                boolean existed = retire(shortCode);
+                int id = shortCodes.size();
+                shortCodes.add(shortCode);
+                idsByShortCode.put(shortCode, id);
+                if (id == createdAt.length) {
+                    createdAt = Arrays.copyOf(createdAt, id * 2);
+                }
+                createdAt[id] = createdAtMillis;
+                if (existed) {
+                    reinserted.set(id);
+                }
+                for (String token : tokens) {
+                    terms.computeIfAbsent(token, t -> new Postings()).add(id);
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        void remove(String shortCode) {
+            lock.writeLock().lock();
+            try {
+                retire(shortCode);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private boolean retire(String shortCode) {
+            Integer id = idsByShortCode.remove(shortCode);
+            if (id == null) {
+                return false;
+            }
+            shortCodes.set(id, null);
+            retired++;
+            return true;
+        }
+
+        Hits search(List<QueryTerm> query, int offset, int limit) {
+            lock.readLock().lock();
+            try {
+                BitSet matches = null;
+                for (QueryTerm term : query) {
+                    BitSet termMatches = new BitSet(shortCodes.size());
+                    if (term.prefix()) {
+                        terms.subMap(term.token(), true, term.token() + Character.MAX_VALUE, false)
+                            .values().forEach(postings -> postings.addTo(termMatches));
+                    } else {
+                        Postings postings = terms.get(term.token());
+                        if (postings != null) {
+                            postings.addTo(termMatches);
+                        }
+                    }
+                    if (matches == null) {
+                        matches = termMatches;
+                    } else {
+                        matches.and(termMatches);
+                    }
+                    if (matches.isEmpty()) {
+                        return new Hits(List.of(), 0);
+                    }
+                }
+
+                // Updated links sit at ids above their creation order: take them out and sort them
+                BitSet late = (BitSet) matches.clone();
+                late.and(reinserted);
+                matches.andNot(late);
+                int[] lateIds = late.stream()
+                    .filter(id -> shortCodes.get(id) != null)
+                    .boxed()
+                    .sorted((a, b) -> Long.compare(createdAt[b], createdAt[a]))
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+
+                // Newest first: walk ids downwards, skipping retired ones, merging the updated links in
+                List<String> page = new ArrayList<>(limit);
+                int total = 0;
+                int next = 0;
+                int id = matches.length() - 1;
+                while (id >= 0 || next < lateIds.length) {
+                    String shortCode;
+                    if (next < lateIds.length && (id < 0 || createdAt[lateIds[next]] >= createdAt[id])) {
+                        shortCode = shortCodes.get(lateIds[next++]);
+                    } else {
+                        shortCode = shortCodes.get(id);
+                        id = matches.previousSetBit(id - 1);
+                        if (shortCode == null) {
+                            continue;
+                        }
+                    }
+                    if (total >= offset && page.size() < limit) {
+                        page.add(shortCode);
+                    }
+                    total++;
+                }
+                return new Hits(page, total);
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        int size() {
+            return idsByShortCode.size();
+        }
+
+        int termCount() {
+            return terms.size();
+        }
+
+        boolean needsCompaction() {
+            return retired > 1000 && retired > shortCodes.size() / 4;
+        }
+    }
+
+    /**
+     * Ascending link ids for one term, in a growable int array.
+     */
+    private static final class Postings {
+        private int[] ids = new int[2];
+        private int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        void addTo(BitSet bits) {
+            for (int i = 0; i < size; i++) {
+                bits.set(ids[i]);
+            }
+        }
+    }
+}
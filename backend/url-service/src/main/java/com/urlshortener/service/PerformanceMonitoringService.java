@@ -5,7 +5,6 @@ import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import io.micrometer.core.instrument.Gauge;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -15,7 +14,6 @@ import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -27,8 +25,8 @@ public class PerformanceMonitoringService {
     @Autowired
     private MeterRegistry meterRegistry;
     
-    @Autowired(required = false)
-    private RedisTemplate<String, Object> redisTemplate;
+    @Autowired
+    private CacheService cacheService;
     
     // Performance counters
     private Counter cacheHitCounter;
@@ -169,13 +167,8 @@ public class PerformanceMonitoringService {
         Map<String, Object> stats = new HashMap<>();
         
         try {
-            long cacheEntries = 0;
-            
-            // Get cache entry count (only if Redis is available)
-            if (redisTemplate != null) {
-                Set<String> keys = redisTemplate.keys("pebly:*");
-                cacheEntries = keys != null ? keys.size() : 0;
-            }
+            // From cache sizes / DBSIZE - never enumerates keys
+            long cacheEntries = cacheService.getCacheEntryCount();
             
             activeCacheEntries.set(cacheEntries);
             
@@ -0,0 +1,363 @@
+package com.urlshortener.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urlshortener.model.QrCode;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Batch QR code creation.
+ *
+ * Items are processed in chunks: validated against the plan loaded once per job, quota is
+ * reserved for the whole chunk in one conditional update, images are rendered in parallel on
+ * the CPU-sized qrRenderExecutor, and the documents are written with one unordered bulk insert.
+ * Results are handed to the caller's sink in input order as each chunk completes, so they can
+ * be streamed. Progress is tracked per job and can be polled while the job runs.
+ */
+@Service
+public class QrBatchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QrBatchService.class);
+
+    private static final int CHUNK_SIZE = 500;
+
+    @Autowired
+    private QrCodeService qrCodeService;
+
+    @Autowired
+    private QuotaService quotaService;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private CacheService cacheService;
+
+    @Autowired
+    private DashboardSummaryService dashboardSummaryService;
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    @Qualifier("qrRenderExecutor")
+    private Executor renderExecutor;
+
+    @Value("${app.qr.batch.job-retention-minutes:60}")
+    private long jobRetentionMinutes;
+
+    private Cache<String, Job> jobs;
+
+    @PostConstruct
+    public void initialize() {
+        jobs = Caffeine.newBuilder()
+                .expireAfterWrite(Duration.ofMinutes(jobRetentionMinutes))
+                .maximumSize(10000)
+                .build();
+    }
+
+    /**
+     * Receives each item's result (and its image, null if the item failed) in input order.
+     */
+    @FunctionalInterface
+    public interface ResultSink {
+        void accept(Map<String, Object> result, byte[] image) throws IOException;
+    }
+
+    public Job createJob(String userId, int total) {
+        Job job = new Job(UUID.randomUUID().toString(), userId, total);
+        jobs.put(job.id, job);
+        return job;
+    }
+
+    public Optional<Job> getJob(String jobId, String userId) {
+        Job job = jobs.getIfPresent(jobId);
+        return job != null && job.userId.equals(userId) ? Optional.of(job) : Optional.empty();
+    }
+
+    /**
+     * Create one QR code per item (same fields as single creation) and return the job summary.
+     */
+    public Map<String, Object> run(Job job, List<Map<String, Object>> items, ResultSink sink) throws IOException {
+        if (mongoTemplate == null) {
+            job.fail("MongoDB not available");
+            throw new IllegalStateException("MongoDB not available - cannot create QR codes");
+        }
+
+        try {
+            boolean canCustomize = subscriptionService.canCustomizeQrCodes(job.userId);
+            for (int from = 0; from < items.size(); from += CHUNK_SIZE) {
+                List<Map<String, Object>> chunk = items.subList(from, Math.min(from + CHUNK_SIZE, items.size()));
+                processChunk(job, canCustomize, from, chunk, sink);
+            }
+        } catch (IOException | RuntimeException e) {
+            job.fail(e.getMessage());
+            throw e;
+        } finally {
+            if (job.created.get() > 0) {
+                cacheService.clearCache("userQRCodes", job.userId);
+            }
+        }
+
+        job.complete();
+        logger.info("Batch {} created {} of {} QR codes for user: {}", job.id, job.created.get(), items.size(), job.userId);
+        return job.toMap();
+    }
+
+    private void processChunk(Job job, boolean canCustomize, int offset, List<Map<String, Object>> chunk,
+                              ResultSink sink) throws IOException {
+        List<Map<String, Object>> results = new ArrayList<>(chunk.size());
+        List<byte[]> images = new ArrayList<>(chunk.size());
+        List<Integer> accepted = new ArrayList<>();
+
+        for (int i = 0; i < chunk.size(); i++) {
+            String error = validateItem(chunk.get(i), canCustomize);
+            results.add(error != null ? failure(offset + i, error) : null);
+            images.add(null);
+            if (error == null) {
+                accepted.add(i);
+            }
+        }
+
+        // Reserve quota for the chunk; items past the limit fail
+        int granted = quotaService.reserve(job.userId, QuotaResource.QR_CODES, accepted.size());
+        while (accepted.size() > granted) {
+            int i = accepted.remove(accepted.size() - 1);
+            results.set(i, failure(offset + i, "Monthly QR code limit reached. Upgrade to Premium for unlimited access."));
+        }
+
+        // The reservation for items that are not inserted is given back, including when the chunk fails
+        List<QrCode> inserted = new ArrayList<>(accepted.size());
+        try {
+            // Render in parallel; the executor bounds concurrency to the core count
+            List<QrCode> documents = new ArrayList<>(accepted.size());
+            List<CompletableFuture<byte[]>> renders = new ArrayList<>(accepted.size());
+            for (int i : accepted) {
+                QrCode qrCode = buildDocument(job.userId, chunk.get(i));
+                documents.add(qrCode);
+                renders.add(CompletableFuture.supplyAsync(() -> {
+                    byte[] image = qrCodeService.renderImage(qrCode);
+                    qrCodeService.applyRenderedImage(qrCode, image);
+                    job.rendered.incrementAndGet();
+                    return image;
+                }, renderExecutor));
+            }
+
+            List<QrCode> toInsert = new ArrayList<>(documents.size());
+            List<Integer> insertPositions = new ArrayList<>(documents.size());
+            for (int k = 0; k < documents.size(); k++) {
+                int i = accepted.get(k);
+                try {
+                    images.set(i, renders.get(k).join());
+                    toInsert.add(documents.get(k));
+                    insertPositions.add(i);
+                } catch (CompletionException e) {
+                    Throwable cause = e.getCause() != null ? e.getCause() : e;
+                    results.set(i, failure(offset + i, "Failed to generate QR code: " + cause.getMessage()));
+                }
+            }
+
+            Map<Integer, String> insertErrors = insertDocuments(toInsert);
+
+            for (int k = 0; k < toInsert.size(); k++) {
+                int i = insertPositions.get(k);
+                if (insertErrors.containsKey(k)) {
+                    results.set(i, failure(offset + i, insertErrors.get(k)));
+                    images.set(i, null);
+                    continue;
+                }
+                QrCode qrCode = toInsert.get(k);
+                Map<String, Object> result = new HashMap<>();
+                result.put("index", offset + i);
+                result.put("success", true);
+                result.put("id", qrCode.getId());
+                result.put("qrCode", qrCode.getQrCode());
+                result.put("qrImageUrl", qrCode.getQrImageUrl());
+                result.put("content", qrCode.getContent());
+                result.put("format", qrCode.getFormat());
+                result.put("fileSize", qrCode.getFileSize());
+                results.set(i, result);
+                inserted.add(qrCode);
+                job.created.incrementAndGet();
+            }
+            dashboardSummaryService.qrCodesCreated(inserted);
+        } catch (RuntimeException e) {
+            quotaService.release(job.userId, QuotaResource.QR_CODES, accepted.size() - inserted.size());
+            throw e;
+        }
+
+        quotaService.release(job.userId, QuotaResource.QR_CODES, accepted.size() - inserted.size());
+        job.failed.addAndGet(chunk.size() - inserted.size());
+
+        for (int i = 0; i < chunk.size(); i++) {
+            sink.accept(results.get(i), images.get(i));
+            job.processed.incrementAndGet();
+        }
+    }
+
+    /**
+     * Unordered insert; returns the errors by document index. When the write fails as a whole
+     * (timeout, network) the documents that did land are looked up by id.
+     */
+    private Map<Integer, String> insertDocuments(List<QrCode> documents) {
+        Map<Integer, String> insertErrors = new HashMap<>();
+        if (documents.isEmpty()) {
+            return insertErrors;
+        }
+
+        try {
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, QrCode.class)
+                .insert(documents)
+                .execute();
+        } catch (BulkOperationException e) {
+            e.getErrors().forEach(error -> insertErrors.put(error.getIndex(),
+                error.getCode() == 11000 ? "QR code already exists" : error.getMessage()));
+        } catch (RuntimeException e) {
+            logger.warn("Batch insert of {} QR codes failed, checking which were saved: {}", documents.size(), e.getMessage());
+            Query query = new Query(Criteria.where("_id").in(documents.stream().map(QrCode::getId).toList()));
+            query.fields().include("_id");
+            Set<String> saved = mongoTemplate.find(query, QrCode.class).stream()
+                .map(QrCode::getId)
+                .collect(Collectors.toSet());
+            for (int k = 0; k < documents.size(); k++) {
+                if (!saved.contains(documents.get(k).getId())) {
+                    insertErrors.put(k, "Failed to save QR code, please retry");
+                }
+            }
+        }
+        return insertErrors;
+    }
+
+    private QrCode buildDocument(String userId, Map<String, Object> item) {
+        String scopeType = item.get("scopeType") instanceof String type ? type : "USER";
+        String scopeId = item.get("scopeId") instanceof String id ? id : userId;
+        int size = item.get("size") instanceof Number number ? number.intValue() : 300;
+        String contentType = item.get("contentType") instanceof String type ? type : "TEXT";
+
+        QrCode qrCode = qrCodeService.buildQrCode((String) item.get("content"), contentType, userId,
+            (String) item.get("title"), (String) item.get("description"), (String) item.get("style"),
+            (String) item.get("foregroundColor"), (String) item.get("backgroundColor"),
+            size, (String) item.get("format"), scopeType, scopeId);
+        // Pre-assigned ids: the default time-based code collides when thousands are built per millisecond
+        qrCode.setId(new ObjectId().toHexString());
+        qrCodeService.assignQrCode(qrCode, "qr_" + new ObjectId().toHexString());
+        return qrCode;
+    }
+
+    private String validateItem(Map<String, Object> item, boolean canCustomize) {
+        Object content = item.get("content");
+        if (!(content instanceof String) || ((String) content).trim().isEmpty()) {
+            return "Content is required";
+        }
+        for (String field : new String[] {"title", "description", "style", "foregroundColor", "backgroundColor", "format"}) {
+            if (item.get(field) != null && !(item.get(field) instanceof String)) {
+                return "Invalid " + field;
+            }
+        }
+        Object size = item.get("size");
+        if (size != null && (!(size instanceof Number) || ((Number) size).intValue() > 2000)) {
+            return "Invalid size";
+        }
+
+        Object foregroundColor = item.get("foregroundColor");
+        Object backgroundColor = item.get("backgroundColor");
+        Object style = item.get("style");
+        boolean hasCustomization = (foregroundColor != null && !foregroundColor.equals("#000000")) ||
+                                   (backgroundColor != null && !backgroundColor.equals("#FFFFFF")) ||
+                                   (style != null && !style.equals("square"));
+        if (hasCustomization && !canCustomize) {
+            return "QR code customization is available with Premium plans only.";
+        }
+        return null;
+    }
+
+    private static Map<String, Object> failure(int index, String message) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("index", index);
+        result.put("success", false);
+        result.put("message", message);
+        return result;
+    }
+
+    /**
+     * Progress of one batch, readable while it runs.
+     */
+    public static final class Job {
+        private final String id;
+        private final String userId;
+        private final int total;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicInteger rendered = new AtomicInteger();
+        private final AtomicInteger processed = new AtomicInteger();
+        private final AtomicInteger created = new AtomicInteger();
+        private final AtomicInteger failed = new AtomicInteger();
+        private volatile String status = "RUNNING";
+        private volatile String message;
+        private volatile LocalDateTime finishedAt;
+
+        Job(String id, String userId, int total) {
+            this.id = id;
+            this.userId = userId;
+            this.total = total;
+        }
+
+        public String getId() { return id; }
+
+        void complete() {
+            status = "COMPLETED";
+            finishedAt = LocalDateTime.now();
+        }
+
+        void fail(String message) {
+            this.message = message;
+            status = "FAILED";
+            finishedAt = LocalDateTime.now();
+        }
+
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new HashMap<>();
+            map.put("jobId", id);
+            map.put("status", status);
+            map.put("total", total);
+            map.put("rendered", rendered.get());
+            map.put("processed", processed.get());
+            map.put("created", created.get());
+            map.put("failed", failed.get());
+            map.put("progress", total > 0 ? (double) processed.get() / total : 1.0);
+            map.put("startedAt", startedAt);
+            map.put("finishedAt", finishedAt);
+            if (message != null) {
+                map.put("message", message);
+            }
+            return map;
+        }
+    }
+}
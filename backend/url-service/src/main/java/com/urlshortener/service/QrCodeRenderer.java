@@ -0,0 +1,328 @@
+package com.urlshortener.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.google.zxing.EncodeHintType;
+import com.google.zxing.WriterException;
+import com.google.zxing.qrcode.decoder.ErrorCorrectionLevel;
+import com.google.zxing.qrcode.encoder.ByteMatrix;
+import com.google.zxing.qrcode.encoder.Encoder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+
+/**
+ * Renders QR codes with ZXing's encoder, straight from the module matrix.
+ *
+ * PNG output is written as a 2-colour indexed PNG: each module row is packed into a 1-bit
+ * scanline once and repeated for the module height, so no ARGB raster is ever allocated. SVG
+ * output is one path of horizontal module runs. Only JPEG goes through a BufferedImage.
+ *
+ * Rendered images are cached by everything that affects them (content, size, colours,
+ * format, error correction), bounded by total bytes, so repeat renders are a map lookup.
+ */
+@Service
+public class QrCodeRenderer {
+
+    private static final Logger logger = LoggerFactory.getLogger(QrCodeRenderer.class);
+
+    private static final int QUIET_ZONE = 4; // modules, as required by the QR spec
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'};
+    private static final ErrorCorrectionLevel[] ECC_LEVELS = {
+        ErrorCorrectionLevel.L, ErrorCorrectionLevel.M, ErrorCorrectionLevel.Q, ErrorCorrectionLevel.H
+    };
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.qr.render-cache.max-bytes:33554432}")
+    private long cacheMaxBytes;
+
+    private Cache<RenderKey, byte[]> renders;
+    private Timer renderTimer;
+
+    @PostConstruct
+    public void initialize() {
+        renders = Caffeine.newBuilder()
+                .maximumWeight(cacheMaxBytes)
+                .weigher((RenderKey key, byte[] image) -> image.length + key.content.length())
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, renders, "qr_renders");
+
+        renderTimer = Timer.builder("qr.render.latency")
+                .description("Time taken to encode and render one QR image (cache misses only)")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+
+        logger.info("QR render cache initialized (max bytes: {})", cacheMaxBytes);
+    }
+
+    /**
+     * Render {@code content} as a QR image. {@code errorCorrectionLevel} is 0-3 (L, M, Q, H);
+     * unparseable colours fall back to black on white.
+     */
+    public byte[] render(String content, int size, String foregroundColor, String backgroundColor,
+                         String format, int errorCorrectionLevel) {
+        RenderKey key = new RenderKey(content, size, normalizeColor(foregroundColor, "#000000"),
+                normalizeColor(backgroundColor, "#FFFFFF"), normalizeFormat(format),
+                Math.max(0, Math.min(errorCorrectionLevel, ECC_LEVELS.length - 1)));
+        return renders.get(key, k -> renderTimer.record(() -> encodeAndWrite(k)));
+    }
+
+    /**
+     * Media type for a QR image format.
+     */
+    public static String mediaType(String format) {
+        return switch (normalizeFormat(format)) {
+            case "svg" -> "image/svg+xml";
+            case "jpg" -> "image/jpeg";
+            default -> "image/png";
+        };
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("cachedImages", renders.estimatedSize());
+        stats.put("hitRate", renders.stats().hitRate());
+        stats.put("renders", renderTimer.count());
+        stats.put("meanRenderMillis", renderTimer.mean(TimeUnit.MILLISECONDS));
+        stats.put("maxRenderMillis", renderTimer.max(TimeUnit.MILLISECONDS));
+        return stats;
+    }
+
+    private byte[] encodeAndWrite(RenderKey key) {
+        ByteMatrix modules;
+        try {
+            Map<EncodeHintType, Object> hints = new EnumMap<>(EncodeHintType.class);
+            hints.put(EncodeHintType.CHARACTER_SET, StandardCharsets.UTF_8.name());
+            modules = Encoder.encode(key.content, ECC_LEVELS[key.errorCorrectionLevel], hints).getMatrix();
+        } catch (WriterException e) {
+            throw new IllegalArgumentException("Content cannot be encoded as a QR code: " + e.getMessage(), e);
+        }
+
+        Layout layout = new Layout(modules.getWidth(), key.size);
+        try {
+            return switch (key.format) {
+                case "svg" -> writeSvg(modules, key);
+                case "jpg" -> writeJpeg(modules, layout, key);
+                default -> writePng(modules, layout, key);
+            };
+        } catch (IOException e) {
+            throw new IllegalStateException("Failed to write QR image: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] writePng(ByteMatrix modules, Layout layout, RenderKey key) throws IOException {
+        int rowBytes = (layout.imageSize + 7) / 8;
+
+        ByteArrayOutputStream pixels = new ByteArrayOutputStream();
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (DeflaterOutputStream deflate = new DeflaterOutputStream(pixels, deflater)) {
+            byte[] blankRow = new byte[rowBytes + 1]; // leading 0 = no filter; palette index 0 = background
+            byte[] moduleRow = new byte[rowBytes + 1];
+
+            for (int y = 0; y < layout.offset; y++) {
+                deflate.write(blankRow);
+            }
+            for (int my = 0; my < modules.getHeight(); my++) {
+                Arrays.fill(moduleRow, (byte) 0);
+                for (int mx = 0; mx < modules.getWidth(); mx++) {
+                    if (modules.get(mx, my) == 1) {
+                        int start = layout.offset + mx * layout.scale;
+                        for (int x = start; x < start + layout.scale; x++) {
+                            moduleRow[1 + (x >> 3)] |= (byte) (0x80 >>> (x & 7));
+                        }
+                    }
+                }
+                for (int repeat = 0; repeat < layout.scale; repeat++) {
+                    deflate.write(moduleRow);
+                }
+            }
+            for (int y = layout.offset + modules.getHeight() * layout.scale; y < layout.imageSize; y++) {
+                deflate.write(blankRow);
+            }
+        } finally {
+            deflater.end();
+        }
+
+        ByteArrayOutputStream png = new ByteArrayOutputStream(pixels.size() + 64);
+        png.write(PNG_SIGNATURE);
+
+        ByteArrayOutputStream header = new ByteArrayOutputStream(13);
+        DataOutputStream headerData = new DataOutputStream(header);
+        headerData.writeInt(layout.imageSize);
+        headerData.writeInt(layout.imageSize);
+        headerData.writeByte(1); // bit depth
+        headerData.writeByte(3); // indexed colour
+        headerData.writeByte(0); // deflate
+        headerData.writeByte(0); // adaptive filtering
+        headerData.writeByte(0); // no interlace
+        writeChunk(png, "IHDR", header.toByteArray());
+
+        Color background = Color.decode(key.backgroundColor);
+        Color foreground = Color.decode(key.foregroundColor);
+        writeChunk(png, "PLTE", new byte[] {
+            (byte) background.getRed(), (byte) background.getGreen(), (byte) background.getBlue(),
+            (byte) foreground.getRed(), (byte) foreground.getGreen(), (byte) foreground.getBlue()
+        });
+        writeChunk(png, "IDAT", pixels.toByteArray());
+        writeChunk(png, "IEND", new byte[0]);
+        return png.toByteArray();
+    }
+
+    private static void writeChunk(ByteArrayOutputStream png, String type, byte[] data) throws IOException {
+        DataOutputStream out = new DataOutputStream(png);
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        out.writeInt(data.length);
+        out.write(typeBytes);
+        out.write(data);
+        out.writeInt((int) crc.getValue());
+    }
+
+    private static byte[] writeSvg(ByteMatrix modules, RenderKey key) {
+        int viewSize = modules.getWidth() + 2 * QUIET_ZONE;
+        StringBuilder path = new StringBuilder();
+        for (int my = 0; my < modules.getHeight(); my++) {
+            int mx = 0;
+            while (mx < modules.getWidth()) {
+                if (modules.get(mx, my) != 1) {
+                    mx++;
+                    continue;
+                }
+                int run = 1;
+                while (mx + run < modules.getWidth() && modules.get(mx + run, my) == 1) {
+                    run++;
+                }
+                path.append('M').append(mx + QUIET_ZONE).append(' ').append(my + QUIET_ZONE)
+                        .append('h').append(run).append("v1h-").append(run).append('z');
+                mx += run;
+            }
+        }
+
+        String svg = "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"" + key.size + "\" height=\"" + key.size
+                + "\" viewBox=\"0 0 " + viewSize + " " + viewSize + "\" shape-rendering=\"crispEdges\">"
+                + "<rect width=\"100%\" height=\"100%\" fill=\"" + key.backgroundColor + "\"/>"
+                + "<path fill=\"" + key.foregroundColor + "\" d=\"" + path + "\"/></svg>";
+        return svg.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] writeJpeg(ByteMatrix modules, Layout layout, RenderKey key) throws IOException {
+        // JPEG has no palette mode, so this is the one format that needs a full raster
+        BufferedImage image = new BufferedImage(layout.imageSize, layout.imageSize, BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2d = image.createGraphics();
+        g2d.setColor(Color.decode(key.backgroundColor));
+        g2d.fillRect(0, 0, layout.imageSize, layout.imageSize);
+        g2d.setColor(Color.decode(key.foregroundColor));
+        for (int my = 0; my < modules.getHeight(); my++) {
+            for (int mx = 0; mx < modules.getWidth(); mx++) {
+                if (modules.get(mx, my) == 1) {
+                    g2d.fillRect(layout.offset + mx * layout.scale, layout.offset + my * layout.scale,
+                            layout.scale, layout.scale);
+                }
+            }
+        }
+        g2d.dispose();
+
+        ByteArrayOutputStream jpeg = new ByteArrayOutputStream();
+        ImageIO.write(image, "jpg", jpeg);
+        return jpeg.toByteArray();
+    }
+
+    private static String normalizeFormat(String format) {
+        String normalized = format != null ? format.toLowerCase(Locale.ROOT) : "png";
+        return switch (normalized) {
+            case "svg" -> "svg";
+            case "jpg", "jpeg" -> "jpg";
+            default -> "png";
+        };
+    }
+
+    private static String normalizeColor(String color, String fallback) {
+        if (color == null || !color.matches("#[0-9a-fA-F]{6}")) {
+            return fallback;
+        }
+        return color.toUpperCase(Locale.ROOT);
+    }
+
+    /**
+     * Module size and placement: whole pixels per module, centred, with at least the quiet zone
+     * around the symbol (the image grows if {@code size} is too small for that).
+     */
+    private static final class Layout {
+        private final int imageSize;
+        private final int scale;
+        private final int offset;
+
+        Layout(int moduleCount, int size) {
+            int minimumSize = moduleCount + 2 * QUIET_ZONE;
+            this.imageSize = Math.max(size, minimumSize);
+            this.scale = imageSize / minimumSize;
+            this.offset = (imageSize - moduleCount * scale) / 2;
+        }
+    }
+
+    private static final class RenderKey {
+        private final String content;
+        private final int size;
+        private final String foregroundColor;
+        private final String backgroundColor;
+        private final String format;
+        private final int errorCorrectionLevel;
+
+        RenderKey(String content, int size, String foregroundColor, String backgroundColor,
+                  String format, int errorCorrectionLevel) {
+            this.content = content;
+            this.size = size;
+            this.foregroundColor = foregroundColor;
+            this.backgroundColor = backgroundColor;
+            this.format = format;
+            this.errorCorrectionLevel = errorCorrectionLevel;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof RenderKey other)) return false;
+            return size == other.size
+                    && errorCorrectionLevel == other.errorCorrectionLevel
+                    && content.equals(other.content)
+                    && foregroundColor.equals(other.foregroundColor)
+                    && backgroundColor.equals(other.backgroundColor)
+                    && format.equals(other.format);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(content, size, foregroundColor, backgroundColor, format, errorCorrectionLevel);
+        }
+    }
+}
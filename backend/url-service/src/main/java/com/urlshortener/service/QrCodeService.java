@@ -1,9 +1,8 @@
 package com.urlshortener.service;
 
+import com.urlshortener.exception.PlanLimitException;
 import com.urlshortener.model.QrCode;
-import com.urlshortener.model.User;
 import com.urlshortener.repository.QrCodeRepository;
-import com.urlshortener.repository.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
@@ -14,12 +13,6 @@ import org.slf4j.LoggerFactory;
 import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.List;
-import java.awt.Color;
-import java.awt.Graphics2D;
-import java.awt.image.BufferedImage;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
-import javax.imageio.ImageIO;
 import java.util.Base64;
 
 @Service
@@ -31,10 +24,19 @@ public class QrCodeService {
     private QrCodeRepository qrCodeRepository;
     
     @Autowired
-    private UserRepository userRepository;
+    private CacheService cacheService;
     
     @Autowired
-    private CacheService cacheService;
+    private QuotaService quotaService;
+    
+    @Autowired
+    private QrCodeRenderer qrCodeRenderer;
+    
+    @Autowired
+    private QrScanCounterService qrScanCounterService;
+    
+    @Autowired
+    private DashboardSummaryService dashboardSummaryService;
     
     @Value("${app.shorturl.domain:https://pebly.vercel.app}")
     private String shortUrlDomain;
@@ -58,40 +60,42 @@ public class QrCodeService {
         }
         
         // Create QR code
-        QrCode qrCode = new QrCode(content, contentType, userId, scopeType, scopeId);
-        
-        // Set the complete QR image URL with frontend domain
-        String fullQrImageUrl = shortUrlDomain + "/qr/" + qrCode.getQrCode() + ".png";
-        qrCode.setQrImageUrl(fullQrImageUrl);
-        
-        qrCode.setTitle(title);
-        qrCode.setDescription(description);
-        qrCode.setStyle(style != null ? style : "STANDARD");
-        qrCode.setForegroundColor(foregroundColor != null ? foregroundColor : "#000000");
-        qrCode.setBackgroundColor(backgroundColor != null ? backgroundColor : "#FFFFFF");
-        qrCode.setSize(size > 0 ? size : 300);
-        qrCode.setFormat(format != null ? format : "PNG");
+        QrCode qrCode = buildQrCode(content, contentType, userId, title, description, style,
+                                    foregroundColor, backgroundColor, size, format, scopeType, scopeId);
         
         try {
             // Generate QR code image
-            byte[] qrImageBytes = generateQrCodeImage(qrCode);
-            qrCode.setFileSize(qrImageBytes.length);
-            
-            // For now, we'll store as base64 in the qrImagePath field
-            // In production, you might want to store in GridFS or file system
-            String base64Image = Base64.getEncoder().encodeToString(qrImageBytes);
-            qrCode.setQrImagePath("data:image/" + format.toLowerCase() + ";base64," + base64Image);
-            
+            applyRenderedImage(qrCode);
         } catch (Exception e) {
             throw new RuntimeException("Failed to generate QR code: " + e.getMessage());
         }
         
+        // Check and reserve subscription quota atomically; given back if the save fails.
+        // Codes for an unknown user are created as anonymous, as before reservations existed.
+        QuotaService.Reservation reservation = userId != null
+                ? quotaService.tryReserve(userId, QuotaResource.QR_CODES)
+                : QuotaService.Reservation.UNKNOWN_USER;
+        if (reservation == QuotaService.Reservation.LIMIT_REACHED) {
+            throw new PlanLimitException("Monthly QR code limit reached. Upgrade to Premium for unlimited access.");
+        }
+        if (reservation == QuotaService.Reservation.UNKNOWN_USER && userId != null) {
+            logger.debug("User not found for QR quota, creating as anonymous: {}", userId);
+        }
+        
         // Save to database
-        QrCode saved = qrCodeRepository.save(qrCode);
+        QrCode saved;
+        try {
+            saved = qrCodeRepository.save(qrCode);
+        } catch (RuntimeException e) {
+            if (reservation == QuotaService.Reservation.GRANTED) {
+                quotaService.release(userId, QuotaResource.QR_CODES, 1);
+            }
+            throw e;
+        }
+        dashboardSummaryService.qrCodesCreated(List.of(saved));
         
-        // Update user statistics
+        // Usage and totals were counted by the reservation
         if (userId != null) {
-            updateUserStats(userId);
             // Invalidate user QR codes cache
             cacheService.clearCache("userQRCodes", userId);
         }
@@ -101,6 +105,36 @@ public class QrCodeService {
         return saved;
     }
     
+    /**
+     * Build (but do not render or save) a QR code with defaults applied. Shared by single and
+     * batch creation.
+     */
+    QrCode buildQrCode(String content, String contentType, String userId,
+                       String title, String description, String style,
+                       String foregroundColor, String backgroundColor,
+                       int size, String format, String scopeType, String scopeId) {
+        QrCode qrCode = new QrCode(content, contentType, userId, scopeType, scopeId);
+        assignQrCode(qrCode, qrCode.getQrCode());
+        
+        qrCode.setTitle(title);
+        qrCode.setDescription(description);
+        qrCode.setStyle(style != null ? style : "STANDARD");
+        qrCode.setForegroundColor(foregroundColor != null ? foregroundColor : "#000000");
+        qrCode.setBackgroundColor(backgroundColor != null ? backgroundColor : "#FFFFFF");
+        qrCode.setSize(size > 0 ? size : 300);
+        qrCode.setFormat(format != null ? format : "PNG");
+        return qrCode;
+    }
+    
+    /**
+     * Set the QR code identifier and the image URL derived from it.
+     */
+    void assignQrCode(QrCode qrCode, String code) {
+        qrCode.setQrCode(code);
+        // Set the complete QR image URL with frontend domain
+        qrCode.setQrImageUrl(shortUrlDomain + "/qr/" + code + ".png");
+    }
+    
     public Optional<QrCode> getByQrCode(String qrCodeId) {
         return qrCodeRepository.findByQrCode(qrCodeId);
     }
@@ -152,6 +186,16 @@ public class QrCodeService {
         if (updates.getTags() != null) existing.setTags(updates.getTags());
         if (updates.getCategory() != null) existing.setCategory(updates.getCategory());
         
+        // Re-render if anything that shows in the image changed (same inputs hit the render cache)
+        if (updates.getContent() != null || updates.getForegroundColor() != null
+                || updates.getBackgroundColor() != null || updates.getSize() > 0 || updates.getFormat() != null) {
+            try {
+                applyRenderedImage(existing);
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to generate QR code: " + e.getMessage());
+            }
+        }
+        
         existing.setUpdatedAt(LocalDateTime.now());
         
         QrCode updated = qrCodeRepository.save(existing);
@@ -184,6 +228,7 @@ public class QrCodeService {
         
         // Hard delete - actually remove from database
         qrCodeRepository.delete(existing);
+        dashboardSummaryService.qrCodeDeleted(existing);
         
         // Invalidate relevant caches
         cacheService.clearCache("userQRCodes", userId);
@@ -193,116 +238,42 @@ public class QrCodeService {
     
     public void recordScan(String qrCodeId, String ipAddress, String userAgent, 
                           String country, String city, String deviceType) {
-        Optional<QrCode> qrCodeOpt = qrCodeRepository.findByQrCode(qrCodeId);
-        
-        if (qrCodeOpt.isPresent()) {
-            QrCode qrCode = qrCodeOpt.get();
-            
-            // Update scan statistics
-            qrCode.setTotalScans(qrCode.getTotalScans() + 1);
-            qrCode.setLastScannedAt(LocalDateTime.now());
-            
-            // Update geographic data
-            if (country != null) {
-                qrCode.getScansByCountry().merge(country, 1, Integer::sum);
-            }
-            if (city != null) {
-                qrCode.getScansByCity().merge(city, 1, Integer::sum);
-            }
-            
-            // Update device data
-            if (deviceType != null) {
-                qrCode.getScansByDevice().merge(deviceType, 1, Integer::sum);
-            }
-            
-            // Update time-based data
-            LocalDateTime now = LocalDateTime.now();
-            String hourKey = String.valueOf(now.getHour());
-            String dayKey = now.getDayOfWeek().toString();
-            
-            qrCode.getScansByHour().merge(hourKey, 1, Integer::sum);
-            qrCode.getScansByDay().merge(dayKey, 1, Integer::sum);
-            
-            qrCodeRepository.save(qrCode);
-            
-            // Invalidate user analytics cache
-            cacheService.invalidateUserAnalytics(qrCode.getUserId());
-            
+        // Counters are buffered and flushed as partial updates; only the owner is looked up here
+        Optional<String> ownerOpt = qrScanCounterService.findOwner(qrCodeId);
+        if (ownerOpt.isPresent()) {
+            qrScanCounterService.addScan(qrCodeId, ownerOpt.get(), country, city, deviceType);
             logger.debug("Recorded scan for QR code: {}", qrCodeId);
         }
     }
     
-    private byte[] generateQrCodeImage(QrCode qrCode) throws IOException {
-        // Simple QR code generation (in production, use a proper QR code library like ZXing)
-        int size = qrCode.getSize();
-        BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_RGB);
-        Graphics2D g2d = image.createGraphics();
-        
-        // Parse colors
-        Color bgColor = parseColor(qrCode.getBackgroundColor());
-        Color fgColor = parseColor(qrCode.getForegroundColor());
-        
-        // Fill background
-        g2d.setColor(bgColor);
-        g2d.fillRect(0, 0, size, size);
-        
-        // Draw simple pattern (placeholder - use proper QR code library)
-        g2d.setColor(fgColor);
-        int cellSize = size / 25; // 25x25 grid
-        
-        // Draw finder patterns (corners)
-        drawFinderPattern(g2d, 0, 0, cellSize);
-        drawFinderPattern(g2d, size - 7 * cellSize, 0, cellSize);
-        drawFinderPattern(g2d, 0, size - 7 * cellSize, cellSize);
-        
-        // Draw some data pattern (simplified)
-        for (int i = 0; i < 25; i++) {
-            for (int j = 0; j < 25; j++) {
-                if ((i + j) % 3 == 0 && !isFinderPattern(i, j)) {
-                    g2d.fillRect(i * cellSize, j * cellSize, cellSize, cellSize);
-                }
-            }
-        }
-        
-        g2d.dispose();
-        
-        // Convert to byte array
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        ImageIO.write(image, qrCode.getFormat().toLowerCase(), baos);
-        return baos.toByteArray();
-    }
-    
-    private void drawFinderPattern(Graphics2D g2d, int x, int y, int cellSize) {
-        // Draw 7x7 finder pattern
-        g2d.fillRect(x, y, 7 * cellSize, 7 * cellSize);
-        g2d.setColor(parseColor("#FFFFFF"));
-        g2d.fillRect(x + cellSize, y + cellSize, 5 * cellSize, 5 * cellSize);
-        g2d.setColor(parseColor("#000000"));
-        g2d.fillRect(x + 2 * cellSize, y + 2 * cellSize, 3 * cellSize, 3 * cellSize);
+    /**
+     * Record a scan of a QR code that is already loaded, without another lookup.
+     */
+    public void recordScan(QrCode qrCode, String ipAddress, String userAgent, 
+                          String country, String city, String deviceType) {
+        qrScanCounterService.addScan(qrCode.getQrCode(), qrCode.getUserId(), country, city, deviceType);
+        logger.debug("Recorded scan for QR code: {}", qrCode.getQrCode());
     }
     
-    private boolean isFinderPattern(int i, int j) {
-        return (i < 7 && j < 7) || (i >= 18 && j < 7) || (i < 7 && j >= 18);
+    /**
+     * Rendered image bytes for a QR code, from the render cache when the same image was
+     * produced before.
+     */
+    public byte[] renderImage(QrCode qrCode) {
+        return qrCodeRenderer.render(qrCode.getContent(), qrCode.getSize(), qrCode.getForegroundColor(),
+            qrCode.getBackgroundColor(), qrCode.getFormat(), qrCode.getErrorCorrectionLevel());
     }
     
-    private Color parseColor(String colorStr) {
-        try {
-            if (colorStr.startsWith("#")) {
-                return Color.decode(colorStr);
-            }
-            return Color.BLACK;
-        } catch (Exception e) {
-            return Color.BLACK;
-        }
+    void applyRenderedImage(QrCode qrCode) {
+        applyRenderedImage(qrCode, renderImage(qrCode));
     }
     
-    private void updateUserStats(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            user.setTotalQrCodes(user.getTotalQrCodes() + 1);
-            user.setUpdatedAt(LocalDateTime.now());
-            userRepository.save(user);
-        }
+    void applyRenderedImage(QrCode qrCode, byte[] qrImageBytes) {
+        qrCode.setFileSize(qrImageBytes.length);
+        
+        // For now, we'll store as base64 in the qrImagePath field
+        // In production, you might want to store in GridFS or file system
+        String base64Image = Base64.getEncoder().encodeToString(qrImageBytes);
+        qrCode.setQrImagePath("data:" + QrCodeRenderer.mediaType(qrCode.getFormat()) + ";base64," + base64Image);
     }
 }
\ No newline at end of file
@@ -0,0 +1,208 @@
+package com.urlshortener.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urlshortener.model.QrCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Scan counters for qr_codes maintained with partial atomic updates.
+ *
+ * Scans are coalesced per QR code in memory and flushed periodically as one $inc/$max per
+ * code, instead of loading and re-saving the whole document (image included) on every scan.
+ * Owners' dashboard caches are invalidated after a flush, at most once per user per
+ * debounce window; users whose window has not passed yet are picked up by a later flush.
+ */
+@Service
+public class QrScanCounterService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QrScanCounterService.class);
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private CacheService cacheService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private DashboardSummaryService dashboardSummaryService;
+
+    @Value("${app.qr.scan-invalidation-debounce:5000}")
+    private long invalidationDebounceMillis;
+
+    @Value("${app.counters.max-failed-flushes:300}")
+    private int maxFailedFlushes;
+
+    // Pending deltas per QR code, tagged with the code's owner
+    private CounterDeltaBuffer<String> pending;
+
+    // Users with flushed scans whose caches still need invalidating, and when each was last invalidated
+    private final ConcurrentHashMap<String, Boolean> staleUsers = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, Long> lastInvalidated = new ConcurrentHashMap<>();
+
+    // QR code -> owner, which never changes; avoids loading the document to route a scan
+    private Cache<String, String> owners;
+
+    private Counter coalescedScansCounter;
+    private Counter flushedUpdatesCounter;
+    private Counter invalidationsCounter;
+
+    @PostConstruct
+    public void initialize() {
+        owners = Caffeine.newBuilder()
+                .maximumSize(100000)
+                .build();
+        pending = new CounterDeltaBuffer<>("qr-scans", maxFailedFlushes, meterRegistry);
+
+        Gauge.builder("qr.scans.pending.codes", pending, CounterDeltaBuffer::size)
+                .description("QR codes with scan counter deltas waiting to be flushed")
+                .register(meterRegistry);
+
+        coalescedScansCounter = Counter.builder("qr.scans.coalesced")
+                .description("Scans folded into pending counter deltas")
+                .register(meterRegistry);
+
+        flushedUpdatesCounter = Counter.builder("qr.scans.updates")
+                .description("Per-QR-code counter updates written to MongoDB")
+                .register(meterRegistry);
+
+        invalidationsCounter = Counter.builder("qr.scans.cache.invalidations")
+                .description("Per-user cache invalidations caused by scans")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Owner of a QR code, from memory when known; loads only the userId field otherwise.
+     */
+    public Optional<String> findOwner(String qrCode) {
+        String owner = owners.getIfPresent(qrCode);
+        if (owner != null || mongoTemplate == null) {
+            return Optional.ofNullable(owner);
+        }
+
+        Query query = new Query(Criteria.where("qrCode").is(qrCode));
+        query.fields().include("userId");
+        QrCode found = mongoTemplate.findOne(query, QrCode.class);
+        if (found == null || found.getUserId() == null) {
+            return Optional.empty();
+        }
+        owners.put(qrCode, found.getUserId());
+        return Optional.of(found.getUserId());
+    }
+
+    /**
+     * Fold one scan into the pending deltas for its QR code.
+     */
+    public void addScan(String qrCode, String userId, String country, String city, String deviceType) {
+        if (userId != null) {
+            owners.put(qrCode, userId);
+        }
+        LocalDateTime now = LocalDateTime.now();
+
+        pending.add(qrCode, () -> userId, target -> {
+            target.inc("totalScans");
+            target.incMapKey("scansByCountry", country);
+            target.incMapKey("scansByCity", city);
+            target.incMapKey("scansByDevice", deviceType);
+            target.incMapKey("scansByHour", String.valueOf(now.getHour()));
+            target.incMapKey("scansByDay", now.getDayOfWeek().toString());
+
+            target.touch(now);
+        });
+
+        coalescedScansCounter.increment();
+    }
+
+    /**
+     * Write all pending deltas as one unordered bulk of per-code $inc updates, then invalidate
+     * owners' caches as far as the debounce allows.
+     */
+    @Scheduled(fixedDelayString = "${app.qr.scan-flush-interval:1000}")
+    public void flush() {
+        if (!pending.isEmpty() && mongoTemplate != null) {
+            flushCounters();
+        }
+        invalidateStaleUsers(false);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!pending.isEmpty() && mongoTemplate != null) {
+            flushCounters();
+        }
+        invalidateStaleUsers(true);
+    }
+
+    private void flushCounters() {
+        Map<String, CounterDeltaBuffer.Pending<String>> snapshot = pending.drain();
+        if (snapshot.isEmpty()) {
+            return;
+        }
+
+        BulkOperations bulkOps = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, QrCode.class);
+        snapshot.forEach((qrCode, counters) ->
+            bulkOps.updateOne(new Query(Criteria.where("qrCode").is(qrCode)), counters.toUpdate("lastScannedAt")));
+
+        try {
+            bulkOps.execute();
+            flushedUpdatesCounter.increment(snapshot.size());
+        } catch (Exception e) {
+            logger.error("Failed to flush scan counters for {} QR codes, re-queueing: {}", snapshot.size(), e.getMessage());
+            pending.requeue(snapshot);
+            return;
+        }
+
+        snapshot.forEach((qrCode, counters) -> {
+            if (counters.getAttachment() != null) {
+                staleUsers.put(counters.getAttachment(), Boolean.TRUE);
+            }
+            dashboardSummaryService.addScans(qrCode, counters.get("totalScans"));
+        });
+        logger.debug("Flushed scan counters for {} QR codes", snapshot.size());
+    }
+
+    private void invalidateStaleUsers(boolean force) {
+        if (staleUsers.isEmpty()) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (String userId : new ArrayList<>(staleUsers.keySet())) {
+            Long last = lastInvalidated.get(userId);
+            if (!force && last != null && now - last < invalidationDebounceMillis) {
+                continue;
+            }
+            if (staleUsers.remove(userId) != null) {
+                cacheService.markQrScanAnalyticsStale(userId);
+                lastInvalidated.put(userId, now);
+                invalidationsCounter.increment();
+            }
+        }
+
+        // Entries older than the window no longer hold anything back
+        lastInvalidated.values().removeIf(last -> now - last >= invalidationDebounceMillis);
+    }
+}
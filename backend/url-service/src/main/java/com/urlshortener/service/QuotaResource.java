@@ -0,0 +1,70 @@
+package com.urlshortener.service;
+
+import com.urlshortener.model.User;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Countable plan resources and the User fields that track them.
+ *
+ * Usage windows roll over on read: a counter whose window (24 hours for daily, 30 days for
+ * monthly, measured from the last reset) has passed counts as zero, and is only reset in
+ * MongoDB by the next reservation (see QuotaService).
+ */
+public enum QuotaResource {
+
+    URLS("dailyUrlsCreated", "monthlyUrlsCreated", "totalUrls",
+            User::getDailyUrlsCreated, User::getMonthlyUrlsCreated),
+    QR_CODES("dailyQrCodesCreated", "monthlyQrCodesCreated", "totalQrCodes",
+            User::getDailyQrCodesCreated, User::getMonthlyQrCodesCreated),
+    FILES("dailyFilesUploaded", "monthlyFilesUploaded", "totalFiles",
+            User::getDailyFilesUploaded, User::getMonthlyFilesUploaded);
+
+    public static final String DAILY_RESET_FIELD = "lastUsageReset";
+    public static final String MONTHLY_RESET_FIELD = "lastMonthlyReset";
+
+    private final String dailyField;
+    private final String monthlyField;
+    private final String totalField;
+    private final ToIntFunction<User> dailyCount;
+    private final ToIntFunction<User> monthlyCount;
+
+    QuotaResource(String dailyField, String monthlyField, String totalField,
+                  ToIntFunction<User> dailyCount, ToIntFunction<User> monthlyCount) {
+        this.dailyField = dailyField;
+        this.monthlyField = monthlyField;
+        this.totalField = totalField;
+        this.dailyCount = dailyCount;
+        this.monthlyCount = monthlyCount;
+    }
+
+    public String getDailyField() { return dailyField; }
+
+    public String getMonthlyField() { return monthlyField; }
+
+    public String getTotalField() { return totalField; }
+
+    /**
+     * Usage in the current daily window (zero once the window has passed).
+     */
+    public int dailyUsage(User user, LocalDateTime now) {
+        return isDailyWindowExpired(user.getLastUsageReset(), now) ? 0 : dailyCount.applyAsInt(user);
+    }
+
+    /**
+     * Usage in the current monthly window (zero once the window has passed).
+     */
+    public int monthlyUsage(User user, LocalDateTime now) {
+        return isMonthlyWindowExpired(user.getLastMonthlyReset(), now) ? 0 : monthlyCount.applyAsInt(user);
+    }
+
+    public static boolean isDailyWindowExpired(LocalDateTime lastReset, LocalDateTime now) {
+        return lastReset == null || ChronoUnit.HOURS.between(lastReset, now) >= 24;
+    }
+
+    public static boolean isMonthlyWindowExpired(LocalDateTime lastReset, LocalDateTime now) {
+        return lastReset == null || ChronoUnit.DAYS.between(lastReset, now) >= 30;
+    }
+}
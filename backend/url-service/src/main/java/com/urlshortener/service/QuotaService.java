@@ -0,0 +1,193 @@
+package com.urlshortener.service;
+
+import com.urlshortener.model.User;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Date;
+import java.util.Optional;
+
+/**
+ * Atomic check-and-reserve for plan quotas (URLs, QR codes, files).
+ *
+ * A reservation is one conditional update on the user document: it only applies if the
+ * monthly counter still leaves room under the plan limit and neither usage window was reset
+ * since the counters were read, so concurrent requests can neither overshoot a limit nor lose
+ * increments. Expired windows roll over inside the same update (counters set to the new
+ * reservation, reset timestamp moved to now) instead of by a scheduled reset. Callers release
+ * what they reserved if the resource could not be created.
+ *
+ * A user that does not exist is reported as such rather than as an exhausted limit, and a
+ * missing MongoDB is a storage error (IllegalStateException), never a denial.
+ */
+@Service
+public class QuotaService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuotaService.class);
+
+    private static final int MAX_ATTEMPTS = 5;
+    private static final int UNKNOWN_USER = -1;
+
+    public enum Reservation { GRANTED, LIMIT_REACHED, UNKNOWN_USER }
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private SubscriptionService subscriptionService;
+
+    @Autowired
+    private UserContextService userContextService;
+
+    /**
+     * Reserve one unit, e.g. before creating a single link.
+     */
+    public Reservation tryReserve(String userId, QuotaResource resource) {
+        int granted = reserveUnits(userId, resource, 1);
+        if (granted == UNKNOWN_USER) {
+            return Reservation.UNKNOWN_USER;
+        }
+        return granted == 1 ? Reservation.GRANTED : Reservation.LIMIT_REACHED;
+    }
+
+    /**
+     * Reserve up to {@code requested} units. Returns how many were granted: all of them on
+     * unlimited plans, fewer (possibly zero) when the monthly limit runs out.
+     *
+     * @throws IllegalArgumentException if the user does not exist
+     */
+    public int reserve(String userId, QuotaResource resource, int requested) {
+        int granted = reserveUnits(userId, resource, requested);
+        if (granted == UNKNOWN_USER) {
+            throw new IllegalArgumentException("User not found: " + userId);
+        }
+        return granted;
+    }
+
+    private int reserveUnits(String userId, QuotaResource resource, int requested) {
+        if (userId == null) {
+            return UNKNOWN_USER;
+        }
+        if (requested <= 0) {
+            return 0;
+        }
+        if (mongoTemplate == null) {
+            throw new IllegalStateException("MongoDB not available - cannot reserve " + resource + " quota");
+        }
+
+        // Plan data may come from the snapshot cache; the counters are always read fresh
+        Optional<User> userOpt = userContextService.getUser(userId);
+        if (userOpt.isEmpty()) {
+            return UNKNOWN_USER;
+        }
+        int limit = subscriptionService.getMonthlyLimit(userOpt.get(), resource);
+
+        for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+            Document counters = readCounters(userId, resource);
+            if (counters == null) {
+                // Deleted since the snapshot was cached
+                return UNKNOWN_USER;
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            Date dailyReset = counters.getDate(QuotaResource.DAILY_RESET_FIELD);
+            Date monthlyReset = counters.getDate(QuotaResource.MONTHLY_RESET_FIELD);
+            boolean dailyExpired = QuotaResource.isDailyWindowExpired(toLocalDateTime(dailyReset), now);
+            boolean monthlyExpired = QuotaResource.isMonthlyWindowExpired(toLocalDateTime(monthlyReset), now);
+
+            int used = monthlyExpired ? 0 : intValue(counters, resource.getMonthlyField());
+            int granted = limit < 0 ? requested : Math.min(requested, limit - used);
+            if (granted <= 0) {
+                return 0;
+            }
+
+            // Guard on the reset timestamps we read, so a concurrent rollover forces a retry
+            Criteria criteria = Criteria.where("_id").is(userId)
+                    .and(QuotaResource.DAILY_RESET_FIELD).is(dailyReset)
+                    .and(QuotaResource.MONTHLY_RESET_FIELD).is(monthlyReset);
+            Update update = new Update()
+                    .inc(resource.getTotalField(), granted)
+                    .set("updatedAt", now);
+
+            if (dailyExpired) {
+                for (QuotaResource each : QuotaResource.values()) {
+                    update.set(each.getDailyField(), each == resource ? granted : 0);
+                }
+                update.set(QuotaResource.DAILY_RESET_FIELD, now);
+            } else {
+                update.inc(resource.getDailyField(), granted);
+            }
+
+            if (monthlyExpired) {
+                for (QuotaResource each : QuotaResource.values()) {
+                    update.set(each.getMonthlyField(), each == resource ? granted : 0);
+                }
+                update.set(QuotaResource.MONTHLY_RESET_FIELD, now);
+            } else {
+                if (limit >= 0) {
+                    criteria.and(resource.getMonthlyField()).lte(limit - granted);
+                }
+                update.inc(resource.getMonthlyField(), granted);
+            }
+
+            if (mongoTemplate.updateFirst(new Query(criteria), update, User.class).getModifiedCount() == 1) {
+                userContextService.invalidate(userId);
+                logger.debug("Reserved {} {} for user: {}", granted, resource, userId);
+                return granted;
+            }
+        }
+
+        logger.warn("Gave up reserving {} quota for user {} after {} contended attempts", resource, userId, MAX_ATTEMPTS);
+        return 0;
+    }
+
+    /**
+     * Give back units reserved for resources that were not created. Counters of a window that
+     * rolled over in the meantime are left alone rather than driven negative.
+     */
+    public void release(String userId, QuotaResource resource, int count) {
+        if (userId == null || count <= 0 || mongoTemplate == null) {
+            return;
+        }
+
+        mongoTemplate.updateFirst(
+                new Query(Criteria.where("_id").is(userId).and(resource.getMonthlyField()).gte(count)),
+                new Update().inc(resource.getMonthlyField(), -count).inc(resource.getTotalField(), -count),
+                User.class);
+        mongoTemplate.updateFirst(
+                new Query(Criteria.where("_id").is(userId).and(resource.getDailyField()).gte(count)),
+                new Update().inc(resource.getDailyField(), -count),
+                User.class);
+        userContextService.invalidate(userId);
+    }
+
+    private Document readCounters(String userId, QuotaResource resource) {
+        Query query = new Query(Criteria.where("_id").is(userId));
+        query.fields()
+                .include(resource.getDailyField())
+                .include(resource.getMonthlyField())
+                .include(QuotaResource.DAILY_RESET_FIELD)
+                .include(QuotaResource.MONTHLY_RESET_FIELD);
+        userContextService.recordDbRead();
+        return mongoTemplate.findOne(query, Document.class, mongoTemplate.getCollectionName(User.class));
+    }
+
+    private static int intValue(Document document, String field) {
+        Object value = document.get(field);
+        return value instanceof Number number ? number.intValue() : 0;
+    }
+
+    // Spring Data stores LocalDateTime as a Date in the system time zone
+    private static LocalDateTime toLocalDateTime(Date date) {
+        return date != null ? LocalDateTime.ofInstant(date.toInstant(), ZoneId.systemDefault()) : null;
+    }
+}
@@ -0,0 +1,246 @@
+package com.urlshortener.service;
+
+import com.urlshortener.model.QrCode;
+import com.urlshortener.model.ShortenedUrl;
+import com.urlshortener.model.UploadedFile;
+import org.bson.types.ObjectId;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Keyset-paginated listings of links, QR codes and files.
+ *
+ * Pages are ordered by (createdAt, _id) - uploadedAt for files - and continue from an opaque
+ * cursor holding the last item's position, so each page is one index range scan of at most
+ * {@code limit + 1} documents however many the owner has. Only the fields list views show are
+ * loaded; QR images in particular stay behind the public /api/v1/qr/{id}/image.
+ *
+ * Pagination is opt-in: a request with neither cursor nor limit gets the whole list in one
+ * response, as before, so clients that total or count the list keep seeing everything.
+ */
+@Service
+public class ResourceListingService {
+
+    private static final String[] URL_FIELDS = {"shortCode", "shortUrl", "originalUrl", "title", "description",
+        "domain", "tags", "category", "totalClicks", "uniqueClicks", "createdAt", "lastClickedAt",
+        "isPasswordProtected", "hasQrCode", "scopeType", "scopeId"};
+
+    private static final String[] QR_FIELDS = {"qrCode", "qrImageUrl", "content", "contentType", "title",
+        "description", "tags", "category", "style", "foregroundColor", "backgroundColor", "size", "format",
+        "totalScans", "uniqueScans", "createdAt", "updatedAt", "lastScannedAt", "scopeType", "scopeId"};
+
+    private static final String[] FILE_FIELDS = {"fileCode", "fileUrl", "originalFileName", "fileType",
+        "fileSize", "title", "description", "tags", "category", "totalDownloads", "uploadedAt",
+        "lastAccessedAt", "isPublic", "requiresPassword", "hasQrCode", "scopeType", "scopeId"};
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.listing.default-page-size:50}")
+    private int defaultPageSize;
+
+    @Value("${app.listing.max-page-size:200}")
+    private int maxPageSize;
+
+    public CursorPage<ShortenedUrl> listUrls(Criteria owner, ListingQuery listing) {
+        List<Criteria> filters = commonFilters(listing);
+        if (listing.domain != null) {
+            filters.add(Criteria.where("domain").is(listing.domain));
+        }
+        return page(ShortenedUrl.class, owner, filters, "createdAt", listing,
+            ShortenedUrl::getCreatedAt, ShortenedUrl::getId, URL_FIELDS);
+    }
+
+    public CursorPage<QrCode> listQrCodes(Criteria owner, ListingQuery listing) {
+        return page(QrCode.class, owner, commonFilters(listing), "createdAt", listing,
+            QrCode::getCreatedAt, QrCode::getId, QR_FIELDS);
+    }
+
+    public CursorPage<UploadedFile> listFiles(Criteria owner, ListingQuery listing) {
+        return page(UploadedFile.class, owner, commonFilters(listing), "uploadedAt", listing,
+            UploadedFile::getUploadedAt, UploadedFile::getId, FILE_FIELDS);
+    }
+
+    /**
+     * List fields of the given links, in the order of {@code shortCodes}; missing ones are skipped.
+     */
+    public List<ShortenedUrl> findUrls(List<String> shortCodes) {
+        if (shortCodes.isEmpty()) {
+            return List.of();
+        }
+        Query query = new Query(Criteria.where("shortCode").in(shortCodes));
+        query.fields().include(URL_FIELDS);
+        Map<String, ShortenedUrl> found = mongoTemplate.find(query, ShortenedUrl.class).stream()
+            .collect(Collectors.toMap(ShortenedUrl::getShortCode, Function.identity()));
+        return shortCodes.stream().map(found::get).filter(Objects::nonNull).toList();
+    }
+
+    public static Criteria ownedBy(String userId) {
+        return Criteria.where("userId").is(userId);
+    }
+
+    public static Criteria inScope(String scopeType, String scopeId) {
+        return Criteria.where("scopeType").is(scopeType).and("scopeId").is(scopeId);
+    }
+
+    private <T> CursorPage<T> page(Class<T> type, Criteria owner, List<Criteria> filters, String timeField,
+                                   ListingQuery listing, Function<T, LocalDateTime> timeOf,
+                                   Function<T, String> idOf, String... fields) {
+        if (mongoTemplate == null) {
+            throw new IllegalStateException("MongoDB not available");
+        }
+
+        // Without a cursor or limit the caller gets the whole list (the unpaginated contract)
+        Integer limit = null;
+        if (listing.isPaged()) {
+            limit = listing.limit != null ? Math.max(1, Math.min(listing.limit, maxPageSize)) : defaultPageSize;
+        }
+        Sort.Direction direction = listing.ascending ? Sort.Direction.ASC : Sort.Direction.DESC;
+
+        List<Criteria> criteria = new ArrayList<>();
+        criteria.add(owner);
+        criteria.add(Criteria.where("isActive").is(true));
+        criteria.addAll(filters);
+
+        if (listing.cursor != null) {
+            Position after = Position.decode(listing.cursor);
+            // Range on the time field keeps the index bounds tight; ties are broken by _id
+            if (listing.ascending) {
+                criteria.add(Criteria.where(timeField).gte(after.time));
+                criteria.add(new Criteria().orOperator(
+                    Criteria.where(timeField).gt(after.time), Criteria.where("_id").gt(after.id)));
+            } else {
+                criteria.add(Criteria.where(timeField).lte(after.time));
+                criteria.add(new Criteria().orOperator(
+                    Criteria.where(timeField).lt(after.time), Criteria.where("_id").lt(after.id)));
+            }
+        }
+
+        Query query = new Query(new Criteria().andOperator(criteria))
+            .with(Sort.by(direction, timeField).and(Sort.by(direction, "_id")));
+        if (limit != null) {
+            query.limit(limit + 1);
+        }
+        query.fields().include(fields);
+
+        List<T> items = new ArrayList<>(mongoTemplate.find(query, type));
+        boolean hasMore = limit != null && items.size() > limit;
+        if (hasMore) {
+            items = new ArrayList<>(items.subList(0, limit));
+        }
+
+        String nextCursor = null;
+        if (hasMore) {
+            T last = items.get(items.size() - 1);
+            nextCursor = new Position(timeOf.apply(last), new ObjectId(idOf.apply(last))).encode();
+        }
+        return new CursorPage<>(items, nextCursor);
+    }
+
+    private static List<Criteria> commonFilters(ListingQuery listing) {
+        List<Criteria> filters = new ArrayList<>();
+        if (listing.tag != null) {
+            filters.add(Criteria.where("tags").is(listing.tag));
+        }
+        if (listing.category != null) {
+            filters.add(Criteria.where("category").is(listing.category));
+        }
+        return filters;
+    }
+
+    /**
+     * Page parameters as given by the caller; blank values are treated as absent.
+     */
+    public static final class ListingQuery {
+        private final String cursor;
+        private final Integer limit;
+        private final boolean ascending;
+        private final String tag;
+        private final String category;
+        private final String domain;
+
+        public ListingQuery(String cursor, Integer limit, String order, String tag, String category, String domain) {
+            if (order != null && !order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+                throw new IllegalArgumentException("order must be asc or desc");
+            }
+            this.cursor = blankToNull(cursor);
+            this.limit = limit;
+            this.ascending = "asc".equalsIgnoreCase(order);
+            this.tag = blankToNull(tag);
+            this.category = blankToNull(category);
+            this.domain = blankToNull(domain);
+        }
+
+        /**
+         * Whether the caller asked for a page (cursor or limit given) rather than the whole list.
+         */
+        public boolean isPaged() {
+            return cursor != null || limit != null;
+        }
+
+        private static String blankToNull(String value) {
+            return value == null || value.isBlank() ? null : value.trim();
+        }
+    }
+
+    /**
+     * One page of a listing and the cursor for the next, null on the last page.
+     */
+    public static final class CursorPage<T> {
+        private final List<T> items;
+        private final String nextCursor;
+
+        CursorPage(List<T> items, String nextCursor) {
+            this.items = items;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<T> getItems() { return items; }
+
+        public String getNextCursor() { return nextCursor; }
+
+        public boolean hasMore() { return nextCursor != null; }
+    }
+
+    /**
+     * Sort position of the last item of a page, encoded as base64url("epochMillis:objectId").
+     * Mongo stores dates with millisecond precision, so the round trip is exact.
+     */
+    private record Position(LocalDateTime time, ObjectId id) {
+
+        String encode() {
+            long millis = time != null ? time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli() : 0L;
+            String raw = millis + ":" + id.toHexString();
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Position decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.indexOf(':');
+                long millis = Long.parseLong(raw.substring(0, separator));
+                LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+                return new Position(time, new ObjectId(raw.substring(separator + 1)));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.urlshortener.service;
+
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Allocates short codes from a shared sequence without existence checks.
+ *
+ * Each node leases a block of sequence numbers with one $inc on the id_counters
+ * document, hands them out locally, and encodes each number as a fixed-length base62
+ * code. Because the sequence never repeats, codes are unique across nodes. With
+ * scrambling enabled the number is first permuted over [0, 62^length) by a keyed
+ * Feistel network (cycle-walking), so consecutive codes are not guessable.
+ */
+@Service
+public class ShortCodeAllocator {
+
+    private static final Logger logger = LoggerFactory.getLogger(ShortCodeAllocator.class);
+
+    private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
+    private static final String COUNTERS_COLLECTION = "id_counters";
+    private static final String COUNTER_ID = "short_code";
+    private static final int FEISTEL_ROUNDS = 4;
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.shortcode.length:7}")
+    private int codeLength;
+
+    @Value("${app.shortcode.block-size:1000}")
+    private int blockSize;
+
+    @Value("${app.shortcode.scramble:true}")
+    private boolean scramble;
+
+    @Value("${app.shortcode.scramble-key:25214903917}")
+    private long scrambleKey;
+
+    private long keyspace;
+    private int halfBits;
+    private long halfMask;
+    private long[] roundKeys;
+
+    // Current lease [next, end)
+    private long next = 0;
+    private long end = 0;
+
+    @PostConstruct
+    public void initialize() {
+        keyspace = 1;
+        for (int i = 0; i < codeLength; i++) {
+            keyspace = Math.multiplyExact(keyspace, ALPHABET.length());
+        }
+
+        int bits = 64 - Long.numberOfLeadingZeros(keyspace - 1);
+        halfBits = (bits + 1) / 2;
+        halfMask = (1L << halfBits) - 1;
+
+        long key = scrambleKey;
+        roundKeys = new long[FEISTEL_ROUNDS];
+        for (int i = 0; i < FEISTEL_ROUNDS; i++) {
+            key = mix(key + 0x9E3779B97F4A7C15L);
+            roundKeys[i] = key;
+        }
+
+        logger.info("Short code allocator initialized (length: {}, keyspace: {}, block: {}, scramble: {})",
+                codeLength, keyspace, blockSize, scramble);
+    }
+
+    /**
+     * Next unused short code. Blocks only while leasing a new range from MongoDB.
+     */
+    public synchronized String nextCode() {
+        if (next >= end) {
+            leaseBlock();
+        }
+        long sequence = next++;
+        return encode(scramble ? permute(sequence) : sequence);
+    }
+
+    /**
+     * Allocate several codes at once for bulk creation.
+     */
+    public synchronized List<String> nextCodes(int count) {
+        List<String> codes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            codes.add(nextCode());
+        }
+        return codes;
+    }
+
+    private void leaseBlock() {
+        if (mongoTemplate == null) {
+            throw new IllegalStateException("MongoDB not available - cannot lease short code block");
+        }
+
+        Document counter = mongoTemplate.findAndModify(
+                new Query(Criteria.where("_id").is(COUNTER_ID)),
+                new Update().inc("value", (long) blockSize),
+                FindAndModifyOptions.options().upsert(true).returnNew(true),
+                Document.class, COUNTERS_COLLECTION);
+
+        long leaseEnd = ((Number) counter.get("value")).longValue();
+        if (leaseEnd > keyspace) {
+            throw new IllegalStateException("Short code keyspace exhausted for length " + codeLength);
+        }
+
+        next = leaseEnd - blockSize;
+        end = leaseEnd;
+        logger.debug("Leased short code block [{}, {})", next, end);
+    }
+
+    private String encode(long value) {
+        char[] code = new char[codeLength];
+        for (int i = codeLength - 1; i >= 0; i--) {
+            code[i] = ALPHABET.charAt((int) (value % ALPHABET.length()));
+            value /= ALPHABET.length();
+        }
+        return new String(code);
+    }
+
+    /**
+     * Bijection on [0, keyspace): Feistel permutation over 2 * halfBits bits, re-applied
+     * until the result falls back inside the keyspace.
+     */
+    private long permute(long value) {
+        do {
+            value = feistel(value);
+        } while (value >= keyspace);
+        return value;
+    }
+
+    private long feistel(long value) {
+        long left = value >>> halfBits;
+        long right = value & halfMask;
+        for (long roundKey : roundKeys) {
+            long mixed = left ^ (mix(right ^ roundKey) & halfMask);
+            left = right;
+            right = mixed;
+        }
+        return (left << halfBits) | right;
+    }
+
+    // MurmurHash3 64-bit finalizer
+    private static long mix(long h) {
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+        return h;
+    }
+}
@@ -7,7 +7,6 @@ import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
 import java.util.Optional;
 import java.util.List;
 import org.springframework.scheduling.annotation.Scheduled;
@@ -20,6 +19,9 @@ public class SubscriptionService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private UserContextService userContextService;
+
     // Plan constants
     public static final String FREE_PLAN = "FREE";
     public static final String PRO_MONTHLY = "PRO_MONTHLY";
@@ -48,16 +50,22 @@ public class SubscriptionService {
      * Check if user has premium access (Pro or Business)
      */
     public boolean hasPremiumAccess(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<User> userOpt = userContextService.getUser(userId);
         if (userOpt.isEmpty()) {
             System.out.println("⚠️ User not found: " + userId);
             return false;
         }
 
-        User user = userOpt.get();
+        return hasPremiumAccess(userOpt.get());
+    }
+
+    /**
+     * Check premium access for an already loaded user
+     */
+    public boolean hasPremiumAccess(User user) {
         String plan = user.getSubscriptionPlan();
 
-        System.out.println("🔍 Checking premium access for user: " + userId);
+        System.out.println("🔍 Checking premium access for user: " + user.getId());
         System.out.println("  - Plan: " + plan);
         System.out.println("  - Expiry: " + user.getSubscriptionExpiry());
 
@@ -102,11 +110,17 @@ public class SubscriptionService {
      * Check if user has business plan access
      */
     public boolean hasBusinessAccess(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<User> userOpt = userContextService.getUser(userId);
         if (userOpt.isEmpty())
             return false;
 
-        User user = userOpt.get();
+        return hasBusinessAccess(userOpt.get());
+    }
+
+    /**
+     * Check business access for an already loaded user
+     */
+    public boolean hasBusinessAccess(User user) {
         String plan = user.getSubscriptionPlan();
 
         return (BUSINESS_MONTHLY.equals(plan) || BUSINESS_YEARLY.equals(plan)) &&
@@ -125,28 +139,45 @@ public class SubscriptionService {
         return false;
     }
 
+    /**
+     * Monthly limit for a countable resource on the user's plan, or -1 for unlimited
+     */
+    public int getMonthlyLimit(User user, QuotaResource resource) {
+        boolean premium = hasPremiumAccess(user) || isInTrialPeriod(user);
+        switch (resource) {
+            case URLS:
+                return premium ? -1 : FREE_MONTHLY_URLS;
+            case QR_CODES:
+                return premium ? -1 : FREE_MONTHLY_QR_CODES;
+            case FILES:
+                if (hasBusinessAccess(user)) {
+                    return BUSINESS_MONTHLY_FILES;
+                }
+                return premium ? PRO_MONTHLY_FILES : FREE_MONTHLY_FILES;
+            default:
+                return 0;
+        }
+    }
+
     /**
      * Check if user can create more URLs
      */
     public boolean canCreateUrl(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<User> userOpt = userContextService.getUser(userId);
         if (userOpt.isEmpty())
             return false;
 
         User user = userOpt.get();
 
-        // Reset counters if needed
-        resetMonthlyUsageIfNeeded(user);
-
         // Check limits based on plan
         String plan = user.getSubscriptionPlan();
 
         // Pro and Business plans have unlimited URLs
-        if (hasPremiumAccess(userId) || isInTrialPeriod(user)) {
+        if (hasPremiumAccess(user) || isInTrialPeriod(user)) {
             return true;
         } else {
             // Free plan: check monthly limit (75 URLs per month)
-            return user.getMonthlyUrlsCreated() < FREE_MONTHLY_URLS;
+            return QuotaResource.URLS.monthlyUsage(user, LocalDateTime.now()) < FREE_MONTHLY_URLS;
         }
     }
 
@@ -154,7 +185,7 @@ public class SubscriptionService {
      * Check if user can create more QR codes
      */
     public boolean canCreateQrCode(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<User> userOpt = userContextService.getUser(userId);
         if (userOpt.isEmpty()) {
             logger.debug("User not found for QR creation check, allowing as anonymous");
             return true;
@@ -162,18 +193,15 @@ public class SubscriptionService {
 
         User user = userOpt.get();
 
-        // Reset counters if needed
-        resetMonthlyUsageIfNeeded(user);
-
         // Check limits based on plan
         String plan = user.getSubscriptionPlan();
 
         // Pro and Business plans have unlimited QR codes
-        if (hasPremiumAccess(userId) || isInTrialPeriod(user)) {
+        if (hasPremiumAccess(user) || isInTrialPeriod(user)) {
             return true;
         } else {
             // Free plan: check monthly limit (30 QR codes per month)
-            return user.getMonthlyQrCodesCreated() < FREE_MONTHLY_QR_CODES;
+            return QuotaResource.QR_CODES.monthlyUsage(user, LocalDateTime.now()) < FREE_MONTHLY_QR_CODES;
         }
     }
 
@@ -181,27 +209,24 @@ public class SubscriptionService {
      * Check if user can upload more files
      */
     public boolean canUploadFile(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<User> userOpt = userContextService.getUser(userId);
         if (userOpt.isEmpty())
             return false;
 
         User user = userOpt.get();
 
-        // Reset counters if needed
-        resetMonthlyUsageIfNeeded(user);
-
         // Check limits based on plan
         String plan = user.getSubscriptionPlan();
 
-        if (hasBusinessAccess(userId)) {
+        if (hasBusinessAccess(user)) {
             // Business plan: 200 files per month
-            return user.getMonthlyFilesUploaded() < BUSINESS_MONTHLY_FILES;
-        } else if (hasPremiumAccess(userId) || isInTrialPeriod(user)) {
+            return QuotaResource.FILES.monthlyUsage(user, LocalDateTime.now()) < BUSINESS_MONTHLY_FILES;
+        } else if (hasPremiumAccess(user) || isInTrialPeriod(user)) {
             // Pro plan: 50 files per month
-            return user.getMonthlyFilesUploaded() < PRO_MONTHLY_FILES;
+            return QuotaResource.FILES.monthlyUsage(user, LocalDateTime.now()) < PRO_MONTHLY_FILES;
         } else {
             // Free plan: 5 files per month
-            return user.getMonthlyFilesUploaded() < FREE_MONTHLY_FILES;
+            return QuotaResource.FILES.monthlyUsage(user, LocalDateTime.now()) < FREE_MONTHLY_FILES;
         }
     }
 
@@ -260,102 +285,6 @@ public class SubscriptionService {
         }
     }
 
-    /**
-     * Increment URL usage for user
-     */
-    public void incrementUrlUsage(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty())
-            return;
-
-        User user = userOpt.get();
-        resetDailyUsageIfNeeded(user);
-        resetMonthlyUsageIfNeeded(user);
-
-        user.setDailyUrlsCreated(user.getDailyUrlsCreated() + 1);
-        user.setMonthlyUrlsCreated(user.getMonthlyUrlsCreated() + 1);
-        user.setTotalUrls(user.getTotalUrls() + 1);
-        user.setUpdatedAt(LocalDateTime.now());
-
-        userRepository.save(user);
-        logger.info("Incremented URL usage for user: {}", userId);
-    }
-
-    /**
-     * Increment QR code usage for user
-     */
-    public void incrementQrCodeUsage(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty())
-            return;
-
-        User user = userOpt.get();
-        resetDailyUsageIfNeeded(user);
-        resetMonthlyUsageIfNeeded(user);
-
-        user.setDailyQrCodesCreated(user.getDailyQrCodesCreated() + 1);
-        user.setMonthlyQrCodesCreated(user.getMonthlyQrCodesCreated() + 1);
-        user.setTotalQrCodes(user.getTotalQrCodes() + 1);
-        user.setUpdatedAt(LocalDateTime.now());
-
-        userRepository.save(user);
-        logger.info("Incremented QR code usage for user: {}", userId);
-    }
-
-    /**
-     * Increment file upload usage for user
-     */
-    public void incrementFileUsage(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isEmpty())
-            return;
-
-        User user = userOpt.get();
-        resetDailyUsageIfNeeded(user);
-        resetMonthlyUsageIfNeeded(user);
-
-        user.setDailyFilesUploaded(user.getDailyFilesUploaded() + 1);
-        user.setMonthlyFilesUploaded(user.getMonthlyFilesUploaded() + 1);
-        user.setUpdatedAt(LocalDateTime.now());
-
-        userRepository.save(user);
-        logger.info("Incremented file usage for user: {}", userId);
-    }
-
-    /**
-     * Reset daily usage counters if 24 hours have passed
-     */
-    private void resetDailyUsageIfNeeded(User user) {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime lastReset = user.getLastUsageReset();
-
-        if (lastReset == null || ChronoUnit.HOURS.between(lastReset, now) >= 24) {
-            user.setDailyUrlsCreated(0);
-            user.setDailyQrCodesCreated(0);
-            user.setDailyFilesUploaded(0);
-            user.setLastUsageReset(now);
-            userRepository.save(user);
-            logger.info("Reset daily usage for user: {}", user.getId());
-        }
-    }
-
-    /**
-     * Reset monthly usage counters if 30 days have passed
-     */
-    private void resetMonthlyUsageIfNeeded(User user) {
-        LocalDateTime now = LocalDateTime.now();
-        LocalDateTime lastMonthlyReset = user.getLastMonthlyReset();
-
-        if (lastMonthlyReset == null || ChronoUnit.DAYS.between(lastMonthlyReset, now) >= 30) {
-            user.setMonthlyUrlsCreated(0);
-            user.setMonthlyQrCodesCreated(0);
-            user.setMonthlyFilesUploaded(0);
-            user.setLastMonthlyReset(now);
-            userRepository.save(user);
-            logger.info("Reset monthly usage for user: {}", user.getId());
-        }
-    }
-
     /**
      * Upgrade user to premium plan
      */
@@ -423,12 +352,11 @@ public class SubscriptionService {
      * Get remaining daily URLs for user
      */
     public int getRemainingDailyUrls(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<User> userOpt = userContextService.getUser(userId);
         if (userOpt.isEmpty())
             return 0;
 
         User user = userOpt.get();
-        resetDailyUsageIfNeeded(user);
 
         String plan = user.getSubscriptionPlan();
         int monthlyLimit;
@@ -445,19 +373,18 @@ public class SubscriptionService {
             monthlyLimit = FREE_MONTHLY_URLS;
         }
 
-        return Math.max(0, monthlyLimit - user.getMonthlyUrlsCreated());
+        return Math.max(0, monthlyLimit - QuotaResource.URLS.monthlyUsage(user, LocalDateTime.now()));
     }
 
     /**
      * Get remaining daily QR codes for user
      */
     public int getRemainingDailyQrCodes(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<User> userOpt = userContextService.getUser(userId);
         if (userOpt.isEmpty())
             return 0;
 
         User user = userOpt.get();
-        resetDailyUsageIfNeeded(user);
 
         String plan = user.getSubscriptionPlan();
         int monthlyLimit;
@@ -474,19 +401,18 @@ public class SubscriptionService {
             monthlyLimit = FREE_MONTHLY_QR_CODES;
         }
 
-        return Math.max(0, monthlyLimit - user.getMonthlyQrCodesCreated());
+        return Math.max(0, monthlyLimit - QuotaResource.QR_CODES.monthlyUsage(user, LocalDateTime.now()));
     }
 
     /**
      * Get remaining daily files for user
      */
     public int getRemainingDailyFiles(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<User> userOpt = userContextService.getUser(userId);
         if (userOpt.isEmpty())
             return 0;
 
         User user = userOpt.get();
-        resetDailyUsageIfNeeded(user);
 
         String plan = user.getSubscriptionPlan();
         int monthlyLimit;
@@ -506,74 +432,70 @@ public class SubscriptionService {
             monthlyLimit = FREE_MONTHLY_FILES; // 5 files per month
         }
 
-        return Math.max(0, monthlyLimit - user.getMonthlyFilesUploaded());
+        return Math.max(0, monthlyLimit - QuotaResource.FILES.monthlyUsage(user, LocalDateTime.now()));
     }
 
     /**
      * Get remaining monthly URLs for free user
      */
     public int getRemainingMonthlyUrls(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<User> userOpt = userContextService.getUser(userId);
         if (userOpt.isEmpty())
             return 0;
 
         User user = userOpt.get();
-        resetMonthlyUsageIfNeeded(user);
 
-        if (hasPremiumAccess(userId))
+        if (hasPremiumAccess(user))
             return -1; // Unlimited for premium
 
-        return Math.max(0, FREE_MONTHLY_URLS - user.getMonthlyUrlsCreated());
+        return Math.max(0, FREE_MONTHLY_URLS - QuotaResource.URLS.monthlyUsage(user, LocalDateTime.now()));
     }
 
     /**
      * Get remaining monthly QR codes for free user
      */
     public int getRemainingMonthlyQrCodes(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<User> userOpt = userContextService.getUser(userId);
         if (userOpt.isEmpty())
             return 0;
 
         User user = userOpt.get();
-        resetMonthlyUsageIfNeeded(user);
 
-        if (hasPremiumAccess(userId))
+        if (hasPremiumAccess(user))
             return -1; // Unlimited for premium
 
-        return Math.max(0, FREE_MONTHLY_QR_CODES - user.getMonthlyQrCodesCreated());
+        return Math.max(0, FREE_MONTHLY_QR_CODES - QuotaResource.QR_CODES.monthlyUsage(user, LocalDateTime.now()));
     }
 
     /**
      * Get remaining monthly files for free user
      */
     public int getRemainingMonthlyFiles(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<User> userOpt = userContextService.getUser(userId);
         if (userOpt.isEmpty())
             return 0;
 
         User user = userOpt.get();
-        resetMonthlyUsageIfNeeded(user);
 
-        if (hasPremiumAccess(userId))
+        if (hasPremiumAccess(user))
             return -1; // Unlimited for premium
 
-        return Math.max(0, FREE_MONTHLY_FILES - user.getMonthlyFilesUploaded());
+        return Math.max(0, FREE_MONTHLY_FILES - QuotaResource.FILES.monthlyUsage(user, LocalDateTime.now()));
     }
 
     /**
      * Get user's current plan info
      */
     public UserPlanInfo getUserPlanInfo(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
+        Optional<User> userOpt = userContextService.getUser(userId);
         if (userOpt.isEmpty())
             return new UserPlanInfo();
 
         User user = userOpt.get();
-        resetDailyUsageIfNeeded(user);
 
         UserPlanInfo info = new UserPlanInfo();
         info.setPlan(user.getSubscriptionPlan());
-        info.setHasPremiumAccess(hasPremiumAccess(userId));
+        info.setHasPremiumAccess(hasPremiumAccess(user));
         info.setInTrial(isInTrialPeriod(user));
         info.setTrialEligible(!user.isHasUsedTrial() && isEligibleForTrial(user));
         info.setSubscriptionExpiry(user.getSubscriptionExpiry());
@@ -0,0 +1,365 @@
+package com.urlshortener.service;
+
+import com.urlshortener.model.ClickAnalytics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.redis.connection.BitFieldSubCommands;
+import org.springframework.data.redis.connection.BitFieldSubCommands.BitFieldType;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Rolling 24-hour unique-visitor detection without scanning click history.
+ *
+ * A visitor is the hash of IP + User-Agent. "Seen on this link in the last 24h?" is
+ * answered by a ring of hourly Bloom filters shared by all links (memory is fixed by
+ * configuration, not by link count). A lookup probes all 24 filters, so each is sized for
+ * false-positive-rate / 24 to keep the combined rate at the configured value. Per-user daily
+ * unique visitors are estimated with a HyperLogLog per (user, day). When Redis is configured
+ * the same ring lives in Redis as hourly bitmaps (BITFIELD, one pipelined round trip) and
+ * PFADD/PFCOUNT back the daily sketches, so the state survives restarts and is shared
+ * across nodes without a key per visitor.
+ */
+@Service
+public class UniqueVisitorService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UniqueVisitorService.class);
+
+    private static final int WINDOW_HOURS = 24;
+    private static final String RING_KEY_PREFIX = "pebly:uv:ring:"; // + epoch hour
+
+    @Autowired(required = false)
+    private RedisTemplate<String, Object> redisTemplate;
+
+    @Autowired(required = false)
+    private MongoTemplate mongoTemplate;
+
+    @Value("${app.analytics.unique.expected-visits-per-hour:200000}")
+    private int expectedVisitsPerHour;
+
+    @Value("${app.analytics.unique.false-positive-rate:0.01}")
+    private double falsePositiveRate;
+
+    @Value("${app.analytics.unique.max-tracked-users:50000}")
+    private int maxTrackedUsers;
+
+    private HourlyBloomRing visitRing;
+
+    // "userId:yyyy-MM-dd" -> daily unique visitor sketch
+    private final ConcurrentHashMap<String, HyperLogLog> dailyVisitors = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void initialize() {
+        visitRing = new HourlyBloomRing(WINDOW_HOURS, expectedVisitsPerHour, falsePositiveRate);
+        logger.info("Unique visitor tracking initialized ({} KB in-memory Bloom ring, Redis: {})",
+                visitRing.sizeInBytes() / 1024, redisTemplate != null);
+    }
+
+    /**
+     * Record a visit and report whether it is the visitor's first on this link in the last 24 hours.
+     */
+    public boolean recordVisit(String shortCode, String userId, String ipAddress, String userAgent) {
+        long visitorHash = hash(ipAddress + "|" + userAgent);
+        long linkVisitorHash = hash(shortCode + "|" + Long.toHexString(visitorHash));
+
+        if (userId != null) {
+            addDailyVisitor(userId, visitorHash);
+        }
+
+        if (redisTemplate != null) {
+            try {
+                return addToRedisRing(linkVisitorHash, currentEpochHour());
+            } catch (Exception e) {
+                logger.debug("Redis unique-visitor check failed, using in-memory ring: {}", e.getMessage());
+            }
+        }
+
+        return visitRing.addIfAbsent(linkVisitorHash, currentEpochHour());
+    }
+
+    /**
+     * Estimated number of distinct visitors across all of the user's links today.
+     */
+    public long getUniqueVisitorsToday(String userId) {
+        LocalDate today = LocalDate.now();
+
+        if (redisTemplate != null) {
+            try {
+                Long count = redisTemplate.opsForHyperLogLog().size(dailyRedisKey(userId, today));
+                if (count != null && count > 0) {
+                    return count;
+                }
+            } catch (Exception e) {
+                logger.debug("Redis HyperLogLog read failed, using in-memory sketch: {}", e.getMessage());
+            }
+        }
+
+        HyperLogLog sketch = dailyVisitors.get(dailyKey(userId, today));
+        if (sketch == null) {
+            sketch = seedDailyVisitors(userId, today);
+        }
+        return sketch != null ? sketch.estimate() : 0;
+    }
+
+    /**
+     * Redis copy of the Bloom ring: one bitmap per hour, probed and updated in one pipeline.
+     */
+    private boolean addToRedisRing(long hash, long epochHour) {
+        int[] bits = visitRing.bitPositions(hash);
+
+        BitFieldSubCommands probe = BitFieldSubCommands.create();
+        BitFieldSubCommands mark = BitFieldSubCommands.create();
+        for (int bit : bits) {
+            probe = probe.get(BitFieldType.unsigned(1)).valueAt(bit);
+            mark = mark.set(BitFieldType.unsigned(1)).valueAt(bit).to(1);
+        }
+        BitFieldSubCommands probeAll = probe;
+        BitFieldSubCommands markAll = mark;
+        byte[] currentKey = ringKey(epochHour);
+
+        List<Object> results = redisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            for (int age = 0; age < WINDOW_HOURS; age++) {
+                connection.stringCommands().bitField(ringKey(epochHour - age), probeAll);
+            }
+            connection.stringCommands().bitField(currentKey, markAll);
+            connection.keyCommands().expire(currentKey, Duration.ofHours(WINDOW_HOURS + 1).toSeconds());
+            return null;
+        });
+
+        for (int age = 0; age < WINDOW_HOURS; age++) {
+            if (results.get(age) instanceof List<?> values && !values.isEmpty()
+                    && values.stream().allMatch(value -> value instanceof Long bit && bit == 1L)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static byte[] ringKey(long epochHour) {
+        return (RING_KEY_PREFIX + epochHour).getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void addDailyVisitor(String userId, long visitorHash) {
+        LocalDate today = LocalDate.now();
+
+        if (redisTemplate != null) {
+            try {
+                String key = dailyRedisKey(userId, today);
+                redisTemplate.opsForHyperLogLog().add(key, Long.toHexString(visitorHash));
+                redisTemplate.expire(key, Duration.ofHours(48));
+                return;
+            } catch (Exception e) {
+                logger.debug("Redis HyperLogLog update failed, using in-memory sketch: {}", e.getMessage());
+            }
+        }
+
+        // Only maintain sketches that were seeded from stored clicks, so counts never start from zero mid-day
+        HyperLogLog sketch = dailyVisitors.get(dailyKey(userId, today));
+        if (sketch != null) {
+            sketch.add(visitorHash);
+        }
+    }
+
+    /**
+     * Build today's sketch for a user from stored clicks (ip + user agent projection only).
+     */
+    private HyperLogLog seedDailyVisitors(String userId, LocalDate today) {
+        if (mongoTemplate == null) {
+            return null;
+        }
+
+        evictStaleSketches(today);
+        if (dailyVisitors.size() >= maxTrackedUsers) {
+            logger.warn("Unique visitor sketch limit reached ({}), not tracking user: {}", maxTrackedUsers, userId);
+            return null;
+        }
+
+        Query query = new Query(Criteria.where("userId").is(userId)
+            .and("clickedAt").gte(today.atStartOfDay()));
+        query.fields().include("ipAddress").include("userAgent");
+
+        HyperLogLog sketch = new HyperLogLog();
+        try (var clicks = mongoTemplate.stream(query, ClickAnalytics.class)) {
+            clicks.forEach(click -> sketch.add(hash(click.getIpAddress() + "|" + click.getUserAgent())));
+        }
+
+        HyperLogLog existing = dailyVisitors.putIfAbsent(dailyKey(userId, today), sketch);
+        return existing != null ? existing : sketch;
+    }
+
+    private void evictStaleSketches(LocalDate today) {
+        String suffix = ":" + today;
+        dailyVisitors.keySet().removeIf(key -> !key.endsWith(suffix));
+    }
+
+    private String dailyKey(String userId, LocalDate day) {
+        return userId + ":" + day;
+    }
+
+    private String dailyRedisKey(String userId, LocalDate day) {
+        return "pebly:uv:user:" + userId + ":" + day;
+    }
+
+    private long currentEpochHour() {
+        return LocalDateTime.now().toEpochSecond(ZoneOffset.UTC) / 3600;
+    }
+
+    /**
+     * 64-bit FNV-1a followed by the MurmurHash3 finalizer for good bit diffusion.
+     */
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= (b & 0xff);
+            h *= 0x100000001b3L;
+        }
+        h ^= (h >>> 33);
+        h *= 0xff51afd7ed558ccdL;
+        h ^= (h >>> 33);
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= (h >>> 33);
+        return h;
+    }
+
+    /**
+     * Ring of hourly Bloom filters; a bucket is cleared when its hour slot is reused.
+     */
+    private static class HourlyBloomRing {
+        private final AtomicLongArray[] buckets;
+        private final long[] bucketHours;
+        private final int bitCount;
+        private final int hashCount;
+
+        HourlyBloomRing(int hours, int expectedPerHour, double fpp) {
+            // A lookup checks every bucket: 1 - (1 - p)^hours ~= hours * p, so each bucket gets fpp / hours
+            double bucketFpp = fpp / hours;
+            double bits = -expectedPerHour * Math.log(bucketFpp) / (Math.log(2) * Math.log(2));
+            this.bitCount = (int) Math.max(1024, Math.min(Integer.MAX_VALUE - 63L, (long) bits));
+            this.hashCount = Math.max(1, (int) Math.round(bitCount / (double) expectedPerHour * Math.log(2)));
+            this.buckets = new AtomicLongArray[hours];
+            this.bucketHours = new long[hours];
+            for (int i = 0; i < hours; i++) {
+                buckets[i] = new AtomicLongArray((bitCount + 63) / 64);
+                bucketHours[i] = -1;
+            }
+        }
+
+        boolean addIfAbsent(long hash, long epochHour) {
+            boolean seen = false;
+            for (int i = 0; i < buckets.length && !seen; i++) {
+                long age = epochHour - bucketHours[i];
+                if (age >= 0 && age < buckets.length && contains(buckets[i], hash)) {
+                    seen = true;
+                }
+            }
+
+            AtomicLongArray current = bucketFor(epochHour);
+            set(current, hash);
+            return !seen;
+        }
+
+        private AtomicLongArray bucketFor(long epochHour) {
+            int slot = (int) (epochHour % buckets.length);
+            if (bucketHours[slot] != epochHour) {
+                synchronized (this) {
+                    if (bucketHours[slot] != epochHour) {
+                        AtomicLongArray bucket = buckets[slot];
+                        for (int i = 0; i < bucket.length(); i++) {
+                            bucket.set(i, 0L);
+                        }
+                        bucketHours[slot] = epochHour;
+                    }
+                }
+            }
+            return buckets[slot];
+        }
+
+        /**
+         * Bits a hash maps to (double hashing), shared with the Redis ring.
+         */
+        int[] bitPositions(long hash) {
+            int h1 = (int) hash;
+            int h2 = (int) (hash >>> 32);
+            int[] bits = new int[hashCount];
+            for (int i = 1; i <= hashCount; i++) {
+                bits[i - 1] = ((h1 + i * h2) & Integer.MAX_VALUE) % bitCount;
+            }
+            return bits;
+        }
+
+        private boolean contains(AtomicLongArray bucket, long hash) {
+            for (int bit : bitPositions(hash)) {
+                if ((bucket.get(bit >>> 6) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void set(AtomicLongArray bucket, long hash) {
+            for (int bit : bitPositions(hash)) {
+                long mask = 1L << bit;
+                int word = bit >>> 6;
+                long current;
+                do {
+                    current = bucket.get(word);
+                } while ((current & mask) == 0 && !bucket.compareAndSet(word, current, current | mask));
+            }
+        }
+
+        long sizeInBytes() {
+            return (long) buckets.length * ((bitCount + 63) / 64) * 8L;
+        }
+    }
+
+    /**
+     * HyperLogLog with 2^11 registers (about 2.3% standard error, 2 KB per sketch).
+     */
+    private static class HyperLogLog {
+        private static final int P = 11;
+        private static final int M = 1 << P;
+        private static final double ALPHA = 0.7213 / (1 + 1.079 / M);
+
+        private final byte[] registers = new byte[M];
+
+        synchronized void add(long hash) {
+            int index = (int) (hash >>> (64 - P));
+            int rank = Long.numberOfLeadingZeros((hash << P) | (1L << (P - 1))) + 1;
+            if (rank > registers[index]) {
+                registers[index] = (byte) rank;
+            }
+        }
+
+        synchronized long estimate() {
+            double sum = 0;
+            int zeros = 0;
+            for (byte register : registers) {
+                sum += 1.0 / (1L << register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+            double estimate = ALPHA * M * M / sum;
+            if (estimate <= 2.5 * M && zeros > 0) {
+                estimate = M * Math.log((double) M / zeros); // Linear counting for small cardinalities
+            }
+            return Math.round(estimate);
+        }
+    }
+}
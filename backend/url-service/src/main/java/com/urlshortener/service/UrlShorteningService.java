@@ -1,21 +1,35 @@
 package com.urlshortener.service;
 
+import com.urlshortener.exception.PlanLimitException;
 import com.urlshortener.model.ShortenedUrl;
 import com.urlshortener.model.User;
 import com.urlshortener.repository.ShortenedUrlRepository;
 import com.urlshortener.repository.UserRepository;
+import org.bson.types.ObjectId;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.cache.annotation.Cacheable;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.CachePut;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Optional;
-import java.util.Random;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
 
 @Service
 public class UrlShorteningService {
@@ -26,24 +40,46 @@ public class UrlShorteningService {
     private final UserRepository userRepository;
     private final CacheService cacheService;
     private final SubscriptionService subscriptionService;
+    private final QuotaService quotaService;
+    private final LinkResolver linkResolver;
+    private final ClickCounterService clickCounterService;
+    private final ShortCodeAllocator shortCodeAllocator;
+    private final MongoTemplate mongoTemplate;
+    private final DashboardSummaryService dashboardSummaryService;
+    private final LinkSearchService linkSearchService;
+    
+    private static final int BULK_CHUNK_SIZE = 500;
+    private static final int MAX_CODE_ATTEMPTS = 3;
+    private static final String SHORT_CODE_TAKEN = "Short code already exists";
     
     @Autowired
     public UrlShorteningService(ShortenedUrlRepository shortenedUrlRepository,
                                UserRepository userRepository,
                                CacheService cacheService,
-                               SubscriptionService subscriptionService) {
+                               SubscriptionService subscriptionService,
+                               QuotaService quotaService,
+                               LinkResolver linkResolver,
+                               ClickCounterService clickCounterService,
+                               ShortCodeAllocator shortCodeAllocator,
+                               MongoTemplate mongoTemplate,
+                               DashboardSummaryService dashboardSummaryService,
+                               LinkSearchService linkSearchService) {
         this.shortenedUrlRepository = shortenedUrlRepository;
         this.userRepository = userRepository;
         this.cacheService = cacheService;
         this.subscriptionService = subscriptionService;
+        this.quotaService = quotaService;
+        this.linkResolver = linkResolver;
+        this.clickCounterService = clickCounterService;
+        this.shortCodeAllocator = shortCodeAllocator;
+        this.mongoTemplate = mongoTemplate;
+        this.dashboardSummaryService = dashboardSummaryService;
+        this.linkSearchService = linkSearchService;
     }
     
     @Value("${app.shorturl.domain:https://pebly.vercel.app}")
     private String shortUrlDomain;
     
-    private static final String CHARACTERS = "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
-    private static final int SHORT_CODE_LENGTH = 6;
-    
     public ShortenedUrl createShortUrl(String originalUrl, String userId, String customAlias, 
                                      String password, Integer expirationDays, Integer maxClicks, String title, String description) {
         return createShortUrl(originalUrl, userId, customAlias, password, expirationDays, maxClicks, title, description, "USER", userId);
@@ -64,12 +100,6 @@ public class UrlShorteningService {
             throw new RuntimeException("Invalid URL format");
         }
         
-        // Check subscription limits
-        if (!subscriptionService.canCreateUrl(userId)) {
-            int remaining = subscriptionService.getRemainingDailyUrls(userId);
-            throw new RuntimeException("Daily URL limit reached. You have " + remaining + " URLs remaining today. Upgrade to Premium for unlimited access.");
-        }
-        
         // Check premium features
         if (customAlias != null && !customAlias.trim().isEmpty() && !subscriptionService.canUseCustomAlias(userId)) {
             throw new RuntimeException("Custom aliases are available with Premium plans only.");
@@ -91,66 +121,39 @@ public class UrlShorteningService {
             }
             shortCode = customAlias;
         } else {
-            shortCode = generateUniqueShortCode();
+            shortCode = shortCodeAllocator.nextCode();
         }
         
         // Create shortened URL
-        ShortenedUrl shortenedUrl = new ShortenedUrl(originalUrl, shortCode, userId, scopeType, scopeId);
+        ShortenedUrl shortenedUrl = buildShortenedUrl(originalUrl, shortCode, userId, customAlias, password,
+            expirationDays, maxClicks, title, description, scopeType, scopeId, customDomain);
         
-        // Set password protection first (before generating short URL)
-        boolean isPasswordProtected = password != null && !password.trim().isEmpty();
-        if (isPasswordProtected) {
-            shortenedUrl.setPassword(password);
-            shortenedUrl.setPasswordProtected(true);
+        // Check and reserve subscription quota atomically; given back if the save fails
+        QuotaService.Reservation reservation = quotaService.tryReserve(userId, QuotaResource.URLS);
+        if (reservation == QuotaService.Reservation.UNKNOWN_USER) {
+            throw new RuntimeException("User not found");
         }
-        
-        // Set the complete short URL with custom domain or default domain
-        String domainToUse = customDomain != null ? customDomain : shortUrlDomain;
-        String baseUrl = domainToUse.startsWith("http") ? domainToUse : "https://" + domainToUse;
-        
-        // For password-protected links, use /redirect/ path
-        String fullShortUrl;
-        if (isPasswordProtected) {
-            fullShortUrl = baseUrl + "/redirect/" + shortCode;
-        } else {
-            fullShortUrl = baseUrl + "/" + shortCode;
+        if (reservation == QuotaService.Reservation.LIMIT_REACHED) {
+            throw new PlanLimitException("Monthly URL limit reached. Upgrade to Premium for unlimited access.");
         }
-        shortenedUrl.setShortUrl(fullShortUrl);
         
-        // Store the domain for multi-tenant support
-        if (customDomain != null) {
-            // For custom domains, store the custom domain
-            shortenedUrl.setDomain(customDomain);
-        } else {
-            // For default domain URLs, store the default domain (not the original URL's domain)
-            String defaultDomain = extractDomainFromUrl(shortUrlDomain);
-            shortenedUrl.setDomain(defaultDomain);
-        }
-        
-        shortenedUrl.setCustomAlias(customAlias);
-        shortenedUrl.setTitle(title);
-        shortenedUrl.setDescription(description);
-        
-        // Set expiration
-        if (expirationDays != null && expirationDays > 0) {
-            shortenedUrl.setExpiresAt(LocalDateTime.now().plusDays(expirationDays));
+        // Save to database
+        ShortenedUrl saved;
+        try {
+            saved = saveWithAllocatedCode(shortenedUrl, customAlias == null || customAlias.trim().isEmpty());
+        } catch (RuntimeException e) {
+            quotaService.release(userId, QuotaResource.URLS, 1);
+            throw e;
         }
+        shortCode = saved.getShortCode();
         
-        // Set max clicks limit
-        if (maxClicks != null && maxClicks > 0) {
-            shortenedUrl.setMaxClicks(maxClicks);
-        }
+        // Drop any cached "not found" resolution for this code
+        linkResolver.invalidate(shortCode);
+        dashboardSummaryService.linksCreated(List.of(saved));
+        linkSearchService.linksSaved(List.of(saved));
         
-        // Note: Domain is already set above for custom domains
-        // Don't overwrite the custom domain with the original URL's domain
-        
-        // Save to database
-        ShortenedUrl saved = shortenedUrlRepository.save(shortenedUrl);
-        
-        // Update user statistics and usage tracking
+        // Usage and totals were counted by the reservation
         if (userId != null) {
-            updateUserStats(userId);
-            subscriptionService.incrementUrlUsage(userId);
             // Invalidate user URLs cache
             cacheService.clearCache("userUrls", userId);
         }
@@ -160,59 +163,256 @@ public class UrlShorteningService {
         return saved;
     }
     
-    public Optional<ShortenedUrl> getByShortCode(String shortCode) {
-        return shortenedUrlRepository.findByShortCode(shortCode);
-    }
-    
     /**
-     * Find URL by shortCode and domain for multi-tenant support
-     * Enhanced with better error handling and fallback logic
+     * Create many links for one user.
+     *
+     * The user and plan are loaded once; each chunk reserves quota with one conditional
+     * update, takes codes from the block allocator and is written with one unordered bulk
+     * insert. One result per item is handed to resultSink in input order.
      */
-    public Optional<ShortenedUrl> getByShortCodeAndDomain(String shortCode, String domain) {
-        try {
-            // Try with caching first
-            return getByShortCodeAndDomainCached(shortCode, domain);
-        } catch (Exception e) {
-            logger.warn("Cache lookup failed for shortCode: {} domain: {}, falling back to direct DB query: {}", 
-                       shortCode, domain, e.getMessage());
-            // Fallback to direct database query without caching
-            return getByShortCodeAndDomainDirect(shortCode, domain);
+    public Map<String, Object> createShortUrlsBulk(String userId, List<Map<String, Object>> items,
+                                                   Consumer<Map<String, Object>> resultSink) {
+        User user = userRepository.findById(userId)
+            .orElseThrow(() -> new RuntimeException("User not found"));
+        boolean premium = subscriptionService.hasPremiumAccess(user);
+        
+        int created = 0;
+        for (int from = 0; from < items.size(); from += BULK_CHUNK_SIZE) {
+            List<Map<String, Object>> chunk = items.subList(from, Math.min(from + BULK_CHUNK_SIZE, items.size()));
+            created += createBulkChunk(user, premium, from, chunk, resultSink);
         }
+        
+        if (created > 0) {
+            cacheService.clearCache("userUrls", userId);
+        }
+        
+        logger.info("Bulk created {} of {} short URLs for user: {}", created, items.size(), userId);
+        
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("total", items.size());
+        summary.put("created", created);
+        summary.put("failed", items.size() - created);
+        return summary;
     }
     
-    @Cacheable(value = "short_urls", key = "#shortCode + ':' + #domain")
-    public Optional<ShortenedUrl> getByShortCodeAndDomainCached(String shortCode, String domain) {
-        return getByShortCodeAndDomainDirect(shortCode, domain);
+    private int createBulkChunk(User user, boolean premium, int offset, List<Map<String, Object>> chunk,
+                                Consumer<Map<String, Object>> resultSink) {
+        List<Map<String, Object>> results = new ArrayList<>(Collections.nCopies(chunk.size(), null));
+        List<Integer> accepted = new ArrayList<>();
+        Set<String> aliases = new HashSet<>();
+        
+        // Validate every item against the plan loaded once for the whole request
+        for (int i = 0; i < chunk.size(); i++) {
+            Map<String, Object> item = chunk.get(i);
+            String alias = trimToNull(item.get("customAlias"));
+            String error = validateBulkItem(item, alias, premium);
+            if (error == null && alias != null && !aliases.add(alias)) {
+                error = "Duplicate custom alias in request";
+            }
+            if (error != null) {
+                results.set(i, bulkFailure(offset + i, error));
+            } else {
+                accepted.add(i);
+            }
+        }
+        
+        // One lookup for all requested aliases
+        if (!aliases.isEmpty()) {
+            Set<String> taken = shortenedUrlRepository.findShortCodesIn(aliases).stream()
+                .map(ShortenedUrl::getShortCode)
+                .collect(Collectors.toSet());
+            accepted.removeIf(i -> {
+                String alias = trimToNull(chunk.get(i).get("customAlias"));
+                if (alias != null && taken.contains(alias)) {
+                    results.set(i, bulkFailure(offset + i, "Custom alias already exists"));
+                    return true;
+                }
+                return false;
+            });
+        }
+        
+        // Reserve quota for the chunk; items past the limit fail
+        int granted = quotaService.reserve(user.getId(), QuotaResource.URLS, accepted.size());
+        while (accepted.size() > granted) {
+            int i = accepted.remove(accepted.size() - 1);
+            results.set(i, bulkFailure(offset + i, "Monthly URL limit reached. Upgrade to Premium for unlimited access."));
+        }
+        
+        // Everything reserved but not created is given back, whatever fails below
+        List<ShortenedUrl> created = new ArrayList<>(accepted.size());
+        try {
+            // Build documents with pre-assigned ids so results can report them
+            List<ShortenedUrl> documents = new ArrayList<>(accepted.size());
+            for (int i : accepted) {
+                Map<String, Object> item = chunk.get(i);
+                String alias = trimToNull(item.get("customAlias"));
+                String shortCode = alias != null ? alias : shortCodeAllocator.nextCode();
+                ShortenedUrl shortenedUrl = buildShortenedUrl((String) item.get("originalUrl"), shortCode, user.getId(), alias,
+                    trimToNull(item.get("password")), toInteger(item.get("expirationDays")), toInteger(item.get("maxClicks")),
+                    (String) item.get("title"), (String) item.get("description"),
+                    (String) item.getOrDefault("scopeType", "USER"), (String) item.getOrDefault("scopeId", user.getId()),
+                    trimToNull(item.get("customDomain")));
+                shortenedUrl.setId(new ObjectId().toHexString());
+                documents.add(shortenedUrl);
+            }
+            
+            Map<Integer, String> insertErrors = insertBulkDocuments(documents);
+            
+            // A generated code only collides with a custom alias that took the same string;
+            // those items get the next allocated code, as in the single create path
+            for (int attempt = 2; attempt <= MAX_CODE_ATTEMPTS; attempt++) {
+                List<Integer> retry = insertErrors.entrySet().stream()
+                    .filter(e -> SHORT_CODE_TAKEN.equals(e.getValue()) && documents.get(e.getKey()).getCustomAlias() == null)
+                    .map(Map.Entry::getKey)
+                    .sorted()
+                    .toList();
+                if (retry.isEmpty()) {
+                    break;
+                }
+                List<ShortenedUrl> retryDocuments = new ArrayList<>(retry.size());
+                for (int k : retry) {
+                    assignNextCode(documents.get(k));
+                    retryDocuments.add(documents.get(k));
+                    insertErrors.remove(k);
+                }
+                insertBulkDocuments(retryDocuments).forEach((r, error) -> insertErrors.put(retry.get(r), error));
+            }
+            
+            for (int k = 0; k < documents.size(); k++) {
+                int i = accepted.get(k);
+                ShortenedUrl shortenedUrl = documents.get(k);
+                if (insertErrors.containsKey(k)) {
+                    results.set(i, bulkFailure(offset + i, insertErrors.get(k)));
+                    continue;
+                }
+                
+                // Drop any cached "not found" resolution for the code
+                linkResolver.invalidate(shortenedUrl.getShortCode());
+                
+                Map<String, Object> result = new HashMap<>();
+                result.put("index", offset + i);
+                result.put("success", true);
+                result.put("id", shortenedUrl.getId());
+                result.put("shortCode", shortenedUrl.getShortCode());
+                result.put("shortUrl", shortenedUrl.getShortUrl());
+                result.put("originalUrl", shortenedUrl.getOriginalUrl());
+                results.set(i, result);
+                created.add(shortenedUrl);
+            }
+        } catch (RuntimeException e) {
+            logger.error("Bulk chunk at offset {} failed for user {}: {}", offset, user.getId(), e.getMessage());
+            for (int i : accepted) {
+                if (results.get(i) == null) {
+                    results.set(i, bulkFailure(offset + i, "Failed to create short URL, please retry"));
+                }
+            }
+        } finally {
+            quotaService.release(user.getId(), QuotaResource.URLS, accepted.size() - created.size());
+        }
+        
+        dashboardSummaryService.linksCreated(created);
+        linkSearchService.linksSaved(created);
+        results.forEach(resultSink);
+        return created.size();
     }
     
     /**
-     * Direct database lookup without caching (fallback method)
+     * Unordered insert of a chunk; returns the errors by document index. When the write fails
+     * as a whole (timeout, network) the documents that did land are looked up by id, since an
+     * unordered insert may have applied any subset of them.
      */
-    public Optional<ShortenedUrl> getByShortCodeAndDomainDirect(String shortCode, String domain) {
+    private Map<Integer, String> insertBulkDocuments(List<ShortenedUrl> documents) {
+        Map<Integer, String> insertErrors = new HashMap<>();
+        if (documents.isEmpty()) {
+            return insertErrors;
+        }
+        
         try {
-            // First try to find by shortCode and exact domain match
-            Optional<ShortenedUrl> urlOpt = shortenedUrlRepository.findByShortCodeAndDomain(shortCode, domain);
-            
-            // If not found and we have a domain, try some fallback strategies
-            if (urlOpt.isEmpty() && domain != null) {
-                String defaultDomain = extractDomainFromUrl(shortUrlDomain);
-                
-                // For default domain requests, also try with null domain (legacy URLs)
-                if (domain.equals(defaultDomain)) {
-                    urlOpt = shortenedUrlRepository.findByShortCodeAndDomain(shortCode, null);
-                }
-                
-                // If still not found, try shortCode only (most permissive)
-                if (urlOpt.isEmpty()) {
-                    urlOpt = shortenedUrlRepository.findByShortCode(shortCode);
+            mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ShortenedUrl.class)
+                .insert(documents)
+                .execute();
+        } catch (BulkOperationException e) {
+            e.getErrors().forEach(error -> insertErrors.put(error.getIndex(),
+                error.getCode() == 11000 ? SHORT_CODE_TAKEN : error.getMessage()));
+        } catch (RuntimeException e) {
+            logger.warn("Bulk insert of {} links failed, checking which were saved: {}", documents.size(), e.getMessage());
+            List<String> ids = documents.stream().map(ShortenedUrl::getId).toList();
+            Query query = new Query(Criteria.where("_id").in(ids));
+            query.fields().include("_id");
+            // If this lookup fails too, the outer handler fails the whole chunk
+            Set<String> saved = mongoTemplate.find(query, ShortenedUrl.class).stream()
+                .map(ShortenedUrl::getId)
+                .collect(Collectors.toSet());
+            for (int k = 0; k < documents.size(); k++) {
+                if (!saved.contains(documents.get(k).getId())) {
+                    insertErrors.put(k, "Failed to create short URL, please retry");
                 }
             }
-            
-            return urlOpt;
-        } catch (Exception e) {
-            logger.error("Database lookup failed for shortCode: {} domain: {}", shortCode, domain, e);
-            return Optional.empty();
         }
+        return insertErrors;
+    }
+    
+    private String validateBulkItem(Map<String, Object> item, String alias, boolean premium) {
+        Object originalUrl = item.get("originalUrl");
+        if (!(originalUrl instanceof String) || ((String) originalUrl).trim().isEmpty()) {
+            return "Original URL is required";
+        }
+        if (!isValidUrl((String) originalUrl)) {
+            return "Invalid URL format";
+        }
+        if (alias != null && !premium) {
+            return "Custom aliases are available with Premium plans only.";
+        }
+        if (trimToNull(item.get("password")) != null && !premium) {
+            return "Password protection is available with Premium plans only.";
+        }
+        Integer expirationDays = toInteger(item.get("expirationDays"));
+        if (expirationDays != null && expirationDays > 0 && !premium) {
+            return "Link expiration is available with Premium plans only.";
+        }
+        return null;
+    }
+    
+    private Map<String, Object> bulkFailure(int index, String message) {
+        Map<String, Object> result = new HashMap<>();
+        result.put("index", index);
+        result.put("success", false);
+        result.put("message", message);
+        return result;
+    }
+    
+    private static String trimToNull(Object value) {
+        if (!(value instanceof String) || ((String) value).trim().isEmpty()) {
+            return null;
+        }
+        return ((String) value).trim();
+    }
+    
+    private static Integer toInteger(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).intValue();
+        }
+        if (value instanceof String && !((String) value).isEmpty()) {
+            try {
+                return Integer.parseInt((String) value);
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        return null;
+    }
+    
+    public Optional<ShortenedUrl> getByShortCode(String shortCode) {
+        return shortenedUrlRepository.findByShortCode(shortCode);
+    }
+    
+    /**
+     * Find URL by shortCode and domain for multi-tenant support
+     * Resolved through LinkResolver: one cached lookup covers exact, legacy and fallback matches
+     */
+    public Optional<ShortenedUrl> getByShortCodeAndDomain(String shortCode, String domain) {
+        return linkResolver.resolve(domain, shortCode)
+            .flatMap(link -> shortenedUrlRepository.findByShortCode(link.getShortCode()));
     }
     
     /**
@@ -278,8 +478,10 @@ public class UrlShorteningService {
         existing.setUpdatedAt(LocalDateTime.now());
         
         ShortenedUrl updated = shortenedUrlRepository.save(existing);
+        linkSearchService.linksSaved(List.of(updated));
         
         // Invalidate relevant caches
+        linkResolver.invalidate(shortCode);
         cacheService.clearCache("userUrls", userId);
         cacheService.invalidateUrlAnalytics(shortCode, userId);
         
@@ -288,17 +490,13 @@ public class UrlShorteningService {
         return updated;
     }
     
-    @CacheEvict(value = {"clickCounts", "urlAnalytics", "userAnalytics"}, key = "#shortCode")
     public void incrementClicks(String shortCode) {
-        Optional<ShortenedUrl> urlOpt = shortenedUrlRepository.findByShortCode(shortCode);
-        if (urlOpt.isPresent()) {
-            ShortenedUrl url = urlOpt.get();
-            url.setTotalClicks(url.getTotalClicks() + 1);
-            url.setLastClickedAt(LocalDateTime.now());
-            shortenedUrlRepository.save(url);
-            
-            // Invalidate user analytics cache
-            cacheService.invalidateUserAnalytics(url.getUserId());
+        // Atomic $inc - no read-modify-write, so concurrent clicks are never lost
+        String ownerId = clickCounterService.incrementTotalClicks(shortCode);
+        if (ownerId != null) {
+            // Mark link and user analytics stale (coalesced with other clicks)
+            cacheService.markUrlAnalyticsStale(shortCode, ownerId);
+            dashboardSummaryService.addClicks(shortCode, 1);
             
             logger.debug("Incremented clicks for URL: {}", shortCode);
         }
@@ -320,32 +518,99 @@ public class UrlShorteningService {
         
         // Hard delete - actually remove from database
         shortenedUrlRepository.delete(existing);
+        dashboardSummaryService.linkDeleted(existing);
+        linkSearchService.linkRemoved(existing);
         
         // Invalidate relevant caches
+        linkResolver.invalidate(shortCode);
         cacheService.clearCache("userUrls", userId);
         cacheService.invalidateUrlAnalytics(shortCode, userId);
         
         logger.info("Permanently deleted URL: {} for user: {}", shortCode, userId);
     }
     
-    private String generateUniqueShortCode() {
-        String shortCode;
-        do {
-            shortCode = generateRandomString(SHORT_CODE_LENGTH);
-        } while (shortenedUrlRepository.existsByShortCode(shortCode));
+    /**
+     * Populate a new link document (short URL, domain, protection, expiry and click cap).
+     */
+    private ShortenedUrl buildShortenedUrl(String originalUrl, String shortCode, String userId, String customAlias,
+                                           String password, Integer expirationDays, Integer maxClicks, String title,
+                                           String description, String scopeType, String scopeId, String customDomain) {
+        ShortenedUrl shortenedUrl = new ShortenedUrl(originalUrl, shortCode, userId, scopeType, scopeId);
         
-        return shortCode;
-    }
-    
-    private String generateRandomString(int length) {
-        Random random = new Random();
-        StringBuilder sb = new StringBuilder(length);
+        // Set password protection first (before generating short URL)
+        boolean isPasswordProtected = password != null && !password.trim().isEmpty();
+        if (isPasswordProtected) {
+            shortenedUrl.setPassword(password);
+            shortenedUrl.setPasswordProtected(true);
+        }
+        
+        // Set the complete short URL with custom domain or default domain
+        String domainToUse = customDomain != null ? customDomain : shortUrlDomain;
+        String baseUrl = domainToUse.startsWith("http") ? domainToUse : "https://" + domainToUse;
         
-        for (int i = 0; i < length; i++) {
-            sb.append(CHARACTERS.charAt(random.nextInt(CHARACTERS.length())));
+        // For password-protected links, use /redirect/ path
+        String fullShortUrl;
+        if (isPasswordProtected) {
+            fullShortUrl = baseUrl + "/redirect/" + shortCode;
+        } else {
+            fullShortUrl = baseUrl + "/" + shortCode;
+        }
+        shortenedUrl.setShortUrl(fullShortUrl);
+        
+        // Store the domain for multi-tenant support
+        if (customDomain != null) {
+            // For custom domains, store the custom domain
+            shortenedUrl.setDomain(customDomain);
+        } else {
+            // For default domain URLs, store the default domain (not the original URL's domain)
+            String defaultDomain = extractDomainFromUrl(shortUrlDomain);
+            shortenedUrl.setDomain(defaultDomain);
+        }
+        
+        shortenedUrl.setCustomAlias(customAlias);
+        shortenedUrl.setTitle(title);
+        shortenedUrl.setDescription(description);
+        
+        // Set expiration
+        if (expirationDays != null && expirationDays > 0) {
+            shortenedUrl.setExpiresAt(LocalDateTime.now().plusDays(expirationDays));
+        }
+        
+        // Set max clicks limit
+        if (maxClicks != null && maxClicks > 0) {
+            shortenedUrl.setMaxClicks(maxClicks);
         }
         
-        return sb.toString();
+        // Note: Domain is already set above for custom domains
+        // Don't overwrite the custom domain with the original URL's domain
+        
+        return shortenedUrl;
+    }
+    
+    /**
+     * Insert the link. Allocated codes are unique by construction; the unique shortCode
+     * index only trips if a custom alias already took the same string, in which case
+     * the next allocated code is used.
+     */
+    private ShortenedUrl saveWithAllocatedCode(ShortenedUrl shortenedUrl, boolean generatedCode) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                return shortenedUrlRepository.save(shortenedUrl);
+            } catch (DuplicateKeyException e) {
+                if (!generatedCode || attempt >= MAX_CODE_ATTEMPTS) {
+                    throw new RuntimeException(SHORT_CODE_TAKEN);
+                }
+                assignNextCode(shortenedUrl);
+            }
+        }
+    }
+    
+    private void assignNextCode(ShortenedUrl shortenedUrl) {
+        String retryCode = shortCodeAllocator.nextCode();
+        logger.warn("Allocated short code {} is taken by an alias, using {}", shortenedUrl.getShortCode(), retryCode);
+        shortenedUrl.setShortCode(retryCode);
+        shortenedUrl.setShortUrl(shortenedUrl.getShortUrl()
+            .substring(0, shortenedUrl.getShortUrl().lastIndexOf('/') + 1) + retryCode);
     }
     
     private boolean isValidUrl(String url) {
@@ -356,14 +621,4 @@ public class UrlShorteningService {
             return false;
         }
     }
-    
-    private void updateUserStats(String userId) {
-        Optional<User> userOpt = userRepository.findById(userId);
-        if (userOpt.isPresent()) {
-            User user = userOpt.get();
-            user.setTotalUrls(user.getTotalUrls() + 1);
-            user.setUpdatedAt(LocalDateTime.now());
-            userRepository.save(user);
-        }
-    }
 }
\ No newline at end of file
@@ -0,0 +1,211 @@
+package com.urlshortener.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.urlshortener.model.User;
+import com.urlshortener.repository.UserRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.servlet.http.HttpServletRequest;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single read path for the current user's account and plan data.
+ *
+ * Lookups are answered from the request context first (each user is loaded at most once per
+ * request, shared by the JWT filter, plan validation and subscription checks), then from a
+ * short-TTL snapshot cache shared across requests, and only then from MongoDB. Snapshots are
+ * read-only: write paths load the document from UserRepository, and every save or targeted
+ * update of a user invalidates its snapshot (see UserMongoEventListener / invalidate).
+ *
+ * User documents loaded from MongoDB are counted per request and published as
+ * users.db.reads.per.request so the effect of the cache can be measured.
+ */
+@Service
+public class UserContextService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserContextService.class);
+
+    private static final String REQUEST_USERS_ATTRIBUTE = UserContextService.class.getName() + ".users";
+    private static final String REQUEST_READS_ATTRIBUTE = UserContextService.class.getName() + ".dbReads";
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.user-cache.ttl:5}")
+    private long snapshotTtlSeconds;
+
+    @Value("${app.user-cache.max-size:10000}")
+    private long snapshotMaxSize;
+
+    private Cache<String, User> snapshots;
+
+    private Counter requestHits;
+    private Counter snapshotHits;
+    private Counter snapshotMisses;
+    private Counter dbReads;
+    private DistributionSummary readsPerRequest;
+
+    @PostConstruct
+    public void initialize() {
+        snapshots = Caffeine.newBuilder()
+                .maximumSize(snapshotMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(snapshotTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, snapshots, "user_snapshots");
+
+        requestHits = Counter.builder("users.lookups")
+                .description("User lookups by the layer that answered them")
+                .tag("source", "request")
+                .register(meterRegistry);
+
+        snapshotHits = Counter.builder("users.lookups")
+                .description("User lookups by the layer that answered them")
+                .tag("source", "snapshot")
+                .register(meterRegistry);
+
+        snapshotMisses = Counter.builder("users.lookups")
+                .description("User lookups by the layer that answered them")
+                .tag("source", "mongo")
+                .register(meterRegistry);
+
+        dbReads = Counter.builder("users.db.reads")
+                .description("User documents loaded from MongoDB by any code path")
+                .register(meterRegistry);
+
+        readsPerRequest = DistributionSummary.builder("users.db.reads.per.request")
+                .description("User documents loaded from MongoDB while serving one API request")
+                .register(meterRegistry);
+
+        logger.info("User snapshot cache initialized (ttl: {}s, max size: {})", snapshotTtlSeconds, snapshotMaxSize);
+    }
+
+    /**
+     * Resolve a user for read-only checks. Do not mutate and save the returned instance.
+     */
+    public Optional<User> getUser(String userId) {
+        if (userId == null) {
+            return Optional.empty();
+        }
+
+        Map<String, User> requestUsers = requestUsers();
+        if (requestUsers != null) {
+            User user = requestUsers.get(userId);
+            if (user != null) {
+                requestHits.increment();
+                return Optional.of(user);
+            }
+        }
+
+        User user = snapshots.getIfPresent(userId);
+        if (user != null) {
+            snapshotHits.increment();
+        } else {
+            snapshotMisses.increment();
+            user = userRepository.findById(userId).orElse(null);
+            if (user == null) {
+                return Optional.empty();
+            }
+            snapshots.put(userId, user);
+        }
+
+        if (requestUsers != null) {
+            requestUsers.put(userId, user);
+        }
+        return Optional.of(user);
+    }
+
+    /**
+     * Drop the user from the snapshot cache and the current request context.
+     * Called after plan or usage changes so the next lookup sees the new state.
+     */
+    public void invalidate(String userId) {
+        if (userId == null) {
+            return;
+        }
+        snapshots.invalidate(userId);
+        Map<String, User> requestUsers = requestUsers();
+        if (requestUsers != null) {
+            requestUsers.remove(userId);
+        }
+    }
+
+    /**
+     * Count one user document loaded from MongoDB against the current request.
+     */
+    public void recordDbRead() {
+        dbReads.increment();
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return;
+        }
+        AtomicInteger reads = (AtomicInteger) attributes.getAttribute(REQUEST_READS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (reads == null) {
+            reads = new AtomicInteger();
+            attributes.setAttribute(REQUEST_READS_ATTRIBUTE, reads, RequestAttributes.SCOPE_REQUEST);
+        }
+        reads.incrementAndGet();
+    }
+
+    /**
+     * User documents loaded from MongoDB so far while serving this request.
+     */
+    public int getDbReads(HttpServletRequest request) {
+        AtomicInteger reads = (AtomicInteger) request.getAttribute(REQUEST_READS_ATTRIBUTE);
+        return reads != null ? reads.get() : 0;
+    }
+
+    /**
+     * Publish the request's user read count; called once when the request completes.
+     */
+    public void recordRequestCompleted(HttpServletRequest request) {
+        readsPerRequest.record(getDbReads(request));
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("snapshotSize", snapshots.estimatedSize());
+        stats.put("snapshotTtlSeconds", snapshotTtlSeconds);
+        stats.put("requestHits", (long) requestHits.count());
+        stats.put("snapshotHits", (long) snapshotHits.count());
+        stats.put("mongoLookups", (long) snapshotMisses.count());
+        stats.put("dbReads", (long) dbReads.count());
+        stats.put("requests", readsPerRequest.count());
+        stats.put("avgDbReadsPerRequest", readsPerRequest.mean());
+        stats.put("maxDbReadsPerRequest", readsPerRequest.max());
+        return stats;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Map<String, User> requestUsers() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes == null) {
+            return null;
+        }
+        Map<String, User> users = (Map<String, User>) attributes.getAttribute(REQUEST_USERS_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (users == null) {
+            users = new HashMap<>(4);
+            attributes.setAttribute(REQUEST_USERS_ATTRIBUTE, users, RequestAttributes.SCOPE_REQUEST);
+        }
+        return users;
+    }
+}
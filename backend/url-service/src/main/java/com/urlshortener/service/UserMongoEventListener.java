@@ -0,0 +1,49 @@
+package com.urlshortener.service;
+
+import com.urlshortener.model.User;
+import com.urlshortener.security.VerifiedTokenCache;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.mongodb.core.mapping.event.AbstractMongoEventListener;
+import org.springframework.data.mongodb.core.mapping.event.AfterDeleteEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterLoadEvent;
+import org.springframework.data.mongodb.core.mapping.event.AfterSaveEvent;
+import org.springframework.stereotype.Component;
+
+/**
+ * Keeps UserContextService honest for every code path that touches users through Spring Data:
+ * each loaded user document is counted as a MongoDB read, each save or delete drops the
+ * cached snapshot, and a delete also drops the user's cached token verifications. Targeted updates (MongoTemplate.updateFirst) do not raise events and must
+ * call UserContextService.invalidate themselves.
+ */
+@Component
+public class UserMongoEventListener extends AbstractMongoEventListener<User> {
+
+    @Autowired
+    private UserContextService userContextService;
+
+    @Autowired
+    @Lazy
+    private VerifiedTokenCache verifiedTokenCache;
+
+    @Override
+    public void onAfterLoad(AfterLoadEvent<User> event) {
+        userContextService.recordDbRead();
+    }
+
+    @Override
+    public void onAfterSave(AfterSaveEvent<User> event) {
+        userContextService.invalidate(event.getSource().getId());
+    }
+
+    @Override
+    public void onAfterDelete(AfterDeleteEvent<User> event) {
+        Document filter = event.getSource();
+        Object id = filter != null ? filter.get("_id") : null;
+        if (id != null) {
+            userContextService.invalidate(id.toString());
+            verifiedTokenCache.evictUser(id.toString());
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.urlshortener.config;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.cache.CacheManager;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Every local cache stays within its weight bound however much is written to it, and drops
+ * entries after its own TTL (driven by a fake ticker).
+ */
+class CacheConfigTest {
+
+    private static final long DEFAULT_MAX_WEIGHT = 100;
+    private static final long URL_MAX_WEIGHT = 500;
+    private static final long LIST_MAX_WEIGHT = 200;
+    private static final long URL_REFRESH_AFTER_WRITE = 300;
+
+    // cache -> (TTL seconds, max weight), as configured in CacheConfig
+    private static final Map<String, long[]> CACHES = new LinkedHashMap<>();
+    static {
+        CACHES.put("short_urls", new long[] {3600, URL_MAX_WEIGHT});
+        CACHES.put("analytics", new long[] {300, DEFAULT_MAX_WEIGHT});
+        CACHES.put("userAnalytics", new long[] {300, LIST_MAX_WEIGHT});
+        CACHES.put("urlAnalytics", new long[] {300, LIST_MAX_WEIGHT});
+        CACHES.put("clickCounts", new long[] {300, DEFAULT_MAX_WEIGHT});
+        CACHES.put("geoData", new long[] {86400, DEFAULT_MAX_WEIGHT});
+        CACHES.put("countryStats", new long[] {3600, DEFAULT_MAX_WEIGHT});
+        CACHES.put("userUrls", new long[] {600, LIST_MAX_WEIGHT});
+        CACHES.put("userQRCodes", new long[] {600, LIST_MAX_WEIGHT});
+        CACHES.put("userFiles", new long[] {600, LIST_MAX_WEIGHT});
+        CACHES.put("dashboardOverview", new long[] {300, LIST_MAX_WEIGHT});
+        CACHES.put("realtimeAnalytics", new long[] {60, DEFAULT_MAX_WEIGHT});
+        CACHES.put("notDeclaredAnywhere", new long[] {3600, DEFAULT_MAX_WEIGHT});
+    }
+
+    private final AtomicLong nanos = new AtomicLong();
+    private CacheManager cacheManager;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        CacheConfig config = new CacheConfig();
+        ReflectionTestUtils.setField(config, "urlCacheTtl", 3600L);
+        ReflectionTestUtils.setField(config, "analyticsCacheTtl", 300L);
+        ReflectionTestUtils.setField(config, "geoCacheTtl", 86400L);
+        ReflectionTestUtils.setField(config, "defaultMaxWeight", DEFAULT_MAX_WEIGHT);
+        ReflectionTestUtils.setField(config, "urlMaxWeight", URL_MAX_WEIGHT);
+        ReflectionTestUtils.setField(config, "listMaxWeight", LIST_MAX_WEIGHT);
+        ReflectionTestUtils.setField(config, "urlRefreshAfterWrite", URL_REFRESH_AFTER_WRITE);
+        ReflectionTestUtils.setField(config, "staleCacheNames",
+            List.of("userAnalytics", "urlAnalytics", "realtimeAnalytics", "userUrls", "userQRCodes", "userFiles"));
+        ReflectionTestUtils.setField(config, "maxStale", 60L);
+        ReflectionTestUtils.setField(config, "revalidateTimeout", 10L);
+        ReflectionTestUtils.setField(config, "ticker", (Ticker) nanos::get);
+
+        cacheManager = config.simpleCacheManager(mock(ObjectProvider.class), mock(ObjectProvider.class));
+    }
+
+    @Test
+    void writesFarPastTheBoundEvictAndKeepTheWeightedSizeWithinIt() {
+        CACHES.forEach((name, bounds) -> {
+            org.springframework.cache.Cache cache = cacheManager.getCache(name);
+            long maxWeight = bounds[1];
+            for (int i = 0; i < maxWeight * 20; i++) {
+                cache.put("key-" + i, "value-" + i);
+            }
+
+            Cache<Object, Object> nativeCache = nativeCache(name);
+            nativeCache.cleanUp();
+            assertThat(weightedSize(nativeCache)).as("%s weighted size", name).isLessThanOrEqualTo(maxWeight);
+            assertThat(nativeCache.estimatedSize()).as("%s entries", name).isLessThanOrEqualTo(maxWeight);
+            assertThat(nativeCache.stats().evictionCount()).as("%s evictions", name).isGreaterThan(0);
+        });
+    }
+
+    @Test
+    void collectionsWeighByTheirSize() {
+        org.springframework.cache.Cache userUrls = cacheManager.getCache("userUrls");
+        for (int i = 0; i < 1000; i++) {
+            userUrls.put("user-" + i, Collections.nCopies(49, "link")); // weight 50 each
+        }
+
+        Cache<Object, Object> nativeCache = nativeCache("userUrls");
+        nativeCache.cleanUp();
+        assertThat(weightedSize(nativeCache)).isLessThanOrEqualTo(LIST_MAX_WEIGHT);
+        assertThat(nativeCache.estimatedSize()).isLessThanOrEqualTo(LIST_MAX_WEIGHT / 50);
+    }
+
+    @Test
+    void entriesExpireAfterTheirCachesTtl() {
+        CACHES.forEach((name, bounds) -> {
+            long ttlSeconds = bounds[0];
+            nanos.set(0);
+            cacheManager.getCache(name).put("key", "value");
+            Cache<Object, Object> nativeCache = nativeCache(name);
+
+            advance(Duration.ofSeconds(ttlSeconds - 1));
+            assertThat(nativeCache.policy().getIfPresentQuietly("key")).as("%s just before its TTL", name).isEqualTo("value");
+
+            advance(Duration.ofSeconds(2));
+            assertThat(nativeCache.policy().getIfPresentQuietly("key")).as("%s just after its TTL", name).isNull();
+            assertThat(cacheManager.getCache(name).get("key")).as("%s read after its TTL", name).isNull();
+        });
+    }
+
+    @Test
+    void hotResolutionsAreRefreshedButColdOnesExpire() throws InterruptedException {
+        org.springframework.cache.Cache shortUrls = cacheManager.getCache("short_urls");
+        shortUrls.put("hot", "resolution");
+        shortUrls.put("cold", "resolution");
+
+        // A read after refresh-after-write reloads the entry (no resolver here: the old value is kept)
+        advance(Duration.ofSeconds(URL_REFRESH_AFTER_WRITE + 1));
+        assertThat(shortUrls.get("hot")).isNotNull();
+        awaitRefreshes(nativeCache("short_urls"));
+
+        advance(Duration.ofSeconds(3600 - URL_REFRESH_AFTER_WRITE));
+        assertThat(nativeCache("short_urls").policy().getIfPresentQuietly("hot")).isEqualTo("resolution");
+        assertThat(nativeCache("short_urls").policy().getIfPresentQuietly("cold")).isNull();
+    }
+
+    private static void awaitRefreshes(Cache<Object, Object> cache) throws InterruptedException {
+        // Reloads run on the common pool; wait for them before moving the clock again
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!cache.policy().refreshes().isEmpty()) {
+            assertThat(System.currentTimeMillis()).as("refresh still running after 5s").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+        cache.cleanUp();
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Cache<Object, Object> nativeCache(String name) {
+        return (Cache<Object, Object>) cacheManager.getCache(name).getNativeCache();
+    }
+
+    private static long weightedSize(Cache<Object, Object> cache) {
+        return cache.policy().eviction().orElseThrow().weightedSize().orElseThrow();
+    }
+}
@@ -0,0 +1,149 @@
+package com.urlshortener.config;
+
+import com.fasterxml.jackson.annotation.JsonAutoDetect;
+import com.fasterxml.jackson.annotation.PropertyAccessor;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.urlshortener.model.LinkResolution;
+import com.urlshortener.model.ResolvedLink;
+import com.urlshortener.model.ShortenedUrl;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Round trip of the binary short_urls encoding, and reads of anything else as a cache miss.
+ */
+class LinkResolutionRedisSerializerTest {
+
+    private final LinkResolutionRedisSerializer serializer = new LinkResolutionRedisSerializer();
+
+    @Test
+    void roundTripsEveryFieldWithAllFlagsSet() {
+        ResolvedLink link = new ResolvedLink("abc1234", "links.example.com", "user-1",
+            "https://例え.jp/パス?q=grüße&emoji=🚀", "Überschrift 📈", true, true,
+            "$2a$10$hashedpassword", true, LocalDateTime.of(2026, 12, 31, 23, 59, 58, 123_000_000),
+            1000, 1_234_567);
+
+        LinkResolution read = roundTrip(LinkResolution.found(link));
+
+        assertThat(read.getShortCode()).isEqualTo("abc1234");
+        assertThat(read.getDomain()).isEqualTo("links.example.com");
+        assertThat(read.getLink()).usingRecursiveComparison().isEqualTo(link);
+    }
+
+    @Test
+    void roundTripsNullsAndClearedFlags() {
+        ResolvedLink link = new ResolvedLink("xyz", null, null, "https://example.com/", null, false, false,
+            null, false, null, null, 0);
+
+        LinkResolution read = roundTrip(LinkResolution.found(link));
+
+        assertThat(read.getLink()).usingRecursiveComparison().isEqualTo(link);
+        assertThat(read.getLink().getExpiresAt()).isNull();
+        assertThat(read.getLink().getMaxClicks()).isNull();
+    }
+
+    @Test
+    void roundTripsEmptyStringsDistinctFromNull() {
+        ResolvedLink link = new ResolvedLink("e", "", "", "", "", true, false, "", true, null, 0, 0);
+
+        assertThat(roundTrip(LinkResolution.found(link)).getLink()).usingRecursiveComparison().isEqualTo(link);
+    }
+
+    @Test
+    void roundTripsANotFoundResolution() {
+        LinkResolution read = roundTrip(LinkResolution.notFound("gone123"));
+
+        assertThat(read.getShortCode()).isEqualTo("gone123");
+        assertThat(read.getLink()).isNull();
+        assertThat(read.matchFor("example.com", "example.com")).isEqualTo(LinkResolution.MatchType.NOT_FOUND);
+    }
+
+    @Test
+    void unknownMagicOrVersionReadsAsAMiss() {
+        byte[] valid = serializer.serialize(LinkResolution.notFound("abc"));
+
+        byte[] badMagic = valid.clone();
+        badMagic[0] = (byte) 0xB2;
+        byte[] badVersion = valid.clone();
+        badVersion[1] = 2;
+
+        assertThat(serializer.deserialize(badMagic)).isNull();
+        assertThat(serializer.deserialize(badVersion)).isNull();
+        assertThat(serializer.deserialize("{\"@class\":\"com.urlshortener.model.LinkResolution\"}"
+            .getBytes(StandardCharsets.UTF_8))).isNull();
+        assertThat(serializer.deserialize(new byte[0])).isNull();
+        assertThat(serializer.deserialize(null)).isNull();
+    }
+
+    @Test
+    void truncatedPayloadsReadAsAMiss() {
+        byte[] valid = serializer.serialize(LinkResolution.found(new ResolvedLink("abc1234", "example.com",
+            "user-1", "https://example.com/a/long/path", "Title", true, true, "secret", true,
+            LocalDateTime.of(2027, 1, 1, 0, 0), 500, 300)));
+
+        for (int length = 0; length < valid.length; length++) {
+            assertThat(serializer.deserialize(Arrays.copyOf(valid, length)))
+                .as("payload cut to %d of %d bytes", length, valid.length)
+                .isNull();
+        }
+    }
+
+    @Test
+    void oversizedStringLengthReadsAsAMiss() {
+        byte[] valid = serializer.serialize(LinkResolution.notFound("abc"));
+        byte[] corrupt = valid.clone();
+        corrupt[3] = 0x7F; // shortCode length far past the end of the payload
+
+        assertThat(serializer.deserialize(corrupt)).isNull();
+    }
+
+    @Test
+    void binaryIsSmallerThanDefaultTypedJson() {
+        ShortenedUrl url = new ShortenedUrl();
+        url.setShortCode("abc1234");
+        url.setOriginalUrl("https://example.com/some/landing/page?utm_source=newsletter");
+        url.setUserId("user-1");
+        url.setTitle("Landing page");
+        for (int i = 0; i < 40; i++) {
+            url.getClicksByCountry().put("country-" + i, i);
+            url.getClicksByCity().put("city-" + i, i);
+        }
+
+        int binary = serializer.serialize(LinkResolution.found(url)).length;
+        int json = jacksonDefaultTyping().serialize(url).length;
+
+        assertThat(binary).isLessThan(json / 5);
+    }
+
+    @Test
+    void rejectsOtherTypes() {
+        assertThat(serializer.serialize(null)).isNull();
+        assertThatThrownBy(() -> serializer.serialize("not a resolution"))
+            .isInstanceOf(SerializationException.class);
+    }
+
+    private LinkResolution roundTrip(LinkResolution resolution) {
+        return (LinkResolution) serializer.deserialize(serializer.serialize(resolution));
+    }
+
+    /**
+     * Same configuration as RedisConfig's JSON serializer, used by short_urls before.
+     */
+    static Jackson2JsonRedisSerializer<Object> jacksonDefaultTyping() {
+        ObjectMapper objectMapper = new ObjectMapper();
+        objectMapper.setVisibility(PropertyAccessor.ALL, JsonAutoDetect.Visibility.ANY);
+        objectMapper.activateDefaultTyping(objectMapper.getPolymorphicTypeValidator(),
+                ObjectMapper.DefaultTyping.NON_FINAL);
+        objectMapper.registerModule(new JavaTimeModule());
+        return new Jackson2JsonRedisSerializer<>(objectMapper, Object.class);
+    }
+}
@@ -0,0 +1,103 @@
+package com.urlshortener.config;
+
+import com.urlshortener.model.LinkResolution;
+import com.urlshortener.model.ShortenedUrl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.data.redis.serializer.Jackson2JsonRedisSerializer;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode and decode time of a short_urls entry: the binary LinkResolution encoding against
+ * the default-typed Jackson JSON of the full ShortenedUrl that the cache held before. Wire
+ * sizes are printed once per fork.
+ *
+ * Not run by the test suite; run {@link #main} from the test classpath (after mvn test-compile).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LinkResolutionSerializerBenchmark {
+
+    private LinkResolutionRedisSerializer binary;
+    private Jackson2JsonRedisSerializer<Object> json;
+
+    private ShortenedUrl url;
+    private LinkResolution resolution;
+    private byte[] binaryPayload;
+    private byte[] jsonPayload;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        binary = new LinkResolutionRedisSerializer();
+        json = LinkResolutionRedisSerializerTest.jacksonDefaultTyping();
+
+        // A link with a typical analytics history: 40 countries, 40 cities, 24 hourly buckets
+        url = new ShortenedUrl();
+        url.setId("6710a1b2c3d4e5f601234567");
+        url.setShortCode("abc1234");
+        url.setShortUrl("https://tinyslash.com/abc1234");
+        url.setOriginalUrl("https://example.com/products/spring-sale?utm_source=newsletter&utm_medium=email");
+        url.setUserId("6710a1b2c3d4e5f601234568");
+        url.setTitle("Spring sale");
+        url.setCreatedAt(LocalDateTime.of(2026, 3, 1, 9, 30));
+        url.setExpiresAt(LocalDateTime.of(2026, 12, 31, 23, 59));
+        url.setMaxClicks(100_000);
+        url.setTotalClicks(48_213);
+        for (int i = 0; i < 40; i++) {
+            url.getClicksByCountry().put("Country " + i, 1000 + i);
+            url.getClicksByCity().put("City " + i, 500 + i);
+        }
+        for (int hour = 0; hour < 24; hour++) {
+            url.getClicksByHour().put(Integer.toString(hour), 100 + hour);
+        }
+
+        resolution = LinkResolution.found(url);
+        binaryPayload = binary.serialize(resolution);
+        jsonPayload = json.serialize(url);
+        System.out.printf("Wire size: binary %d bytes, json %d bytes%n", binaryPayload.length, jsonPayload.length);
+    }
+
+    @Benchmark
+    public byte[] encodeBinary() {
+        return binary.serialize(resolution);
+    }
+
+    @Benchmark
+    public byte[] encodeJson() {
+        return json.serialize(url);
+    }
+
+    @Benchmark
+    public Object decodeBinary() {
+        return binary.deserialize(binaryPayload);
+    }
+
+    @Benchmark
+    public Object decodeJson() {
+        return json.deserialize(jsonPayload);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LinkResolutionSerializerBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
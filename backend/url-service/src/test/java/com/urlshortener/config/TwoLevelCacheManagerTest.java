@@ -0,0 +1,171 @@
+package com.urlshortener.config;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.Cache;
+import org.springframework.data.redis.cache.RedisCacheConfiguration;
+import org.springframework.data.redis.cache.RedisCacheManager;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.serializer.RedisSerializationContext;
+import org.springframework.data.redis.serializer.StringRedisSerializer;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Two nodes sharing an embedded Redis: each serves repeat reads from its own L1, and an
+ * eviction or clear on one node drops the other node's L1 copy through pub/sub.
+ */
+class TwoLevelCacheManagerTest {
+
+    private static final String CACHE = "short_urls";
+
+    private static RedisServer redisServer;
+    private static int port;
+
+    private final List<LettuceConnectionFactory> factories = new ArrayList<>();
+    private final List<RedisMessageListenerContainer> containers = new ArrayList<>();
+
+    private Cache nodeA;
+    private Cache nodeB;
+    private StringRedisTemplate redis;
+
+    @BeforeAll
+    static void startRedis() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            port = socket.getLocalPort();
+        }
+        redisServer = new RedisServer(port);
+        redisServer.start();
+    }
+
+    @AfterAll
+    static void stopRedis() {
+        if (redisServer != null) {
+            redisServer.stop();
+        }
+    }
+
+    @BeforeEach
+    void startNodes() {
+        nodeA = startNode().getCache(CACHE);
+        nodeB = startNode().getCache(CACHE);
+        redis = new StringRedisTemplate(connectionFactory());
+        redis.getConnectionFactory().getConnection().serverCommands().flushAll();
+    }
+
+    @AfterEach
+    void stopNodes() throws Exception {
+        for (RedisMessageListenerContainer container : containers) {
+            container.destroy();
+        }
+        for (LettuceConnectionFactory factory : factories) {
+            factory.destroy();
+        }
+    }
+
+    @Test
+    void repeatReadsAreServedFromL1() {
+        nodeA.put("abc", "https://example.com/a");
+        assertThat(nodeB.get("abc", String.class)).isEqualTo("https://example.com/a");
+
+        // Remove the entry from Redis behind the nodes' backs: B still answers from its L1
+        redis.delete(redis.keys(CACHE + "::*"));
+        assertThat(nodeB.get("abc", String.class)).isEqualTo("https://example.com/a");
+    }
+
+    @Test
+    void evictionOnOneNodeDropsTheOtherNodesL1() {
+        nodeA.put("abc", "https://example.com/a");
+        assertThat(nodeB.get("abc", String.class)).isEqualTo("https://example.com/a");
+
+        nodeA.evict("abc");
+
+        awaitTrue(() -> nodeB.get("abc") == null);
+        assertThat(nodeA.get("abc")).isNull();
+    }
+
+    @Test
+    void clearOnOneNodeDropsTheOtherNodesL1() {
+        nodeA.put("abc", "https://example.com/a");
+        nodeA.put("def", "https://example.com/d");
+        assertThat(nodeB.get("abc", String.class)).isNotNull();
+        assertThat(nodeB.get("def", String.class)).isNotNull();
+
+        nodeA.clear();
+
+        awaitTrue(() -> nodeB.get("abc") == null && nodeB.get("def") == null);
+    }
+
+    @Test
+    void updateOnOneNodeIsSeenByTheOtherAfterEviction() {
+        nodeA.put("abc", "https://example.com/old");
+        assertThat(nodeB.get("abc", String.class)).isEqualTo("https://example.com/old");
+
+        // Write paths evict before the next put (CacheService.clearCache / @CacheEvict)
+        nodeA.evict("abc");
+        nodeA.put("abc", "https://example.com/new");
+
+        awaitTrue(() -> "https://example.com/new".equals(nodeB.get("abc", String.class)));
+    }
+
+    private TwoLevelCacheManager startNode() {
+        LettuceConnectionFactory factory = connectionFactory();
+
+        RedisCacheManager remote = RedisCacheManager.builder(factory)
+                .cacheDefaults(RedisCacheConfiguration.defaultCacheConfig()
+                        .entryTtl(Duration.ofMinutes(5))
+                        .serializeKeysWith(RedisSerializationContext.SerializationPair
+                                .fromSerializer(new StringRedisSerializer()))
+                        .serializeValuesWith(RedisSerializationContext.SerializationPair
+                                .fromSerializer(new StringRedisSerializer())))
+                .build();
+        remote.afterPropertiesSet();
+
+        TwoLevelCacheManager manager = new TwoLevelCacheManager(remote, new StringRedisTemplate(factory),
+                Set.of(CACHE), 100, Duration.ofMinutes(1), null);
+
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(factory);
+        container.addMessageListener(manager, new ChannelTopic(TwoLevelCacheManager.INVALIDATION_CHANNEL));
+        container.afterPropertiesSet();
+        container.start();
+        containers.add(container);
+        return manager;
+    }
+
+    private LettuceConnectionFactory connectionFactory() {
+        LettuceConnectionFactory factory = new LettuceConnectionFactory(new RedisStandaloneConfiguration("localhost", port));
+        factory.afterPropertiesSet();
+        factories.add(factory);
+        return factory;
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition not met within 5s").isLessThan(deadline);
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.urlshortener.controller;
+
+import com.urlshortener.model.QrCode;
+import com.urlshortener.service.QrCodeService;
+import com.urlshortener.service.ResourceListingService;
+import com.urlshortener.service.ResourceListingService.CursorPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * QR list items point at the public image endpoint, which serves active codes only.
+ */
+class QrCodeControllerTest {
+
+    private final QrCodeService qrCodeService = mock(QrCodeService.class);
+    private final ResourceListingService resourceListingService = mock(ResourceListingService.class);
+    private final QrCodeController controller = new QrCodeController();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(controller, "qrCodeService", qrCodeService);
+        ReflectionTestUtils.setField(controller, "resourceListingService", resourceListingService);
+
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/qr/user/user-1");
+        request.setScheme("https");
+        request.setServerName("api.example.com");
+        request.setServerPort(443);
+        RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+    }
+
+    @AfterEach
+    void tearDown() {
+        RequestContextHolder.resetRequestAttributes();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void listItemsCarryALoadableImageUrl() {
+        CursorPage<QrCode> page = mock(CursorPage.class);
+        when(page.getItems()).thenReturn(List.of(qrCode("qr123", true)));
+        when(resourceListingService.listQrCodes(any(), any())).thenReturn(page);
+
+        ResponseEntity<Map<String, Object>> response = controller.getUserQrCodes("user-1", null, null, null, null, null);
+
+        List<Map<String, Object>> items = (List<Map<String, Object>>) response.getBody().get("data");
+        assertThat(items).singleElement()
+            .satisfies(item -> assertThat(item).containsEntry("qrImagePath", "https://api.example.com/api/v1/qr/qr123/image"));
+    }
+
+    @Test
+    void imageIsServedForActiveCodesOnly() {
+        QrCode active = qrCode("qr123", true);
+        when(qrCodeService.getByQrCode("qr123")).thenReturn(Optional.of(active));
+        when(qrCodeService.renderImage(active)).thenReturn(new byte[] {1, 2, 3});
+        when(qrCodeService.getByQrCode("qr456")).thenReturn(Optional.of(qrCode("qr456", false)));
+        when(qrCodeService.getById(any())).thenReturn(Optional.empty());
+
+        assertThat(controller.getQrCodeImage("qr123").getBody()).containsExactly(1, 2, 3);
+        assertThat(controller.getQrCodeImage("qr456").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(controller.getQrCodeImage("missing").getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+    }
+
+    private static QrCode qrCode(String code, boolean active) {
+        QrCode qrCode = new QrCode();
+        qrCode.setQrCode(code);
+        qrCode.setFormat("PNG");
+        qrCode.setActive(active);
+        return qrCode;
+    }
+}
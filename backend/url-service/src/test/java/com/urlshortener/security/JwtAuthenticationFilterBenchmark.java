@@ -0,0 +1,105 @@
+package com.urlshortener.security;
+
+import com.urlshortener.model.User;
+import com.urlshortener.service.UserContextService;
+import io.jsonwebtoken.Claims;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Throughput of bearer authentication through JwtAuthenticationFilter with the verified-token
+ * cache, against verifying the signature and looking up the user on every request.
+ *
+ * Not run by the test suite; run {@link #main} from the test classpath (after mvn test-compile).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@Threads(4)
+public class JwtAuthenticationFilterBenchmark {
+
+    private JwtUtil jwtUtil;
+    private UserContextService userContextService;
+    private JwtAuthenticationFilter filter;
+    private String token;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret",
+                "benchmarkSecretKeyForJWTTokenGenerationThatIsLongEnoughForTheHS512Algorithm0123456789");
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", 3_600_000);
+        token = jwtUtil.generateToken("user-1", "user@example.com", "Bench", "User");
+
+        userContextService = mock(UserContextService.class);
+        when(userContextService.getUser(anyString())).thenReturn(Optional.of(new User()));
+
+        VerifiedTokenCache cache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(cache, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(cache, "userContextService", userContextService);
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "listenerContainer", mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(cache, "redisTemplate", mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(cache, "maxSize", 50_000L);
+        ReflectionTestUtils.setField(cache, "denyListMaxSize", 10_000L);
+        cache.initialize();
+
+        filter = new JwtAuthenticationFilter();
+        ReflectionTestUtils.setField(filter, "verifiedTokenCache", cache);
+    }
+
+    @Benchmark
+    public Object filterWithCachedToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/v1/urls");
+        request.addHeader("Authorization", "Bearer " + token);
+        try {
+            filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+            return request.getAttribute("currentUserId");
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    @Benchmark
+    public Object verifyEveryRequest() {
+        // What the filter did per request before the cache: parse and verify, then load the user
+        Claims claims = jwtUtil.extractAllClaims(token);
+        return userContextService.getUser(claims.getSubject());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtAuthenticationFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,118 @@
+package com.urlshortener.security;
+
+import com.urlshortener.model.User;
+import com.urlshortener.service.UserContextService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.redis.connection.DefaultMessage;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ValueOperations;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * A token is verified once and then served from the cache until it is revoked or its user
+ * is evicted, locally or by a message from another node.
+ */
+class VerifiedTokenCacheTest {
+
+    private JwtUtil jwtUtil;
+    private UserContextService userContextService;
+    private StringRedisTemplate redis;
+    private ValueOperations<String, String> valueOperations;
+    private VerifiedTokenCache cache;
+    private String token;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        jwtUtil = spy(new JwtUtil());
+        ReflectionTestUtils.setField(jwtUtil, "jwtSecret",
+                "testSecretKeyForJWTTokenGenerationThatIsLongEnoughForTheHS512Algorithm0123456789");
+        ReflectionTestUtils.setField(jwtUtil, "jwtExpiration", 3_600_000);
+        token = jwtUtil.generateToken("user-1", "user@example.com", "Test", "User");
+
+        userContextService = mock(UserContextService.class);
+        when(userContextService.getUser(anyString())).thenReturn(Optional.of(new User()));
+
+        redis = mock(StringRedisTemplate.class);
+        valueOperations = mock(ValueOperations.class);
+        when(redis.opsForValue()).thenReturn(valueOperations);
+        ObjectProvider<RedisMessageListenerContainer> containerProvider = mock(ObjectProvider.class);
+        when(containerProvider.getIfAvailable()).thenReturn(mock(RedisMessageListenerContainer.class));
+        ObjectProvider<StringRedisTemplate> redisProvider = mock(ObjectProvider.class);
+        when(redisProvider.getIfAvailable()).thenReturn(redis);
+
+        cache = new VerifiedTokenCache();
+        ReflectionTestUtils.setField(cache, "jwtUtil", jwtUtil);
+        ReflectionTestUtils.setField(cache, "userContextService", userContextService);
+        ReflectionTestUtils.setField(cache, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(cache, "listenerContainer", containerProvider);
+        ReflectionTestUtils.setField(cache, "redisTemplate", redisProvider);
+        ReflectionTestUtils.setField(cache, "maxSize", 1000L);
+        ReflectionTestUtils.setField(cache, "denyListMaxSize", 1000L);
+        cache.initialize();
+    }
+
+    @Test
+    void repeatRequestsSkipVerificationAndUserLookup() {
+        for (int i = 0; i < 100; i++) {
+            assertThat(cache.verify(token).getUserId()).isEqualTo("user-1");
+        }
+
+        verify(jwtUtil, times(1)).extractAllClaims(token);
+        verify(userContextService, times(1)).getUser("user-1");
+        assertThat(cache.getStats()).containsEntry("cacheHits", 99L).containsEntry("verifications", 1L);
+    }
+
+    @Test
+    void revokedTokenIsRejected() {
+        assertThat(cache.verify(token)).isNotNull();
+
+        assertThat(cache.revoke(token)).isTrue();
+
+        assertThat(cache.verify(token)).isNull();
+        verify(valueOperations).set(startsWith("pebly:jwt:revoked:"), anyString(), any(Duration.class));
+        verify(redis).convertAndSend(eq(VerifiedTokenCache.REVOCATION_CHANNEL), anyString());
+    }
+
+    @Test
+    void evictedUserIsCheckedAgainAndEvictionIsBroadcast() {
+        assertThat(cache.verify(token)).isNotNull();
+
+        cache.evictUser("user-1");
+        when(userContextService.getUser("user-1")).thenReturn(Optional.empty());
+
+        assertThat(cache.verify(token)).isNull();
+        verify(redis).convertAndSend(VerifiedTokenCache.REVOCATION_CHANNEL, "user|user-1");
+    }
+
+    @Test
+    void evictionFromAnotherNodeDropsCachedVerificationAndUserSnapshot() {
+        assertThat(cache.verify(token)).isNotNull();
+
+        cache.onMessage(new DefaultMessage(VerifiedTokenCache.REVOCATION_CHANNEL.getBytes(StandardCharsets.UTF_8),
+                "user|user-1".getBytes(StandardCharsets.UTF_8)), null);
+
+        verify(userContextService).invalidate("user-1");
+        cache.verify(token);
+        verify(userContextService, times(2)).getUser("user-1");
+    }
+}
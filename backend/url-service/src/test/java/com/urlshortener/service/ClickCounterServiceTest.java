@@ -0,0 +1,176 @@
+package com.urlshortener.service;
+
+import com.urlshortener.model.ClickAnalytics;
+import com.urlshortener.model.ShortenedUrl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Clicks recorded from many threads while flushes run concurrently (some of them failing)
+ * must all reach MongoDB exactly once as $inc deltas.
+ */
+class ClickCounterServiceTest {
+
+    private static final int THREADS = 8;
+    private static final int CLICKS_PER_THREAD = 20_000;
+    private static final String[] LINKS = {"hot", "warm", "cold"};
+
+    private final ConcurrentHashMap<String, Long> written = new ConcurrentHashMap<>();
+    private final AtomicInteger bulkCalls = new AtomicInteger();
+
+    private ClickCounterService service;
+
+    @BeforeEach
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(ShortenedUrl.class)))
+            .thenAnswer(invocation -> recordingBulkOps());
+
+        service = new ClickCounterService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "dashboardSummaryService", mock(DashboardSummaryService.class));
+        ReflectionTestUtils.setField(service, "maxFailedFlushes", Integer.MAX_VALUE);
+        service.initializeMetrics();
+    }
+
+    @Test
+    void noClickIsLostUnderParallelLoad() throws Exception {
+        ExecutorService writers = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean writing = new AtomicBoolean(true);
+
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(writers.submit(() -> {
+                start.await();
+                for (int i = 0; i < CLICKS_PER_THREAD; i++) {
+                    service.addClick(click(LINKS[i % LINKS.length], i % 10 == 0));
+                }
+                return null;
+            }));
+        }
+
+        Thread flusher = new Thread(() -> {
+            while (writing.get()) {
+                service.flush();
+            }
+        });
+        flusher.start();
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        writing.set(false);
+        flusher.join();
+        writers.shutdown();
+
+        // Whatever the last concurrent flush left behind (or had to requeue)
+        while (written.values().stream().mapToLong(Long::longValue).sum() < (long) THREADS * CLICKS_PER_THREAD
+                && bulkCalls.get() < 1_000_000) {
+            service.flush();
+        }
+
+        long total = (long) THREADS * CLICKS_PER_THREAD;
+        assertThat(written.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(total);
+        assertThat(written.get("hot")).isEqualTo(clicksFor(0));
+        assertThat(written.get("warm")).isEqualTo(clicksFor(1));
+        assertThat(written.get("cold")).isEqualTo(clicksFor(2));
+        // Coalescing: far fewer bulk writes than clicks
+        assertThat(bulkCalls.get()).isLessThan((int) total);
+    }
+
+    @Test
+    void coalescesClicksOnOneLinkIntoOneUpdate() {
+        for (int i = 0; i < 100; i++) {
+            service.addClick(click("hot", i < 3));
+        }
+        List<Update> updates = new ArrayList<>();
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        BulkOperations bulkOps = mock(BulkOperations.class);
+        when(bulkOps.updateOne(any(Query.class), any(Update.class))).thenAnswer(invocation -> {
+            updates.add(invocation.getArgument(1));
+            return bulkOps;
+        });
+        when(mongoTemplate.bulkOps(eq(BulkOperations.BulkMode.UNORDERED), eq(ShortenedUrl.class))).thenReturn(bulkOps);
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+
+        service.flush();
+
+        assertThat(updates).hasSize(1);
+        Document inc = (Document) updates.get(0).getUpdateObject().get("$inc");
+        assertThat(inc.get("totalClicks")).isEqualTo(100);
+        assertThat(inc.get("uniqueClicks")).isEqualTo(3);
+        assertThat(inc.get("clicksByCountry.US")).isEqualTo(100);
+        assertThat(updates.get(0).getUpdateObject().get("$max")).isNotNull();
+    }
+
+    private static long clicksFor(int linkIndex) {
+        long perThread = 0;
+        for (int i = 0; i < CLICKS_PER_THREAD; i++) {
+            if (i % LINKS.length == linkIndex) {
+                perThread++;
+            }
+        }
+        return perThread * THREADS;
+    }
+
+    private static ClickAnalytics click(String shortCode, boolean unique) {
+        ClickAnalytics click = new ClickAnalytics();
+        click.setShortCode(shortCode);
+        click.setUserId("user-1");
+        click.setClickedAt(LocalDateTime.now());
+        click.setUniqueClick(unique);
+        click.setCountry("US");
+        return click;
+    }
+
+    /**
+     * Collects one flush; every third flush fails so requeued deltas are exercised too.
+     */
+    private BulkOperations recordingBulkOps() {
+        Map<String, Integer> batch = new ConcurrentHashMap<>();
+        BulkOperations bulkOps = mock(BulkOperations.class);
+        when(bulkOps.updateOne(any(Query.class), any(Update.class))).thenAnswer(invocation -> {
+            Query query = invocation.getArgument(0);
+            Update update = invocation.getArgument(1);
+            Document inc = (Document) update.getUpdateObject().get("$inc");
+            batch.merge(query.getQueryObject().getString("shortCode"), (Integer) inc.get("totalClicks"), Integer::sum);
+            return bulkOps;
+        });
+        when(bulkOps.execute()).thenAnswer(invocation -> {
+            if (bulkCalls.incrementAndGet() % 3 == 0) {
+                throw new IllegalStateException("simulated write failure");
+            }
+            batch.forEach((shortCode, clicks) -> written.merge(shortCode, (long) clicks, Long::sum));
+            return null;
+        });
+        return bulkOps;
+    }
+}
@@ -0,0 +1,263 @@
+package com.urlshortener.service;
+
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.gridfs.GridFSBucket;
+import com.mongodb.client.gridfs.GridFSBuckets;
+import com.mongodb.client.gridfs.GridFSUploadStream;
+import com.mongodb.client.gridfs.model.GridFSUploadOptions;
+import com.urlshortener.service.FileContentStore.StoredContent;
+import org.bson.BsonObjectId;
+import org.bson.BsonValue;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.HexFormat;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.when;
+
+/**
+ * Uploads stream through a fixed buffer: heap allocated per upload stays bounded by the copy
+ * buffer and one GridFS chunk however large the file is, with and without compression.
+ *
+ * GridFS is replaced by an upload stream that, like the driver's, fills one chunk-sized buffer
+ * and hands it off when full.
+ */
+class FileContentStoreTest {
+
+    private static final int CHUNK_SIZE = 261_120;
+    private static final long FILE_SIZE = 64L * 1024 * 1024;
+    // Copy buffer + gzip buffer + one chunk, with room for the mocks; far below FILE_SIZE
+    private static final long MAX_ALLOCATED_PER_UPLOAD = 4L * 1024 * 1024;
+
+    private final FileContentStore store = new FileContentStore();
+    private MockedStatic<GridFSBuckets> buckets;
+    private ChunkedUploadStream upload;
+    private boolean retainContent;
+
+    @BeforeEach
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.getDb()).thenReturn(mock(MongoDatabase.class));
+        ReflectionTestUtils.setField(store, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(store, "chunkSize", CHUNK_SIZE);
+
+        GridFSBucket bucket = mock(GridFSBucket.class);
+        when(bucket.openUploadStream(anyString(), any(GridFSUploadOptions.class))).thenAnswer(invocation -> {
+            GridFSUploadOptions options = invocation.getArgument(1);
+            upload = new ChunkedUploadStream(options.getChunkSizeBytes(), retainContent);
+            return upload;
+        });
+        buckets = mockStatic(GridFSBuckets.class);
+        buckets.when(() -> GridFSBuckets.create(any(MongoDatabase.class))).thenReturn(bucket);
+    }
+
+    @AfterEach
+    void tearDown() {
+        buckets.close();
+    }
+
+    @Test
+    void largeUploadAllocatesOnlyBuffers() throws Exception {
+        store.store(new GeneratedInputStream(1024 * 1024, false), "warmup.bin", "application/octet-stream", false, FILE_SIZE);
+
+        long before = allocatedBytes();
+        StoredContent content = store.store(new GeneratedInputStream(FILE_SIZE, false), "large.bin",
+                "application/octet-stream", false, FILE_SIZE);
+        long allocated = allocatedBytes() - before;
+
+        assertThat(allocated).isLessThan(MAX_ALLOCATED_PER_UPLOAD);
+        assertThat(content.getOriginalSize()).isEqualTo(FILE_SIZE);
+        assertThat(content.getStoredSize()).isEqualTo(FILE_SIZE);
+        assertThat(upload.written).isEqualTo(FILE_SIZE);
+        assertThat(upload.closed).isTrue();
+        assertThat(content.getSha256()).isEqualTo(sha256(new GeneratedInputStream(FILE_SIZE, false)));
+    }
+
+    @Test
+    void largeCompressedUploadAllocatesOnlyBuffers() throws Exception {
+        store.store(new GeneratedInputStream(1024 * 1024, true), "warmup.txt", "text/plain", true, FILE_SIZE);
+
+        long before = allocatedBytes();
+        StoredContent content = store.store(new GeneratedInputStream(FILE_SIZE, true), "large.txt",
+                "text/plain", true, FILE_SIZE);
+        long allocated = allocatedBytes() - before;
+
+        assertThat(allocated).isLessThan(MAX_ALLOCATED_PER_UPLOAD);
+        assertThat(content.getOriginalSize()).isEqualTo(FILE_SIZE);
+        assertThat(content.getStoredSize()).isEqualTo(upload.written).isLessThan(FILE_SIZE / 10);
+        assertThat(content.getContentEncoding()).isEqualTo(FileContentStore.GZIP);
+        assertThat(content.getSha256()).isEqualTo(sha256(new GeneratedInputStream(FILE_SIZE, true)));
+    }
+
+    @Test
+    void compressedContentInflatesToTheOriginal() throws Exception {
+        byte[] original = new GeneratedInputStream(3 * CHUNK_SIZE + 17, true).readAllBytes();
+        retainContent = true;
+
+        store.store(new ByteArrayInputStream(original), "small.txt", "text/plain", true, FILE_SIZE);
+
+        try (InputStream inflated = new GZIPInputStream(new ByteArrayInputStream(upload.retained.toByteArray()))) {
+            assertThat(inflated.readAllBytes()).isEqualTo(original);
+        }
+    }
+
+    @Test
+    void oversizedUploadIsAborted() {
+        assertThatThrownBy(() -> store.store(new GeneratedInputStream(FILE_SIZE, false), "too-large.bin",
+                "application/octet-stream", false, 10L * 1024 * 1024))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("maximum size");
+
+        assertThat(upload.aborted).isTrue();
+        assertThat(upload.closed).isFalse();
+        assertThat(upload.written).isLessThanOrEqualTo(10L * 1024 * 1024);
+    }
+
+    private static long allocatedBytes() {
+        assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean threads
+                && threads.isThreadAllocatedMemorySupported());
+        return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+                .getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static String sha256(InputStream in) throws Exception {
+        MessageDigest digest = MessageDigest.getInstance("SHA-256");
+        byte[] buffer = new byte[64 * 1024];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            digest.update(buffer, 0, read);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Deterministic content produced as it is read: pseudo-random bytes, or repeated text that
+     * compresses well.
+     */
+    private static final class GeneratedInputStream extends InputStream {
+        private static final byte[] TEXT = "2026-10-17T00:00:00Z GET /api/v1/urls 200 12ms\n".getBytes(StandardCharsets.US_ASCII);
+
+        private final long length;
+        private final boolean text;
+        private long position;
+        private long state = 0x9E3779B97F4A7C15L;
+
+        GeneratedInputStream(long length, boolean text) {
+            this.length = length;
+            this.text = text;
+        }
+
+        @Override
+        public int read() {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) == -1 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (position >= length) {
+                return -1;
+            }
+            int count = (int) Math.min(len, length - position);
+            for (int i = 0; i < count; i++) {
+                if (text) {
+                    b[off + i] = TEXT[(int) ((position + i) % TEXT.length)];
+                } else {
+                    state ^= state << 13;
+                    state ^= state >>> 7;
+                    state ^= state << 17;
+                    b[off + i] = (byte) state;
+                }
+            }
+            position += count;
+            return count;
+        }
+    }
+
+    /**
+     * Buffers one chunk like the driver's upload stream and drops it when full. Optionally
+     * keeps everything written, for checking the content of small uploads.
+     */
+    private static final class ChunkedUploadStream extends GridFSUploadStream {
+        private final ObjectId id = new ObjectId();
+        private final byte[] chunk;
+        private final ByteArrayOutputStream retained;
+        private int chunkPosition;
+        private long written;
+        private boolean closed;
+        private boolean aborted;
+
+        ChunkedUploadStream(Integer chunkSize, boolean retain) {
+            this.chunk = new byte[chunkSize];
+            this.retained = retain ? new ByteArrayOutputStream() : null;
+        }
+
+        @Override
+        public ObjectId getObjectId() {
+            return id;
+        }
+
+        @Override
+        public BsonValue getId() {
+            return new BsonObjectId(id);
+        }
+
+        @Override
+        public void abort() {
+            aborted = true;
+        }
+
+        @Override
+        public void write(int b) {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b) {
+            write(b, 0, b.length);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) {
+            if (retained != null) {
+                retained.write(b, off, len);
+            }
+            written += len;
+            while (len > 0) {
+                int copied = Math.min(len, chunk.length - chunkPosition);
+                System.arraycopy(b, off, chunk, chunkPosition, copied);
+                chunkPosition += copied;
+                off += copied;
+                len -= copied;
+                if (chunkPosition == chunk.length) {
+                    chunkPosition = 0; // chunk written to fs.chunks
+                }
+            }
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+        }
+    }
+}
@@ -0,0 +1,288 @@
+package com.urlshortener.service;
+
+import com.urlshortener.model.ShortenedUrl;
+import com.urlshortener.service.LinkSearchService.Hits;
+import com.urlshortener.service.LinkSearchService.QueryTerm;
+import com.urlshortener.service.LinkSearchService.SearchPage;
+import com.urlshortener.service.LinkSearchService.TenantIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Matching, ordering and paging of link search, and search latency at 100k links per user.
+ */
+class LinkSearchServiceTest {
+
+    private static final LocalDateTime T0 = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    // shortCode -> link, as stored in MongoDB
+    private final Map<String, ShortenedUrl> stored = new LinkedHashMap<>();
+    private LinkSearchService service;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.stream(any(Query.class), eq(ShortenedUrl.class))).thenAnswer(invocation ->
+            stored.values().stream()
+                .filter(ShortenedUrl::isActive)
+                .sorted(Comparator.comparing(ShortenedUrl::getCreatedAt)));
+
+        ResourceListingService resourceListingService = mock(ResourceListingService.class);
+        when(resourceListingService.findUrls(anyList())).thenAnswer(invocation ->
+            ((List<String>) invocation.getArgument(0)).stream().map(stored::get).toList());
+
+        service = new LinkSearchService();
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(service, "resourceListingService", resourceListingService);
+        ReflectionTestUtils.setField(service, "meterRegistry", new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(service, "listenerContainer", mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(service, "redisTemplate", mock(ObjectProvider.class));
+        ReflectionTestUtils.setField(service, "maxIndexedLinks", 2_000_000L);
+        ReflectionTestUtils.setField(service, "idleEvictionMinutes", 30L);
+        ReflectionTestUtils.setField(service, "maxStalenessMinutes", 10L);
+        ReflectionTestUtils.setField(service, "defaultPageSize", 50);
+        ReflectionTestUtils.setField(service, "maxPageSize", 200);
+        service.initialize();
+    }
+
+    @Test
+    void lastTokenMatchesAsPrefixOthersExactly() {
+        link("docs", 1, "Example docs", "https://example.com/docs");
+        link("gallery", 2, "Examples gallery", "https://gallery.io/");
+        link("sample", 3, "Counter sample", "https://sample.org/");
+
+        assertThat(codes("example")).containsExactly("gallery", "docs");
+        assertThat(codes("exampl")).containsExactly("gallery", "docs");
+        assertThat(codes("example docs")).containsExactly("docs");
+        assertThat(codes("exampl docs")).isEmpty();
+        assertThat(codes("exampl* docs")).containsExactly("docs");
+        assertThat(codes("EXAMPLES")).containsExactly("gallery");
+    }
+
+    @Test
+    void dottedQueryIsAnExactTokenFollowedByAPrefix() {
+        link("com", 1, "Main site", "https://example.com/");
+        link("co", 2, "UK site", "https://example.co.uk/");
+        link("cor", 3, "Other", "https://examples.corp/");
+        link("org", 4, "Org", "https://example.org/");
+
+        assertThat(codes("example.co")).containsExactly("co", "com");
+        assertThat(codes("example.com")).containsExactly("com");
+        assertThat(codes("examples.co")).containsExactly("cor");
+        assertThat(LinkSearchService.parseQuery("example.co"))
+            .containsExactly(new QueryTerm("example", false), new QueryTerm("co", true));
+    }
+
+    @Test
+    void everyTokenMustMatchAcrossFields() {
+        ShortenedUrl sale = link("sale", 1, "Spring sale", "https://shop.example.com/spring");
+        sale.setTags(new String[] {"campaign", "q2"});
+        sale.setCategory("marketing");
+        ShortenedUrl launch = link("launch", 2, "Spring launch", "https://blog.example.com/launch");
+        launch.setTags(new String[] {"campaign"});
+        ShortenedUrl notes = link("notes", 3, "Release notes", "https://docs.example.com/");
+        notes.setNotes("spring campaign recap");
+
+        assertThat(codes("spring campaign")).containsExactly("notes", "launch", "sale");
+        assertThat(codes("spring campaign marketing")).containsExactly("sale");
+        assertThat(codes("campaign q2 shop")).containsExactly("sale");
+        assertThat(codes("spring launch blog")).containsExactly("launch");
+        assertThat(codes("spring nothing")).isEmpty();
+    }
+
+    @Test
+    void updatedLinksKeepTheirCreationOrder() {
+        for (int i = 0; i < 6; i++) {
+            link("c" + i, i, "Report draft " + i, "https://example.com/" + i);
+        }
+        assertThat(codes("report")).containsExactly("c5", "c4", "c3", "c2", "c1", "c0");
+
+        // Edit an old and a middle link (twice), then the newest
+        update("c1", "Report one renamed");
+        update("c3", "Report three");
+        update("c3", "Report three again");
+        update("c5", "Report five");
+
+        assertThat(codes("report")).containsExactly("c5", "c4", "c3", "c2", "c1", "c0");
+        assertThat(codes("renamed")).containsExactly("c1");
+        assertThat(codes("three")).containsExactly("c3");
+        assertThat(codes("again")).containsExactly("c3");
+        // Old tokens of edited links no longer match
+        assertThat(codes("draft")).containsExactly("c4", "c2", "c0");
+
+        // A newly created link is still first
+        ShortenedUrl created = link("c6", 6, "Report six", "https://example.com/6");
+        service.linksSaved(List.of(created));
+        assertThat(codes("report")).containsExactly("c6", "c5", "c4", "c3", "c2", "c1", "c0");
+    }
+
+    @Test
+    void removedLinksAreSkippedInPagesAndTotals() {
+        for (int i = 0; i < 10; i++) {
+            link("c" + i, i, "Invoice " + i, "https://billing.example.com/" + i);
+        }
+        search("invoice", 0, 50); // load the index
+        update("c2", "Invoice two");
+
+        remove("c8");
+        remove("c2"); // re-inserted, then removed
+        ShortenedUrl paused = stored.get("c5");
+        paused.setActive(false);
+        service.linksSaved(List.of(paused));
+
+        List<String> expected = List.of("c9", "c7", "c6", "c4", "c3", "c1", "c0");
+        assertThat(codes("invoice")).isEqualTo(expected);
+
+        SearchPage first = search("invoice", 0, 3);
+        SearchPage second = search("invoice", 3, 3);
+        SearchPage last = search("invoice", 6, 3);
+        SearchPage beyond = search("invoice", 9, 3);
+
+        assertThat(shortCodes(first)).containsExactly("c9", "c7", "c6");
+        assertThat(shortCodes(second)).containsExactly("c4", "c3", "c1");
+        assertThat(shortCodes(last)).containsExactly("c0");
+        assertThat(shortCodes(beyond)).isEmpty();
+        assertThat(List.of(first, second, last, beyond)).allSatisfy(page -> assertThat(page.getTotal()).isEqualTo(7));
+        assertThat(first.hasMore()).isTrue();
+        assertThat(second.hasMore()).isTrue();
+        assertThat(last.hasMore()).isFalse();
+    }
+
+    @Test
+    void indexOrdersReinsertedIdsByCreationTimeWithTies() {
+        TenantIndex index = new TenantIndex();
+        index.upsert("a", 100, Set.of("x"));
+        index.upsert("b", 200, Set.of("x"));
+        index.upsert("c", 200, Set.of("x"));
+        index.upsert("d", 300, Set.of("x"));
+        index.upsert("b", 200, Set.of("x", "y"));
+        index.upsert("a", 100, Set.of("x"));
+
+        Hits hits = index.search(List.of(new QueryTerm("x", false)), 0, 10);
+
+        assertThat(hits.total()).isEqualTo(4);
+        assertThat(hits.shortCodes()).containsExactlyInAnyOrder("a", "b", "c", "d");
+        assertThat(hits.shortCodes().get(0)).isEqualTo("d");
+        assertThat(hits.shortCodes().subList(1, 3)).containsExactlyInAnyOrder("b", "c");
+        assertThat(hits.shortCodes().get(3)).isEqualTo("a");
+        assertThat(index.search(List.of(new QueryTerm("y", false)), 0, 10).shortCodes()).containsExactly("b");
+    }
+
+    /**
+     * Index lookup time only; the page fetch that follows is one indexed $in of at most a page
+     * of short codes. Queries include the worst cases: a token and a prefix matching every link.
+     */
+    @Test
+    void searchesOneHundredThousandLinksWellUnderFiftyMillis() {
+        TenantIndex index = new TenantIndex();
+        Random random = new Random(42);
+        String[] words = new String[2000];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = "w" + Integer.toString(i * 7919 + 1000, 36);
+        }
+        String[] domains = new String[300];
+        for (int i = 0; i < domains.length; i++) {
+            domains[i] = "site" + i;
+        }
+
+        int links = 100_000;
+        for (int i = 0; i < links; i++) {
+            List<String> tokens = new ArrayList<>(List.of("c" + Integer.toString(i, 36), "https", "www",
+                domains[random.nextInt(domains.length)], "com", "tag" + random.nextInt(50)));
+            for (int w = 0; w < 4; w++) {
+                tokens.add(words[random.nextInt(words.length)]);
+            }
+            index.upsert("c" + Integer.toString(i, 36), T0.plusSeconds(i).toEpochSecond(ZoneOffset.UTC) * 1000, tokens);
+        }
+        // Some edits, so the re-inserted merge path is exercised at size
+        for (int i = 0; i < 2000; i++) {
+            int id = random.nextInt(links);
+            index.upsert("c" + Integer.toString(id, 36), T0.plusSeconds(id).toEpochSecond(ZoneOffset.UTC) * 1000,
+                List.of("https", "com", "edited", words[random.nextInt(words.length)]));
+        }
+
+        List<List<QueryTerm>> queries = List.of(
+            LinkSearchService.parseQuery("https"),            // matches every link
+            LinkSearchService.parseQuery("w"),                // prefix over the whole vocabulary
+            LinkSearchService.parseQuery("site12"),           // prefix over a dozen domains
+            LinkSearchService.parseQuery("https com tag7"),   // intersection of broad terms
+            LinkSearchService.parseQuery(words[17] + " " + words[901].substring(0, 3)),
+            LinkSearchService.parseQuery("edited"));
+
+        for (int warmup = 0; warmup < 20; warmup++) {
+            queries.forEach(query -> index.search(query, 0, 50));
+        }
+        long[] micros = new long[queries.size() * 50];
+        int n = 0;
+        for (int round = 0; round < 50; round++) {
+            for (List<QueryTerm> query : queries) {
+                long start = System.nanoTime();
+                Hits hits = index.search(query, round * 10, 50);
+                micros[n++] = (System.nanoTime() - start) / 1000;
+                assertThat(hits.shortCodes()).hasSizeLessThanOrEqualTo(50);
+            }
+        }
+        Arrays.sort(micros);
+
+        assertThat(index.search(queries.get(0), 0, 50).total()).isEqualTo(links);
+        assertThat(micros[(int) (micros.length * 0.99) - 1]).as("p99 search micros").isLessThan(50_000);
+    }
+
+    private ShortenedUrl link(String shortCode, int minute, String title, String originalUrl) {
+        ShortenedUrl url = new ShortenedUrl();
+        url.setShortCode(shortCode);
+        url.setUserId("user-1");
+        url.setTitle(title);
+        url.setOriginalUrl(originalUrl);
+        url.setCreatedAt(T0.plusMinutes(minute));
+        url.setActive(true);
+        stored.put(shortCode, url);
+        return url;
+    }
+
+    private void update(String shortCode, String title) {
+        ShortenedUrl url = stored.get(shortCode);
+        url.setTitle(title);
+        service.linksSaved(List.of(url));
+    }
+
+    private void remove(String shortCode) {
+        service.linkRemoved(stored.remove(shortCode));
+    }
+
+    private SearchPage search(String query, int offset, int limit) {
+        return service.search("user-1", query, offset, limit);
+    }
+
+    private List<String> codes(String query) {
+        return shortCodes(search(query, 0, 50));
+    }
+
+    private static List<String> shortCodes(SearchPage page) {
+        return page.getLinks().stream().map(ShortenedUrl::getShortCode).toList();
+    }
+}
@@ -0,0 +1,113 @@
+package com.urlshortener.service;
+
+import com.google.zxing.BinaryBitmap;
+import com.google.zxing.client.j2se.BufferedImageLuminanceSource;
+import com.google.zxing.common.HybridBinarizer;
+import com.google.zxing.qrcode.QRCodeReader;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Render latency: p99 of uncached renders stays low for the common formats and sizes, and
+ * repeat renders are cache hits. Output is checked by decoding it back.
+ */
+class QrCodeRendererTest {
+
+    private static final int WARMUP_RENDERS = 200;
+    private static final int MEASURED_RENDERS = 1000;
+    // Several times the few milliseconds an uncached 512px render takes, to stay stable on shared CI machines
+    private static final long MAX_P99_MICROS = 50_000;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private QrCodeRenderer renderer;
+
+    @BeforeEach
+    void setUp() {
+        renderer = new QrCodeRenderer();
+        ReflectionTestUtils.setField(renderer, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(renderer, "cacheMaxBytes", 32L * 1024 * 1024);
+        renderer.initialize();
+    }
+
+    @Test
+    void uncachedPngRenderP99() {
+        assertThat(p99Micros("png", 512)).isLessThan(MAX_P99_MICROS);
+    }
+
+    @Test
+    void uncachedSvgRenderP99() {
+        assertThat(p99Micros("svg", 512)).isLessThan(MAX_P99_MICROS);
+    }
+
+    @Test
+    void repeatRendersAreServedFromTheCache() {
+        byte[] first = renderer.render("https://pebly.example/abc1234", 300, "#000000", "#FFFFFF", "png", 1);
+        for (int i = 0; i < 100; i++) {
+            assertThat(renderer.render("https://pebly.example/abc1234", 300, "#000000", "#ffffff", "PNG", 1))
+                    .isSameAs(first);
+        }
+
+        assertThat(meterRegistry.get("qr.render.latency").timer().count()).isEqualTo(1);
+        assertThat(renderer.getStats()).containsEntry("cachedImages", 1L);
+    }
+
+    @Test
+    void renderedPngDecodesBackToTheContent() throws Exception {
+        String content = "https://pebly.example/" + "x".repeat(120);
+        for (int ecc = 0; ecc < 4; ecc++) {
+            assertThat(decode(renderer.render(content, 400, "#1A237E", "#FFF8E1", "png", ecc))).isEqualTo(content);
+        }
+        assertThat(decode(renderer.render(content, 400, "#000000", "#FFFFFF", "jpg", 2))).isEqualTo(content);
+    }
+
+    @Test
+    void invalidColoursFallBackToBlackOnWhite() throws Exception {
+        byte[] fallback = renderer.render("https://pebly.example/colour", 200, "red", null, "png", 1);
+        byte[] explicit = renderer.render("https://pebly.example/colour", 200, "#000000", "#FFFFFF", "png", 1);
+
+        assertThat(fallback).isSameAs(explicit);
+        assertThat(decode(fallback)).isEqualTo("https://pebly.example/colour");
+    }
+
+    @Test
+    void svgHasOnePathOfModuleRuns() {
+        String svg = new String(renderer.render("https://pebly.example/svg", 256, "#000000", "#FFFFFF", "svg", 1),
+                StandardCharsets.UTF_8);
+
+        assertThat(svg).startsWith("<svg").endsWith("</svg>").contains("width=\"256\"");
+        assertThat(svg.split("<path", -1)).hasSize(2);
+    }
+
+    private long p99Micros(String format, int size) {
+        for (int i = 0; i < WARMUP_RENDERS; i++) {
+            renderer.render("https://pebly.example/warmup/" + format + "/" + i, size, "#000000", "#FFFFFF", format, 1);
+        }
+
+        long[] micros = new long[MEASURED_RENDERS];
+        for (int i = 0; i < MEASURED_RENDERS; i++) {
+            // Distinct content per render, so every one misses the cache
+            String content = "https://pebly.example/" + format + "/" + Integer.toString(i * 7919, 36);
+            long start = System.nanoTime();
+            renderer.render(content, size, "#000000", "#FFFFFF", format, 1);
+            micros[i] = (System.nanoTime() - start) / 1000;
+        }
+        Arrays.sort(micros);
+        return micros[(int) Math.ceil(MEASURED_RENDERS * 0.99) - 1];
+    }
+
+    private static String decode(byte[] image) throws Exception {
+        BufferedImage decoded = ImageIO.read(new ByteArrayInputStream(image));
+        BinaryBitmap bitmap = new BinaryBitmap(new HybridBinarizer(new BufferedImageLuminanceSource(decoded)));
+        return new QRCodeReader().decode(bitmap).getText();
+    }
+}
@@ -0,0 +1,99 @@
+package com.urlshortener.service;
+
+import com.urlshortener.model.ShortenedUrl;
+import com.urlshortener.service.ResourceListingService.CursorPage;
+import com.urlshortener.service.ResourceListingService.ListingQuery;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Listings stay unpaginated unless the caller passes a cursor or limit.
+ */
+class ResourceListingServiceTest {
+
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final ResourceListingService service = new ResourceListingService();
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(service, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(service, "defaultPageSize", 50);
+        ReflectionTestUtils.setField(service, "maxPageSize", 200);
+    }
+
+    @Test
+    void withoutCursorOrLimitEverythingIsReturned() {
+        when(mongoTemplate.find(any(Query.class), eq(ShortenedUrl.class))).thenReturn(links(120));
+
+        CursorPage<ShortenedUrl> page = service.listUrls(ResourceListingService.ownedBy("user-1"),
+            new ListingQuery(null, null, null, null, null, null));
+
+        assertThat(page.getItems()).hasSize(120);
+        assertThat(page.hasMore()).isFalse();
+        assertThat(page.getNextCursor()).isNull();
+        assertThat(executedQuery().getLimit()).isZero();
+    }
+
+    @Test
+    void limitReturnsOnePageAndACursor() {
+        when(mongoTemplate.find(any(Query.class), eq(ShortenedUrl.class))).thenReturn(links(11));
+
+        CursorPage<ShortenedUrl> page = service.listUrls(ResourceListingService.ownedBy("user-1"),
+            new ListingQuery(null, 10, null, null, null, null));
+
+        assertThat(page.getItems()).hasSize(10);
+        assertThat(page.hasMore()).isTrue();
+        assertThat(executedQuery().getLimit()).isEqualTo(11);
+    }
+
+    @Test
+    void cursorAloneUsesTheDefaultPageSize() {
+        when(mongoTemplate.find(any(Query.class), eq(ShortenedUrl.class))).thenReturn(links(51));
+        String cursor = service.listUrls(ResourceListingService.ownedBy("user-1"),
+            new ListingQuery(null, 50, null, null, null, null)).getNextCursor();
+
+        CursorPage<ShortenedUrl> page = service.listUrls(ResourceListingService.ownedBy("user-1"),
+            new ListingQuery(cursor, null, null, null, null, null));
+
+        assertThat(page.getItems()).hasSize(50);
+        ArgumentCaptor<Query> queries = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate, times(2)).find(queries.capture(), eq(ShortenedUrl.class));
+        assertThat(queries.getAllValues().get(1).getLimit()).isEqualTo(51);
+    }
+
+    private Query executedQuery() {
+        ArgumentCaptor<Query> query = ArgumentCaptor.forClass(Query.class);
+        verify(mongoTemplate).find(query.capture(), eq(ShortenedUrl.class));
+        return query.getValue();
+    }
+
+    private static List<ShortenedUrl> links(int count) {
+        List<ShortenedUrl> links = new ArrayList<>();
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < count; i++) {
+            ShortenedUrl url = new ShortenedUrl();
+            url.setId(new ObjectId().toHexString());
+            url.setShortCode("code" + i);
+            url.setCreatedAt(now.minusMinutes(i));
+            links.add(url);
+        }
+        return links;
+    }
+}
@@ -0,0 +1,128 @@
+package com.urlshortener.service;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Several allocators (one per node) leasing blocks from the same id_counters sequence,
+ * each called from several threads, never hand out the same code twice.
+ */
+class ShortCodeAllocatorTest {
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    @Test
+    void allocatorsSharingTheSequenceNeverRepeatACode() throws Exception {
+        int nodes = 4;
+        int threadsPerNode = 4;
+        int codesPerThread = 10_000;
+        MongoTemplate mongoTemplate = sharedCounter(64);
+
+        List<ShortCodeAllocator> allocators = new ArrayList<>();
+        for (int i = 0; i < nodes; i++) {
+            allocators.add(allocator(mongoTemplate, 7, 64, true));
+        }
+
+        Set<String> codes = ConcurrentHashMap.newKeySet();
+        List<String> duplicates = new ArrayList<>();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (ShortCodeAllocator allocator : allocators) {
+            for (int t = 0; t < threadsPerNode; t++) {
+                Thread thread = new Thread(() -> {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                    for (int i = 0; i < codesPerThread; i++) {
+                        // Mix single and bulk allocation, as link creation and bulk import do
+                        List<String> batch = i % 10 == 0 ? allocator.nextCodes(5) : List.of(allocator.nextCode());
+                        for (String code : batch) {
+                            if (!codes.add(code)) {
+                                synchronized (duplicates) {
+                                    duplicates.add(code);
+                                }
+                            }
+                        }
+                    }
+                });
+                threads.add(thread);
+                thread.start();
+            }
+        }
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        int expected = nodes * threadsPerNode * (codesPerThread + codesPerThread / 10 * 4);
+        assertThat(duplicates).isEmpty();
+        assertThat(codes).hasSize(expected);
+        assertThat(codes).allMatch(code -> code.matches("[a-zA-Z0-9]{7}"));
+    }
+
+    @Test
+    void scrambledCodesCoverTheWholeKeyspaceThenStop() {
+        // Length 2: 62^2 = 3844 codes, leased in 31 blocks of 124
+        ShortCodeAllocator allocator = allocator(sharedCounter(124), 2, 124, true);
+
+        Set<String> codes = new HashSet<>(allocator.nextCodes(3844));
+
+        assertThat(codes).hasSize(3844);
+        assertThatThrownBy(allocator::nextCode)
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("keyspace exhausted");
+    }
+
+    @Test
+    void consecutiveScrambledCodesAreNotSequential() {
+        ShortCodeAllocator plain = allocator(sharedCounter(100), 7, 100, false);
+        assertThat(plain.nextCodes(3)).containsExactly("aaaaaaa", "aaaaaab", "aaaaaac");
+
+        sequence.set(0);
+        ShortCodeAllocator scrambled = allocator(sharedCounter(100), 7, 100, true);
+        assertThat(scrambled.nextCodes(3)).doesNotContain("aaaaaaa", "aaaaaab", "aaaaaac");
+    }
+
+    private MongoTemplate sharedCounter(int blockSize) {
+        MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+        when(mongoTemplate.findAndModify(any(Query.class), any(Update.class), any(FindAndModifyOptions.class),
+                eq(Document.class), eq("id_counters")))
+                .thenAnswer(invocation -> new Document("value", sequence.addAndGet(blockSize)));
+        return mongoTemplate;
+    }
+
+    private static ShortCodeAllocator allocator(MongoTemplate mongoTemplate, int codeLength, int blockSize,
+                                                boolean scramble) {
+        ShortCodeAllocator allocator = new ShortCodeAllocator();
+        ReflectionTestUtils.setField(allocator, "mongoTemplate", mongoTemplate);
+        ReflectionTestUtils.setField(allocator, "codeLength", codeLength);
+        ReflectionTestUtils.setField(allocator, "blockSize", blockSize);
+        ReflectionTestUtils.setField(allocator, "scramble", scramble);
+        ReflectionTestUtils.setField(allocator, "scrambleKey", 25214903917L);
+        allocator.initialize();
+        return allocator;
+    }
+}
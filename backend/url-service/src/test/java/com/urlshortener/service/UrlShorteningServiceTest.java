@@ -0,0 +1,150 @@
+package com.urlshortener.service;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.urlshortener.model.ShortenedUrl;
+import com.urlshortener.model.User;
+import com.urlshortener.repository.ShortenedUrlRepository;
+import com.urlshortener.repository.UserRepository;
+import org.bson.BsonDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.BulkOperationException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Bulk create when an insert trips the unique shortCode index: generated codes are retried
+ * with the next allocated code, custom aliases fail.
+ */
+class UrlShorteningServiceTest {
+
+    private final ShortenedUrlRepository shortenedUrlRepository = mock(ShortenedUrlRepository.class);
+    private final UserRepository userRepository = mock(UserRepository.class);
+    private final SubscriptionService subscriptionService = mock(SubscriptionService.class);
+    private final QuotaService quotaService = mock(QuotaService.class);
+    private final LinkResolver linkResolver = mock(LinkResolver.class);
+    private final ShortCodeAllocator shortCodeAllocator = mock(ShortCodeAllocator.class);
+    private final MongoTemplate mongoTemplate = mock(MongoTemplate.class);
+    private final BulkOperations bulkOps = mock(BulkOperations.class);
+
+    /** Short codes of each bulk insert, in call order. */
+    private final List<List<String>> inserts = new ArrayList<>();
+
+    private UrlShorteningService service;
+
+    @BeforeEach
+    void setUp() {
+        User user = new User("user@example.com", "secret");
+        user.setId("user-1");
+        when(userRepository.findById("user-1")).thenReturn(Optional.of(user));
+        when(subscriptionService.hasPremiumAccess(user)).thenReturn(true);
+        when(quotaService.reserve(eq("user-1"), eq(QuotaResource.URLS), anyInt()))
+            .thenAnswer(invocation -> invocation.getArgument(2));
+
+        AtomicInteger codes = new AtomicInteger();
+        when(shortCodeAllocator.nextCode()).thenAnswer(invocation -> "code" + codes.incrementAndGet());
+
+        when(mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, ShortenedUrl.class)).thenReturn(bulkOps);
+        when(bulkOps.insert(anyList())).thenAnswer(invocation -> {
+            List<ShortenedUrl> documents = invocation.getArgument(0);
+            inserts.add(documents.stream().map(ShortenedUrl::getShortCode).toList());
+            return bulkOps;
+        });
+
+        service = new UrlShorteningService(shortenedUrlRepository, userRepository, mock(CacheService.class),
+            subscriptionService, quotaService, linkResolver, mock(ClickCounterService.class), shortCodeAllocator,
+            mongoTemplate, mock(DashboardSummaryService.class), mock(LinkSearchService.class));
+        ReflectionTestUtils.setField(service, "shortUrlDomain", "https://sho.rt");
+    }
+
+    @Test
+    void generatedCodeTakenByAliasIsRetriedWithNextCode() {
+        when(bulkOps.execute())
+            .thenThrow(duplicateKeyAt(1))
+            .thenReturn(null);
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        Map<String, Object> summary = service.createShortUrlsBulk("user-1",
+            List.of(item("https://a.example"), item("https://b.example"), item("https://c.example")), results::add);
+
+        assertThat(inserts).containsExactly(List.of("code1", "code2", "code3"), List.of("code4"));
+        assertThat(summary).containsEntry("created", 3).containsEntry("failed", 0);
+        assertThat(results.get(1))
+            .containsEntry("success", true)
+            .containsEntry("shortCode", "code4")
+            .containsEntry("shortUrl", "https://sho.rt/code4");
+        verify(linkResolver).invalidate("code4");
+        verify(linkResolver, never()).invalidate("code2");
+        verify(quotaService).release("user-1", QuotaResource.URLS, 0);
+    }
+
+    @Test
+    void generatedCodeFailsAfterLastAttempt() {
+        when(bulkOps.execute())
+            .thenThrow(duplicateKeyAt(0))
+            .thenThrow(duplicateKeyAt(0))
+            .thenThrow(duplicateKeyAt(0));
+
+        List<Map<String, Object>> results = new ArrayList<>();
+        Map<String, Object> summary = service.createShortUrlsBulk("user-1",
+            List.of(item("https://a.example"), item("https://b.example")), results::add);
+
+        assertThat(inserts).containsExactly(List.of("code1", "code2"), List.of("code3"), List.of("code4"));
+        assertThat(summary).containsEntry("created", 1).containsEntry("failed", 1);
+        assertThat(results.get(0))
+            .containsEntry("success", false)
+            .containsEntry("message", "Short code already exists");
+        assertThat(results.get(1)).containsEntry("shortCode", "code2");
+        verify(quotaService).release("user-1", QuotaResource.URLS, 1);
+    }
+
+    @Test
+    void customAliasCollisionIsNotRetried() {
+        // The alias was free when checked and taken before the insert
+        when(shortenedUrlRepository.findShortCodesIn(any())).thenReturn(List.of());
+        when(bulkOps.execute()).thenThrow(duplicateKeyAt(0));
+
+        Map<String, Object> aliased = new HashMap<>(item("https://a.example"));
+        aliased.put("customAlias", "promo");
+        List<Map<String, Object>> results = new ArrayList<>();
+        service.createShortUrlsBulk("user-1", List.of(aliased), results::add);
+
+        assertThat(inserts).containsExactly(List.of("promo"));
+        assertThat(results.get(0)).containsEntry("message", "Short code already exists");
+        verify(shortCodeAllocator, never()).nextCode();
+        verify(quotaService).release("user-1", QuotaResource.URLS, 1);
+    }
+
+    private static Map<String, Object> item(String originalUrl) {
+        return Map.of("originalUrl", originalUrl);
+    }
+
+    private static BulkOperationException duplicateKeyAt(int index) {
+        List<BulkWriteError> errors = List.of(
+            new BulkWriteError(11000, "E11000 duplicate key error", new BsonDocument(), index));
+        return new BulkOperationException("E11000 duplicate key error", new MongoBulkWriteException(
+            BulkWriteResult.unacknowledged(), errors, null, new ServerAddress(), Set.of()));
+    }
+}